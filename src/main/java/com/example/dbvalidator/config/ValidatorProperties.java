@@ -4,7 +4,9 @@ import lombok.Data;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.context.annotation.Configuration;
 
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * 验证器配置属性
@@ -33,4 +35,199 @@ public class ValidatorProperties {
      * 忽略的字段列表
      */
     private List<String> ignoreFields;
+    
+    /**
+     * 对比模式
+     * key-set: 先加载双方全部主键求差集，再按主键批量回查（默认）
+     * merge-join: 双方按主键排序流式读取，归并对比，内存占用与表大小无关
+     * bucket-checksum: 库内按桶聚合行哈希，只对摘要不一致的桶逐层下钻，适合差异很少的表
+     * row-hash: 库内计算每行哈希，只传输 (主键, 哈希)，哈希不一致时才回查整行
+     */
+    private String compareMode = "key-set";
+    
+    /**
+     * 流式读取时每次从数据库拉取的行数（JDBC fetch size）
+     */
+    private int fetchSize = 5000;
+    
+    /**
+     * 分桶校验和模式下每层拆分的桶数
+     */
+    private int bucketFanout = 64;
+    
+    /**
+     * 多表并行对比的并发度，0 表示按两个库连接池的最大连接数自动计算
+     */
+    private int tableParallelism = 0;
+    
+    /**
+     * 按主键批量回查时，对比当前批次的同时预取的后续批次数（0 表示不预取，两个库仍并发查询）
+     */
+    private int prefetchBatches = 1;
+    
+    /**
+     * 批量回查流水线的对比线程数：大于 0 时主键生产、两端回查、对比、差异收集分为独立阶段并发执行，
+     * 每个库的回查线程数为 prefetchBatches + 1；默认 0，在调用线程上按批次顺序对比
+     */
+    private int compareWorkers = 0;
+    
+    /**
+     * 流水线各阶段之间队列的容量（批次），限制在途批次数与内存占用
+     */
+    private int pipelineQueueCapacity = 4;
+    
+    /**
+     * Oracle 按主键批量查找的方式
+     * padded: IN 列表补齐到固定档位（1/8/32/128/512/1000），超过 1000 项拆为多个 IN（默认）
+     * collection: 绑定 SYS.ODCINUMBERLIST / SYS.ODCIVARCHAR2LIST 集合参数
+     * PostgreSQL 始终绑定一个数组参数（pk = ANY(?)）
+     */
+    private String oracleKeyLookup = "padded";
+    
+    /**
+     * 主键集合模式下求主键差集的位置
+     * jvm: 两端主键加载到内存求差集（默认）
+     * postgresql: Oracle 主键经 COPY 写入 PostgreSQL 会话临时表，由 PostgreSQL 执行反连接
+     * oracle: PostgreSQL 主键批量插入 Oracle 全局临时表，由 Oracle 执行反连接
+     */
+    private String keyReconciliation = "jvm";
+    
+    /**
+     * keyReconciliation=oracle 时使用的全局临时表（需预先创建，单列 K，ON COMMIT DELETE ROWS）
+     */
+    private String oracleKeyTable = "DBV_KEYS";
+    
+    /**
+     * PostgreSQL 端批量回查的读取方式
+     * jdbc: 普通 JDBC 逐行读取（默认）
+     * copy: COPY (SELECT ...) TO STDOUT (FORMAT binary)，二进制元组流直接解码为列式批次
+     */
+    private String postgresExtraction = "jdbc";
+    
+    /**
+     * 本地数据目录（行哈希缓存等跨次运行的数据）
+     */
+    private String dataDir = "./data";
+    
+    /**
+     * 行哈希模式与物理分块模式下是否使用跨次运行的行哈希缓存：
+     * 上一次回查确认无字段差异、且两端哈希都未变化的行不再回查
+     */
+    private boolean rowHashCache = false;
+    
+    /**
+     * 每次对比在内存中保留的字段差异条数，超出部分追加写入 {dataDir}/diffs 下的溢出文件；
+     * 小于等于 0 表示全部保留在内存中。溢出文件在差异集过期或对比失败时删除，启动时清理上次运行遗留的文件
+     */
+    private int diffMemoryLimit = 10000;
+    
+    /**
+     * 保留溢出差异集（可分页查询）的最近对比次数，更早的差异集及其溢出文件被删除
+     */
+    private int diffRetention = 20;
+    
+    /**
+     * 差异汇总中保留的差异样例条数（在全部差异中蓄水池抽样）
+     */
+    private int diffSampleSize = 20;
+    
+    /**
+     * 是否只输出差异汇总：按类型、按列精确计数并保留少量样例，不保留差异明细，
+     * 结果中也不返回仅一端存在的主键列表（数量以汇总计数为准）
+     */
+    private boolean diffSummaryOnly = false;
+    
+    /**
+     * 主键集合模式下是否在同一个一致性读快照中对比整表：Oracle 端 AS OF SCN 读取，
+     * PostgreSQL 端所有查询导入同一个 REPEATABLE READ 快照，消除两端读取时间差造成的伪差异
+     * （Oracle 账号需要 DBMS_FLASHBACK 执行权限与表的 FLASHBACK 权限，对比耗时需在 UNDO 保留期内）
+     */
+    private boolean snapshotReads = false;
+    
+    /**
+     * 主键集合模式下差异主键的复查轮数：差异主键在发现时入队，延迟后按主键回查两端，仍不一致的按退避间隔再次复查，
+     * 只有每轮都不一致的差异进入对比结果；0 表示不复查
+     */
+    private int recheckRounds = 0;
+    
+    /**
+     * 首轮复查距发现差异的延迟（毫秒）
+     */
+    private long recheckDelayMs = 5000;
+    
+    /**
+     * 每轮复查延迟相对上一轮的倍数
+     */
+    private double recheckBackoff = 2.0;
+    
+    /**
+     * 复查的差异主键上限，超过时跳过复查（大量差异通常不是复制延迟造成的）
+     */
+    private int recheckMaxKeys = 10000;
+    
+    /**
+     * 按表配置的对比参数
+     * Key: 表名
+     */
+    private Map<String, TableOptions> tableOptions = new LinkedHashMap<>();
+    
+    /**
+     * 获取指定表的对比参数（表名不区分大小写，未配置时返回默认值）
+     */
+    public TableOptions optionsFor(String tableName) {
+        for (Map.Entry<String, TableOptions> entry : tableOptions.entrySet()) {
+            if (entry.getKey().equalsIgnoreCase(tableName)) {
+                return entry.getValue();
+            }
+        }
+        return new TableOptions();
+    }
+    
+    @Data
+    public static class TableOptions {
+        /**
+         * 单表内按主键区间拆分并行对比的分区数，1 表示不拆分
+         */
+        private int partitions = 1;
+        
+        /**
+         * 分区方式：key-range（按主键区间，默认）/ physical（按 Oracle ROWID 区间与 PostgreSQL ctid 区间，
+         * 适合字符/UUID 主键或主键分布严重倾斜的表）
+         */
+        private String chunking = "key-range";
+        
+        /**
+         * physical 分块时扫描中尚未匹配的行数上限（每行约占 100 字节堆内存），超过时中止该表的对比
+         */
+        private long pendingRowLimit = 5_000_000;
+        
+        /**
+         * Oracle 批量回查每次往返拉取的行数，0 表示与批量查询大小相同（一次往返取回一批）
+         */
+        private int oracleFetchSize = 0;
+        
+        /**
+         * Oracle LOB 列随行预取的长度（字节/字符），小于 0 表示使用驱动默认值
+         */
+        private int oracleLobPrefetchSize = 32768;
+        
+        /**
+         * Oracle 是否按首次执行的列定义预先声明列类型（defineColumnType）
+         */
+        private boolean oracleDefineColumns = true;
+        
+        /**
+         * 增量对比使用的时间字段（如 updated_at），为空时该表不参与增量对比
+         */
+        private String incrementalField;
+        
+        /**
+         * 增量对比窗口向前重叠的秒数，覆盖水位之前开始、之后才提交的事务
+         */
+        private int incrementalOverlapSeconds = 300;
+        
+        public boolean isPhysicalChunking() {
+            return "physical".equalsIgnoreCase(chunking);
+        }
+    }
 }
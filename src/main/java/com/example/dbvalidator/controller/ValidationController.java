@@ -2,6 +2,7 @@ package com.example.dbvalidator.controller;
 
 import com.example.dbvalidator.model.*;
 import com.example.dbvalidator.service.DataComparisonService;
+import com.example.dbvalidator.service.IncrementalComparisonService;
 import com.example.dbvalidator.service.ReportService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -28,6 +29,7 @@ public class ValidationController {
     
     private final DataComparisonService comparisonService;
     private final ReportService reportService;
+    private final IncrementalComparisonService incrementalComparisonService;
     
     /**
      * 验证所有表
@@ -51,17 +53,62 @@ public class ValidationController {
     
     /**
      * 验证单个表
+     * 指定 samplePercent（抽样百分比）或 sampleRows（目标样本行数）时按主键哈希抽样对比，
+     * 结果中给出不一致率的 95% 置信区间；
+     * 指定 maxDifferences 时为快速探测，发现该数量的差异即停止，返回标记为 truncated 的部分结果
      */
     @PostMapping("/compare-table/{tableName}")
     public ResponseEntity<ComparisonResult> compareTable(
-            @PathVariable String tableName) {
-        log.info("开始验证表: {}", tableName);
+            @PathVariable String tableName,
+            @RequestParam(required = false) Double samplePercent,
+            @RequestParam(required = false) Long sampleRows,
+            @RequestParam(required = false) Long maxDifferences) {
+        log.info("开始验证表: {}, 抽样百分比: {}, 目标样本行数: {}, 差异阈值: {}",
+                tableName, samplePercent, sampleRows, maxDifferences);
         
-        ComparisonResult result = comparisonService.compareTable(tableName);
+        ComparisonResult result = maxDifferences != null
+                ? comparisonService.probeTable(tableName, maxDifferences)
+                : comparisonService.compareTable(tableName, samplePercent, sampleRows);
         
         return ResponseEntity.ok(result);
     }
     
+    /**
+     * 分页查询差异集中的字段差异（对比结果中 diffId 非空时，compactDifferences 只含前若干条）
+     * 返回紧凑格式，列下标对应对比结果中的 diffColumns
+     */
+    @GetMapping("/differences/{diffId}")
+    public ResponseEntity<List<CompactDifference>> getFieldDifferences(
+            @PathVariable String diffId,
+            @RequestParam(defaultValue = "0") long offset,
+            @RequestParam(defaultValue = "100") int limit) {
+        if (comparisonService.getDiffSink(diffId) == null) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok(comparisonService.pageFieldDifferences(diffId, offset, Math.min(limit, 10000)));
+    }
+    
+    /**
+     * 按主键回查两端整行数据（紧凑差异不保存整行），只能查询配置中的对比表
+     */
+    @GetMapping("/rows/{tableName}/{primaryKey}")
+    public ResponseEntity<FieldDifference> getFullRows(
+            @PathVariable String tableName,
+            @PathVariable String primaryKey) {
+        if (comparisonService.configuredTable(tableName) == null) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok(comparisonService.fetchFullRows(tableName, primaryKey));
+    }
+    
+    /**
+     * 查看各表批量回查流水线的阶段吞吐与队列深度（对比进行中也可查询）
+     */
+    @GetMapping("/pipeline-stats")
+    public ResponseEntity<List<PipelineStats>> getPipelineStats() {
+        return ResponseEntity.ok(comparisonService.getPipelineStats());
+    }
+    
     /**
      * 获取文本格式报告
      */
@@ -192,6 +239,40 @@ public class ValidationController {
         return ResponseEntity.ok(result);
     }
     
+    /**
+     * 增量对比所有配置了增量字段的表（按持久化水位确定时间窗口）
+     */
+    @PostMapping("/incremental-comparison")
+    public ResponseEntity<Map<String, TableDataComparison>> compareAllTablesIncremental(
+            @RequestBody(required = false) IncrementalComparisonRequest request) {
+        List<String> ignoredFields = request != null ? request.getIgnoredFields() : null;
+        log.info("开始增量对比所有表, 忽略字段: {}", ignoredFields);
+        
+        return ResponseEntity.ok(incrementalComparisonService.compareAllTablesIncremental(ignoredFields));
+    }
+    
+    /**
+     * 增量对比单个表
+     */
+    @PostMapping("/incremental-comparison/{tableName}")
+    public ResponseEntity<TableDataComparison> compareTableIncremental(
+            @PathVariable String tableName,
+            @RequestBody(required = false) IncrementalComparisonRequest request) {
+        List<String> ignoredFields = request != null ? request.getIgnoredFields() : null;
+        log.info("开始增量对比: {}, 忽略字段: {}", tableName, ignoredFields);
+        
+        return ResponseEntity.ok(incrementalComparisonService.compareTableIncremental(tableName, ignoredFields));
+    }
+    
+    /**
+     * 重置表的增量水位，下一次增量对比退回全量
+     */
+    @DeleteMapping("/incremental-comparison/{tableName}/watermark")
+    public ResponseEntity<Void> resetWatermark(@PathVariable String tableName) {
+        incrementalComparisonService.resetWatermark(tableName);
+        return ResponseEntity.noContent().build();
+    }
+    
     /**
      * 总量对比请求参数模型
      */
@@ -217,4 +298,14 @@ public class ValidationController {
         private String endTime;
         private String timeField; // 时间字段名
     }
+    
+    /**
+     * 增量对比请求参数模型
+     */
+    @lombok.Data
+    @lombok.NoArgsConstructor
+    @lombok.AllArgsConstructor
+    public static class IncrementalComparisonRequest {
+        private List<String> ignoredFields;
+    }
 }
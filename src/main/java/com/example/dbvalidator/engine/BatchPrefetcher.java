@@ -0,0 +1,211 @@
+package com.example.dbvalidator.engine;
+
+import lombok.Getter;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/**
+ * 批量回查预取器
+ * <p>
+ * 同一批主键的 Oracle 与 PostgreSQL 查询并发执行，两端结果都到达后交给调用方对比；
+ * 对比当前批次的同时预取后续 prefetchBatches 个批次，使两个库与本地 CPU 同时工作。
+ * 每个库同时在途的查询最多 prefetchBatches + 1 个，即最多占用同样数量的连接。
+ * 结果按列解码为 {@link ColumnarBatch}，批次处理完成后归还读取器，供后续批次复用数组。
+ * Oracle 端可选用调优过 fetch size 与列类型声明的读取器（{@link OracleBatchReader}），
+ * PostgreSQL 端可选用 COPY 二进制读取（{@link PostgresCopyReader}）。
+ */
+public class BatchPrefetcher {
+    
+    private final JdbcTemplate oracleJdbcTemplate;
+    private final JdbcTemplate postgresJdbcTemplate;
+    private final int prefetchBatches;
+    
+    private final ColumnarBatchReader oracleReader = new ColumnarBatchReader();
+    
+    private final ColumnarBatchReader postgresReader = new ColumnarBatchReader();
+    
+    /**
+     * Oracle 端的调优读取器，未启用时为 null
+     */
+    private final OracleBatchReader oracleBatchReader;
+    
+    /**
+     * PostgreSQL 端的 COPY 二进制读取器，未启用时为 null
+     */
+    private final PostgresCopyReader postgresCopyReader;
+    
+    public BatchPrefetcher(JdbcTemplate oracleJdbcTemplate,
+                           JdbcTemplate postgresJdbcTemplate,
+                           int prefetchBatches) {
+        this(oracleJdbcTemplate, postgresJdbcTemplate, prefetchBatches, null, false);
+    }
+    
+    /**
+     * @param oracleSettings Oracle 端读取参数，为 null 时使用 JdbcTemplate 默认设置
+     * @param postgresCopy   PostgreSQL 端是否通过 COPY 二进制流读取
+     */
+    public BatchPrefetcher(JdbcTemplate oracleJdbcTemplate,
+                           JdbcTemplate postgresJdbcTemplate,
+                           int prefetchBatches,
+                           OracleBatchReader.Settings oracleSettings,
+                           boolean postgresCopy) {
+        this.oracleJdbcTemplate = oracleJdbcTemplate;
+        this.postgresJdbcTemplate = postgresJdbcTemplate;
+        this.prefetchBatches = Math.max(0, prefetchBatches);
+        this.oracleBatchReader = oracleSettings != null
+                ? new OracleBatchReader(oracleJdbcTemplate, oracleReader, oracleSettings) : null;
+        this.postgresCopyReader = postgresCopy ? new PostgresCopyReader(postgresJdbcTemplate, postgresReader) : null;
+    }
+    
+    /**
+     * 每个库需要的连接数
+     */
+    public int getConnections() {
+        return prefetchBatches + 1;
+    }
+    
+    /**
+     * 按顺序查询并处理迭代器产生的批次，批次在需要预取时才生成
+     *
+     * @param queryFactory 根据批次生成两个库的查询
+     * @param handler      在调用线程上按批次顺序执行，返回后批次数据即被复用，不能再引用
+     */
+    public <B> void run(Iterator<B> batches, Function<B, BatchQuery> queryFactory, BatchHandler<B> handler) {
+        if (!batches.hasNext()) {
+            return;
+        }
+        
+        AtomicInteger threadIndex = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(2 * getConnections(), r -> {
+            Thread t = new Thread(r, "batch-fetch-" + threadIndex.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+        
+        Deque<PendingBatch<B>> pending = new ArrayDeque<>();
+        try {
+            while (batches.hasNext() && pending.size() <= prefetchBatches) {
+                pending.add(submit(executor, batches.next(), queryFactory));
+            }
+            
+            while (!pending.isEmpty()) {
+                PendingBatch<B> current = pending.poll();
+                ColumnarBatch oracleRows = await(current.oracleRows);
+                ColumnarBatch postgresRows = await(current.postgresRows);
+                
+                if (batches.hasNext()) {
+                    pending.add(submit(executor, batches.next(), queryFactory));
+                }
+                handler.handle(current.batch, oracleRows, postgresRows);
+                release(oracleRows, postgresRows);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+    
+    private <B> PendingBatch<B> submit(ExecutorService executor, B batch, Function<B, BatchQuery> queryFactory) {
+        BatchQuery query = queryFactory.apply(batch);
+        return new PendingBatch<>(batch,
+                executor.submit(() -> queryOracle(query)),
+                executor.submit(() -> queryPostgres(query)));
+    }
+    
+    /**
+     * 在当前线程执行一个批次的 Oracle 端查询
+     */
+    public ColumnarBatch queryOracle(BatchQuery query) {
+        return oracleBatchReader != null
+                ? oracleBatchReader.query(query.getOracleSql(), query.getOracleParameters())
+                : oracleJdbcTemplate.query(query.getOracleSql(), oracleReader, query.getOracleParameters());
+    }
+    
+    /**
+     * 在当前线程执行一个批次的 PostgreSQL 端查询
+     */
+    public ColumnarBatch queryPostgres(BatchQuery query) {
+        return postgresCopyReader != null
+                ? postgresCopyReader.query(query.getPostgresSql(), query.getPostgresParameters())
+                : postgresJdbcTemplate.query(query.getPostgresSql(), postgresReader, query.getPostgresParameters());
+    }
+    
+    /**
+     * 批次处理完成后归还两端的列式批次，供后续批次复用
+     */
+    public void release(ColumnarBatch oracleRows, ColumnarBatch postgresRows) {
+        oracleReader.release(oracleRows);
+        postgresReader.release(postgresRows);
+    }
+    
+    private static <T> T await(Future<T> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("批量查询被中断", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new IllegalStateException("批量查询失败", cause);
+        }
+    }
+    
+    /**
+     * 一个批次的查询语句
+     */
+    @Getter
+    public static class BatchQuery {
+        
+        private final String oracleSql;
+        
+        private final Object[] oracleParameters;
+        
+        private final String postgresSql;
+        
+        private final Object[] postgresParameters;
+        
+        public BatchQuery(String oracleSql, Object[] oracleParameters, String postgresSql, Object[] postgresParameters) {
+            this.oracleSql = oracleSql;
+            this.oracleParameters = oracleParameters;
+            this.postgresSql = postgresSql;
+            this.postgresParameters = postgresParameters;
+        }
+    }
+    
+    /**
+     * 批次结果处理
+     */
+    @FunctionalInterface
+    public interface BatchHandler<B> {
+        
+        void handle(B batch, ColumnarBatch oracleRows, ColumnarBatch postgresRows);
+    }
+    
+    private static class PendingBatch<B> {
+        
+        private final B batch;
+        
+        private final Future<ColumnarBatch> oracleRows;
+        
+        private final Future<ColumnarBatch> postgresRows;
+        
+        PendingBatch(B batch,
+                     Future<ColumnarBatch> oracleRows,
+                     Future<ColumnarBatch> postgresRows) {
+            this.batch = batch;
+            this.oracleRows = oracleRows;
+            this.postgresRows = postgresRows;
+        }
+    }
+}
@@ -0,0 +1,464 @@
+package com.example.dbvalidator.engine;
+
+import com.example.dbvalidator.model.FieldDifference;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
+
+/**
+ * 分桶校验和对比引擎（Merkle 树式逐层下钻）
+ * <p>
+ * 每个桶在库内聚合出 (行数, 行哈希之和)，只传输摘要列表；摘要一致的桶直接跳过，
+ * 不一致的桶继续拆分为子桶，直到桶内行数不超过阈值时才拉取整行逐行对比。
+ * 网络流量和耗时与差异数量成正比，而不是与表大小成正比。
+ * <p>
+ * 下钻按层（广度优先）进行：桶宽为 fanout 的整数次幂，各层的桶对齐在同一网格上，
+ * 同一层所有需要拆分的桶合并为一次分组查询（每次最多 {@value #MAX_BUCKETS_PER_QUERY} 个桶）；
+ * 叶子桶按上一层摘要中的行数合并为整行查询，每次查询每端最多约 {@value #MAX_LEAF_QUERY_ROWS} 行，限制堆内存占用。
+ * <p>
+ * 桶键：整数主键直接按主键取值范围分桶，可走主键索引范围扫描；其他主键按主键规范串 MD5 的前 32 位分桶，
+ * 两端取值一致，但每次摘要查询、整行查询都是一次库内全表扫描，全表扫描次数与下钻层数成正比，而不是与差异数量成正比。
+ */
+@Slf4j
+public class BucketChecksumComparator {
+    
+    /**
+     * 哈希桶键的取值上界（32 位无符号整数）
+     */
+    private static final long HASH_DOMAIN_MAX = 0xFFFFFFFFL;
+    
+    /**
+     * 单次查询覆盖的桶数上限（Oracle IN 列表最多 1000 项）
+     */
+    static final int MAX_BUCKETS_PER_QUERY = 1000;
+    
+    /**
+     * 单次整行查询覆盖的叶子桶行数上限（按摘要行数累计，单个叶子桶超过时独占一次查询）
+     */
+    static final long MAX_LEAF_QUERY_ROWS = 20_000;
+    
+    private final JdbcTemplate oracleJdbcTemplate;
+    private final JdbcTemplate postgresJdbcTemplate;
+    private final int fanout;
+    private final int leafRows;
+    
+    /**
+     * @param fanout   每层拆分的桶数
+     * @param leafRows 桶内行数不超过该值时直接逐行对比
+     */
+    public BucketChecksumComparator(JdbcTemplate oracleJdbcTemplate,
+                                    JdbcTemplate postgresJdbcTemplate,
+                                    int fanout,
+                                    int leafRows) {
+        this.oracleJdbcTemplate = oracleJdbcTemplate;
+        this.postgresJdbcTemplate = postgresJdbcTemplate;
+        this.fanout = Math.max(2, fanout);
+        this.leafRows = Math.max(1, leafRows);
+    }
+    
+    /**
+     * 分桶对比整张表
+     *
+     * @param ignoredFields 不参与行哈希的字段
+     * @return 双方行数
+     */
+    public ScanCounts compare(String tableName,
+                              String primaryKey,
+                              List<String> ignoredFields,
+                              RowDiffer rowDiffer,
+                              ComparisonListener listener) {
+        TableMetadata metadata = TableMetadata.load(oracleJdbcTemplate, postgresJdbcTemplate, tableName);
+        List<String> columns = metadata.comparableColumns(ignoredFields);
+        
+        ColumnInfo oracleKey = metadata.getOracleColumn(primaryKey);
+        ColumnInfo postgresKey = metadata.getPostgresColumn(primaryKey);
+        boolean rangeBuckets = oracleKey != null && postgresKey != null
+                && oracleKey.isIntegral() && postgresKey.isIntegral();
+        
+        long[] domain = new long[]{0, HASH_DOMAIN_MAX};
+        if (rangeBuckets) {
+            BigDecimal[] keyRange = keyDomain(tableName, primaryKey);
+            if (keyRange == null) {
+                return new ScanCounts(0, 0);
+            }
+            domain = longDomain(keyRange[0], keyRange[1]);
+            if (domain == null) {
+                // 如 NUMBER(38,0) 主键超出 64 位整数范围，或区间宽度溢出，无法按取值范围分桶
+                log.info("表 {} 主键取值范围 [{}, {}] 超出 64 位整数可分桶的范围，改为按主键哈希分桶",
+                        tableName, keyRange[0], keyRange[1]);
+                rangeBuckets = false;
+                domain = new long[]{0, HASH_DOMAIN_MAX};
+            }
+        }
+        
+        BucketQuery oracleQuery = new BucketQuery(oracleJdbcTemplate, Dialect.ORACLE, tableName, rangeBuckets,
+                rangeBuckets ? primaryKey : RowDigestSql.hash32(Dialect.ORACLE,
+                        RowDigestSql.canonicalColumn(Dialect.ORACLE, oracleKey)),
+                RowDigestSql.hash32(Dialect.ORACLE, RowDigestSql.canonicalRow(Dialect.ORACLE, metadata, columns)));
+        BucketQuery postgresQuery = new BucketQuery(postgresJdbcTemplate, Dialect.POSTGRESQL, tableName, rangeBuckets,
+                rangeBuckets ? primaryKey : RowDigestSql.hash32(Dialect.POSTGRESQL,
+                        RowDigestSql.canonicalColumn(Dialect.POSTGRESQL, postgresKey)),
+                RowDigestSql.hash32(Dialect.POSTGRESQL, RowDigestSql.canonicalRow(Dialect.POSTGRESQL, metadata, columns)));
+        return drillDown(tableName, primaryKey, domain, oracleQuery, postgresQuery, rowDiffer, listener);
+    }
+    
+    /**
+     * 从整个取值范围开始逐层下钻：摘要不一致且行数超过阈值的桶进入下一层，否则逐行对比
+     * 每层对两端各执行一次分组查询（桶数超过上限时分多次），与不一致的桶数无关
+     *
+     * @return 双方行数（取自第一层摘要）
+     */
+    ScanCounts drillDown(String tableName,
+                         String primaryKey,
+                         long[] domain,
+                         BucketQuery oracleQuery,
+                         BucketQuery postgresQuery,
+                         RowDiffer rowDiffer,
+                         ComparisonListener listener) {
+        long lo = domain[0];
+        long hi = domain[1];
+        long width = topWidth(lo, hi);
+        long oracleRows = 0;
+        long postgresRows = 0;
+        int levels = 0;
+        int bucketQueries = 0;
+        int leafBuckets = 0;
+        
+        // 上一层需要拆分的桶（按上一层桶宽编号），null 表示整个取值范围
+        List<Long> parents = null;
+        long parentWidth = 0;
+        
+        while (true) {
+            Map<Long, BucketDigest> oracleDigests = new HashMap<>();
+            Map<Long, BucketDigest> postgresDigests = new HashMap<>();
+            for (List<Long> chunk : chunks(parents)) {
+                oracleDigests.putAll(oracleQuery.digest(lo, hi, width, parentWidth, chunk));
+                postgresDigests.putAll(postgresQuery.digest(lo, hi, width, parentWidth, chunk));
+                bucketQueries++;
+            }
+            if (levels++ == 0) {
+                oracleRows = oracleDigests.values().stream().mapToLong(BucketDigest::getRowCount).sum();
+                postgresRows = postgresDigests.values().stream().mapToLong(BucketDigest::getRowCount).sum();
+            }
+            
+            Set<Long> buckets = new TreeSet<>(oracleDigests.keySet());
+            buckets.addAll(postgresDigests.keySet());
+            
+            List<Long> split = new ArrayList<>();
+            Map<Long, Long> leaves = new LinkedHashMap<>();
+            for (Long bucket : buckets) {
+                BucketDigest oracleDigest = oracleDigests.get(bucket);
+                BucketDigest postgresDigest = postgresDigests.get(bucket);
+                if (Objects.equals(oracleDigest, postgresDigest)) {
+                    continue;
+                }
+                long rows = Math.max(
+                        oracleDigest != null ? oracleDigest.getRowCount() : 0,
+                        postgresDigest != null ? postgresDigest.getRowCount() : 0);
+                if (rows <= leafRows || width == 1) {
+                    leaves.put(bucket, rows);
+                } else {
+                    split.add(bucket);
+                }
+            }
+            
+            for (List<Long> chunk : leafChunks(leaves)) {
+                compareLeaves(oracleQuery, postgresQuery, primaryKey, lo, hi, width, chunk, rowDiffer, listener);
+            }
+            leafBuckets += leaves.size();
+            
+            if (split.isEmpty()) {
+                break;
+            }
+            parents = split;
+            parentWidth = width;
+            width /= fanout;
+        }
+        
+        log.info("表 {} 分桶对比完成 - 下钻层数: {}, 摘要查询: {} 次, 逐行对比桶数: {}",
+                tableName, levels, bucketQueries, leafBuckets);
+        return new ScanCounts(oracleRows, postgresRows);
+    }
+    
+    /**
+     * 逐行对比一批叶子桶（两端各一次查询）
+     */
+    private void compareLeaves(BucketQuery oracleQuery,
+                               BucketQuery postgresQuery,
+                               String primaryKey,
+                               long lo,
+                               long hi,
+                               long width,
+                               List<Long> buckets,
+                               RowDiffer rowDiffer,
+                               ComparisonListener listener) {
+        Map<Object, Map<String, Object>> oracleRows = oracleQuery.rows(lo, hi, width, buckets, primaryKey, rowDiffer);
+        Map<Object, Map<String, Object>> postgresRows = postgresQuery.rows(lo, hi, width, buckets, primaryKey, rowDiffer);
+        
+        for (Map.Entry<Object, Map<String, Object>> entry : oracleRows.entrySet()) {
+            Map<String, Object> postgresRow = postgresRows.remove(entry.getKey());
+            if (postgresRow == null) {
+                listener.onlyInOracle(entry.getValue().get(primaryKey));
+                continue;
+            }
+            FieldDifference diff = rowDiffer.diff(entry.getValue().get(primaryKey), entry.getValue(), postgresRow);
+            if (diff != null) {
+                listener.fieldDifference(diff);
+            }
+        }
+        for (Map<String, Object> postgresRow : postgresRows.values()) {
+            listener.onlyInPostgres(postgresRow.get(primaryKey));
+        }
+    }
+    
+    /**
+     * 按桶数上限与累计行数上限拆分叶子桶（Key 为桶号，Value 为摘要中两端较大的行数）
+     */
+    static List<List<Long>> leafChunks(Map<Long, Long> leaves) {
+        List<List<Long>> chunks = new ArrayList<>();
+        List<Long> chunk = new ArrayList<>();
+        long rows = 0;
+        for (Map.Entry<Long, Long> leaf : leaves.entrySet()) {
+            if (!chunk.isEmpty() && (chunk.size() >= MAX_BUCKETS_PER_QUERY
+                    || rows + leaf.getValue() > MAX_LEAF_QUERY_ROWS)) {
+                chunks.add(chunk);
+                chunk = new ArrayList<>();
+                rows = 0;
+            }
+            chunk.add(leaf.getKey());
+            rows += leaf.getValue();
+        }
+        if (!chunk.isEmpty()) {
+            chunks.add(chunk);
+        }
+        return chunks;
+    }
+    
+    /**
+     * 按单次查询的桶数上限拆分，buckets 为 null（整个取值范围）时返回单个 null 批次
+     */
+    private static List<List<Long>> chunks(List<Long> buckets) {
+        if (buckets == null) {
+            return Collections.singletonList(null);
+        }
+        List<List<Long>> chunks = new ArrayList<>();
+        for (int i = 0; i < buckets.size(); i += MAX_BUCKETS_PER_QUERY) {
+            chunks.add(buckets.subList(i, Math.min(buckets.size(), i + MAX_BUCKETS_PER_QUERY)));
+        }
+        return chunks;
+    }
+    
+    /**
+     * 整数主键的取值范围（两端并集），两端都没有数据时返回 null
+     */
+    private BigDecimal[] keyDomain(String tableName, String primaryKey) {
+        String sql = String.format("SELECT MIN(%s), MAX(%s) FROM %s", primaryKey, primaryKey, tableName);
+        BigDecimal[] oracleRange = oracleJdbcTemplate.query(sql, BucketChecksumComparator::extractRange);
+        BigDecimal[] postgresRange = postgresJdbcTemplate.query(sql, BucketChecksumComparator::extractRange);
+        if (oracleRange == null) {
+            return postgresRange;
+        }
+        if (postgresRange == null) {
+            return oracleRange;
+        }
+        return new BigDecimal[]{oracleRange[0].min(postgresRange[0]), oracleRange[1].max(postgresRange[1])};
+    }
+    
+    private static BigDecimal[] extractRange(ResultSet rs) throws SQLException {
+        if (!rs.next()) {
+            return null;
+        }
+        BigDecimal min = rs.getBigDecimal(1);
+        BigDecimal max = rs.getBigDecimal(2);
+        if (min == null || max == null) {
+            return null;
+        }
+        return new BigDecimal[]{min, max};
+    }
+    
+    /**
+     * 转换为 64 位整数区间；端点超出 long 范围，或区间行数 max - min + 1 超出 long 范围时返回 null
+     */
+    static long[] longDomain(BigDecimal min, BigDecimal max) {
+        long lo;
+        long hi;
+        try {
+            lo = min.longValueExact();
+            hi = max.longValueExact();
+        } catch (ArithmeticException e) {
+            return null;
+        }
+        BigInteger span = BigInteger.valueOf(hi).subtract(BigInteger.valueOf(lo)).add(BigInteger.ONE);
+        if (span.bitLength() > 63) {
+            return null;
+        }
+        return new long[]{lo, hi};
+    }
+    
+    /**
+     * 第一层桶宽：不小于区间行数 / fanout 的最小 fanout 整数次幂，逐层除以 fanout 直到 1，各层的桶边界对齐
+     */
+    long topWidth(long lo, long hi) {
+        long span = hi - lo + 1;
+        long width = 1;
+        while (width <= (span - 1) / fanout) {
+            width *= fanout;
+        }
+        return width;
+    }
+    
+    /**
+     * 桶宽为 width 的第 bucket 个桶的区间 [起点, 终点]，终点不超过 hi
+     */
+    static long[] bucketRange(long lo, long hi, long width, long bucket) {
+        long start = lo + bucket * width;
+        return new long[]{start, hi - start < width ? hi : start + width - 1};
+    }
+    
+    /**
+     * 单库的分桶查询
+     * 桶号为 FLOOR((桶键 - lo) / 桶宽)；限定在部分桶内时，主键桶键按区间过滤（可走索引），
+     * 哈希桶键按上一层桶号的 IN 列表过滤（哈希表达式在过滤条件与分组中各计算一次，不随桶数增加）
+     */
+    static class BucketQuery {
+        
+        private final JdbcTemplate jdbcTemplate;
+        private final Dialect dialect;
+        private final String tableName;
+        private final boolean rangeKey;
+        private final String bucketKey;
+        private final String rowHash;
+        
+        /**
+         * @param rangeKey  桶键是否为主键列本身（否则为主键哈希表达式）
+         */
+        BucketQuery(JdbcTemplate jdbcTemplate, Dialect dialect, String tableName, boolean rangeKey,
+                    String bucketKey, String rowHash) {
+            this.jdbcTemplate = jdbcTemplate;
+            this.dialect = dialect;
+            this.tableName = tableName;
+            this.rangeKey = rangeKey;
+            this.bucketKey = bucketKey;
+            this.rowHash = rowHash;
+        }
+        
+        /**
+         * 上一层的 parents 各桶（桶宽 parentWidth）内按桶宽 width 聚合的摘要，Key 为桶号
+         *
+         * @param parents 为 null 时聚合整个区间 [lo, hi]
+         */
+        Map<Long, BucketDigest> digest(long lo, long hi, long width, long parentWidth, List<Long> parents) {
+            String bucketNo = bucketNo(lo, width);
+            String sql = String.format(
+                    "SELECT %s AS bucket_no, COUNT(*) AS row_count, SUM(%s) AS row_hash " +
+                    "FROM %s WHERE %s GROUP BY %s",
+                    bucketNo, rowHash, tableName, filter(lo, hi, parentWidth, parents), bucketNo);
+            
+            Map<Long, BucketDigest> digests = new HashMap<>();
+            jdbcTemplate.query(sql, rs -> {
+                digests.put(rs.getLong("bucket_no"),
+                        new BucketDigest(rs.getLong("row_count"), rs.getBigDecimal("row_hash")));
+            });
+            return digests;
+        }
+        
+        /**
+         * buckets 各桶（桶宽 width）内的整行数据，Key 为规范化后的主键
+         */
+        Map<Object, Map<String, Object>> rows(long lo, long hi, long width, List<Long> buckets,
+                                              String primaryKey, RowDiffer rowDiffer) {
+            String sql = String.format("SELECT %s FROM %s WHERE %s",
+                    rowDiffer.selectList(dialect, primaryKey), tableName, filter(lo, hi, width, buckets));
+            Map<Object, Map<String, Object>> rows = new LinkedHashMap<>();
+            for (Map<String, Object> row : jdbcTemplate.queryForList(sql)) {
+                rows.put(KeyOrder.canonicalize(row.get(primaryKey)), row);
+            }
+            return rows;
+        }
+        
+        private String bucketNo(long lo, long width) {
+            return dialect == Dialect.POSTGRESQL
+                    ? String.format("FLOOR(CAST(%s - (%d) AS NUMERIC) / %d)", bucketKey, lo, width)
+                    : String.format("FLOOR((%s - (%d)) / %d)", bucketKey, lo, width);
+        }
+        
+        /**
+         * 限定在 buckets 各桶（桶宽 width，按桶号升序）内的过滤条件，buckets 为 null 时为整个区间
+         */
+        String filter(long lo, long hi, long width, List<Long> buckets) {
+            String domain = String.format("%s BETWEEN (%d) AND (%d)", bucketKey, lo, hi);
+            if (buckets == null) {
+                return domain;
+            }
+            if (!rangeKey) {
+                String in = buckets.stream().map(String::valueOf).collect(Collectors.joining(", "));
+                return domain + " AND " + bucketNo(lo, width) + " IN (" + in + ")";
+            }
+            // 相邻的桶合并为一个区间
+            List<String> ranges = new ArrayList<>();
+            int i = 0;
+            while (i < buckets.size()) {
+                int j = i;
+                while (j + 1 < buckets.size() && buckets.get(j + 1) == buckets.get(j) + 1) {
+                    j++;
+                }
+                long start = bucketRange(lo, hi, width, buckets.get(i))[0];
+                long end = bucketRange(lo, hi, width, buckets.get(j))[1];
+                ranges.add(String.format("%s BETWEEN (%d) AND (%d)", bucketKey, start, end));
+                i = j + 1;
+            }
+            return ranges.size() == 1 ? ranges.get(0) : "(" + String.join(" OR ", ranges) + ")";
+        }
+    }
+    
+    /**
+     * 桶摘要
+     */
+    static class BucketDigest {
+        
+        private final long rowCount;
+        private final BigDecimal hashSum;
+        
+        BucketDigest(long rowCount, BigDecimal hashSum) {
+            this.rowCount = rowCount;
+            this.hashSum = hashSum;
+        }
+        
+        long getRowCount() {
+            return rowCount;
+        }
+        
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof BucketDigest)) {
+                return false;
+            }
+            BucketDigest that = (BucketDigest) o;
+            return rowCount == that.rowCount
+                    && (hashSum == null ? that.hashSum == null
+                    : that.hashSum != null && hashSum.compareTo(that.hashSum) == 0);
+        }
+        
+        @Override
+        public int hashCode() {
+            return Long.hashCode(rowCount);
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package com.example.dbvalidator.engine;
+
+import com.example.dbvalidator.model.FieldDifference;
+import lombok.Getter;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 将差异收集到内存中的回调实现，用于组装 ComparisonResult
+ * 字段差异写入 {@link DiffSink}，超过内存上限的部分溢出到本地文件；多个分区共享同一个 DiffSink 时可并发写入。
+ * 仅一端存在的主键同时计入 DiffSink 的汇总，只汇总模式下不保留主键列表。
+ * 可被多个分区共享
+ */
+@Getter
+public class CollectingComparisonListener implements ComparisonListener {
+    
+    private final List<Object> onlyInOracle = Collections.synchronizedList(new ArrayList<>());
+    
+    private final List<Object> onlyInPostgres = Collections.synchronizedList(new ArrayList<>());
+    
+    private final DiffSink diffSink;
+    
+    public CollectingComparisonListener() {
+        this(DiffSink.inMemory());
+    }
+    
+    public CollectingComparisonListener(DiffSink diffSink) {
+        this.diffSink = diffSink;
+    }
+    
+    @Override
+    public void onlyInOracle(Object primaryKey) {
+        diffSink.onlyInOracle(primaryKey);
+        if (diffSink.isRetaining()) {
+            onlyInOracle.add(primaryKey);
+        }
+    }
+    
+    @Override
+    public void onlyInPostgres(Object primaryKey) {
+        diffSink.onlyInPostgres(primaryKey);
+        if (diffSink.isRetaining()) {
+            onlyInPostgres.add(primaryKey);
+        }
+    }
+    
+    @Override
+    public void fieldDifference(FieldDifference difference) {
+        diffSink.add(difference);
+    }
+    
+    /**
+     * 是否未发现任何差异
+     */
+    public boolean isEmpty() {
+        return !diffSink.hasDifferences();
+    }
+}
@@ -0,0 +1,280 @@
+package com.example.dbvalidator.engine;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * 按列类型选择的值比较规则
+ * <p>
+ * 每种规则先按列类型走专用分支，值的实际类型与列类型不符时退回按运行时类型比较。
+ * 值相等时不创建对象：数值按精确值比较（不经过 double），日期时间按纪元纳秒比较，字符按去除首尾空白后的区间比较。
+ */
+public enum ColumnComparison {
+    
+    NUMERIC {
+        @Override
+        boolean equalValues(Object oracleValue, Object postgresValue) {
+            if (oracleValue instanceof Number && postgresValue instanceof Number) {
+                return numbersEqual((Number) oracleValue, (Number) postgresValue);
+            }
+            return GENERIC.equalValues(oracleValue, postgresValue);
+        }
+    },
+    
+    TEMPORAL {
+        @Override
+        boolean equalValues(Object oracleValue, Object postgresValue) {
+            long oracleNanos = epochNanos(oracleValue);
+            long postgresNanos = epochNanos(postgresValue);
+            if (oracleNanos != NOT_TEMPORAL && postgresNanos != NOT_TEMPORAL) {
+                return oracleNanos == postgresNanos;
+            }
+            return GENERIC.equalValues(oracleValue, postgresValue);
+        }
+    },
+    
+    CHARACTER {
+        @Override
+        boolean equalValues(Object oracleValue, Object postgresValue) {
+            if (oracleValue instanceof String && postgresValue instanceof String) {
+                return trimmedEquals((String) oracleValue, (String) postgresValue);
+            }
+            return GENERIC.equalValues(oracleValue, postgresValue);
+        }
+    },
+    
+    BOOLEAN {
+        @Override
+        boolean equalValues(Object oracleValue, Object postgresValue) {
+            int oracleFlag = booleanFlag(oracleValue);
+            int postgresFlag = booleanFlag(postgresValue);
+            if (oracleFlag >= 0 && postgresFlag >= 0) {
+                return oracleFlag == postgresFlag;
+            }
+            return GENERIC.equalValues(oracleValue, postgresValue);
+        }
+    },
+    
+    GENERIC {
+        @Override
+        boolean equalValues(Object oracleValue, Object postgresValue) {
+            if (oracleValue instanceof Number && postgresValue instanceof Number) {
+                return numbersEqual((Number) oracleValue, (Number) postgresValue);
+            }
+            if (oracleValue instanceof String && postgresValue instanceof String) {
+                return trimmedEquals((String) oracleValue, (String) postgresValue);
+            }
+            if (oracleValue instanceof byte[] && postgresValue instanceof byte[]) {
+                return Arrays.equals((byte[]) oracleValue, (byte[]) postgresValue);
+            }
+            long oracleNanos = epochNanos(oracleValue);
+            if (oracleNanos != NOT_TEMPORAL) {
+                return oracleNanos == epochNanos(postgresValue);
+            }
+            if (oracleValue instanceof Boolean || postgresValue instanceof Boolean) {
+                int oracleFlag = booleanFlag(oracleValue);
+                return oracleFlag >= 0 && oracleFlag == booleanFlag(postgresValue);
+            }
+            return Objects.equals(oracleValue, postgresValue);
+        }
+    };
+    
+    /**
+     * 非日期时间值的纳秒标记（不会与真实时间冲突）
+     */
+    private static final long NOT_TEMPORAL = Long.MIN_VALUE;
+    
+    private static final long NANOS_PER_SECOND = 1_000_000_000L;
+    
+    /**
+     * 比较两个值，null 只与 null 相等
+     */
+    public boolean equal(Object oracleValue, Object postgresValue) {
+        if (oracleValue == null || postgresValue == null) {
+            return oracleValue == postgresValue;
+        }
+        return equalValues(oracleValue, postgresValue);
+    }
+    
+    abstract boolean equalValues(Object oracleValue, Object postgresValue);
+    
+    /**
+     * 根据两端的列类型选择比较规则
+     */
+    public static ColumnComparison of(ColumnInfo oracleColumn, ColumnInfo postgresColumn) {
+        if (oracleColumn == null || postgresColumn == null) {
+            return GENERIC;
+        }
+        if (oracleColumn.isBoolean() || postgresColumn.isBoolean()) {
+            return BOOLEAN;
+        }
+        if (oracleColumn.isNumeric() && postgresColumn.isNumeric()) {
+            return NUMERIC;
+        }
+        if (oracleColumn.isTemporal() && postgresColumn.isTemporal()) {
+            return TEMPORAL;
+        }
+        if (oracleColumn.isCharacter() && postgresColumn.isCharacter()) {
+            return CHARACTER;
+        }
+        return GENERIC;
+    }
+    
+    /**
+     * 比较基本类型整数与另一端的对象值（列式批次中一端为 LONG 向量时使用）
+     */
+    boolean equalLong(long value, Object other) {
+        if (other instanceof BigDecimal) {
+            return compactEquals((BigDecimal) other, value);
+        }
+        if (other instanceof Number && isSmallIntegral((Number) other)) {
+            return ((Number) other).longValue() == value;
+        }
+        return equal(value, other);
+    }
+    
+    private static boolean numbersEqual(Number a, Number b) {
+        if (isSmallIntegral(a) && isSmallIntegral(b)) {
+            return a.longValue() == b.longValue();
+        }
+        if (a instanceof BigDecimal && isSmallIntegral(b)) {
+            return compactEquals((BigDecimal) a, b.longValue());
+        }
+        if (b instanceof BigDecimal && isSmallIntegral(a)) {
+            return compactEquals((BigDecimal) b, a.longValue());
+        }
+        if (a instanceof BigDecimal && b instanceof BigDecimal) {
+            return ((BigDecimal) a).compareTo((BigDecimal) b) == 0;
+        }
+        if (isFloating(a) && isFloating(b)) {
+            return Double.compare(a.doubleValue(), b.doubleValue()) == 0;
+        }
+        return toBigDecimal(a).compareTo(toBigDecimal(b)) == 0;
+    }
+    
+    /**
+     * 标度为 0 且不超过 18 位的 BigDecimal 直接按 long 比较，避免创建临时对象
+     */
+    private static boolean compactEquals(BigDecimal decimal, long value) {
+        if (decimal.scale() == 0 && decimal.precision() <= 18) {
+            return decimal.longValue() == value;
+        }
+        return decimal.compareTo(BigDecimal.valueOf(value)) == 0;
+    }
+    
+    private static boolean isSmallIntegral(Number number) {
+        return number instanceof Long || number instanceof Integer
+                || number instanceof Short || number instanceof Byte;
+    }
+    
+    private static boolean isFloating(Number number) {
+        return number instanceof Double || number instanceof Float;
+    }
+    
+    private static BigDecimal toBigDecimal(Number number) {
+        if (number instanceof BigDecimal) {
+            return (BigDecimal) number;
+        }
+        if (number instanceof BigInteger) {
+            return new BigDecimal((BigInteger) number);
+        }
+        if (isFloating(number)) {
+            return BigDecimal.valueOf(number.doubleValue());
+        }
+        return BigDecimal.valueOf(number.longValue());
+    }
+    
+    /**
+     * 日期时间值转为纪元纳秒（本地时间按 UTC 解释，两端解释方式一致即可），非日期时间返回 NOT_TEMPORAL
+     */
+    private static long epochNanos(Object value) {
+        if (value instanceof Timestamp) {
+            Timestamp timestamp = (Timestamp) value;
+            return Math.floorDiv(timestamp.getTime(), 1000L) * NANOS_PER_SECOND + timestamp.getNanos();
+        }
+        if (value instanceof java.util.Date) {
+            return ((java.util.Date) value).getTime() * 1_000_000L;
+        }
+        if (value instanceof LocalDateTime) {
+            LocalDateTime dateTime = (LocalDateTime) value;
+            return dateTime.toEpochSecond(ZoneOffset.UTC) * NANOS_PER_SECOND + dateTime.getNano();
+        }
+        if (value instanceof OffsetDateTime) {
+            OffsetDateTime dateTime = (OffsetDateTime) value;
+            return dateTime.toEpochSecond() * NANOS_PER_SECOND + dateTime.getNano();
+        }
+        if (value instanceof Instant) {
+            Instant instant = (Instant) value;
+            return instant.getEpochSecond() * NANOS_PER_SECOND + instant.getNano();
+        }
+        if (value instanceof LocalDate) {
+            return ((LocalDate) value).toEpochDay() * 86_400L * NANOS_PER_SECOND;
+        }
+        return NOT_TEMPORAL;
+    }
+    
+    /**
+     * 忽略首尾空白（CHAR 补齐的空格）比较字符串，不创建子串
+     */
+    private static boolean trimmedEquals(String a, String b) {
+        int aStart = 0;
+        int aEnd = a.length();
+        while (aStart < aEnd && a.charAt(aStart) <= ' ') {
+            aStart++;
+        }
+        while (aEnd > aStart && a.charAt(aEnd - 1) <= ' ') {
+            aEnd--;
+        }
+        int bStart = 0;
+        int bEnd = b.length();
+        while (bStart < bEnd && b.charAt(bStart) <= ' ') {
+            bStart++;
+        }
+        while (bEnd > bStart && b.charAt(bEnd - 1) <= ' ') {
+            bEnd--;
+        }
+        int length = aEnd - aStart;
+        return length == bEnd - bStart && a.regionMatches(aStart, b, bStart, length);
+    }
+    
+    /**
+     * 布尔值转为 0/1（Oracle 常用 NUMBER(1) 或 CHAR(1) 表示布尔），无法识别时返回 -1
+     */
+    private static int booleanFlag(Object value) {
+        if (value instanceof Boolean) {
+            return (Boolean) value ? 1 : 0;
+        }
+        if (value instanceof Number) {
+            Number number = (Number) value;
+            if (isSmallIntegral(number) || number instanceof BigDecimal) {
+                long flag = number.longValue();
+                if ((flag == 0 || flag == 1) && (!(number instanceof BigDecimal)
+                        || ((BigDecimal) number).compareTo(BigDecimal.valueOf(flag)) == 0)) {
+                    return (int) flag;
+                }
+            }
+            return -1;
+        }
+        if (value instanceof String) {
+            String text = (String) value;
+            if (text.length() == 1) {
+                char c = text.charAt(0);
+                if (c == '1' || c == 'Y' || c == 'y' || c == 'T' || c == 't') {
+                    return 1;
+                }
+                if (c == '0' || c == 'N' || c == 'n' || c == 'F' || c == 'f') {
+                    return 0;
+                }
+            }
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,135 @@
+package com.example.dbvalidator.engine;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.sql.Types;
+import java.util.Locale;
+
+/**
+ * 列元数据（列名统一为小写）
+ */
+@Data
+@AllArgsConstructor
+public class ColumnInfo {
+    
+    /**
+     * 列名（小写）
+     */
+    private String name;
+    
+    /**
+     * JDBC 类型（java.sql.Types）
+     */
+    private int sqlType;
+    
+    /**
+     * 数据库类型名
+     */
+    private String typeName;
+    
+    /**
+     * 精度
+     */
+    private int precision;
+    
+    /**
+     * 小数位数
+     */
+    private int scale;
+    
+    /**
+     * 是否为数值类型
+     */
+    public boolean isNumeric() {
+        switch (sqlType) {
+            case Types.TINYINT:
+            case Types.SMALLINT:
+            case Types.INTEGER:
+            case Types.BIGINT:
+            case Types.NUMERIC:
+            case Types.DECIMAL:
+            case Types.REAL:
+            case Types.FLOAT:
+            case Types.DOUBLE:
+                return true;
+            default:
+                return false;
+        }
+    }
+    
+    /**
+     * 是否为整数类型（含 Oracle NUMBER(p, 0)）
+     */
+    public boolean isIntegral() {
+        switch (sqlType) {
+            case Types.TINYINT:
+            case Types.SMALLINT:
+            case Types.INTEGER:
+            case Types.BIGINT:
+                return true;
+            case Types.NUMERIC:
+            case Types.DECIMAL:
+                return precision > 0 && scale == 0;
+            default:
+                return false;
+        }
+    }
+    
+    /**
+     * 是否为二进制浮点类型（Oracle BINARY_FLOAT/BINARY_DOUBLE、PostgreSQL real/double precision）
+     */
+    public boolean isFloating() {
+        return sqlType == Types.REAL || sqlType == Types.FLOAT || sqlType == Types.DOUBLE;
+    }
+    
+    /**
+     * 是否为日期时间类型（Oracle DATE 由驱动报告为 TIMESTAMP）
+     */
+    public boolean isTemporal() {
+        return sqlType == Types.DATE
+                || sqlType == Types.TIMESTAMP
+                || sqlType == Types.TIMESTAMP_WITH_TIMEZONE;
+    }
+    
+    /**
+     * 是否为字符类型
+     */
+    public boolean isCharacter() {
+        return KeyOrder.isCharacterType(sqlType);
+    }
+    
+    /**
+     * 是否为布尔类型
+     */
+    public boolean isBoolean() {
+        return sqlType == Types.BOOLEAN || sqlType == Types.BIT;
+    }
+    
+    /**
+     * 可在表达式中使用的类型名（见 {@link #baseType}），类型名未知时为 null
+     */
+    public String baseTypeName() {
+        return typeName != null ? baseType(typeName) : null;
+    }
+    
+    /**
+     * PostgreSQL 驱动对自增列报告 serial/bigserial/smallserial，这些只是建表时的简写，
+     * 不能用于 CAST 或建表以外的场合，转换为实际的 int4/int8/int2；其他类型名原样返回
+     */
+    public static String baseType(String typeName) {
+        switch (typeName.toLowerCase(Locale.ROOT)) {
+            case "serial":
+            case "serial4":
+                return "int4";
+            case "bigserial":
+            case "serial8":
+                return "int8";
+            case "smallserial":
+            case "serial2":
+                return "int2";
+            default:
+                return typeName;
+        }
+    }
+}
@@ -0,0 +1,415 @@
+package com.example.dbvalidator.engine;
+
+import org.springframework.jdbc.support.JdbcUtils;
+import org.springframework.util.LinkedCaseInsensitiveMap;
+
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * 按列存储的一批查询结果
+ * <p>
+ * 每列按类型解码到独立的数组中：可无损读取为 long 的整数列、浮点列、时间戳（纪元纳秒）列使用基本类型数组，
+ * 字符列按字典编码（重复的值只保留一个 String 实例），其他列保存驱动返回的对象。
+ * 一批数据只占用少量数组，而不是每行一个 Map；数组在批次之间复用（见 {@link ColumnarBatchReader}）。
+ */
+public class ColumnarBatch {
+    
+    /**
+     * 列向量类型
+     */
+    public enum VectorType {
+        LONG, DOUBLE, TIMESTAMP, STRING, OBJECT
+    }
+    
+    /**
+     * 字符列字典的最大条目数，超过后新值不再去重
+     */
+    private static final int MAX_DICTIONARY_SIZE = 4096;
+    
+    private static final int INITIAL_ROWS = 256;
+    
+    private String[] labels = new String[0];
+    
+    private int[] sqlTypes = new int[0];
+    
+    private VectorType[] types = new VectorType[0];
+    
+    private long[][] longs = new long[0][];
+    
+    private double[][] doubles = new double[0][];
+    
+    private int[][] codes = new int[0][];
+    
+    private Object[][] objects = new Object[0][];
+    
+    private boolean[][] nulls = new boolean[0][];
+    
+    private List<List<String>> dictionaries = new ArrayList<>();
+    
+    private List<Map<String, Integer>> dictionaryIndexes = new ArrayList<>();
+    
+    private int capacity;
+    
+    private int rowCount;
+    
+    /**
+     * 读取结果集的全部行（覆盖上一批数据，列定义相同时复用已分配的数组）
+     */
+    void load(ResultSet rs) throws SQLException {
+        load(rs, Columns.of(rs.getMetaData()));
+    }
+    
+    /**
+     * 按已知的列定义读取结果集的全部行（不再读取结果集元数据）
+     */
+    void load(ResultSet rs, Columns columns) throws SQLException {
+        layout(columns);
+        rowCount = 0;
+        while (rs.next()) {
+            if (rowCount == capacity) {
+                grow();
+            }
+            for (int c = 0; c < types.length; c++) {
+                read(rs, c, rowCount);
+            }
+            rowCount++;
+        }
+    }
+    
+    /**
+     * 按结果集元数据开始一批新数据，之后逐行 {@link #appendRow} 并按列写入值
+     * 用于不经过 ResultSet 解码的读取路径（如 PostgreSQL COPY 二进制流）
+     */
+    void begin(Columns columns) {
+        layout(columns);
+        rowCount = 0;
+    }
+    
+    /**
+     * 追加一行，返回行号
+     */
+    int appendRow() {
+        if (rowCount == capacity) {
+            grow();
+        }
+        return rowCount++;
+    }
+    
+    void setNull(int row, int column) {
+        nulls[column][row] = true;
+        if (codes[column] != null) {
+            codes[column][row] = -1;
+        }
+        if (objects[column] != null) {
+            objects[column][row] = null;
+        }
+    }
+    
+    /**
+     * 写入 LONG 列的值，或 TIMESTAMP 列的纪元纳秒
+     */
+    void setLong(int row, int column, long value) {
+        longs[column][row] = value;
+        nulls[column][row] = false;
+    }
+    
+    void setDouble(int row, int column, double value) {
+        doubles[column][row] = value;
+        nulls[column][row] = false;
+    }
+    
+    void setString(int row, int column, String value) {
+        codes[column][row] = encode(column, value);
+        nulls[column][row] = false;
+    }
+    
+    void setObject(int row, int column, Object value) {
+        objects[column][row] = value;
+        nulls[column][row] = value == null;
+    }
+    
+    private void read(ResultSet rs, int c, int row) throws SQLException {
+        int index = c + 1;
+        switch (types[c]) {
+            case LONG:
+                longs[c][row] = rs.getLong(index);
+                nulls[c][row] = rs.wasNull();
+                break;
+            case DOUBLE:
+                doubles[c][row] = rs.getDouble(index);
+                nulls[c][row] = rs.wasNull();
+                break;
+            case TIMESTAMP:
+                Timestamp timestamp = rs.getTimestamp(index);
+                nulls[c][row] = timestamp == null;
+                longs[c][row] = timestamp == null ? 0
+                        : Math.floorDiv(timestamp.getTime(), 1000L) * 1_000_000_000L + timestamp.getNanos();
+                break;
+            case STRING:
+                String value = rs.getString(index);
+                nulls[c][row] = value == null;
+                codes[c][row] = value == null ? -1 : encode(c, value);
+                break;
+            default:
+                Object object = JdbcUtils.getResultSetValue(rs, index);
+                nulls[c][row] = object == null;
+                objects[c][row] = object;
+                break;
+        }
+    }
+    
+    private int encode(int column, String value) {
+        List<String> dictionary = dictionaries.get(column);
+        Map<String, Integer> index = dictionaryIndexes.get(column);
+        Integer code = index.get(value);
+        if (code != null) {
+            return code;
+        }
+        dictionary.add(value);
+        if (index.size() < MAX_DICTIONARY_SIZE) {
+            index.put(value, dictionary.size() - 1);
+        }
+        return dictionary.size() - 1;
+    }
+    
+    /**
+     * 按结果集元数据确定列向量类型，列定义与上一批相同时只清空字典
+     */
+    private void layout(Columns columns) {
+        int columnCount = columns.labels.length;
+        boolean same = columnCount == labels.length;
+        for (int c = 0; same && c < columnCount; c++) {
+            same = columns.labels[c].equals(labels[c]) && columns.sqlTypes[c] == sqlTypes[c];
+        }
+        if (same) {
+            for (int c = 0; c < columnCount; c++) {
+                dictionaries.get(c).clear();
+                dictionaryIndexes.get(c).clear();
+                if (objects[c] != null) {
+                    Arrays.fill(objects[c], 0, rowCount, null);
+                }
+            }
+            return;
+        }
+        
+        labels = new String[columnCount];
+        sqlTypes = new int[columnCount];
+        types = new VectorType[columnCount];
+        longs = new long[columnCount][];
+        doubles = new double[columnCount][];
+        codes = new int[columnCount][];
+        objects = new Object[columnCount][];
+        nulls = new boolean[columnCount][];
+        dictionaries = new ArrayList<>(columnCount);
+        dictionaryIndexes = new ArrayList<>(columnCount);
+        capacity = INITIAL_ROWS;
+        rowCount = 0;
+        for (int c = 0; c < columnCount; c++) {
+            labels[c] = columns.labels[c];
+            sqlTypes[c] = columns.sqlTypes[c];
+            types[c] = vectorType(sqlTypes[c], columns.precisions[c], columns.scales[c]);
+            nulls[c] = new boolean[capacity];
+            switch (types[c]) {
+                case LONG:
+                case TIMESTAMP:
+                    longs[c] = new long[capacity];
+                    break;
+                case DOUBLE:
+                    doubles[c] = new double[capacity];
+                    break;
+                case STRING:
+                    codes[c] = new int[capacity];
+                    break;
+                default:
+                    objects[c] = new Object[capacity];
+                    break;
+            }
+            dictionaries.add(new ArrayList<>());
+            dictionaryIndexes.add(new HashMap<>());
+        }
+    }
+    
+    private static VectorType vectorType(int sqlType, int precision, int scale) {
+        switch (sqlType) {
+            case Types.TINYINT:
+            case Types.SMALLINT:
+            case Types.INTEGER:
+            case Types.BIGINT:
+                return VectorType.LONG;
+            case Types.NUMERIC:
+            case Types.DECIMAL:
+                return scale == 0 && precision > 0 && precision <= 18 ? VectorType.LONG : VectorType.OBJECT;
+            case Types.REAL:
+            case Types.DOUBLE:
+                return VectorType.DOUBLE;
+            case Types.DATE:
+            case Types.TIMESTAMP:
+                return VectorType.TIMESTAMP;
+            case Types.CHAR:
+            case Types.VARCHAR:
+            case Types.NCHAR:
+            case Types.NVARCHAR:
+                return VectorType.STRING;
+            default:
+                return VectorType.OBJECT;
+        }
+    }
+    
+    private void grow() {
+        capacity *= 2;
+        for (int c = 0; c < types.length; c++) {
+            nulls[c] = Arrays.copyOf(nulls[c], capacity);
+            if (longs[c] != null) {
+                longs[c] = Arrays.copyOf(longs[c], capacity);
+            }
+            if (doubles[c] != null) {
+                doubles[c] = Arrays.copyOf(doubles[c], capacity);
+            }
+            if (codes[c] != null) {
+                codes[c] = Arrays.copyOf(codes[c], capacity);
+            }
+            if (objects[c] != null) {
+                objects[c] = Arrays.copyOf(objects[c], capacity);
+            }
+        }
+    }
+    
+    public int getRowCount() {
+        return rowCount;
+    }
+    
+    public int getColumnCount() {
+        return labels.length;
+    }
+    
+    public VectorType getType(int column) {
+        return types[column];
+    }
+    
+    /**
+     * 按列名查找列下标（不区分大小写），不存在时返回 -1
+     */
+    public int indexOf(String name) {
+        for (int c = 0; c < labels.length; c++) {
+            if (labels[c].equalsIgnoreCase(name)) {
+                return c;
+            }
+        }
+        return -1;
+    }
+    
+    public boolean isNull(int row, int column) {
+        return nulls[column][row];
+    }
+    
+    /**
+     * LONG 列的值，或 TIMESTAMP 列的纪元纳秒
+     */
+    public long getLong(int row, int column) {
+        return longs[column][row];
+    }
+    
+    public double getDouble(int row, int column) {
+        return doubles[column][row];
+    }
+    
+    /**
+     * STRING 列的值（字典中的共享实例）
+     */
+    public String getString(int row, int column) {
+        int code = codes[column][row];
+        return code < 0 ? null : dictionaries.get(column).get(code);
+    }
+    
+    /**
+     * 以对象形式读取值（基本类型列会装箱，TIMESTAMP 列还原为 Timestamp）
+     */
+    public Object getObject(int row, int column) {
+        if (nulls[column][row]) {
+            return null;
+        }
+        switch (types[column]) {
+            case LONG:
+                return longs[column][row];
+            case DOUBLE:
+                return doubles[column][row];
+            case TIMESTAMP:
+                long nanos = longs[column][row];
+                Timestamp timestamp = new Timestamp(Math.floorDiv(nanos, 1_000_000_000L) * 1000L);
+                timestamp.setNanos((int) Math.floorMod(nanos, 1_000_000_000L));
+                return timestamp;
+            case STRING:
+                return getString(row, column);
+            default:
+                return objects[column][row];
+        }
+    }
+    
+    /**
+     * 将一行还原为 Map（列名不区分大小写，与 queryForList 的结果一致），只用于输出差异详情
+     */
+    public Map<String, Object> rowAsMap(int row) {
+        Map<String, Object> result = new LinkedCaseInsensitiveMap<>(labels.length, Locale.ROOT);
+        for (int c = 0; c < labels.length; c++) {
+            result.put(labels[c], getObject(row, c));
+        }
+        return result;
+    }
+    
+    /**
+     * 结果集列定义快照（列名、JDBC 类型、精度、小数位）
+     */
+    static final class Columns {
+        
+        private final String[] labels;
+        
+        private final int[] sqlTypes;
+        
+        private final int[] precisions;
+        
+        private final int[] scales;
+        
+        Columns(String[] labels, int[] sqlTypes, int[] precisions, int[] scales) {
+            this.labels = labels;
+            this.sqlTypes = sqlTypes;
+            this.precisions = precisions;
+            this.scales = scales;
+        }
+        
+        static Columns of(ResultSetMetaData meta) throws SQLException {
+            int columnCount = meta.getColumnCount();
+            String[] labels = new String[columnCount];
+            int[] sqlTypes = new int[columnCount];
+            int[] precisions = new int[columnCount];
+            int[] scales = new int[columnCount];
+            for (int c = 0; c < columnCount; c++) {
+                labels[c] = meta.getColumnLabel(c + 1);
+                sqlTypes[c] = meta.getColumnType(c + 1);
+                precisions[c] = meta.getPrecision(c + 1);
+                scales[c] = meta.getScale(c + 1);
+            }
+            return new Columns(labels, sqlTypes, precisions, scales);
+        }
+        
+        int size() {
+            return labels.length;
+        }
+        
+        /**
+         * 该列在批次中的向量类型
+         */
+        VectorType vectorType(int column) {
+            return ColumnarBatch.vectorType(sqlTypes[column], precisions[column], scales[column]);
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package com.example.dbvalidator.engine;
+
+import org.springframework.jdbc.core.ResultSetExtractor;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * 列式批次读取器
+ * <p>
+ * 同一个库的批次在处理完成后归还（{@link #release}），后续批次复用其数组；
+ * 读取器可被多个预取线程共享，每个库各用一个读取器以保持列定义稳定。
+ */
+public class ColumnarBatchReader implements ResultSetExtractor<ColumnarBatch> {
+    
+    private final Queue<ColumnarBatch> free = new ConcurrentLinkedQueue<>();
+    
+    @Override
+    public ColumnarBatch extractData(ResultSet rs) throws SQLException {
+        ColumnarBatch batch = acquire();
+        batch.load(rs);
+        return batch;
+    }
+    
+    /**
+     * 取一个空闲批次（没有时新建）
+     */
+    ColumnarBatch acquire() {
+        ColumnarBatch batch = free.poll();
+        return batch != null ? batch : new ColumnarBatch();
+    }
+    
+    /**
+     * 归还处理完成的批次
+     */
+    public void release(ColumnarBatch batch) {
+        if (batch != null) {
+            free.offer(batch);
+        }
+    }
+}
@@ -0,0 +1,145 @@
+package com.example.dbvalidator.engine;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * 字符主键集合
+ * 键以 UTF-8 编码连续存放在字节池中，开放寻址表（线性探测）只保存键的下标，
+ * 两个字符主键集合之间直接按字节比较，不创建 String 对象
+ */
+class CompactStringKeySet extends KeySet {
+    
+    private static final int INITIAL_CAPACITY = 1024;
+    
+    private byte[] pool = new byte[INITIAL_CAPACITY * 16];
+    
+    private int poolSize;
+    
+    /**
+     * 第 i 个键在字节池中的区间为 [offsets[i], offsets[i + 1])
+     */
+    private int[] offsets = new int[INITIAL_CAPACITY + 1];
+    
+    private int[] hashes = new int[INITIAL_CAPACITY];
+    
+    /**
+     * 槽位保存 下标 + 1，0 表示空槽
+     */
+    private int[] slots = new int[INITIAL_CAPACITY * 2];
+    
+    private int size;
+    
+    void add(String value) {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        int hash = hash(bytes, 0, bytes.length);
+        int slot = find(bytes, 0, bytes.length, hash);
+        if (slots[slot] != 0) {
+            return;
+        }
+        
+        if (size == hashes.length) {
+            hashes = Arrays.copyOf(hashes, size * 2);
+            offsets = Arrays.copyOf(offsets, size * 2 + 1);
+        }
+        if (poolSize + bytes.length > pool.length) {
+            pool = Arrays.copyOf(pool, Math.max(pool.length * 2, poolSize + bytes.length));
+        }
+        System.arraycopy(bytes, 0, pool, poolSize, bytes.length);
+        poolSize += bytes.length;
+        hashes[size] = hash;
+        offsets[++size] = poolSize;
+        slots[slot] = size;
+        if (size * 2 > slots.length) {
+            rehash();
+        }
+    }
+    
+    boolean containsBytes(byte[] source, int offset, int length, int hash) {
+        return slots[find(source, offset, length, hash)] != 0;
+    }
+    
+    @Override
+    public int size() {
+        return size;
+    }
+    
+    @Override
+    public boolean contains(Object key) {
+        if (!(key instanceof String)) {
+            return false;
+        }
+        byte[] bytes = ((String) key).getBytes(StandardCharsets.UTF_8);
+        return containsBytes(bytes, 0, bytes.length, hash(bytes, 0, bytes.length));
+    }
+    
+    @Override
+    public Object keyAt(int index) {
+        return new String(pool, offsets[index], offsets[index + 1] - offsets[index], StandardCharsets.UTF_8);
+    }
+    
+    @Override
+    protected boolean containsKeyOf(KeySet source, int index) {
+        if (source instanceof CompactStringKeySet) {
+            CompactStringKeySet other = (CompactStringKeySet) source;
+            int start = other.offsets[index];
+            return containsBytes(other.pool, start, other.offsets[index + 1] - start, other.hashes[index]);
+        }
+        return super.containsKeyOf(source, index);
+    }
+    
+    /**
+     * 查找键所在槽位，不存在时返回应插入的空槽
+     */
+    private int find(byte[] source, int offset, int length, int hash) {
+        int mask = slots.length - 1;
+        int slot = mix(hash) & mask;
+        while (slots[slot] != 0) {
+            int index = slots[slot] - 1;
+            if (hashes[index] == hash && equalsAt(index, source, offset, length)) {
+                return slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+    
+    private boolean equalsAt(int index, byte[] source, int offset, int length) {
+        int start = offsets[index];
+        if (offsets[index + 1] - start != length) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (pool[start + i] != source[offset + i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    private void rehash() {
+        int[] rehashed = new int[slots.length * 2];
+        int mask = rehashed.length - 1;
+        for (int i = 0; i < size; i++) {
+            int slot = mix(hashes[i]) & mask;
+            while (rehashed[slot] != 0) {
+                slot = (slot + 1) & mask;
+            }
+            rehashed[slot] = i + 1;
+        }
+        slots = rehashed;
+    }
+    
+    private static int hash(byte[] bytes, int offset, int length) {
+        int h = 1;
+        for (int i = 0; i < length; i++) {
+            h = 31 * h + bytes[offset + i];
+        }
+        return h;
+    }
+    
+    private static int mix(int hash) {
+        int h = hash * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+}
@@ -0,0 +1,25 @@
+package com.example.dbvalidator.engine;
+
+import com.example.dbvalidator.model.FieldDifference;
+
+/**
+ * 对比过程中的差异回调
+ * 流式对比引擎每发现一条差异即回调一次，不在引擎内部累积数据
+ */
+public interface ComparisonListener {
+    
+    /**
+     * 仅在 Oracle 中存在的记录
+     */
+    void onlyInOracle(Object primaryKey);
+    
+    /**
+     * 仅在 PostgreSQL 中存在的记录
+     */
+    void onlyInPostgres(Object primaryKey);
+    
+    /**
+     * 字段值不一致的记录
+     */
+    void fieldDifference(FieldDifference difference);
+}
@@ -0,0 +1,444 @@
+package com.example.dbvalidator.engine;
+
+import com.example.dbvalidator.model.FieldDifference;
+import com.example.dbvalidator.model.PipelineStats;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * 多阶段批量对比流水线
+ * <p>
+ * 主键生产 → Oracle / PostgreSQL 批量回查（各 fetchers 个线程）→ 对比（workers 个线程）→ 差异收集（单线程），
+ * 阶段之间以有界队列连接：下游处理不过来时上游在队列上阻塞，在途批次数（即内存占用）有上限。
+ * 同一批次两端各自回查，后完成的一端把批次交给对比阶段；批次之间不保证顺序。
+ * <p>
+ * 每个阶段统计处理批次数、行数与忙碌时间，每个队列统计深度与满/空等待次数，
+ * 运行中与结束后都可通过 {@link #snapshot()} 查看，忙碌比例接近 1 的阶段即为瓶颈。
+ * 任一阶段失败时其余阶段在下一次队列操作时退出，异常在调用线程上重新抛出。
+ */
+public class ComparisonPipeline {
+    
+    /**
+     * 队列操作检查失败状态的间隔（毫秒）
+     */
+    private static final long POLL_MILLIS = 100;
+    
+    private static final Work END = new Work(null, null);
+    
+    private static final List<FieldDifference> END_DIFFERENCES = new ArrayList<>();
+    
+    private final String tableName;
+    
+    private final BatchPrefetcher fetcher;
+    
+    private final int fetchers;
+    
+    private final int workers;
+    
+    private final Stage producer = new Stage("key-producer", 1);
+    
+    private final Stage oracleFetch;
+    
+    private final Stage postgresFetch;
+    
+    private final Stage compare;
+    
+    private final Stage sink = new Stage("diff-sink", 1);
+    
+    private final MeteredQueue<Work> oracleQueue;
+    
+    private final MeteredQueue<Work> postgresQueue;
+    
+    private final MeteredQueue<Work> compareQueue;
+    
+    private final MeteredQueue<List<FieldDifference>> differenceQueue;
+    
+    private volatile Throwable failure;
+    
+    private volatile long startNanos;
+    
+    private volatile long endNanos;
+    
+    /**
+     * @param fetcher       提供两端的批量查询与列式批次复用
+     * @param fetchers      每个库的回查线程数（即每个库占用的连接数）
+     * @param workers       对比线程数
+     * @param queueCapacity 每个队列最多缓存的批次数
+     */
+    public ComparisonPipeline(String tableName, BatchPrefetcher fetcher, int fetchers, int workers, int queueCapacity) {
+        this.tableName = tableName;
+        this.fetcher = fetcher;
+        this.fetchers = Math.max(1, fetchers);
+        this.workers = Math.max(1, workers);
+        int capacity = Math.max(1, queueCapacity);
+        this.oracleFetch = new Stage("oracle-fetch", this.fetchers);
+        this.postgresFetch = new Stage("postgres-fetch", this.fetchers);
+        this.compare = new Stage("compare", this.workers);
+        this.oracleQueue = new MeteredQueue<>("oracle-fetch", capacity);
+        this.postgresQueue = new MeteredQueue<>("postgres-fetch", capacity);
+        this.compareQueue = new MeteredQueue<>("compare", capacity);
+        this.differenceQueue = new MeteredQueue<>("diff-sink", capacity);
+    }
+    
+    /**
+     * 运行流水线直到全部批次对比完成
+     *
+     * @param queryFactory 根据批次生成两个库的查询，在调用线程上执行
+     * @param comparer     对比一个批次，在对比线程上并发执行，返回后批次数据即被复用，不能再引用
+     * @param differences  接收字段差异，在单个收集线程上按到达顺序执行
+     */
+    public <B> void run(Iterator<B> batches,
+                        Function<B, BatchPrefetcher.BatchQuery> queryFactory,
+                        BatchComparer<B> comparer,
+                        Consumer<FieldDifference> differences) {
+        startNanos = System.nanoTime();
+        AtomicInteger threadIndex = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(2 * fetchers + workers + 1, r -> {
+            Thread t = new Thread(r, "pipeline-" + threadIndex.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+        
+        AtomicInteger liveFetchers = new AtomicInteger(2 * fetchers);
+        AtomicInteger liveWorkers = new AtomicInteger(workers);
+        List<Future<?>> futures = new ArrayList<>();
+        try {
+            for (int i = 0; i < fetchers; i++) {
+                futures.add(executor.submit(() -> guard(() -> fetch(oracleQueue, oracleFetch, true, liveFetchers))));
+                futures.add(executor.submit(() -> guard(() -> fetch(postgresQueue, postgresFetch, false, liveFetchers))));
+            }
+            for (int i = 0; i < workers; i++) {
+                futures.add(executor.submit(() -> guard(() -> compare(comparer, liveWorkers))));
+            }
+            futures.add(executor.submit(() -> guard(() -> collect(differences))));
+            
+            // 主键生产在调用线程上执行，主键迭代器可能依赖调用线程上的会话（如库内对账的临时表游标）
+            guard(() -> produce(batches, queryFactory));
+            for (Future<?> future : futures) {
+                await(future);
+            }
+        } finally {
+            endNanos = System.nanoTime();
+            executor.shutdownNow();
+        }
+        
+        Throwable cause = failure;
+        if (cause instanceof RuntimeException) {
+            throw (RuntimeException) cause;
+        }
+        if (cause instanceof Error) {
+            throw (Error) cause;
+        }
+        if (cause != null) {
+            throw new IllegalStateException("对比流水线执行失败", cause);
+        }
+    }
+    
+    private <B> void produce(Iterator<B> batches, Function<B, BatchPrefetcher.BatchQuery> queryFactory) {
+        while (true) {
+            long start = System.nanoTime();
+            if (!batches.hasNext()) {
+                break;
+            }
+            B batch = batches.next();
+            Work work = new Work(batch, queryFactory.apply(batch));
+            producer.record(start, batch instanceof Collection ? ((Collection<?>) batch).size() : 0);
+            oracleQueue.put(work);
+            postgresQueue.put(work);
+        }
+        for (int i = 0; i < fetchers; i++) {
+            oracleQueue.put(END);
+            postgresQueue.put(END);
+        }
+    }
+    
+    private void fetch(MeteredQueue<Work> queue, Stage stage, boolean oracle, AtomicInteger liveFetchers) {
+        while (true) {
+            Work work = queue.take();
+            if (work == END) {
+                break;
+            }
+            long start = System.nanoTime();
+            ColumnarBatch rows = oracle ? fetcher.queryOracle(work.query) : fetcher.queryPostgres(work.query);
+            stage.record(start, rows.getRowCount());
+            if (oracle) {
+                work.oracleRows = rows;
+            } else {
+                work.postgresRows = rows;
+            }
+            // 两端都到达后由后完成的一端交给对比阶段
+            if (work.pending.decrementAndGet() == 0) {
+                compareQueue.put(work);
+            }
+        }
+        // 最后一个退出的回查线程通知对比阶段结束
+        if (liveFetchers.decrementAndGet() == 0) {
+            for (int i = 0; i < workers; i++) {
+                compareQueue.put(END);
+            }
+        }
+    }
+    
+    @SuppressWarnings("unchecked")
+    private <B> void compare(BatchComparer<B> comparer, AtomicInteger liveWorkers) {
+        while (true) {
+            Work work = compareQueue.take();
+            if (work == END) {
+                break;
+            }
+            long start = System.nanoTime();
+            int rows = Math.max(work.oracleRows.getRowCount(), work.postgresRows.getRowCount());
+            Collection<FieldDifference> differences =
+                    comparer.compare((B) work.batch, work.oracleRows, work.postgresRows);
+            List<FieldDifference> copy = differences.isEmpty()
+                    ? null : new ArrayList<>(differences);
+            fetcher.release(work.oracleRows, work.postgresRows);
+            compare.record(start, rows);
+            if (copy != null) {
+                differenceQueue.put(copy);
+            }
+        }
+        if (liveWorkers.decrementAndGet() == 0) {
+            differenceQueue.put(END_DIFFERENCES);
+        }
+    }
+    
+    private void collect(Consumer<FieldDifference> differences) {
+        while (true) {
+            List<FieldDifference> batch = differenceQueue.take();
+            if (batch == END_DIFFERENCES) {
+                break;
+            }
+            long start = System.nanoTime();
+            batch.forEach(differences);
+            sink.record(start, batch.size());
+        }
+    }
+    
+    /**
+     * 执行一个阶段，异常记为流水线失败；因其他阶段失败而退出的不重复记录
+     */
+    private void guard(Runnable stage) {
+        try {
+            stage.run();
+        } catch (Aborted e) {
+            // 其他阶段已失败
+        } catch (Throwable t) {
+            if (failure == null) {
+                failure = t;
+            }
+        }
+    }
+    
+    private void checkFailure() {
+        if (failure != null) {
+            throw new Aborted();
+        }
+    }
+    
+    private void await(Future<?> future) {
+        try {
+            future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            if (failure == null) {
+                failure = new IllegalStateException("对比流水线被中断", e);
+            }
+        } catch (ExecutionException e) {
+            if (failure == null) {
+                failure = e.getCause();
+            }
+        }
+    }
+    
+    /**
+     * 当前各阶段吞吐与队列深度，运行中与结束后都可调用
+     */
+    public PipelineStats snapshot() {
+        long start = startNanos;
+        long end = endNanos;
+        boolean running = start != 0 && end == 0;
+        long elapsedNanos = start == 0 ? 0 : (running ? System.nanoTime() : end) - start;
+        List<PipelineStats.Stage> stages = new ArrayList<>();
+        for (Stage stage : Arrays.asList(producer, oracleFetch, postgresFetch, compare, sink)) {
+            stages.add(stage.snapshot(elapsedNanos));
+        }
+        List<PipelineStats.Queue> queues = new ArrayList<>();
+        for (MeteredQueue<?> queue : Arrays.asList(oracleQueue, postgresQueue, compareQueue, differenceQueue)) {
+            queues.add(queue.snapshot());
+        }
+        return PipelineStats.builder()
+                .tableName(tableName)
+                .running(running)
+                .elapsedMs(TimeUnit.NANOSECONDS.toMillis(elapsedNanos))
+                .stages(stages)
+                .queues(queues)
+                .build();
+    }
+    
+    /**
+     * 一个批次的对比
+     */
+    @FunctionalInterface
+    public interface BatchComparer<B> {
+        
+        /**
+         * @return 该批次的字段差异
+         */
+        Collection<FieldDifference> compare(B batch, ColumnarBatch oracleRows, ColumnarBatch postgresRows);
+    }
+    
+    /**
+     * 在途批次：两端回查结果由不同线程写入，pending 的递减保证对比线程看到两端结果
+     */
+    private static class Work {
+        
+        private final Object batch;
+        
+        private final BatchPrefetcher.BatchQuery query;
+        
+        private final AtomicInteger pending = new AtomicInteger(2);
+        
+        private ColumnarBatch oracleRows;
+        
+        private ColumnarBatch postgresRows;
+        
+        private Work(Object batch, BatchPrefetcher.BatchQuery query) {
+            this.batch = batch;
+            this.query = query;
+        }
+    }
+    
+    private static class Stage {
+        
+        private final String name;
+        
+        private final int threads;
+        
+        private final AtomicLong items = new AtomicLong();
+        
+        private final AtomicLong rows = new AtomicLong();
+        
+        private final AtomicLong busyNanos = new AtomicLong();
+        
+        private Stage(String name, int threads) {
+            this.name = name;
+            this.threads = threads;
+        }
+        
+        private void record(long startNanos, long rowCount) {
+            busyNanos.addAndGet(System.nanoTime() - startNanos);
+            items.incrementAndGet();
+            rows.addAndGet(rowCount);
+        }
+        
+        private PipelineStats.Stage snapshot(long elapsedNanos) {
+            long busy = busyNanos.get();
+            long processed = rows.get();
+            return PipelineStats.Stage.builder()
+                    .name(name)
+                    .threads(threads)
+                    .items(items.get())
+                    .rows(processed)
+                    .busyMs(TimeUnit.NANOSECONDS.toMillis(busy))
+                    .rowsPerSecond(elapsedNanos > 0 ? processed * 1e9 / elapsedNanos : 0)
+                    .utilization(elapsedNanos > 0 ? Math.min(1.0, (double) busy / elapsedNanos / threads) : 0)
+                    .build();
+        }
+    }
+    
+    /**
+     * 带深度统计的有界队列，阻塞期间定期检查流水线是否已失败
+     */
+    private class MeteredQueue<T> {
+        
+        private final String name;
+        
+        private final int capacity;
+        
+        private final BlockingQueue<T> queue;
+        
+        private final AtomicInteger maxDepth = new AtomicInteger();
+        
+        private final AtomicLong fullWaits = new AtomicLong();
+        
+        private final AtomicLong emptyWaits = new AtomicLong();
+        
+        private MeteredQueue(String name, int capacity) {
+            this.name = name;
+            this.capacity = capacity;
+            this.queue = new ArrayBlockingQueue<>(capacity);
+        }
+        
+        private void put(T item) {
+            if (!queue.offer(item)) {
+                fullWaits.incrementAndGet();
+                try {
+                    while (!queue.offer(item, POLL_MILLIS, TimeUnit.MILLISECONDS)) {
+                        checkFailure();
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IllegalStateException("对比流水线被中断", e);
+                }
+            }
+            int depth = queue.size();
+            maxDepth.accumulateAndGet(depth, Math::max);
+        }
+        
+        private T take() {
+            T item = queue.poll();
+            if (item != null) {
+                return item;
+            }
+            emptyWaits.incrementAndGet();
+            try {
+                while ((item = queue.poll(POLL_MILLIS, TimeUnit.MILLISECONDS)) == null) {
+                    checkFailure();
+                }
+                return item;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("对比流水线被中断", e);
+            }
+        }
+        
+        private PipelineStats.Queue snapshot() {
+            return PipelineStats.Queue.builder()
+                    .name(name)
+                    .capacity(capacity)
+                    .depth(queue.size())
+                    .maxDepth(maxDepth.get())
+                    .fullWaits(fullWaits.get())
+                    .emptyWaits(emptyWaits.get())
+                    .build();
+        }
+    }
+    
+    /**
+     * 其他阶段已失败，当前阶段退出
+     */
+    private static class Aborted extends RuntimeException {
+        
+        private static final long serialVersionUID = 1L;
+        
+        private Aborted() {
+            super(null, null, false, false);
+        }
+    }
+}
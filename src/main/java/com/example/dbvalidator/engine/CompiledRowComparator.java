@@ -0,0 +1,252 @@
+package com.example.dbvalidator.engine;
+
+import com.example.dbvalidator.model.FieldDifference;
+import com.example.dbvalidator.model.FieldValuePair;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
+
+/**
+ * 按表编译的行对比计划
+ * <p>
+ * 列元数据、忽略字段和每列的比较规则在编译时确定一次：对比列按列名排序，
+ * 并记录每列是否在两端存在（缺失的一端按 null 处理）。
+ * 行数据一致时逐列比较不创建对象（列式批次上基本类型列直接比较数组元素），只有出现差异时才构建差异详情。
+ * 线程安全，可被多个分区共享。
+ */
+public class CompiledRowComparator implements RowDiffer {
+    
+    private final String[] columns;
+    
+    private final int[] oracleIndexes;
+    
+    private final int[] postgresIndexes;
+    
+    private final ColumnComparison[] comparisons;
+    
+    private CompiledRowComparator(String[] columns,
+                                  int[] oracleIndexes,
+                                  int[] postgresIndexes,
+                                  ColumnComparison[] comparisons) {
+        this.columns = columns;
+        this.oracleIndexes = oracleIndexes;
+        this.postgresIndexes = postgresIndexes;
+        this.comparisons = comparisons;
+    }
+    
+    /**
+     * 编译对比计划
+     * 任一端存在的列都参与对比（仅一端存在的列在另一端按 null 处理），忽略字段不区分大小写
+     */
+    public static CompiledRowComparator compile(TableMetadata metadata, Collection<String> ignoredFields) {
+        Set<String> ignored = ignoredFields == null ? Collections.emptySet()
+                : ignoredFields.stream().map(f -> f.toLowerCase(Locale.ROOT)).collect(Collectors.toSet());
+        
+        List<String> oracleOrder = new ArrayList<>(metadata.getOracleColumns().keySet());
+        List<String> postgresOrder = new ArrayList<>(metadata.getPostgresColumns().keySet());
+        
+        Set<String> names = new TreeSet<>(oracleOrder);
+        names.addAll(postgresOrder);
+        names.removeAll(ignored);
+        
+        int size = names.size();
+        String[] columns = new String[size];
+        int[] oracleIndexes = new int[size];
+        int[] postgresIndexes = new int[size];
+        ColumnComparison[] comparisons = new ColumnComparison[size];
+        int i = 0;
+        for (String name : names) {
+            columns[i] = name;
+            oracleIndexes[i] = oracleOrder.indexOf(name);
+            postgresIndexes[i] = postgresOrder.indexOf(name);
+            comparisons[i] = ColumnComparison.of(metadata.getOracleColumn(name), metadata.getPostgresColumn(name));
+            i++;
+        }
+        return new CompiledRowComparator(columns, oracleIndexes, postgresIndexes, comparisons);
+    }
+    
+    /**
+     * 只查询主键和参与对比的列，忽略的列（审计字段、LOB 等）不再传输和解码
+     * 未取得列元数据时退回 SELECT *
+     */
+    @Override
+    public String selectList(Dialect dialect, String primaryKey) {
+        int[] indexes = dialect == Dialect.ORACLE ? oracleIndexes : postgresIndexes;
+        StringBuilder select = new StringBuilder(primaryKey);
+        int selected = 0;
+        for (int i = 0; i < columns.length; i++) {
+            if (indexes[i] >= 0 && !columns[i].equalsIgnoreCase(primaryKey)) {
+                select.append(", ").append(columns[i]);
+                selected++;
+            }
+        }
+        return selected == 0 ? "*" : select.toString();
+    }
+    
+    /**
+     * 对比列名（小写，按列名排序）
+     */
+    public List<String> getColumns() {
+        return Collections.unmodifiableList(Arrays.asList(columns));
+    }
+    
+    /**
+     * 对比以 Map 表示的行（列名不区分大小写，如 ColumnMapRowMapper 的结果）
+     * 按小写列名读取：LinkedCaseInsensitiveMap 对已是小写的键不再转换
+     */
+    @Override
+    public FieldDifference diff(Object primaryKey, Map<String, Object> oracleRow, Map<String, Object> postgresRow) {
+        for (int i = 0; i < columns.length; i++) {
+            Object oracleValue = oracleIndexes[i] >= 0 ? oracleRow.get(columns[i]) : null;
+            Object postgresValue = postgresIndexes[i] >= 0 ? postgresRow.get(columns[i]) : null;
+            if (!comparisons[i].equal(oracleValue, postgresValue)) {
+                return buildDifference(primaryKey, oracleRow, postgresRow, i);
+            }
+        }
+        return null;
+    }
+    
+    /**
+     * 绑定一对列式批次，按列名解析两端的列下标（每批一次）
+     */
+    public BoundBatches bind(ColumnarBatch oracleBatch, ColumnarBatch postgresBatch) {
+        int[] oracleColumns = new int[columns.length];
+        int[] postgresColumns = new int[columns.length];
+        for (int i = 0; i < columns.length; i++) {
+            oracleColumns[i] = oracleIndexes[i] >= 0 ? oracleBatch.indexOf(columns[i]) : -1;
+            postgresColumns[i] = postgresIndexes[i] >= 0 ? postgresBatch.indexOf(columns[i]) : -1;
+        }
+        return new BoundBatches(oracleBatch, postgresBatch, oracleColumns, postgresColumns);
+    }
+    
+    /**
+     * 从第一处差异开始收集全部差异字段
+     */
+    private FieldDifference buildDifference(Object primaryKey,
+                                            Map<String, Object> oracleRow,
+                                            Map<String, Object> postgresRow,
+                                            int firstDifference) {
+        Map<String, FieldValuePair> differentFields = new HashMap<>();
+        for (int i = firstDifference; i < columns.length; i++) {
+            Object oracleValue = oracleIndexes[i] >= 0 ? oracleRow.get(columns[i]) : null;
+            Object postgresValue = postgresIndexes[i] >= 0 ? postgresRow.get(columns[i]) : null;
+            if (!comparisons[i].equal(oracleValue, postgresValue)) {
+                differentFields.put(columns[i], FieldValuePair.builder()
+                        .fieldName(columns[i])
+                        .oracleValue(oracleValue)
+                        .postgresValue(postgresValue)
+                        .build());
+            }
+        }
+        
+        return FieldDifference.builder()
+                .primaryKey(primaryKey)
+                .oracleData(oracleRow)
+                .postgresData(postgresRow)
+                .differentFields(differentFields)
+                .build();
+    }
+    
+    /**
+     * 绑定到一对列式批次的对比计划
+     */
+    public class BoundBatches {
+        
+        private final ColumnarBatch oracleBatch;
+        
+        private final ColumnarBatch postgresBatch;
+        
+        private final int[] oracleColumns;
+        
+        private final int[] postgresColumns;
+        
+        private BoundBatches(ColumnarBatch oracleBatch,
+                             ColumnarBatch postgresBatch,
+                             int[] oracleColumns,
+                             int[] postgresColumns) {
+            this.oracleBatch = oracleBatch;
+            this.postgresBatch = postgresBatch;
+            this.oracleColumns = oracleColumns;
+            this.postgresColumns = postgresColumns;
+        }
+        
+        /**
+         * 对比两个批次中的各一行
+         *
+         * @return 存在差异时返回差异详情，否则返回 null
+         */
+        public FieldDifference diff(Object primaryKey, int oracleRow, int postgresRow) {
+            for (int i = 0; i < columns.length; i++) {
+                if (!columnEquals(i, oracleRow, postgresRow)) {
+                    return buildDifference(primaryKey, oracleRow, postgresRow, i);
+                }
+            }
+            return null;
+        }
+        
+        private boolean columnEquals(int i, int oracleRow, int postgresRow) {
+            int oc = oracleColumns[i];
+            int pc = postgresColumns[i];
+            boolean oracleNull = oc < 0 || oracleBatch.isNull(oracleRow, oc);
+            boolean postgresNull = pc < 0 || postgresBatch.isNull(postgresRow, pc);
+            if (oracleNull || postgresNull) {
+                return oracleNull && postgresNull;
+            }
+            
+            ColumnarBatch.VectorType oracleType = oracleBatch.getType(oc);
+            ColumnarBatch.VectorType postgresType = postgresBatch.getType(pc);
+            if (oracleType == postgresType) {
+                switch (oracleType) {
+                    case LONG:
+                    case TIMESTAMP:
+                        return oracleBatch.getLong(oracleRow, oc) == postgresBatch.getLong(postgresRow, pc);
+                    case DOUBLE:
+                        return Double.compare(oracleBatch.getDouble(oracleRow, oc),
+                                postgresBatch.getDouble(postgresRow, pc)) == 0;
+                    case STRING:
+                        return comparisons[i].equal(oracleBatch.getString(oracleRow, oc),
+                                postgresBatch.getString(postgresRow, pc));
+                    default:
+                        break;
+                }
+            }
+            if (oracleType == ColumnarBatch.VectorType.LONG && postgresType == ColumnarBatch.VectorType.OBJECT) {
+                return comparisons[i].equalLong(oracleBatch.getLong(oracleRow, oc),
+                        postgresBatch.getObject(postgresRow, pc));
+            }
+            if (postgresType == ColumnarBatch.VectorType.LONG && oracleType == ColumnarBatch.VectorType.OBJECT) {
+                return comparisons[i].equalLong(postgresBatch.getLong(postgresRow, pc),
+                        oracleBatch.getObject(oracleRow, oc));
+            }
+            return comparisons[i].equal(oracleBatch.getObject(oracleRow, oc), postgresBatch.getObject(postgresRow, pc));
+        }
+        
+        private FieldDifference buildDifference(Object primaryKey, int oracleRow, int postgresRow, int firstDifference) {
+            Map<String, FieldValuePair> differentFields = new HashMap<>();
+            for (int i = firstDifference; i < columns.length; i++) {
+                if (!columnEquals(i, oracleRow, postgresRow)) {
+                    differentFields.put(columns[i], FieldValuePair.builder()
+                            .fieldName(columns[i])
+                            .oracleValue(oracleColumns[i] >= 0 ? oracleBatch.getObject(oracleRow, oracleColumns[i]) : null)
+                            .postgresValue(postgresColumns[i] >= 0 ? postgresBatch.getObject(postgresRow, postgresColumns[i]) : null)
+                            .build());
+                }
+            }
+            
+            // 整行数据不随差异保留，需要时按主键回查
+            return FieldDifference.builder()
+                    .primaryKey(primaryKey)
+                    .differentFields(differentFields)
+                    .build();
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package com.example.dbvalidator.engine;
+
+import com.zaxxer.hikari.HikariDataSource;
+
+import javax.sql.DataSource;
+import java.util.concurrent.Semaphore;
+import java.util.function.Supplier;
+
+/**
+ * 连接预算
+ * <p>
+ * 一个许可代表在 Oracle 和 PostgreSQL 上各占用一个连接，许可总数取两个连接池最大连接数中的较小值。
+ * 表级和分区级的并行任务在真正访问数据库前申请许可，线程在这里排队，而不是在连接池上等待直至超时。
+ */
+public class ConnectionBudget {
+    
+    /**
+     * 无法获取连接池大小时使用的默认值（与 Hikari 默认一致）
+     */
+    private static final int DEFAULT_POOL_SIZE = 10;
+    
+    private final int size;
+    
+    private final Semaphore permits;
+    
+    public ConnectionBudget(DataSource oracleDataSource, DataSource postgresDataSource) {
+        this.size = Math.max(1, Math.min(poolSize(oracleDataSource), poolSize(postgresDataSource)));
+        this.permits = new Semaphore(size, true);
+    }
+    
+    /**
+     * 许可总数
+     */
+    public int getSize() {
+        return size;
+    }
+    
+    /**
+     * 占用指定数量的许可执行任务
+     */
+    public <T> T call(int connections, Supplier<T> work) {
+        int required = Math.max(1, Math.min(connections, size));
+        try {
+            permits.acquire(required);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("等待数据库连接时被中断", e);
+        }
+        try {
+            return work.get();
+        } finally {
+            permits.release(required);
+        }
+    }
+    
+    private static int poolSize(DataSource dataSource) {
+        if (dataSource instanceof HikariDataSource) {
+            return ((HikariDataSource) dataSource).getMaximumPoolSize();
+        }
+        return DEFAULT_POOL_SIZE;
+    }
+}
@@ -0,0 +1,11 @@
+package com.example.dbvalidator.engine;
+
+/**
+ * 数据库方言
+ */
+public enum Dialect {
+    
+    ORACLE,
+    
+    POSTGRESQL
+}
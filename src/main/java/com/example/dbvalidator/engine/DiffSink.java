@@ -0,0 +1,327 @@
+package com.example.dbvalidator.engine;
+
+import com.example.dbvalidator.model.CompactDifference;
+import com.example.dbvalidator.model.DifferenceSummary;
+import com.example.dbvalidator.model.FieldDifference;
+import com.example.dbvalidator.model.FieldValuePair;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * 内存有界的字段差异收集器
+ * <p>
+ * 差异按 {@link CompactDifference} 保存：只保留主键和不一致列的两端取值，列名按出现顺序编为列字典，
+ * 差异中只记录列下标，不保留整行数据。
+ * 前 memoryLimit 条差异保留在内存中（作为 ComparisonResult.compactDifferences 返回），
+ * 之后的差异以 JSON Lines 追加写入本地溢出文件，内存占用与差异条数无关。
+ * 每 {@link #INDEX_INTERVAL} 条记录一次文件偏移，分页读取时从最近的索引点顺序跳过，不需要扫描整个文件。
+ * 溢出部分反序列化后字段值为 JSON 基本类型（时间为毫秒数、二进制为 Base64），仅用于报告与分页查看。
+ * <p>
+ * 所有差异（含仅一端存在的主键）同时进入 {@link DiffSummarizer} 汇总；只汇总模式下差异本身不保留，
+ * 内存中只有计数数组和固定条数的样例。
+ */
+@Slf4j
+public class DiffSink implements AutoCloseable {
+    
+    /**
+     * 溢出文件的稀疏索引间隔（条）
+     */
+    static final int INDEX_INTERVAL = 256;
+    
+    /**
+     * 默认的差异样例条数
+     */
+    public static final int DEFAULT_SAMPLE_SIZE = 20;
+    
+    private static final ObjectMapper MAPPER = new ObjectMapper()
+            .findAndRegisterModules()
+            .disable(SerializationFeature.FAIL_ON_EMPTY_BEANS)
+            .disable(SerializationFeature.INDENT_OUTPUT);
+    
+    private final String id;
+    
+    private final int memoryLimit;
+    
+    private final Path spillFile;
+    
+    /**
+     * 是否保留差异本身，false 时只汇总
+     */
+    private final boolean retain;
+    
+    private final DiffSummarizer summarizer;
+    
+    private final Map<Object, CompactDifference> head = new LinkedHashMap<>();
+    
+    private final List<String> columns = new ArrayList<>();
+    
+    private final Map<String, Integer> columnIndexes = new HashMap<>();
+    
+    private OutputStream writer;
+    
+    private long spilled;
+    
+    private long written;
+    
+    private long[] offsets = new long[64];
+    
+    /**
+     * @param id          差异集标识，用于分页查询
+     * @param memoryLimit 内存中保留的差异条数，小于等于 0 表示不溢出
+     * @param spillFile   溢出文件，首次溢出时创建
+     */
+    public DiffSink(String id, int memoryLimit, Path spillFile) {
+        this(id, memoryLimit, spillFile, DEFAULT_SAMPLE_SIZE);
+    }
+    
+    /**
+     * @param sampleSize 差异汇总中保留的样例条数
+     */
+    public DiffSink(String id, int memoryLimit, Path spillFile, int sampleSize) {
+        this(id, memoryLimit, spillFile, true, sampleSize);
+    }
+    
+    private DiffSink(String id, int memoryLimit, Path spillFile, boolean retain, int sampleSize) {
+        this.id = id;
+        this.memoryLimit = memoryLimit;
+        this.spillFile = spillFile;
+        this.retain = retain;
+        this.summarizer = new DiffSummarizer(sampleSize);
+    }
+    
+    /**
+     * 全部保留在内存中的收集器
+     */
+    public static DiffSink inMemory() {
+        return new DiffSink(null, 0, null);
+    }
+    
+    /**
+     * 只汇总不保留差异的收集器
+     */
+    public static DiffSink summaryOnly(int sampleSize) {
+        return new DiffSink(null, 0, null, false, sampleSize);
+    }
+    
+    /**
+     * 记录仅在 Oracle 中存在的主键（只计入汇总）
+     */
+    public synchronized void onlyInOracle(Object primaryKey) {
+        summarizer.missing(primaryKey);
+    }
+    
+    /**
+     * 记录仅在 PostgreSQL 中存在的主键（只计入汇总）
+     */
+    public synchronized void onlyInPostgres(Object primaryKey) {
+        summarizer.extra(primaryKey);
+    }
+    
+    public synchronized void add(FieldDifference difference) {
+        CompactDifference compact = compact(difference);
+        summarizer.changed(compact);
+        if (!retain) {
+            return;
+        }
+        if (memoryLimit <= 0 || head.size() < memoryLimit || head.containsKey(compact.getPrimaryKey())) {
+            head.put(compact.getPrimaryKey(), compact);
+            return;
+        }
+        try {
+            if (writer == null) {
+                Files.createDirectories(spillFile.toAbsolutePath().getParent());
+                writer = new BufferedOutputStream(Files.newOutputStream(spillFile, StandardOpenOption.CREATE,
+                        StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING), 64 * 1024);
+                log.info("差异超过内存上限 {} 条，后续差异写入溢出文件: {}", memoryLimit, spillFile);
+            }
+            if (spilled % INDEX_INTERVAL == 0) {
+                int slot = (int) (spilled / INDEX_INTERVAL);
+                if (slot == offsets.length) {
+                    offsets = Arrays.copyOf(offsets, slot * 2);
+                }
+                offsets[slot] = written;
+            }
+            byte[] line = MAPPER.writeValueAsBytes(compact);
+            writer.write(line);
+            writer.write('\n');
+            written += line.length + 1;
+            spilled++;
+        } catch (IOException e) {
+            throw new UncheckedIOException("差异溢出文件写入失败: " + spillFile, e);
+        }
+    }
+    
+    /**
+     * 转为紧凑差异，新出现的列名追加到列字典
+     */
+    private CompactDifference compact(FieldDifference difference) {
+        Map<String, FieldValuePair> fields = difference.getDifferentFields();
+        int[] indexes = new int[fields.size()];
+        Object[] oracleValues = new Object[fields.size()];
+        Object[] postgresValues = new Object[fields.size()];
+        int i = 0;
+        for (Map.Entry<String, FieldValuePair> field : fields.entrySet()) {
+            Integer index = columnIndexes.get(field.getKey());
+            if (index == null) {
+                index = columns.size();
+                columns.add(field.getKey());
+                columnIndexes.put(field.getKey(), index);
+            }
+            indexes[i] = index;
+            oracleValues[i] = field.getValue().getOracleValue();
+            postgresValues[i] = field.getValue().getPostgresValue();
+            i++;
+        }
+        return new CompactDifference(difference.getPrimaryKey(), indexes, oracleValues, postgresValues);
+    }
+    
+    public String getId() {
+        return id;
+    }
+    
+    /**
+     * 列字典：紧凑差异中的列下标对应的列名
+     */
+    public synchronized List<String> getColumns() {
+        return new ArrayList<>(columns);
+    }
+    
+    /**
+     * 是否保留差异本身（只汇总模式下为 false）
+     */
+    public boolean isRetaining() {
+        return retain;
+    }
+    
+    /**
+     * 字段差异总条数（内存 + 溢出文件；只汇总模式下为汇总计数）
+     */
+    public synchronized long size() {
+        return retain ? head.size() + spilled : summarizer.getChanged();
+    }
+    
+    /**
+     * 是否记录过任何差异（含仅一端存在的主键）
+     */
+    public synchronized boolean hasDifferences() {
+        return summarizer.getTotal() > 0;
+    }
+    
+    /**
+     * 按类型、按列的差异计数与差异样例
+     */
+    public synchronized DifferenceSummary summarize() {
+        return summarizer.summarize(columns);
+    }
+    
+    /**
+     * 溢出到文件的差异条数
+     */
+    public synchronized long getSpilled() {
+        return spilled;
+    }
+    
+    /**
+     * 内存中保留的差异（按收集顺序）
+     */
+    public synchronized List<CompactDifference> getHead() {
+        return Collections.unmodifiableList(new ArrayList<>(head.values()));
+    }
+    
+    /**
+     * 按收集顺序分页读取差异，先内存部分后溢出文件部分
+     *
+     * @param offset 起始序号（从 0 开始）
+     * @param limit  最多返回的条数
+     */
+    public synchronized List<CompactDifference> page(long offset, int limit) {
+        List<CompactDifference> page = new ArrayList<>(Math.max(0, Math.min(limit, 1024)));
+        if (offset < 0 || limit <= 0) {
+            return page;
+        }
+        if (offset < head.size()) {
+            head.values().stream().skip(offset).limit(limit).forEach(page::add);
+        }
+        long spillOffset = Math.max(0, offset - head.size());
+        if (page.size() < limit && spillOffset < spilled) {
+            readSpilled(spillOffset, (int) Math.min(limit - page.size(), spilled - spillOffset), page::add);
+        }
+        return page;
+    }
+    
+    /**
+     * 按收集顺序遍历全部差异，溢出部分流式读取
+     */
+    public synchronized void forEach(Consumer<CompactDifference> action) {
+        head.values().forEach(action);
+        if (spilled > 0) {
+            readSpilled(0, spilled, action);
+        }
+    }
+    
+    private void readSpilled(long from, long count, Consumer<CompactDifference> action) {
+        try {
+            writer.flush();
+            try (FileChannel channel = FileChannel.open(spillFile, StandardOpenOption.READ)) {
+                channel.position(offsets[(int) (from / INDEX_INTERVAL)]);
+                BufferedReader reader = new BufferedReader(new InputStreamReader(
+                        Channels.newInputStream(channel), StandardCharsets.UTF_8), 64 * 1024);
+                for (long skip = from % INDEX_INTERVAL; skip > 0; skip--) {
+                    reader.readLine();
+                }
+                for (long i = 0; i < count; i++) {
+                    String line = reader.readLine();
+                    if (line == null) {
+                        break;
+                    }
+                    action.accept(MAPPER.readValue(line, CompactDifference.class));
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("差异溢出文件读取失败: " + spillFile, e);
+        }
+    }
+    
+    /**
+     * 关闭并删除溢出文件
+     */
+    @Override
+    public synchronized void close() {
+        try {
+            if (writer != null) {
+                writer.close();
+                writer = null;
+            }
+            if (spillFile != null) {
+                Files.deleteIfExists(spillFile);
+            }
+        } catch (IOException e) {
+            log.warn("差异溢出文件删除失败: {}", spillFile, e);
+        }
+        head.clear();
+        spilled = 0;
+        written = 0;
+    }
+}
@@ -0,0 +1,154 @@
+package com.example.dbvalidator.engine;
+
+import com.example.dbvalidator.model.CompactDifference;
+import com.example.dbvalidator.model.DifferenceSummary;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+/**
+ * 差异汇总统计
+ * <p>
+ * 按类型（缺失/多余/不一致）和按列的不一致计数保存在基本类型数组中，精确且与差异条数无关；
+ * 另以蓄水池抽样（Algorithm R）保留固定条数的差异样例，每条差异被选中的概率相同。
+ * 非线程安全，由 {@link DiffSink} 在其锁内调用。
+ */
+public class DiffSummarizer {
+    
+    private static final int MISSING = 0;
+    
+    private static final int EXTRA = 1;
+    
+    private static final int CHANGED = 2;
+    
+    private static final String[] KINDS = {
+            DifferenceSummary.KIND_MISSING, DifferenceSummary.KIND_EXTRA, DifferenceSummary.KIND_CHANGED};
+    
+    private final long[] kindCounts = new long[3];
+    
+    /**
+     * 按列字典下标计数
+     */
+    private long[] columnCounts = new long[16];
+    
+    private final byte[] sampleKinds;
+    
+    private final Object[] sampleKeys;
+    
+    private final CompactDifference[] sampleDifferences;
+    
+    private final SplittableRandom random;
+    
+    private long seen;
+    
+    public DiffSummarizer(int sampleSize) {
+        this(sampleSize, new SplittableRandom());
+    }
+    
+    DiffSummarizer(int sampleSize, SplittableRandom random) {
+        int size = Math.max(0, sampleSize);
+        this.sampleKinds = new byte[size];
+        this.sampleKeys = new Object[size];
+        this.sampleDifferences = new CompactDifference[size];
+        this.random = random;
+    }
+    
+    public void missing(Object primaryKey) {
+        kindCounts[MISSING]++;
+        sample(MISSING, primaryKey, null);
+    }
+    
+    public void extra(Object primaryKey) {
+        kindCounts[EXTRA]++;
+        sample(EXTRA, primaryKey, null);
+    }
+    
+    public void changed(CompactDifference difference) {
+        kindCounts[CHANGED]++;
+        for (int column : difference.getColumns()) {
+            if (column >= columnCounts.length) {
+                columnCounts = Arrays.copyOf(columnCounts, Math.max(column + 1, columnCounts.length * 2));
+            }
+            columnCounts[column]++;
+        }
+        sample(CHANGED, difference.getPrimaryKey(), difference);
+    }
+    
+    private void sample(int kind, Object primaryKey, CompactDifference difference) {
+        long n = seen++;
+        int slot;
+        if (n < sampleKeys.length) {
+            slot = (int) n;
+        } else {
+            long candidate = random.nextLong(n + 1);
+            if (candidate >= sampleKeys.length) {
+                return;
+            }
+            slot = (int) candidate;
+        }
+        sampleKinds[slot] = (byte) kind;
+        sampleKeys[slot] = primaryKey;
+        sampleDifferences[slot] = difference;
+    }
+    
+    public long getMissing() {
+        return kindCounts[MISSING];
+    }
+    
+    public long getExtra() {
+        return kindCounts[EXTRA];
+    }
+    
+    public long getChanged() {
+        return kindCounts[CHANGED];
+    }
+    
+    /**
+     * 差异总数（三种类型之和）
+     */
+    public long getTotal() {
+        return kindCounts[MISSING] + kindCounts[EXTRA] + kindCounts[CHANGED];
+    }
+    
+    /**
+     * 生成汇总结果
+     *
+     * @param columns 紧凑差异的列字典
+     */
+    public DifferenceSummary summarize(List<String> columns) {
+        List<Integer> order = new ArrayList<>();
+        for (int i = 0; i < Math.min(columns.size(), columnCounts.length); i++) {
+            if (columnCounts[i] > 0) {
+                order.add(i);
+            }
+        }
+        order.sort((a, b) -> Long.compare(columnCounts[b], columnCounts[a]));
+        Map<String, Long> columnMismatches = new LinkedHashMap<>();
+        for (int i : order) {
+            columnMismatches.put(columns.get(i), columnCounts[i]);
+        }
+        
+        List<DifferenceSummary.Example> examples = new ArrayList<>();
+        for (int i = 0; i < Math.min(seen, sampleKeys.length); i++) {
+            examples.add(DifferenceSummary.Example.builder()
+                    .kind(KINDS[sampleKinds[i]])
+                    .primaryKey(sampleKeys[i])
+                    .differentFields(sampleDifferences[i] != null
+                            ? sampleDifferences[i].toFieldDifference(columns).getDifferentFields()
+                            : null)
+                    .build());
+        }
+        
+        return DifferenceSummary.builder()
+                .missingCount(kindCounts[MISSING])
+                .extraCount(kindCounts[EXTRA])
+                .changedCount(kindCounts[CHANGED])
+                .columnMismatches(columnMismatches)
+                .examples(examples)
+                .build();
+    }
+}
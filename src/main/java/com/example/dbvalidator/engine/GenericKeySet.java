@@ -0,0 +1,37 @@
+package com.example.dbvalidator.engine;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * 通用主键集合（非整数的数值主键、混合类型主键等）
+ */
+class GenericKeySet extends KeySet {
+    
+    private final Set<Object> keys = new HashSet<>();
+    
+    private final List<Object> ordered = new ArrayList<>();
+    
+    void add(Object key) {
+        if (keys.add(key)) {
+            ordered.add(key);
+        }
+    }
+    
+    @Override
+    public int size() {
+        return ordered.size();
+    }
+    
+    @Override
+    public boolean contains(Object key) {
+        return keys.contains(key);
+    }
+    
+    @Override
+    public Object keyAt(int index) {
+        return ordered.get(index);
+    }
+}
@@ -0,0 +1,177 @@
+package com.example.dbvalidator.engine;
+
+import lombok.Getter;
+import oracle.jdbc.OracleConnection;
+import org.springframework.jdbc.core.support.AbstractSqlTypeValue;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 按主键批量查找的条件生成策略
+ * <p>
+ * 逐批拼接 IN (?, ?, ...) 会让每个批次长度都产生一条新的 SQL，驱动端语句缓存失效，且 Oracle IN 列表最多 1000 项。
+ * PostgreSQL 统一绑定一个数组参数（pk = ANY(?)），只有一种语句形态；
+ * Oracle 可选：padded 将主键数补齐到固定档位（重复最后一个主键），超过 1000 项时拆为多个 IN 用 OR 连接；
+ * collection 绑定一个 SYS.ODCINUMBERLIST / SYS.ODCIVARCHAR2LIST 集合参数（TABLE(CAST(? AS ...))）。
+ */
+public class KeyLookup {
+    
+    /**
+     * Oracle 补齐档位
+     */
+    public static final String ORACLE_PADDED = "padded";
+    
+    /**
+     * Oracle 集合绑定
+     */
+    public static final String ORACLE_COLLECTION = "collection";
+    
+    /**
+     * Oracle IN 列表的最大项数
+     */
+    private static final int ORACLE_IN_LIMIT = 1000;
+    
+    private static final int[] PADDED_SIZES = {1, 8, 32, 128, 512, ORACLE_IN_LIMIT};
+    
+    private final boolean oracleCollection;
+    
+    public KeyLookup(String oracleStrategy) {
+        this.oracleCollection = ORACLE_COLLECTION.equalsIgnoreCase(oracleStrategy);
+    }
+    
+    /**
+     * 生成主键查找条件
+     *
+     * @param keyColumn 该库的主键列定义，用于 PostgreSQL 数组的类型转换，未知时为 null
+     */
+    public KeyPredicate predicate(Dialect dialect, String primaryKey, ColumnInfo keyColumn, List<Object> keys) {
+        if (dialect == Dialect.POSTGRESQL) {
+            return postgresArray(primaryKey, keyColumn, keys);
+        }
+        return oracleCollection ? oracleCollection(primaryKey, keys) : oraclePadded(primaryKey, keys);
+    }
+    
+    private KeyPredicate postgresArray(String primaryKey, ColumnInfo keyColumn, List<Object> keys) {
+        boolean integral = keys.stream().allMatch(k -> k instanceof Long || k instanceof Integer);
+        boolean numeric = keys.stream().allMatch(k -> k instanceof Number);
+        String elementType = integral ? "int8" : numeric ? "numeric" : "text";
+        Object[] values = keys.stream()
+                .map(k -> numeric ? k : String.valueOf(k))
+                .toArray();
+        
+        // 数组元素类型与主键列类型不同（如 uuid、int4）时显式转换，避免运算符不匹配
+        String keyType = keyColumn != null ? keyColumn.baseTypeName() : null;
+        String parameter = keyType != null && !keyType.equalsIgnoreCase(elementType)
+                ? "CAST(? AS " + keyType + "[])"
+                : "?";
+        return new KeyPredicate(primaryKey + " = ANY(" + parameter + ")",
+                Collections.singletonList(new ArrayValue(elementType, values, false)));
+    }
+    
+    private KeyPredicate oracleCollection(String primaryKey, List<Object> keys) {
+        boolean numeric = keys.stream().allMatch(k -> k instanceof Number);
+        String collectionType = numeric ? "SYS.ODCINUMBERLIST" : "SYS.ODCIVARCHAR2LIST";
+        Object[] values = keys.stream()
+                .map(k -> numeric ? k : String.valueOf(k))
+                .toArray();
+        return new KeyPredicate(
+                primaryKey + " IN (SELECT k.COLUMN_VALUE FROM TABLE(CAST(? AS " + collectionType + ")) k)",
+                Collections.singletonList(new ArrayValue(collectionType, values, true)));
+    }
+    
+    private KeyPredicate oraclePadded(String primaryKey, List<Object> keys) {
+        List<Object> parameters = new ArrayList<>();
+        List<String> inLists = new ArrayList<>();
+        for (int start = 0; start < keys.size(); start += ORACLE_IN_LIMIT) {
+            List<Object> chunk = keys.subList(start, Math.min(keys.size(), start + ORACLE_IN_LIMIT));
+            int padded = paddedSize(chunk.size());
+            StringBuilder inList = new StringBuilder(primaryKey).append(" IN (");
+            for (int i = 0; i < padded; i++) {
+                inList.append(i == 0 ? "?" : ",?");
+                parameters.add(chunk.get(Math.min(i, chunk.size() - 1)));
+            }
+            inLists.add(inList.append(")").toString());
+        }
+        String sql = inLists.size() == 1 ? inLists.get(0) : "(" + String.join(" OR ", inLists) + ")";
+        return new KeyPredicate(sql, parameters);
+    }
+    
+    private static int paddedSize(int size) {
+        for (int padded : PADDED_SIZES) {
+            if (size <= padded) {
+                return padded;
+            }
+        }
+        return ORACLE_IN_LIMIT;
+    }
+    
+    /**
+     * 主键查找条件（不含 WHERE 关键字）及其参数
+     */
+    @Getter
+    public static class KeyPredicate {
+        
+        private final String sql;
+        
+        private final List<Object> parameters;
+        
+        KeyPredicate(String sql, List<Object> parameters) {
+            this.sql = sql;
+            this.parameters = parameters;
+        }
+    }
+    
+    /**
+     * 在执行时由当前连接创建的数组参数
+     */
+    static class ArrayValue extends AbstractSqlTypeValue {
+        
+        private final String typeName;
+        
+        private final Object[] values;
+        
+        private final boolean oracle;
+        
+        ArrayValue(String typeName, Object[] values, boolean oracle) {
+            this.typeName = typeName;
+            this.values = values;
+            this.oracle = oracle;
+        }
+        
+        /**
+         * PostgreSQL 数组字面量（用于不能绑定参数的语句，如 COPY），元素统一加双引号
+         */
+        String postgresLiteral() {
+            StringBuilder literal = new StringBuilder("CAST('{");
+            for (int i = 0; i < values.length; i++) {
+                if (i > 0) {
+                    literal.append(',');
+                }
+                String element = values[i] instanceof BigDecimal
+                        ? ((BigDecimal) values[i]).toPlainString()
+                        : String.valueOf(values[i]);
+                literal.append('"')
+                        .append(element.replace("\\", "\\\\").replace("\"", "\\\"").replace("'", "''"))
+                        .append('"');
+            }
+            return literal.append("}' AS ").append(typeName).append("[])").toString();
+        }
+        
+        @Override
+        protected Object createTypeValue(Connection connection, int sqlType, String ignoredTypeName) throws SQLException {
+            if (oracle) {
+                Object[] converted = new Object[values.length];
+                for (int i = 0; i < values.length; i++) {
+                    converted[i] = values[i] instanceof Long ? BigDecimal.valueOf((Long) values[i]) : values[i];
+                }
+                return connection.unwrap(OracleConnection.class).createOracleArray(typeName, converted);
+            }
+            return connection.createArrayOf(typeName, values);
+        }
+    }
+}
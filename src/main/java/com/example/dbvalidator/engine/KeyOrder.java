@@ -0,0 +1,100 @@
+package com.example.dbvalidator.engine;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.sql.Types;
+
+/**
+ * 主键排序规则
+ * 与数据库端的二进制排序保持一致：数值按大小比较，字符按 Unicode 码点（等价于 UTF-8 字节序）比较
+ */
+public final class KeyOrder {
+    
+    private static final BigDecimal LONG_MIN = BigDecimal.valueOf(Long.MIN_VALUE);
+    
+    private static final BigDecimal LONG_MAX = BigDecimal.valueOf(Long.MAX_VALUE);
+    
+    private KeyOrder() {
+    }
+    
+    /**
+     * 主键规范化，使 Oracle 与 PostgreSQL 返回的同一主键可以作为同一个 Map 键
+     * 整数值统一为 Long，其余数值去除末尾零，非数值统一为字符串
+     */
+    public static Object canonicalize(Object key) {
+        if (key == null || key instanceof String || key instanceof Long) {
+            return key;
+        }
+        if (key instanceof Integer || key instanceof Short || key instanceof Byte) {
+            return ((Number) key).longValue();
+        }
+        if (key instanceof Number) {
+            BigDecimal value = toBigDecimal((Number) key).stripTrailingZeros();
+            if (value.scale() <= 0 && value.compareTo(LONG_MIN) >= 0 && value.compareTo(LONG_MAX) <= 0) {
+                return value.longValueExact();
+            }
+            return value;
+        }
+        return key.toString();
+    }
+    
+    /**
+     * 比较两个主键值
+     * Oracle 的 NUMBER 主键为 BigDecimal，PostgreSQL 的 bigint 主键为 Long，统一按数值比较
+     */
+    public static int compare(Object a, Object b) {
+        if (a instanceof Number && b instanceof Number) {
+            return toBigDecimal((Number) a).compareTo(toBigDecimal((Number) b));
+        }
+        return compareCodePoints(String.valueOf(a), String.valueOf(b));
+    }
+    
+    /**
+     * 按码点比较字符串（String.compareTo 按 UTF-16 代码单元比较，遇到增补字符时与数据库二进制排序不一致）
+     */
+    public static int compareCodePoints(String a, String b) {
+        int i = 0;
+        int j = 0;
+        while (i < a.length() && j < b.length()) {
+            int ca = a.codePointAt(i);
+            int cb = b.codePointAt(j);
+            if (ca != cb) {
+                return Integer.compare(ca, cb);
+            }
+            i += Character.charCount(ca);
+            j += Character.charCount(cb);
+        }
+        return Integer.compare(a.length() - i, b.length() - j);
+    }
+    
+    /**
+     * 判断 JDBC 类型是否为字符类型
+     * PostgreSQL uuid 不属于字符类型：其原生排序即字节序，与小写十六进制串的码点顺序一致
+     */
+    public static boolean isCharacterType(int sqlType) {
+        switch (sqlType) {
+            case Types.CHAR:
+            case Types.VARCHAR:
+            case Types.LONGVARCHAR:
+            case Types.NCHAR:
+            case Types.NVARCHAR:
+            case Types.LONGNVARCHAR:
+                return true;
+            default:
+                return false;
+        }
+    }
+    
+    private static BigDecimal toBigDecimal(Number number) {
+        if (number instanceof BigDecimal) {
+            return (BigDecimal) number;
+        }
+        if (number instanceof BigInteger) {
+            return new BigDecimal((BigInteger) number);
+        }
+        if (number instanceof Double || number instanceof Float) {
+            return BigDecimal.valueOf(number.doubleValue());
+        }
+        return BigDecimal.valueOf(number.longValue());
+    }
+}
@@ -0,0 +1,79 @@
+package com.example.dbvalidator.engine;
+
+import lombok.Getter;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 主键区间 [lower, upper)，边界为 null 表示无界
+ */
+@Getter
+public class KeyRange {
+    
+    /**
+     * 整张表
+     */
+    public static final KeyRange ALL = new KeyRange(null, null);
+    
+    private final Object lower;
+    
+    private final Object upper;
+    
+    public KeyRange(Object lower, Object upper) {
+        this.lower = lower;
+        this.upper = upper;
+    }
+    
+    public boolean isUnbounded() {
+        return lower == null && upper == null;
+    }
+    
+    /**
+     * 区间过滤条件（不含 WHERE 关键字），无界时返回 null
+     * 字符主键在 PostgreSQL 端按 "C" 排序规则比较，Oracle 端依赖会话的 NLS_COMP = BINARY
+     */
+    public String predicate(String primaryKey, Dialect dialect, boolean characterKey) {
+        if (isUnbounded()) {
+            return null;
+        }
+        String column = characterKey && dialect == Dialect.POSTGRESQL
+                ? primaryKey + " COLLATE \"C\""
+                : primaryKey;
+        List<String> conditions = new ArrayList<>(2);
+        if (lower != null) {
+            conditions.add(column + " >= ?");
+        }
+        if (upper != null) {
+            conditions.add(column + " < ?");
+        }
+        return String.join(" AND ", conditions);
+    }
+    
+    /**
+     * 与 predicate 对应的绑定参数
+     * 边界值取自 PostgreSQL 抽样，Oracle 端将 UUID 等驱动特有类型转为字符串绑定
+     */
+    public Object[] parameters(Dialect dialect) {
+        List<Object> params = new ArrayList<>(2);
+        if (lower != null) {
+            params.add(bindValue(lower, dialect));
+        }
+        if (upper != null) {
+            params.add(bindValue(upper, dialect));
+        }
+        return params.toArray();
+    }
+    
+    private static Object bindValue(Object value, Dialect dialect) {
+        if (dialect == Dialect.ORACLE && !(value instanceof Number) && !(value instanceof String)) {
+            return value.toString();
+        }
+        return value;
+    }
+    
+    @Override
+    public String toString() {
+        return "[" + (lower != null ? lower : "-∞") + ", " + (upper != null ? upper : "+∞") + ")";
+    }
+}
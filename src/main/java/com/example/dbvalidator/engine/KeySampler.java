@@ -0,0 +1,93 @@
+package com.example.dbvalidator.engine;
+
+/**
+ * 主键哈希抽样
+ * <p>
+ * Oracle SAMPLE 与 PostgreSQL TABLESAMPLE 按物理块或行随机抽取，两端抽中的行不同，无法逐行对比；
+ * 这里改为两端用同一个规范化主键哈希（{@link RowDigestSql#hash32}）分桶，取哈希落在前 threshold 个桶
+ * （共 {@value #BUCKETS} 个）的行，两端抽中的主键集合相同，缺失与字段差异都能在样本内如实反映。
+ * 抽样仍需扫描全表计算哈希，但只传输和对比样本行。
+ */
+public class KeySampler {
+    
+    /**
+     * 哈希分桶数，抽样比例的最小粒度为 0.01%
+     */
+    public static final int BUCKETS = 10_000;
+    
+    /**
+     * 95% 置信水平对应的正态分位数
+     */
+    public static final double Z_95 = 1.959964;
+    
+    private final int threshold;
+    
+    /**
+     * @param samplePercent 抽样百分比（0, 100]
+     */
+    public KeySampler(double samplePercent) {
+        if (!(samplePercent > 0) || samplePercent > 100) {
+            throw new IllegalArgumentException("抽样百分比须在 (0, 100] 之间: " + samplePercent);
+        }
+        this.threshold = (int) Math.max(1, Math.min(BUCKETS, Math.round(samplePercent * BUCKETS / 100)));
+    }
+    
+    /**
+     * 按目标样本行数与预估表行数确定抽样比例，预估行数未知时全量抽取
+     */
+    public static KeySampler forTargetRows(long targetRows, long estimatedRows) {
+        if (targetRows <= 0) {
+            throw new IllegalArgumentException("目标样本行数须大于 0: " + targetRows);
+        }
+        if (estimatedRows <= 0 || targetRows >= estimatedRows) {
+            return new KeySampler(100);
+        }
+        return new KeySampler(Math.max(100.0 / BUCKETS, targetRows * 100.0 / estimatedRows));
+    }
+    
+    /**
+     * 实际使用的抽样百分比（按桶数取整后）
+     */
+    public double getSamplePercent() {
+        return threshold * 100.0 / BUCKETS;
+    }
+    
+    /**
+     * 抽样条件（不含 WHERE），全量抽取时返回 null
+     */
+    public String predicate(Dialect dialect, TableMetadata metadata, String primaryKey) {
+        if (threshold >= BUCKETS) {
+            return null;
+        }
+        ColumnInfo oracleKey = metadata.getOracleColumn(primaryKey);
+        ColumnInfo postgresKey = metadata.getPostgresColumn(primaryKey);
+        if (oracleKey == null || postgresKey == null) {
+            throw new IllegalArgumentException("主键列 " + primaryKey + " 在两个库中的定义不完整");
+        }
+        String canonical = dialect == Dialect.ORACLE
+                ? RowDigestSql.canonicalColumn(dialect, oracleKey)
+                : RowDigestSql.canonicalColumn(dialect, postgresKey);
+        return String.format("MOD(%s, %d) < %d", RowDigestSql.hash32(dialect, canonical), BUCKETS, threshold);
+    }
+    
+    /**
+     * 二项比例的 Wilson 得分区间
+     *
+     * @param sampled      样本行数
+     * @param inconsistent 样本中不一致的行数
+     * @param z            置信水平对应的正态分位数
+     * @return {下限, 上限}，样本为空时为 {0, 1}
+     */
+    public static double[] wilsonInterval(long sampled, long inconsistent, double z) {
+        if (sampled <= 0) {
+            return new double[]{0, 1};
+        }
+        double n = sampled;
+        double p = inconsistent / n;
+        double z2 = z * z;
+        double denominator = 1 + z2 / n;
+        double center = (p + z2 / (2 * n)) / denominator;
+        double half = z * Math.sqrt(p * (1 - p) / n + z2 / (4 * n * n)) / denominator;
+        return new double[]{Math.max(0, center - half), Math.min(1, center + half)};
+    }
+}
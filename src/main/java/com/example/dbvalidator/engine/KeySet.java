@@ -0,0 +1,196 @@
+package com.example.dbvalidator.engine;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * 主键集合
+ * <p>
+ * 主键在加载时规范化（见 {@link KeyOrder#canonicalize}），Oracle 的 NUMBER 与 PostgreSQL 的 bigint 得到相同的键。
+ * 按主键类型选择存储：整数主键使用基本类型 long 开放寻址表（约 16 字节/键），
+ * 字符主键使用 UTF-8 字节池（键长 + 约 16 字节/键），其他类型退化为 HashSet。
+ * 同类存储之间求差集、交集不创建包装对象，只有输出的差异主键和当前批次的主键会被装箱。
+ */
+public abstract class KeySet {
+    
+    /**
+     * 键的个数
+     */
+    public abstract int size();
+    
+    /**
+     * 是否包含规范化后的主键
+     */
+    public abstract boolean contains(Object key);
+    
+    /**
+     * 按加载顺序取第 index 个键（装箱）
+     */
+    public abstract Object keyAt(int index);
+    
+    /**
+     * 是否包含 source 中第 index 个键，同类存储可覆盖此方法避免装箱
+     */
+    protected boolean containsKeyOf(KeySet source, int index) {
+        return contains(source.keyAt(index));
+    }
+    
+    /**
+     * 本集合中不在 other 中的键
+     */
+    public List<Object> difference(KeySet other) {
+        List<Object> result = new ArrayList<>();
+        for (int i = 0; i < size(); i++) {
+            if (!other.containsKeyOf(this, i)) {
+                result.add(keyAt(i));
+            }
+        }
+        return result;
+    }
+    
+    /**
+     * 按批次遍历两个集合的交集，每次只装箱一个批次的键
+     */
+    public Iterator<List<Object>> intersectionBatches(KeySet other, int batchSize) {
+        int limit = Math.max(1, batchSize);
+        return new Iterator<List<Object>>() {
+            private int index;
+            private List<Object> nextBatch = advance();
+            
+            private List<Object> advance() {
+                List<Object> batch = new ArrayList<>(limit);
+                while (index < size() && batch.size() < limit) {
+                    if (other.containsKeyOf(KeySet.this, index)) {
+                        batch.add(keyAt(index));
+                    }
+                    index++;
+                }
+                return batch.isEmpty() ? null : batch;
+            }
+            
+            @Override
+            public boolean hasNext() {
+                return nextBatch != null;
+            }
+            
+            @Override
+            public List<Object> next() {
+                if (nextBatch == null) {
+                    throw new NoSuchElementException();
+                }
+                List<Object> batch = nextBatch;
+                nextBatch = advance();
+                return batch;
+            }
+        };
+    }
+    
+    /**
+     * 流式加载查询结果第一列作为主键集合（见 {@link StreamingQuery}，不会先把整个结果集读入内存）
+     */
+    public static KeySet load(JdbcTemplate jdbcTemplate, String sql, Object[] parameters, int fetchSize) {
+        Builder builder = new Builder();
+        StreamingQuery.query(jdbcTemplate, sql, parameters, fetchSize, new RowCallbackHandler() {
+            private Boolean integral;
+            
+            @Override
+            public void processRow(ResultSet rs) throws SQLException {
+                if (integral == null) {
+                    integral = isIntegral(rs.getMetaData());
+                }
+                if (integral) {
+                    long value = rs.getLong(1);
+                    if (!rs.wasNull()) {
+                        builder.addLong(value);
+                    }
+                } else {
+                    builder.add(rs.getObject(1));
+                }
+            }
+        });
+        return builder.build();
+    }
+    
+    /**
+     * 结果列是否可以无损读取为 long，可读取时跳过 BigDecimal 的创建
+     */
+    private static boolean isIntegral(ResultSetMetaData metaData) throws SQLException {
+        switch (metaData.getColumnType(1)) {
+            case Types.BIGINT:
+            case Types.INTEGER:
+            case Types.SMALLINT:
+            case Types.TINYINT:
+                return true;
+            case Types.NUMERIC:
+            case Types.DECIMAL:
+                int precision = metaData.getPrecision(1);
+                return metaData.getScale(1) == 0 && precision > 0 && precision <= 18;
+            default:
+                return false;
+        }
+    }
+    
+    /**
+     * 主键集合构建器，根据第一个键选择存储，遇到不同类型的键时整体退化为 HashSet
+     */
+    public static class Builder {
+        
+        private KeySet keys = new LongKeySet();
+        
+        private boolean empty = true;
+        
+        public Builder add(Object key) {
+            Object canonical = KeyOrder.canonicalize(key);
+            if (canonical == null) {
+                return this;
+            }
+            if (empty && canonical instanceof String) {
+                keys = new CompactStringKeySet();
+            }
+            empty = false;
+            
+            if (keys instanceof LongKeySet && canonical instanceof Long) {
+                ((LongKeySet) keys).add((Long) canonical);
+            } else if (keys instanceof CompactStringKeySet && canonical instanceof String) {
+                ((CompactStringKeySet) keys).add((String) canonical);
+            } else {
+                generic().add(canonical);
+            }
+            return this;
+        }
+        
+        public Builder addLong(long key) {
+            empty = false;
+            if (keys instanceof LongKeySet) {
+                ((LongKeySet) keys).add(key);
+            } else {
+                generic().add(key);
+            }
+            return this;
+        }
+        
+        private GenericKeySet generic() {
+            if (!(keys instanceof GenericKeySet)) {
+                GenericKeySet generic = new GenericKeySet();
+                for (int i = 0; i < keys.size(); i++) {
+                    generic.add(keys.keyAt(i));
+                }
+                keys = generic;
+            }
+            return (GenericKeySet) keys;
+        }
+        
+        public KeySet build() {
+            return keys;
+        }
+    }
+}
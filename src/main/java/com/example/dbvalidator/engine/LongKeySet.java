@@ -0,0 +1,97 @@
+package com.example.dbvalidator.engine;
+
+import java.util.Arrays;
+
+/**
+ * 整数主键集合
+ * 键按加载顺序连续存放在 long 数组中，开放寻址表（线性探测）只保存键的下标
+ */
+class LongKeySet extends KeySet {
+    
+    private static final int INITIAL_CAPACITY = 1024;
+    
+    private long[] values = new long[INITIAL_CAPACITY];
+    
+    /**
+     * 槽位保存 下标 + 1，0 表示空槽
+     */
+    private int[] slots = new int[INITIAL_CAPACITY * 2];
+    
+    private int size;
+    
+    void add(long value) {
+        int mask = slots.length - 1;
+        int slot = hash(value) & mask;
+        while (slots[slot] != 0) {
+            if (values[slots[slot] - 1] == value) {
+                return;
+            }
+            slot = (slot + 1) & mask;
+        }
+        if (size == values.length) {
+            values = Arrays.copyOf(values, size * 2);
+        }
+        values[size++] = value;
+        slots[slot] = size;
+        if (size * 2 > slots.length) {
+            rehash();
+        }
+    }
+    
+    boolean containsLong(long value) {
+        int mask = slots.length - 1;
+        int slot = hash(value) & mask;
+        while (slots[slot] != 0) {
+            if (values[slots[slot] - 1] == value) {
+                return true;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return false;
+    }
+    
+    long longAt(int index) {
+        return values[index];
+    }
+    
+    @Override
+    public int size() {
+        return size;
+    }
+    
+    @Override
+    public boolean contains(Object key) {
+        return key instanceof Long && containsLong((Long) key);
+    }
+    
+    @Override
+    public Object keyAt(int index) {
+        return values[index];
+    }
+    
+    @Override
+    protected boolean containsKeyOf(KeySet source, int index) {
+        if (source instanceof LongKeySet) {
+            return containsLong(((LongKeySet) source).longAt(index));
+        }
+        return super.containsKeyOf(source, index);
+    }
+    
+    private void rehash() {
+        int[] rehashed = new int[slots.length * 2];
+        int mask = rehashed.length - 1;
+        for (int i = 0; i < size; i++) {
+            int slot = hash(values[i]) & mask;
+            while (rehashed[slot] != 0) {
+                slot = (slot + 1) & mask;
+            }
+            rehashed[slot] = i + 1;
+        }
+        slots = rehashed;
+    }
+    
+    private static int hash(long value) {
+        long h = value * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+}
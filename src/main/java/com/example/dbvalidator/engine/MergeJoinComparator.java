@@ -0,0 +1,187 @@
+package com.example.dbvalidator.engine;
+
+import com.example.dbvalidator.model.FieldDifference;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * 排序归并对比引擎
+ * 两个库各开一个按主键排序的只进游标，同步推进并即时输出差异，内存占用与表大小无关
+ */
+@Slf4j
+public class MergeJoinComparator {
+    
+    private final JdbcTemplate oracleJdbcTemplate;
+    private final JdbcTemplate postgresJdbcTemplate;
+    private final int fetchSize;
+    private final StatementCanceller canceller;
+    
+    public MergeJoinComparator(JdbcTemplate oracleJdbcTemplate,
+                               JdbcTemplate postgresJdbcTemplate,
+                               int fetchSize) {
+        this(oracleJdbcTemplate, postgresJdbcTemplate, fetchSize, null);
+    }
+    
+    /**
+     * @param canceller 在途语句取消器，取消后游标语句中止、遍历抛出 {@link StatementCanceller.CancelledException}；
+     *                  为 null 时不可取消
+     */
+    public MergeJoinComparator(JdbcTemplate oracleJdbcTemplate,
+                               JdbcTemplate postgresJdbcTemplate,
+                               int fetchSize,
+                               StatementCanceller canceller) {
+        this.oracleJdbcTemplate = oracleJdbcTemplate;
+        this.postgresJdbcTemplate = postgresJdbcTemplate;
+        this.fetchSize = fetchSize;
+        this.canceller = canceller;
+    }
+    
+    /**
+     * 归并对比整张表
+     *
+     * @return 双方扫描的行数
+     */
+    public ScanCounts compare(String tableName,
+                              String primaryKey,
+                              KeyRange range,
+                              RowDiffer rowDiffer,
+                              ComparisonListener listener) {
+        String oracleSelect = rowDiffer.selectList(Dialect.ORACLE, primaryKey);
+        String postgresSelect = rowDiffer.selectList(Dialect.POSTGRESQL, primaryKey);
+        return walk(tableName, primaryKey, oracleSelect, postgresSelect, range, (key, oracleRow, postgresRow) -> {
+            FieldDifference diff = rowDiffer.diff(key, oracleRow, postgresRow);
+            if (diff != null) {
+                listener.fieldDifference(diff);
+            }
+        }, listener);
+    }
+    
+    /**
+     * 按主键有序遍历两端的查询结果
+     * 仅一端存在的主键直接回调 listener，两端都存在的主键交给 matchHandler 处理
+     *
+     * @param oracleSelect   Oracle 端的查询列（须包含主键列）
+     * @param postgresSelect PostgreSQL 端的查询列（须包含主键列）
+     * @param range          主键区间
+     * @return 双方扫描的行数
+     */
+    public ScanCounts walk(String tableName,
+                           String primaryKey,
+                           String oracleSelect,
+                           String postgresSelect,
+                           KeyRange range,
+                           MatchHandler matchHandler,
+                           ComparisonListener listener) {
+        boolean characterKey = isCharacterKey(tableName, primaryKey);
+        
+        String oracleSql = String.format("SELECT %s FROM %s%s ORDER BY %s",
+                oracleSelect, tableName, where(range, primaryKey, Dialect.ORACLE, characterKey), primaryKey);
+        // PostgreSQL 默认按数据库排序规则比较字符，需显式指定 "C" 排序规则以获得字节序
+        String postgresSql = String.format(characterKey
+                        ? "SELECT %s FROM %s%s ORDER BY %s COLLATE \"C\""
+                        : "SELECT %s FROM %s%s ORDER BY %s",
+                postgresSelect, tableName, where(range, primaryKey, Dialect.POSTGRESQL, characterKey), primaryKey);
+        // Oracle 显式设置二进制排序，避免会话 NLS_SORT 为语言排序时顺序不一致；游标关闭时恢复原值
+        Map<String, String> oracleNls = characterKey
+                ? Map.of("NLS_SORT", "BINARY", "NLS_COMP", "BINARY")
+                : Collections.emptyMap();
+        
+        SortedRowCursor oracleCursor = null;
+        SortedRowCursor postgresCursor = null;
+        String currentSql = oracleSql;
+        try {
+            oracleCursor = SortedRowCursor.open(oracleJdbcTemplate.getDataSource(),
+                    oracleSql, range.parameters(Dialect.ORACLE), primaryKey, fetchSize, oracleNls, canceller);
+            currentSql = postgresSql;
+            postgresCursor = SortedRowCursor.open(postgresJdbcTemplate.getDataSource(),
+                    postgresSql, range.parameters(Dialect.POSTGRESQL), primaryKey, fetchSize, Collections.emptyMap(),
+                    canceller);
+            
+            merge(oracleCursor, postgresCursor, matchHandler, listener);
+            
+            log.debug("表 {} 区间 {} 归并遍历完成 - Oracle扫描: {} 行, PostgreSQL扫描: {} 行",
+                    tableName, range, oracleCursor.getRowCount(), postgresCursor.getRowCount());
+            return new ScanCounts(oracleCursor.getRowCount(), postgresCursor.getRowCount());
+        } catch (SQLException e) {
+            if (canceller != null && canceller.isCancelled()) {
+                throw new StatementCanceller.CancelledException();
+            }
+            throw oracleJdbcTemplate.getExceptionTranslator().translate("merge-join", currentSql, e);
+        } finally {
+            if (postgresCursor != null) {
+                postgresCursor.close();
+            }
+            if (oracleCursor != null) {
+                oracleCursor.close();
+            }
+        }
+    }
+    
+    private static String where(KeyRange range, String primaryKey, Dialect dialect, boolean characterKey) {
+        String predicate = range.predicate(primaryKey, dialect, characterKey);
+        return predicate != null ? " WHERE " + predicate : "";
+    }
+    
+    /**
+     * 同步推进两个游标
+     */
+    void merge(SortedRowCursor oracleCursor,
+               SortedRowCursor postgresCursor,
+               MatchHandler matchHandler,
+               ComparisonListener listener) throws SQLException {
+        oracleCursor.next();
+        postgresCursor.next();
+        
+        while (oracleCursor.hasRow() || postgresCursor.hasRow()) {
+            if (canceller != null) {
+                canceller.checkCancelled();
+            }
+            int order;
+            if (!postgresCursor.hasRow()) {
+                order = -1;
+            } else if (!oracleCursor.hasRow()) {
+                order = 1;
+            } else {
+                order = KeyOrder.compare(oracleCursor.getCurrentKey(), postgresCursor.getCurrentKey());
+            }
+            
+            if (order < 0) {
+                listener.onlyInOracle(oracleCursor.getCurrentKey());
+                oracleCursor.next();
+            } else if (order > 0) {
+                listener.onlyInPostgres(postgresCursor.getCurrentKey());
+                postgresCursor.next();
+            } else {
+                matchHandler.matched(oracleCursor.getCurrentKey(),
+                        oracleCursor.getCurrentRow(),
+                        postgresCursor.getCurrentRow());
+                oracleCursor.next();
+                postgresCursor.next();
+            }
+        }
+    }
+    
+    /**
+     * 通过空结果集的元数据判断主键是否为字符类型
+     */
+    private boolean isCharacterKey(String tableName, String primaryKey) {
+        String sql = String.format("SELECT %s FROM %s WHERE 1 = 0", primaryKey, tableName);
+        Boolean characterKey = postgresJdbcTemplate.query(sql,
+                (ResultSet rs) -> KeyOrder.isCharacterType(rs.getMetaData().getColumnType(1)));
+        return Boolean.TRUE.equals(characterKey);
+    }
+    
+    /**
+     * 两端主键相同的行的处理函数
+     */
+    @FunctionalInterface
+    public interface MatchHandler {
+        
+        void matched(Object primaryKey, Map<String, Object> oracleRow, Map<String, Object> postgresRow);
+    }
+}
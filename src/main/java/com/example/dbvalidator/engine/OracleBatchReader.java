@@ -0,0 +1,142 @@
+package com.example.dbvalidator.engine;
+
+import lombok.Getter;
+import oracle.jdbc.OracleStatement;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.PreparedStatementCreator;
+import org.springframework.jdbc.core.ResultSetExtractor;
+import org.springframework.jdbc.core.SqlTypeValue;
+import org.springframework.jdbc.core.StatementCreatorUtils;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Oracle 批量读取器
+ * <p>
+ * JdbcTemplate 默认不设置 fetch size，Oracle 驱动每次往返只取 10 行；本读取器为每条语句设置 fetch size 与 LOB 预取长度，
+ * 并按语句形态缓存首次执行得到的列定义：之后的执行通过 defineColumnType 预先声明列类型
+ * （可无损放入 long 的 NUMBER 列声明为 BIGINT，由驱动直接解码为基本类型），批次装载时也不再读取结果集元数据。
+ */
+public class OracleBatchReader {
+    
+    private final JdbcTemplate jdbcTemplate;
+    private final ColumnarBatchReader batchReader;
+    private final Settings settings;
+    
+    /**
+     * 按语句形态缓存的列定义
+     */
+    private final Map<String, ColumnarBatch.Columns> columns = new ConcurrentHashMap<>();
+    
+    public OracleBatchReader(JdbcTemplate jdbcTemplate, ColumnarBatchReader batchReader, Settings settings) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.batchReader = batchReader;
+        this.settings = settings;
+    }
+    
+    /**
+     * 执行查询并读取为列式批次，处理完成后通过同一个 {@link ColumnarBatchReader} 归还
+     */
+    public ColumnarBatch query(String sql, Object[] parameters) {
+        ColumnarBatch.Columns known = columns.get(sql);
+        return jdbcTemplate.query(statement(sql, parameters, known), extractor(sql, known));
+    }
+    
+    private PreparedStatementCreator statement(String sql, Object[] parameters, ColumnarBatch.Columns known) {
+        return connection -> {
+            PreparedStatement ps = connection.prepareStatement(sql);
+            try {
+                ps.setFetchSize(settings.getFetchSize());
+                if (ps.isWrapperFor(OracleStatement.class)) {
+                    OracleStatement statement = ps.unwrap(OracleStatement.class);
+                    if (settings.getLobPrefetchSize() >= 0) {
+                        statement.setLobPrefetchSize(settings.getLobPrefetchSize());
+                    }
+                    if (settings.isDefineColumns() && known != null) {
+                        for (int c = 0; c < known.size(); c++) {
+                            int type = definedType(known, c);
+                            if (type != Types.NULL) {
+                                statement.defineColumnType(c + 1, type);
+                            }
+                        }
+                    }
+                }
+                for (int i = 0; i < parameters.length; i++) {
+                    StatementCreatorUtils.setParameterValue(ps, i + 1, SqlTypeValue.TYPE_UNKNOWN, parameters[i]);
+                }
+                return ps;
+            } catch (SQLException | RuntimeException e) {
+                ps.close();
+                throw e;
+            }
+        };
+    }
+    
+    private ResultSetExtractor<ColumnarBatch> extractor(String sql, ColumnarBatch.Columns known) {
+        return rs -> {
+            ColumnarBatch.Columns layout = known;
+            if (layout == null) {
+                layout = ColumnarBatch.Columns.of(rs.getMetaData());
+                columns.putIfAbsent(sql, layout);
+            }
+            ColumnarBatch batch = batchReader.acquire();
+            try {
+                batch.load(rs, layout);
+            } catch (SQLException | RuntimeException e) {
+                batchReader.release(batch);
+                throw e;
+            }
+            return batch;
+        };
+    }
+    
+    /**
+     * 按批次向量类型声明列类型，按对象读取的列（LOB、无精度 NUMBER 等）不声明，返回 Types.NULL
+     */
+    static int definedType(ColumnarBatch.Columns layout, int column) {
+        switch (layout.vectorType(column)) {
+            case LONG:
+                return Types.BIGINT;
+            case DOUBLE:
+                return Types.DOUBLE;
+            case TIMESTAMP:
+                return Types.TIMESTAMP;
+            case STRING:
+                return Types.VARCHAR;
+            default:
+                return Types.NULL;
+        }
+    }
+    
+    /**
+     * 读取参数
+     */
+    @Getter
+    public static class Settings {
+        
+        /**
+         * 每次往返拉取的行数
+         */
+        private final int fetchSize;
+        
+        /**
+         * LOB 随行预取的长度（字节/字符），小于 0 时使用驱动默认值
+         */
+        private final int lobPrefetchSize;
+        
+        /**
+         * 是否预先声明列类型
+         */
+        private final boolean defineColumns;
+        
+        public Settings(int fetchSize, int lobPrefetchSize, boolean defineColumns) {
+            this.fetchSize = fetchSize;
+            this.lobPrefetchSize = lobPrefetchSize;
+            this.defineColumns = defineColumns;
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package com.example.dbvalidator.engine;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.function.ToLongFunction;
+
+/**
+ * 并行调度器（多表或单表的多个分区）
+ * <p>
+ * 任务按预估行数从大到小提交，缩短最后一个大任务造成的长尾；结果按输入顺序返回。
+ * 并发度由调用方根据连接预算（{@link ConnectionBudget}）决定。
+ */
+@Slf4j
+public class ParallelTableScheduler {
+    
+    private final int parallelism;
+    
+    private final String threadPrefix;
+    
+    public ParallelTableScheduler(int parallelism, String threadPrefix) {
+        this.parallelism = Math.max(1, parallelism);
+        this.threadPrefix = threadPrefix;
+    }
+    
+    public int getParallelism() {
+        return parallelism;
+    }
+    
+    /**
+     * 并行执行所有任务
+     *
+     * @param sizeEstimator 任务大小预估，用于决定提交顺序
+     * @return 与 items 顺序一致的结果
+     */
+    public <K, T> List<T> run(List<K> items,
+                              ToLongFunction<K> sizeEstimator,
+                              Function<K, T> task) {
+        if (items.isEmpty()) {
+            return new ArrayList<>();
+        }
+        
+        Map<K, Long> estimates = new IdentityHashMap<>();
+        for (K item : items) {
+            estimates.put(item, sizeEstimator.applyAsLong(item));
+        }
+        List<K> submitOrder = new ArrayList<>(items);
+        submitOrder.sort(Comparator.comparing(estimates::get, Comparator.reverseOrder()));
+        
+        int threads = Math.min(parallelism, items.size());
+        log.info("并行执行 {} 个任务, 并发度: {}, 提交顺序: {}", items.size(), threads, submitOrder);
+        
+        AtomicInteger threadIndex = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(threads, r -> {
+            Thread t = new Thread(r, threadPrefix + "-" + threadIndex.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+        
+        try {
+            Map<K, Future<T>> futures = new IdentityHashMap<>();
+            for (K item : submitOrder) {
+                futures.put(item, executor.submit(() -> task.apply(item)));
+            }
+            
+            List<T> results = new ArrayList<>(items.size());
+            for (K item : items) {
+                results.add(await(futures.get(item)));
+            }
+            return results;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+    
+    private static <T> T await(Future<T> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("并行对比被中断", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new IllegalStateException("并行对比失败", cause);
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package com.example.dbvalidator.engine;
+
+import lombok.Getter;
+
+/**
+ * 物理地址区间扫描单元（Oracle ROWID 区间 / PostgreSQL ctid 块区间）
+ * 同一行在两个库中的物理位置无关，各库的扫描单元独立拆分
+ */
+@Getter
+public class PhysicalChunk {
+    
+    private final Dialect dialect;
+    
+    /**
+     * 过滤条件（不含 WHERE 关键字）
+     */
+    private final String predicate;
+    
+    private final Object[] parameters;
+    
+    /**
+     * 扫描单元包含的数据块数，用于大块优先调度
+     */
+    private final long blocks;
+    
+    public PhysicalChunk(Dialect dialect, String predicate, Object[] parameters, long blocks) {
+        this.dialect = dialect;
+        this.predicate = predicate;
+        this.parameters = parameters;
+        this.blocks = blocks;
+    }
+    
+    @Override
+    public String toString() {
+        return dialect + "[" + blocks + " blocks]";
+    }
+}
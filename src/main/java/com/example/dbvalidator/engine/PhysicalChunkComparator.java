@@ -0,0 +1,294 @@
+package com.example.dbvalidator.engine;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * 物理地址分块对比引擎
+ * <p>
+ * 两个库分别按物理地址拆分扫描单元并行扫描，每个单元只传输 (主键, 行哈希)；
+ * 扫描过程中按规范化主键即时对账：一行到达时若另一端的同一主键已在待匹配表中，比较哈希后立即移除，
+ * 否则放入待匹配表，因此内存中只保存尚未匹配的主键（行哈希只保留 64 位）。两端物理顺序相近（如迁移后未大量更新的表）时
+ * 待匹配表很小；扫描结束时表中剩余的主键即仅一端存在的行，哈希不一致的主键回查整行逐字段对比。
+ * 扫描单元按两端交替提交，避免一端全部扫描完才开始扫描另一端；两端物理顺序差异过大、待匹配行超过上限时
+ * 中止对比并提示改用主键区间分区，而不是耗尽内存。
+ * 启用 {@link RowHashCache} 时，上一次已确认无字段差异且两端哈希都未变化的行不再回查。
+ */
+@Slf4j
+public class PhysicalChunkComparator {
+    
+    private static final String HASH_COLUMN = "row_hash";
+    
+    /**
+     * 默认的待匹配行上限（每行约占 100 字节堆内存）
+     */
+    public static final long DEFAULT_PENDING_ROW_LIMIT = 5_000_000;
+    
+    private final JdbcTemplate oracleJdbcTemplate;
+    private final JdbcTemplate postgresJdbcTemplate;
+    private final ConnectionBudget connectionBudget;
+    private final KeyLookup keyLookup;
+    private final int fetchSize;
+    private final int batchSize;
+    private final RowHashCache rowHashCache;
+    private final long pendingRowLimit;
+    
+    public PhysicalChunkComparator(JdbcTemplate oracleJdbcTemplate,
+                                   JdbcTemplate postgresJdbcTemplate,
+                                   ConnectionBudget connectionBudget,
+                                   KeyLookup keyLookup,
+                                   int fetchSize,
+                                   int batchSize) {
+        this(oracleJdbcTemplate, postgresJdbcTemplate, connectionBudget, keyLookup, fetchSize, batchSize, null,
+                DEFAULT_PENDING_ROW_LIMIT);
+    }
+    
+    /**
+     * @param rowHashCache    跨次运行的行哈希缓存，为 null 时不使用
+     * @param pendingRowLimit 扫描中尚未匹配的行数上限，超过时中止对比
+     */
+    public PhysicalChunkComparator(JdbcTemplate oracleJdbcTemplate,
+                                   JdbcTemplate postgresJdbcTemplate,
+                                   ConnectionBudget connectionBudget,
+                                   KeyLookup keyLookup,
+                                   int fetchSize,
+                                   int batchSize,
+                                   RowHashCache rowHashCache,
+                                   long pendingRowLimit) {
+        this.oracleJdbcTemplate = oracleJdbcTemplate;
+        this.postgresJdbcTemplate = postgresJdbcTemplate;
+        this.connectionBudget = connectionBudget;
+        this.keyLookup = keyLookup;
+        this.fetchSize = fetchSize;
+        this.batchSize = batchSize;
+        this.rowHashCache = rowHashCache;
+        this.pendingRowLimit = pendingRowLimit;
+    }
+    
+    /**
+     * 分块对比整张表
+     *
+     * @param chunks 每个库拆分的扫描单元数
+     * @return 双方扫描的行数
+     */
+    public ScanCounts compare(String tableName,
+                              String primaryKey,
+                              List<String> ignoredFields,
+                              int chunks,
+                              RowDiffer rowDiffer,
+                              ComparisonListener listener) {
+        TableMetadata metadata = TableMetadata.load(oracleJdbcTemplate, postgresJdbcTemplate, tableName);
+        List<String> columns = metadata.comparableColumns(ignoredFields);
+        String oracleSelect = String.format("SELECT %s, %s AS %s FROM %s",
+                primaryKey, RowHashComparator.oracleRowHash(metadata, columns), HASH_COLUMN, tableName);
+        String postgresSelect = String.format("SELECT %s, %s AS %s FROM %s",
+                primaryKey, RowHashComparator.postgresRowHash(metadata, columns), HASH_COLUMN, tableName);
+        
+        PhysicalChunker chunker = new PhysicalChunker(oracleJdbcTemplate, postgresJdbcTemplate);
+        List<PhysicalChunk> units = interleave(chunker.oracleChunks(tableName, chunks),
+                chunker.postgresChunks(tableName, chunks));
+        
+        Map<Object, PendingRow> pending = new ConcurrentHashMap<>();
+        Queue<MismatchedRow> mismatchedRows = new ConcurrentLinkedQueue<>();
+        LongAdder oracleRows = new LongAdder();
+        LongAdder postgresRows = new LongAdder();
+        
+        // 按交替后的顺序提交（调度器按大小排序是稳定的，大小相同时保持输入顺序）
+        ParallelTableScheduler scheduler = new ParallelTableScheduler(
+                Math.min(units.size(), connectionBudget.getSize()), "chunk-scan");
+        scheduler.run(units, unit -> 0L, unit -> connectionBudget.call(1, () -> {
+            boolean oracle = unit.getDialect() == Dialect.ORACLE;
+            scan(oracle ? oracleJdbcTemplate : postgresJdbcTemplate, oracle ? oracleSelect : postgresSelect,
+                    unit, primaryKey, (key, hash) -> {
+                        (oracle ? oracleRows : postgresRows).increment();
+                        reconcile(pending, mismatchedRows, key, oracle, hash);
+                        if (pending.size() > pendingRowLimit) {
+                            throw new IllegalStateException(String.format(
+                                    "表 %s 物理分块扫描中尚未匹配的行超过 %d 行，两端物理顺序差异过大，"
+                                            + "请改用 key-range 分区或调大 pending-row-limit", tableName, pendingRowLimit));
+                        }
+                    });
+            return unit;
+        }));
+        
+        pending.forEach((key, row) -> {
+            if (row.oracle) {
+                listener.onlyInOracle(key);
+            } else {
+                listener.onlyInPostgres(key);
+            }
+        });
+        pending.clear();
+        
+        long[] recheck = connectionBudget.call(1,
+                () -> recheck(tableName, primaryKey, mismatchedRows, rowDiffer, listener));
+        
+        log.info("表 {} 物理分块对比完成 - 扫描单元: {} 个, 哈希不一致回查: {} 行, 缓存确认跳过: {} 行",
+                tableName, units.size(), recheck[0], recheck[1]);
+        return new ScanCounts(oracleRows.sum(), postgresRows.sum());
+    }
+    
+    /**
+     * 两端的扫描单元各自按大小从大到小排序后交替排列
+     */
+    static List<PhysicalChunk> interleave(List<PhysicalChunk> oracleUnits, List<PhysicalChunk> postgresUnits) {
+        Comparator<PhysicalChunk> largestFirst = Comparator.comparingLong(PhysicalChunk::getBlocks).reversed();
+        List<PhysicalChunk> oracle = new ArrayList<>(oracleUnits);
+        oracle.sort(largestFirst);
+        List<PhysicalChunk> postgres = new ArrayList<>(postgresUnits);
+        postgres.sort(largestFirst);
+        
+        List<PhysicalChunk> units = new ArrayList<>(oracle.size() + postgres.size());
+        for (int i = 0; i < Math.max(oracle.size(), postgres.size()); i++) {
+            if (i < oracle.size()) {
+                units.add(oracle.get(i));
+            }
+            if (i < postgres.size()) {
+                units.add(postgres.get(i));
+            }
+        }
+        return units;
+    }
+    
+    /**
+     * 回查哈希不一致的行
+     *
+     * @return 回查的行数、缓存确认跳过的行数
+     */
+    private long[] recheck(String tableName,
+                           String primaryKey,
+                           Queue<MismatchedRow> mismatchedRows,
+                           RowDiffer rowDiffer,
+                           ComparisonListener listener) {
+        RowRechecker rechecker = new RowRechecker(oracleJdbcTemplate, postgresJdbcTemplate, keyLookup);
+        List<Object> mismatched = new ArrayList<>(batchSize);
+        Map<Object, MismatchedRow> mismatchedHashes = new HashMap<>();
+        Consumer<Object> confirmedEqual = rowHashCache == null ? null : key -> {
+            MismatchedRow row = mismatchedHashes.get(key);
+            rowHashCache.verified(key, row.oracleHash(), row.postgresHash());
+        };
+        long recheckedRows = 0;
+        long cachedRows = 0;
+        for (MismatchedRow row : mismatchedRows) {
+            if (rowHashCache != null) {
+                if (rowHashCache.isVerified(row.key, row.oracleHash(), row.postgresHash())) {
+                    rowHashCache.verified(row.key, row.oracleHash(), row.postgresHash());
+                    cachedRows++;
+                    continue;
+                }
+                mismatchedHashes.put(row.key, row);
+            }
+            mismatched.add(row.key);
+            if (mismatched.size() >= batchSize) {
+                recheckedRows += rechecker.recheck(tableName, primaryKey, mismatched, rowDiffer,
+                        listener, confirmedEqual);
+                mismatched.clear();
+                mismatchedHashes.clear();
+            }
+        }
+        recheckedRows += rechecker.recheck(tableName, primaryKey, mismatched, rowDiffer, listener, confirmedEqual);
+        return new long[]{recheckedRows, cachedRows};
+    }
+    
+    /**
+     * 与另一端的待匹配行对账：匹配上的主键移出待匹配表，哈希不一致时记录下来待回查
+     */
+    static void reconcile(Map<Object, PendingRow> pending,
+                          Queue<MismatchedRow> mismatchedRows,
+                          Object key,
+                          boolean oracle,
+                          long hash) {
+        pending.compute(key, (k, other) -> {
+            if (other == null || other.oracle == oracle) {
+                return new PendingRow(oracle, hash);
+            }
+            if (other.hash != hash) {
+                mismatchedRows.add(oracle ? new MismatchedRow(k, hash, other.hash)
+                        : new MismatchedRow(k, other.hash, hash));
+            }
+            return null;
+        });
+    }
+    
+    /**
+     * 扫描一个单元，逐行输出规范化主键和 64 位行哈希（取 MD5 十六进制串的前 16 个字符）
+     * 单元在关闭自动提交的连接上流式读取（见 {@link StreamingQuery}），PostgreSQL 端不会先把整个单元读入内存
+     */
+    private void scan(JdbcTemplate jdbcTemplate,
+                      String select,
+                      PhysicalChunk unit,
+                      String primaryKey,
+                      RowHashHandler handler) {
+        String sql = unit.getPredicate() != null ? select + " WHERE " + unit.getPredicate() : select;
+        StreamingQuery.query(jdbcTemplate, sql, unit.getParameters(), fetchSize, rs -> {
+            handler.accept(KeyOrder.canonicalize(rs.getObject(primaryKey)),
+                    Long.parseUnsignedLong(rs.getString(HASH_COLUMN).substring(0, 16), 16));
+        });
+    }
+    
+    @FunctionalInterface
+    private interface RowHashHandler {
+        
+        void accept(Object key, long hash);
+    }
+    
+    /**
+     * 尚未与另一端匹配的行
+     */
+    static final class PendingRow {
+        
+        private final boolean oracle;
+        
+        private final long hash;
+        
+        private PendingRow(boolean oracle, long hash) {
+            this.oracle = oracle;
+            this.hash = hash;
+        }
+        
+        boolean isOracle() {
+            return oracle;
+        }
+    }
+    
+    /**
+     * 两端哈希不一致的行
+     */
+    static final class MismatchedRow {
+        
+        private final Object key;
+        
+        private final long oracleHash;
+        
+        private final long postgresHash;
+        
+        private MismatchedRow(Object key, long oracleHash, long postgresHash) {
+            this.key = key;
+            this.oracleHash = oracleHash;
+            this.postgresHash = postgresHash;
+        }
+        
+        Object getKey() {
+            return key;
+        }
+        
+        String oracleHash() {
+            return Long.toHexString(oracleHash);
+        }
+        
+        String postgresHash() {
+            return Long.toHexString(postgresHash);
+        }
+    }
+}
@@ -0,0 +1,217 @@
+package com.example.dbvalidator.engine;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * 按物理存储地址拆分扫描单元
+ * <p>
+ * Oracle：读取 USER_EXTENTS（需为表的属主连接）中表段的区，同一数据文件中相邻的区合并为一个块区间，
+ * 再按块数均分为若干组（与 DBMS_PARALLEL_EXECUTE.CREATE_CHUNKS_BY_ROWID 类似），每组通常只有一两个 ROWID 区间；
+ * PostgreSQL：按关系文件的块数均分为 ctid 区间（PostgreSQL 14 起使用 TID Range Scan，无需全表扫描）。
+ * 适用于字符/UUID 主键或主键严重倾斜、无法按主键区间均匀拆分的表。
+ */
+@Slf4j
+public class PhysicalChunker {
+    
+    private static final String ORACLE_EXTENT_SQL =
+            "SELECT o.DATA_OBJECT_ID AS OBJECT_ID, e.RELATIVE_FNO AS FILE_NO, e.BLOCK_ID AS BLOCK_ID, e.BLOCKS AS BLOCKS " +
+            "FROM USER_EXTENTS e JOIN USER_OBJECTS o ON o.OBJECT_NAME = e.SEGMENT_NAME " +
+            "AND NVL(o.SUBOBJECT_NAME, '-') = NVL(e.PARTITION_NAME, '-') " +
+            "WHERE e.SEGMENT_NAME = ? AND o.OBJECT_TYPE IN ('TABLE', 'TABLE PARTITION', 'TABLE SUBPARTITION') " +
+            "ORDER BY o.DATA_OBJECT_ID, e.RELATIVE_FNO, e.BLOCK_ID";
+    
+    /**
+     * 扩展 ROWID 的 64 进制字符
+     */
+    private static final String ROWID_DIGITS = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789+/";
+    
+    /**
+     * 区间上界使用的行号（块内行号的最大值）
+     */
+    private static final int MAX_ROW = 32767;
+    
+    private static final String POSTGRES_BLOCKS_SQL =
+            "SELECT pg_relation_size(to_regclass(?)) / CAST(current_setting('block_size') AS BIGINT)";
+    
+    private final JdbcTemplate oracleJdbcTemplate;
+    private final JdbcTemplate postgresJdbcTemplate;
+    
+    public PhysicalChunker(JdbcTemplate oracleJdbcTemplate, JdbcTemplate postgresJdbcTemplate) {
+        this.oracleJdbcTemplate = oracleJdbcTemplate;
+        this.postgresJdbcTemplate = postgresJdbcTemplate;
+    }
+    
+    /**
+     * 将 Oracle 表段的区合并为连续块区间后，按块数均分为 chunks 组
+     */
+    public List<PhysicalChunk> oracleChunks(String tableName, int chunks) {
+        List<BlockRange> extents = oracleJdbcTemplate.query(ORACLE_EXTENT_SQL,
+                (rs, rowNum) -> new BlockRange(rs.getLong("OBJECT_ID"), rs.getInt("FILE_NO"),
+                        rs.getLong("BLOCK_ID"), rs.getLong("BLOCKS")),
+                unqualified(tableName).toUpperCase(Locale.ROOT));
+        if (extents.isEmpty()) {
+            log.warn("表 {} 未查询到 Oracle 区信息，按整表扫描", tableName);
+            return Collections.singletonList(new PhysicalChunk(Dialect.ORACLE, null, new Object[0], 0));
+        }
+        
+        List<BlockRange> ranges = coalesce(extents);
+        long totalBlocks = ranges.stream().mapToLong(r -> r.blocks).sum();
+        List<PhysicalChunk> result = split(ranges, totalBlocks, chunks);
+        
+        log.debug("表 {} Oracle 共 {} 个区（合并为 {} 个连续区间）{} 块，拆分为 {} 个 ROWID 扫描单元",
+                tableName, extents.size(), ranges.size(), totalBlocks, result.size());
+        return result;
+    }
+    
+    /**
+     * 合并同一数据对象、同一数据文件中首尾相接的区（输入已按对象、文件、起始块排序）
+     */
+    static List<BlockRange> coalesce(List<BlockRange> extents) {
+        List<BlockRange> ranges = new ArrayList<>();
+        BlockRange current = null;
+        for (BlockRange extent : extents) {
+            if (current != null && current.objectId == extent.objectId && current.fileNo == extent.fileNo
+                    && current.startBlock + current.blocks == extent.startBlock) {
+                current = new BlockRange(current.objectId, current.fileNo, current.startBlock,
+                        current.blocks + extent.blocks);
+            } else {
+                if (current != null) {
+                    ranges.add(current);
+                }
+                current = extent;
+            }
+        }
+        ranges.add(current);
+        return ranges;
+    }
+    
+    /**
+     * 按块数把连续区间均分为 chunks 组，超过每组块数的区间在块边界上拆开
+     */
+    static List<PhysicalChunk> split(List<BlockRange> ranges, long totalBlocks, int chunks) {
+        long target = Math.max(1, totalBlocks / Math.max(1, chunks));
+        List<PhysicalChunk> result = new ArrayList<>();
+        List<String> conditions = new ArrayList<>();
+        List<Object> params = new ArrayList<>();
+        long blocks = 0;
+        for (BlockRange range : ranges) {
+            long start = range.startBlock;
+            long remaining = range.blocks;
+            while (remaining > 0) {
+                // 最后一组吸收除不尽的零头，避免产生很小的尾组
+                long take = result.size() + 1 >= chunks ? remaining : Math.min(remaining, target - blocks);
+                conditions.add("ROWID BETWEEN CHARTOROWID(?) AND CHARTOROWID(?)");
+                params.add(rowid(range.objectId, range.fileNo, start, 0));
+                params.add(rowid(range.objectId, range.fileNo, start + take - 1, MAX_ROW));
+                start += take;
+                remaining -= take;
+                blocks += take;
+                if (blocks >= target && result.size() + 1 < chunks) {
+                    result.add(oracleChunk(conditions, params, blocks));
+                    conditions.clear();
+                    params.clear();
+                    blocks = 0;
+                }
+            }
+        }
+        if (!conditions.isEmpty()) {
+            result.add(oracleChunk(conditions, params, blocks));
+        }
+        return result;
+    }
+    
+    private static PhysicalChunk oracleChunk(List<String> conditions, List<Object> params, long blocks) {
+        String predicate = conditions.size() == 1 ? conditions.get(0) : "(" + String.join(" OR ", conditions) + ")";
+        return new PhysicalChunk(Dialect.ORACLE, predicate, params.toArray(), blocks);
+    }
+    
+    /**
+     * 扩展 ROWID：数据对象号 6 位、相对文件号 3 位、块号 6 位、行号 3 位，均为 64 进制
+     * （与 DBMS_ROWID.ROWID_CREATE(1, ...) 的结果相同，省去逐区调用）
+     */
+    static String rowid(long objectId, int fileNo, long block, int row) {
+        StringBuilder sb = new StringBuilder(18);
+        appendBase64(sb, objectId, 6);
+        appendBase64(sb, fileNo, 3);
+        appendBase64(sb, block, 6);
+        appendBase64(sb, row, 3);
+        return sb.toString();
+    }
+    
+    private static void appendBase64(StringBuilder sb, long value, int digits) {
+        for (int shift = (digits - 1) * 6; shift >= 0; shift -= 6) {
+            sb.append(ROWID_DIGITS.charAt((int) ((value >>> shift) & 63)));
+        }
+    }
+    
+    /**
+     * 将 PostgreSQL 表按块号均分为 chunks 个 ctid 区间，最后一个区间不设上界以覆盖扫描期间新增的块
+     */
+    public List<PhysicalChunk> postgresChunks(String tableName, int chunks) {
+        Long totalBlocks = postgresJdbcTemplate.queryForObject(POSTGRES_BLOCKS_SQL, Long.class, tableName);
+        if (totalBlocks == null || totalBlocks <= 0 || chunks <= 1) {
+            return Collections.singletonList(new PhysicalChunk(Dialect.POSTGRESQL, null, new Object[0],
+                    totalBlocks != null ? totalBlocks : 0));
+        }
+        
+        long width = totalBlocks / chunks + (totalBlocks % chunks == 0 ? 0 : 1);
+        List<PhysicalChunk> result = new ArrayList<>(chunks);
+        for (long start = 0; start < totalBlocks; start += width) {
+            long end = start + width;
+            if (end >= totalBlocks) {
+                result.add(new PhysicalChunk(Dialect.POSTGRESQL, "ctid >= CAST(? AS tid)",
+                        new Object[]{tid(start)}, totalBlocks - start));
+            } else {
+                result.add(new PhysicalChunk(Dialect.POSTGRESQL, "ctid >= CAST(? AS tid) AND ctid < CAST(? AS tid)",
+                        new Object[]{tid(start), tid(end)}, width));
+            }
+        }
+        
+        log.debug("表 {} PostgreSQL 共 {} 块，拆分为 {} 个 ctid 扫描单元", tableName, totalBlocks, result.size());
+        return result;
+    }
+    
+    private static String tid(long block) {
+        return "(" + block + ",0)";
+    }
+    
+    private static String unqualified(String tableName) {
+        int dot = tableName.lastIndexOf('.');
+        return dot >= 0 ? tableName.substring(dot + 1) : tableName;
+    }
+    
+    /**
+     * 同一数据文件中的连续块区间
+     */
+    static final class BlockRange {
+        
+        private final long objectId;
+        
+        private final int fileNo;
+        
+        private final long startBlock;
+        
+        private final long blocks;
+        
+        BlockRange(long objectId, int fileNo, long startBlock, long blocks) {
+            this.objectId = objectId;
+            this.fileNo = fileNo;
+            this.startBlock = startBlock;
+            this.blocks = blocks;
+        }
+        
+        long getStartBlock() {
+            return startBlock;
+        }
+        
+        long getBlocks() {
+            return blocks;
+        }
+    }
+}
@@ -0,0 +1,399 @@
+package com.example.dbvalidator.engine;
+
+import lombok.extern.slf4j.Slf4j;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.PGCopyInputStream;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.math.RoundingMode;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.sql.PreparedStatement;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * PostgreSQL COPY 二进制读取器
+ * <p>
+ * 通过 CopyManager 执行 COPY (SELECT ...) TO STDOUT (FORMAT binary)，把二进制元组流直接解码到 {@link ColumnarBatch}，
+ * 省去逐行 JDBC 取值与类型转换。COPY 不支持绑定参数，参数以字面量内联到查询中；
+ * 列定义按语句形态（参数化的 SQL）缓存，只在首次执行时向服务端描述一次。
+ * 查询中含有无法解码的列类型（如 json、time、数组）时，该语句形态退回普通 JDBC 读取。
+ */
+@Slf4j
+public class PostgresCopyReader {
+    
+    private static final byte[] SIGNATURE = {'P', 'G', 'C', 'O', 'P', 'Y', '\n', (byte) 0xFF, '\r', '\n', 0};
+    
+    /**
+     * PostgreSQL 纪元（2000-01-01）与 Unix 纪元之间的秒数、天数
+     */
+    private static final long POSTGRES_EPOCH_SECONDS = 946_684_800L;
+    private static final long POSTGRES_EPOCH_DAYS = 10_957L;
+    
+    private static final int STREAM_BUFFER_SIZE = 64 * 1024;
+    
+    /**
+     * 列解码方式
+     */
+    enum Decoder {
+        INT2, INT4, INT8, FLOAT4, FLOAT8, NUMERIC, BOOL, TEXT, TIMESTAMP, TIMESTAMPTZ, DATE, UUID, BYTEA
+    }
+    
+    private final JdbcTemplate jdbcTemplate;
+    private final ColumnarBatchReader batchReader;
+    
+    /**
+     * 按语句形态缓存的列定义，不能解码的语句形态缓存为 {@link #UNSUPPORTED}
+     */
+    private final Map<String, Layout> layouts = new ConcurrentHashMap<>();
+    
+    private static final Layout UNSUPPORTED = new Layout(null, null);
+    
+    public PostgresCopyReader(JdbcTemplate jdbcTemplate, ColumnarBatchReader batchReader) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.batchReader = batchReader;
+    }
+    
+    /**
+     * 执行查询并读取为列式批次，处理完成后通过同一个 {@link ColumnarBatchReader} 归还
+     */
+    public ColumnarBatch query(String sql, Object[] parameters) {
+        if (layouts.get(sql) == UNSUPPORTED) {
+            return jdbcTemplate.query(sql, batchReader, parameters);
+        }
+        String inlined = inline(sql, parameters);
+        ColumnarBatch copied = jdbcTemplate.execute((ConnectionCallback<ColumnarBatch>) connection -> {
+            Layout layout = layouts.get(sql);
+            if (layout == null) {
+                layout = describe(connection.prepareStatement(inlined));
+                layouts.put(sql, layout);
+                if (layout == UNSUPPORTED) {
+                    log.info("语句包含 COPY 二进制无法解码的列类型，退回 JDBC 读取: {}", sql);
+                    return null;
+                }
+            }
+            
+            ColumnarBatch batch = batchReader.acquire();
+            try (PGCopyInputStream copy = new PGCopyInputStream(connection.unwrap(PGConnection.class),
+                    "COPY (" + inlined + ") TO STDOUT (FORMAT binary)")) {
+                batch.begin(layout.columns);
+                decode(new DataInputStream(new BufferedInputStream(copy, STREAM_BUFFER_SIZE)), layout.decoders, batch);
+            } catch (IOException e) {
+                batchReader.release(batch);
+                throw new SQLException("COPY 二进制流读取失败: " + e.getMessage(), "08000", e);
+            } catch (SQLException | RuntimeException e) {
+                batchReader.release(batch);
+                throw e;
+            }
+            return batch;
+        });
+        return copied != null ? copied : jdbcTemplate.query(sql, batchReader, parameters);
+    }
+    
+    private static Layout describe(PreparedStatement statement) throws SQLException {
+        try (PreparedStatement ps = statement) {
+            ResultSetMetaData meta = ps.getMetaData();
+            Decoder[] decoders = new Decoder[meta.getColumnCount()];
+            for (int c = 0; c < decoders.length; c++) {
+                decoders[c] = decoder(meta.getColumnTypeName(c + 1));
+                if (decoders[c] == null) {
+                    log.info("列 {} 的类型 {} 无法按 COPY 二进制解码", meta.getColumnLabel(c + 1),
+                            meta.getColumnTypeName(c + 1));
+                    return UNSUPPORTED;
+                }
+            }
+            return new Layout(ColumnarBatch.Columns.of(meta), decoders);
+        }
+    }
+    
+    /**
+     * 按类型名选择解码方式，无法解码时返回 null
+     * 自增列的类型名（serial、bigserial 等）先转换为实际类型（见 {@link ColumnInfo#baseType}）
+     */
+    static Decoder decoder(String typeName) {
+        switch (ColumnInfo.baseType(typeName).toLowerCase(Locale.ROOT)) {
+            case "int2":
+                return Decoder.INT2;
+            case "int4":
+                return Decoder.INT4;
+            case "int8":
+                return Decoder.INT8;
+            case "float4":
+                return Decoder.FLOAT4;
+            case "float8":
+                return Decoder.FLOAT8;
+            case "numeric":
+                return Decoder.NUMERIC;
+            case "bool":
+                return Decoder.BOOL;
+            case "text":
+            case "varchar":
+            case "bpchar":
+            case "name":
+                return Decoder.TEXT;
+            case "timestamp":
+                return Decoder.TIMESTAMP;
+            case "timestamptz":
+                return Decoder.TIMESTAMPTZ;
+            case "date":
+                return Decoder.DATE;
+            case "uuid":
+                return Decoder.UUID;
+            case "bytea":
+                return Decoder.BYTEA;
+            default:
+                return null;
+        }
+    }
+    
+    /**
+     * 解码二进制 COPY 流的全部元组
+     */
+    static void decode(DataInputStream in, Decoder[] decoders, ColumnarBatch batch) throws IOException {
+        byte[] signature = new byte[SIGNATURE.length];
+        in.readFully(signature);
+        if (!Arrays.equals(signature, SIGNATURE)) {
+            throw new IOException("不是 COPY 二进制格式");
+        }
+        in.readInt();
+        skipFully(in, in.readInt());
+        
+        byte[] buffer = new byte[64];
+        while (true) {
+            short fields = in.readShort();
+            if (fields == -1) {
+                return;
+            }
+            if (fields != decoders.length) {
+                throw new IOException("COPY 元组列数 " + fields + " 与查询列数 " + decoders.length + " 不一致");
+            }
+            int row = batch.appendRow();
+            for (int c = 0; c < fields; c++) {
+                int length = in.readInt();
+                if (length < 0) {
+                    batch.setNull(row, c);
+                    continue;
+                }
+                if (buffer.length < length) {
+                    buffer = new byte[Math.max(length, buffer.length * 2)];
+                }
+                in.readFully(buffer, 0, length);
+                set(batch, row, c, decoders[c], ByteBuffer.wrap(buffer, 0, length), length);
+            }
+        }
+    }
+    
+    /**
+     * 按批次列向量类型写入解码值，与 JDBC 读取同一列得到的值一致
+     */
+    private static void set(ColumnarBatch batch, int row, int c, Decoder decoder, ByteBuffer value, int length) {
+        switch (decoder) {
+            case INT2:
+                setNumber(batch, row, c, value.getShort());
+                break;
+            case INT4:
+                setNumber(batch, row, c, value.getInt());
+                break;
+            case INT8:
+                setNumber(batch, row, c, value.getLong());
+                break;
+            case FLOAT4:
+                setDouble(batch, row, c, value.getFloat());
+                break;
+            case FLOAT8:
+                setDouble(batch, row, c, value.getDouble());
+                break;
+            case NUMERIC:
+                Number numeric = decodeNumeric(value);
+                if (batch.getType(c) == ColumnarBatch.VectorType.LONG && numeric instanceof BigDecimal) {
+                    batch.setLong(row, c, ((BigDecimal) numeric).longValue());
+                } else {
+                    batch.setObject(row, c, numeric);
+                }
+                break;
+            case BOOL:
+                batch.setObject(row, c, value.get() != 0);
+                break;
+            case TEXT:
+                String text = new String(value.array(), 0, length, StandardCharsets.UTF_8);
+                if (batch.getType(c) == ColumnarBatch.VectorType.STRING) {
+                    batch.setString(row, c, text);
+                } else {
+                    batch.setObject(row, c, text);
+                }
+                break;
+            case TIMESTAMP:
+                setTimestamp(batch, row, c, localTimestamp(value.getLong()));
+                break;
+            case TIMESTAMPTZ:
+                long micros = value.getLong();
+                Timestamp instant = new Timestamp(
+                        (Math.floorDiv(micros, 1_000_000L) + POSTGRES_EPOCH_SECONDS) * 1000L);
+                instant.setNanos((int) Math.floorMod(micros, 1_000_000L) * 1000);
+                setTimestamp(batch, row, c, instant);
+                break;
+            case DATE:
+                setTimestamp(batch, row, c, Timestamp.valueOf(
+                        LocalDate.ofEpochDay(value.getInt() + POSTGRES_EPOCH_DAYS).atStartOfDay()));
+                break;
+            case UUID:
+                batch.setObject(row, c, new UUID(value.getLong(), value.getLong()));
+                break;
+            default:
+                batch.setObject(row, c, Arrays.copyOf(value.array(), length));
+                break;
+        }
+    }
+    
+    private static void setNumber(ColumnarBatch batch, int row, int c, long value) {
+        if (batch.getType(c) == ColumnarBatch.VectorType.LONG) {
+            batch.setLong(row, c, value);
+        } else {
+            batch.setObject(row, c, value);
+        }
+    }
+    
+    private static void setDouble(ColumnarBatch batch, int row, int c, double value) {
+        if (batch.getType(c) == ColumnarBatch.VectorType.DOUBLE) {
+            batch.setDouble(row, c, value);
+        } else {
+            batch.setObject(row, c, value);
+        }
+    }
+    
+    private static void setTimestamp(ColumnarBatch batch, int row, int c, Timestamp timestamp) {
+        if (batch.getType(c) == ColumnarBatch.VectorType.TIMESTAMP) {
+            batch.setLong(row, c,
+                    Math.floorDiv(timestamp.getTime(), 1000L) * 1_000_000_000L + timestamp.getNanos());
+        } else {
+            batch.setObject(row, c, timestamp);
+        }
+    }
+    
+    /**
+     * 无时区时间戳按本地时间还原（与驱动的 getTimestamp 一致）
+     */
+    private static Timestamp localTimestamp(long micros) {
+        LocalDateTime dateTime = LocalDateTime.ofEpochSecond(
+                Math.floorDiv(micros, 1_000_000L) + POSTGRES_EPOCH_SECONDS,
+                (int) Math.floorMod(micros, 1_000_000L) * 1000, ZoneOffset.UTC);
+        return Timestamp.valueOf(dateTime);
+    }
+    
+    /**
+     * 解码 numeric 二进制格式：位数、权重、符号、显示精度，之后是以 10000 为基的各位
+     * NaN 返回 Double.NaN（与驱动一致）
+     */
+    static Number decodeNumeric(ByteBuffer value) {
+        int digits = value.getShort();
+        int weight = value.getShort();
+        int sign = value.getShort() & 0xFFFF;
+        int displayScale = value.getShort();
+        if (sign == 0xC000) {
+            return Double.NaN;
+        }
+        BigInteger unscaled = BigInteger.ZERO;
+        BigInteger base = BigInteger.valueOf(10_000);
+        for (int i = 0; i < digits; i++) {
+            unscaled = unscaled.multiply(base).add(BigInteger.valueOf(value.getShort()));
+        }
+        BigDecimal result = new BigDecimal(unscaled)
+                .scaleByPowerOfTen(4 * (weight - digits + 1))
+                .setScale(displayScale, RoundingMode.DOWN);
+        return sign == 0x4000 ? result.negate() : result;
+    }
+    
+    /**
+     * 把绑定参数以字面量内联到 SQL 中（跳过引号内的问号）
+     */
+    static String inline(String sql, Object[] parameters) {
+        if (parameters == null || parameters.length == 0) {
+            return sql;
+        }
+        StringBuilder result = new StringBuilder(sql.length() + parameters.length * 16);
+        int parameter = 0;
+        char quote = 0;
+        for (int i = 0; i < sql.length(); i++) {
+            char ch = sql.charAt(i);
+            if (quote != 0) {
+                if (ch == quote) {
+                    quote = 0;
+                }
+                result.append(ch);
+            } else if (ch == '\'' || ch == '"') {
+                quote = ch;
+                result.append(ch);
+            } else if (ch == '?' && parameter < parameters.length) {
+                result.append(literal(parameters[parameter++]));
+            } else {
+                result.append(ch);
+            }
+        }
+        if (parameter != parameters.length) {
+            throw new IllegalArgumentException("参数个数 " + parameters.length + " 与占位符个数 " + parameter + " 不一致");
+        }
+        return result.toString();
+    }
+    
+    static String literal(Object value) {
+        if (value == null) {
+            return "NULL";
+        }
+        if (value instanceof KeyLookup.ArrayValue) {
+            return ((KeyLookup.ArrayValue) value).postgresLiteral();
+        }
+        if (value instanceof BigDecimal) {
+            return ((BigDecimal) value).toPlainString();
+        }
+        if (value instanceof Long || value instanceof Integer || value instanceof Short) {
+            return value.toString();
+        }
+        if (value instanceof Boolean) {
+            return (Boolean) value ? "TRUE" : "FALSE";
+        }
+        return "'" + String.valueOf(value).replace("'", "''") + "'";
+    }
+    
+    private static void skipFully(DataInputStream in, int length) throws IOException {
+        int remaining = length;
+        while (remaining > 0) {
+            int skipped = in.skipBytes(remaining);
+            if (skipped <= 0) {
+                throw new EOFException();
+            }
+            remaining -= skipped;
+        }
+    }
+    
+    /**
+     * 一种语句形态的列定义
+     */
+    private static class Layout {
+        
+        private final ColumnarBatch.Columns columns;
+        
+        private final Decoder[] decoders;
+        
+        Layout(ColumnarBatch.Columns columns, Decoder[] decoders) {
+            this.columns = columns;
+            this.decoders = decoders;
+        }
+    }
+}
@@ -0,0 +1,170 @@
+package com.example.dbvalidator.engine;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Objects;
+
+/**
+ * 主键区间拆分器
+ * <p>
+ * 整数主键按两端 MIN/MAX 等宽拆分；其他主键（字符、UUID 等）从 PostgreSQL 端抽样，按样本分位点拆分。
+ * 首尾区间不设边界，保证只在一端存在、超出另一端取值范围的主键也会被覆盖。
+ */
+@Slf4j
+public class RangePartitioner {
+    
+    /**
+     * 每个分区期望的样本数
+     */
+    private static final int SAMPLES_PER_PARTITION = 100;
+    
+    private final JdbcTemplate oracleJdbcTemplate;
+    private final JdbcTemplate postgresJdbcTemplate;
+    
+    public RangePartitioner(JdbcTemplate oracleJdbcTemplate, JdbcTemplate postgresJdbcTemplate) {
+        this.oracleJdbcTemplate = oracleJdbcTemplate;
+        this.postgresJdbcTemplate = postgresJdbcTemplate;
+    }
+    
+    /**
+     * 拆分主键区间
+     *
+     * @param partitions    分区数
+     * @param estimatedRows 预估行数，用于计算抽样比例
+     */
+    public List<KeyRange> split(String tableName, String primaryKey, int partitions, long estimatedRows) {
+        if (partitions <= 1) {
+            return Collections.singletonList(KeyRange.ALL);
+        }
+        
+        ColumnInfo keyColumn = TableMetadata.loadColumn(postgresJdbcTemplate, tableName, primaryKey);
+        List<Object> boundaries = keyColumn != null && keyColumn.isIntegral()
+                ? rangeBoundaries(tableName, primaryKey, partitions)
+                : null;
+        if (boundaries == null) {
+            boundaries = sampledBoundaries(tableName, primaryKey, partitions, estimatedRows);
+        }
+        
+        List<KeyRange> ranges = ranges(boundaries);
+        log.debug("表 {} 主键区间拆分: {}", tableName, ranges);
+        return ranges;
+    }
+    
+    /**
+     * 相邻边界组成的区间，首尾区间不设边界
+     */
+    static List<KeyRange> ranges(List<Object> boundaries) {
+        List<KeyRange> ranges = new ArrayList<>(boundaries.size() + 1);
+        Object lower = null;
+        for (Object boundary : boundaries) {
+            ranges.add(new KeyRange(lower, boundary));
+            lower = boundary;
+        }
+        ranges.add(new KeyRange(lower, null));
+        return ranges;
+    }
+    
+    /**
+     * 按 MIN/MAX 等宽拆分的边界，主键取值超出 64 位整数范围（如 NUMBER(38,0)）时返回 null，改为抽样拆分
+     */
+    private List<Object> rangeBoundaries(String tableName, String primaryKey, int partitions) {
+        String sql = String.format("SELECT MIN(%s), MAX(%s) FROM %s", primaryKey, primaryKey, tableName);
+        BigDecimal[] oracleRange = oracleJdbcTemplate.query(sql, RangePartitioner::extractRange);
+        BigDecimal[] postgresRange = postgresJdbcTemplate.query(sql, RangePartitioner::extractRange);
+        
+        BigDecimal lo;
+        BigDecimal hi;
+        if (oracleRange == null && postgresRange == null) {
+            return Collections.emptyList();
+        } else if (oracleRange == null) {
+            lo = postgresRange[0];
+            hi = postgresRange[1];
+        } else if (postgresRange == null) {
+            lo = oracleRange[0];
+            hi = oracleRange[1];
+        } else {
+            lo = oracleRange[0].min(postgresRange[0]);
+            hi = oracleRange[1].max(postgresRange[1]);
+        }
+        try {
+            return evenBoundaries(lo.longValueExact(), hi.longValueExact(), partitions);
+        } catch (ArithmeticException e) {
+            log.info("表 {} 主键取值范围 [{}, {}] 超出 64 位整数范围，改为抽样拆分", tableName, lo, hi);
+            return null;
+        }
+    }
+    
+    /**
+     * [lo, hi] 等宽拆分为 partitions 段的内部边界，区间过窄时边界数可能少于 partitions - 1
+     * 区间宽度可能超出 long 范围（如 [Long.MIN_VALUE, Long.MAX_VALUE]），按 BigInteger 计算
+     */
+    static List<Object> evenBoundaries(long lo, long hi, int partitions) {
+        BigInteger low = BigInteger.valueOf(lo);
+        BigInteger high = BigInteger.valueOf(hi);
+        BigInteger[] division = high.subtract(low).add(BigInteger.ONE)
+                .divideAndRemainder(BigInteger.valueOf(partitions));
+        BigInteger width = division[1].signum() == 0 ? division[0] : division[0].add(BigInteger.ONE);
+        width = width.max(BigInteger.ONE);
+        List<Object> boundaries = new ArrayList<>(partitions - 1);
+        for (BigInteger boundary = low.add(width);
+             boundary.compareTo(high) <= 0 && boundaries.size() < partitions - 1;
+             boundary = boundary.add(width)) {
+            boundaries.add(boundary.longValueExact());
+        }
+        return boundaries;
+    }
+    
+    /**
+     * 按抽样分位点拆分的边界
+     */
+    private List<Object> sampledBoundaries(String tableName, String primaryKey, int partitions, long estimatedRows) {
+        double percent = Math.min(100.0,
+                100.0 * partitions * SAMPLES_PER_PARTITION / Math.max(1, estimatedRows));
+        String sql = String.format(Locale.ROOT, "SELECT %s FROM %s TABLESAMPLE BERNOULLI (%.6f)",
+                primaryKey, tableName, percent);
+        
+        List<Object> samples = new ArrayList<>(postgresJdbcTemplate.queryForList(sql, Object.class));
+        samples.removeIf(Objects::isNull);
+        if (samples.size() < partitions) {
+            log.warn("表 {} 主键样本不足 ({} 个)，不拆分", tableName, samples.size());
+            return Collections.emptyList();
+        }
+        samples.sort(KeyOrder::compare);
+        return quantileBoundaries(samples, partitions);
+    }
+    
+    /**
+     * 已排序样本的 partitions 分位点，重复的分位点只保留一个
+     */
+    static List<Object> quantileBoundaries(List<Object> samples, int partitions) {
+        List<Object> boundaries = new ArrayList<>(partitions - 1);
+        for (int i = 1; i < partitions; i++) {
+            Object boundary = samples.get((int) ((long) samples.size() * i / partitions));
+            if (boundaries.isEmpty() || KeyOrder.compare(boundaries.get(boundaries.size() - 1), boundary) < 0) {
+                boundaries.add(boundary);
+            }
+        }
+        return boundaries;
+    }
+    
+    private static BigDecimal[] extractRange(ResultSet rs) throws SQLException {
+        if (!rs.next()) {
+            return null;
+        }
+        BigDecimal min = rs.getBigDecimal(1);
+        BigDecimal max = rs.getBigDecimal(2);
+        if (min == null || max == null) {
+            return null;
+        }
+        return new BigDecimal[]{min, max};
+    }
+}
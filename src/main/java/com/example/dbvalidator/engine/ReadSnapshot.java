@@ -0,0 +1,202 @@
+package com.example.dbvalidator.engine;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceUtils;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * 一次表对比的两端一致性读快照
+ * <p>
+ * 先取 Oracle 当前 SCN，Oracle 端查询以 {@code 表名 AS OF SCN n} 读取该时刻的数据（需在 UNDO 保留期内）；
+ * 再在 PostgreSQL 上开启一个 REPEATABLE READ 事务并导出快照（pg_export_snapshot），该事务保持到对比结束。
+ * PostgreSQL 端每次查询所用的连接先以 REPEATABLE READ 开启事务并导入同一快照（SET TRANSACTION SNAPSHOT），
+ * 因此多线程、多连接的回查看到的是同一时刻的数据；连接归还前回滚事务。
+ * 复制方向为 Oracle → PostgreSQL，先取 SCN 后取 PostgreSQL 快照，复制延迟内的变更在 PostgreSQL 快照中已可见的概率更高。
+ * <p>
+ * 结果中记录 SCN 与 PostgreSQL 快照（txid_current_snapshot 的 xmin:xmax:xip 形式）：
+ * Oracle 端可按同一 SCN 重新读取，PostgreSQL 端可据此判断某个事务是否在快照中可见。
+ */
+@Slf4j
+public class ReadSnapshot implements AutoCloseable {
+    
+    private final long oracleScn;
+    
+    private final String postgresSnapshotId;
+    
+    private final String postgresSnapshot;
+    
+    private final DataSource exporterDataSource;
+    
+    /**
+     * 持有导出快照的事务的连接，快照在该事务结束前有效
+     */
+    private final Connection exporter;
+    
+    private final JdbcTemplate postgresJdbcTemplate;
+    
+    private ReadSnapshot(long oracleScn,
+                         String postgresSnapshotId,
+                         String postgresSnapshot,
+                         DataSource exporterDataSource,
+                         Connection exporter,
+                         JdbcTemplate postgresTemplate) {
+        this.oracleScn = oracleScn;
+        this.postgresSnapshotId = postgresSnapshotId;
+        this.postgresSnapshot = postgresSnapshot;
+        this.exporterDataSource = exporterDataSource;
+        this.exporter = exporter;
+        JdbcTemplate template = new JdbcTemplate(new SnapshotDataSource(postgresTemplate.getDataSource(),
+                postgresSnapshotId));
+        template.setFetchSize(postgresTemplate.getFetchSize());
+        template.setExceptionTranslator(postgresTemplate.getExceptionTranslator());
+        this.postgresJdbcTemplate = template;
+    }
+    
+    /**
+     * 取 Oracle 当前 SCN 并导出 PostgreSQL 快照，调用方负责在对比结束后关闭
+     * Oracle 账号需要 DBMS_FLASHBACK 的执行权限与被对比表的 FLASHBACK 权限
+     */
+    public static ReadSnapshot open(JdbcTemplate oracleJdbcTemplate, JdbcTemplate postgresJdbcTemplate) {
+        Long scn = oracleJdbcTemplate.queryForObject(
+                "SELECT DBMS_FLASHBACK.GET_SYSTEM_CHANGE_NUMBER FROM DUAL", Long.class);
+        if (scn == null) {
+            throw new IllegalStateException("无法获取 Oracle 当前 SCN");
+        }
+        
+        DataSource dataSource = postgresJdbcTemplate.getDataSource();
+        Connection connection = DataSourceUtils.getConnection(dataSource);
+        try {
+            connection.setTransactionIsolation(Connection.TRANSACTION_REPEATABLE_READ);
+            connection.setAutoCommit(false);
+            try (Statement statement = connection.createStatement();
+                 ResultSet rs = statement.executeQuery(
+                         "SELECT pg_export_snapshot(), CAST(txid_current_snapshot() AS text)")) {
+                rs.next();
+                ReadSnapshot snapshot = new ReadSnapshot(scn, rs.getString(1), rs.getString(2),
+                        dataSource, connection, postgresJdbcTemplate);
+                log.info("已建立一致性读快照: Oracle SCN {}, PostgreSQL 快照 {} ({})",
+                        scn, snapshot.postgresSnapshot, snapshot.postgresSnapshotId);
+                return snapshot;
+            }
+        } catch (SQLException e) {
+            release(connection, dataSource);
+            throw postgresJdbcTemplate.getExceptionTranslator()
+                    .translate("export-snapshot", "pg_export_snapshot()", e);
+        } catch (RuntimeException e) {
+            release(connection, dataSource);
+            throw e;
+        }
+    }
+    
+    /**
+     * Oracle 端查询中引用表的方式：{@code 表名 AS OF SCN n}
+     */
+    public String oracleTable(String tableName) {
+        return tableName + " AS OF SCN " + oracleScn;
+    }
+    
+    /**
+     * 查询都在导入的快照中执行的 PostgreSQL JdbcTemplate
+     */
+    public JdbcTemplate getPostgresJdbcTemplate() {
+        return postgresJdbcTemplate;
+    }
+    
+    public long getOracleScn() {
+        return oracleScn;
+    }
+    
+    /**
+     * PostgreSQL 快照（xmin:xmax:xip）
+     */
+    public String getPostgresSnapshot() {
+        return postgresSnapshot;
+    }
+    
+    /**
+     * 结束导出快照的事务，之后快照不能再导入
+     */
+    @Override
+    public void close() {
+        release(exporter, exporterDataSource);
+    }
+    
+    private static void release(Connection connection, DataSource dataSource) {
+        try {
+            connection.rollback();
+            connection.setAutoCommit(true);
+            connection.setTransactionIsolation(Connection.TRANSACTION_READ_COMMITTED);
+        } catch (SQLException e) {
+            log.warn("结束快照事务失败", e);
+        } finally {
+            DataSourceUtils.releaseConnection(connection, dataSource);
+        }
+    }
+    
+    /**
+     * 借出的连接已在导入快照的 REPEATABLE READ 事务中，关闭时回滚并恢复连接状态后归还连接池
+     */
+    private static class SnapshotDataSource extends DelegatingDataSource {
+        
+        private final String snapshotId;
+        
+        private SnapshotDataSource(DataSource target, String snapshotId) {
+            super(target);
+            this.snapshotId = snapshotId;
+        }
+        
+        @Override
+        public Connection getConnection() throws SQLException {
+            Connection connection = super.getConnection();
+            try {
+                // 先设置隔离级别再关闭自动提交，SET TRANSACTION SNAPSHOT 必须是事务中的第一条语句
+                connection.setTransactionIsolation(Connection.TRANSACTION_REPEATABLE_READ);
+                connection.setAutoCommit(false);
+                try (Statement statement = connection.createStatement()) {
+                    statement.execute("SET TRANSACTION SNAPSHOT '" + snapshotId + "'");
+                }
+            } catch (SQLException | RuntimeException e) {
+                try {
+                    restore(connection);
+                } catch (SQLException restoreFailure) {
+                    e.addSuppressed(restoreFailure);
+                }
+                throw e;
+            }
+            return (Connection) Proxy.newProxyInstance(ReadSnapshot.class.getClassLoader(),
+                    new Class<?>[]{Connection.class}, (proxy, method, args) -> {
+                        if ("close".equals(method.getName()) && method.getParameterCount() == 0) {
+                            restore(connection);
+                            return null;
+                        }
+                        try {
+                            return method.invoke(connection, args);
+                        } catch (InvocationTargetException e) {
+                            throw e.getCause();
+                        }
+                    });
+        }
+        
+        /**
+         * 回滚快照事务并恢复自动提交与隔离级别后归还连接池，恢复失败时仍然归还
+         */
+        private static void restore(Connection connection) throws SQLException {
+            try {
+                connection.rollback();
+                connection.setAutoCommit(true);
+                connection.setTransactionIsolation(Connection.TRANSACTION_READ_COMMITTED);
+            } finally {
+                connection.close();
+            }
+        }
+    }
+}
@@ -0,0 +1,244 @@
+package com.example.dbvalidator.engine;
+
+import com.example.dbvalidator.model.DifferenceSummary;
+import com.example.dbvalidator.model.FieldDifference;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 差异主键的延迟复查队列
+ * <p>
+ * 复制延迟造成的差异通常在几秒内自愈。对比过程中发现的差异主键（缺失、多余、字段不一致）在发现时入队，
+ * 到期（发现时间 + delay）后按主键批量回查两端；仍不一致的主键按退避间隔（delay × backoff^轮次）再次入队，
+ * 共复查 rounds 轮。任一轮中已一致的主键即视为瞬时差异丢弃，只有每轮都不一致的主键作为持久差异返回，
+ * 差异内容以最后一轮回查的结果为准。
+ * <p>
+ * 入队在对比线程上并发进行，对比耗时较长时早发现的主键在对比结束时已经到期，可立即复查。
+ * 入队主键数超过上限时不再接受（大量差异通常不是复制延迟），调用方应放弃复查、保留原始结果。
+ */
+public class RecheckQueue {
+    
+    private final long delayNanos;
+    
+    private final int rounds;
+    
+    private final double backoff;
+    
+    private final int batchSize;
+    
+    private final int maxKeys;
+    
+    /**
+     * 按到期时间排序，同时到期的按入队顺序
+     */
+    private final PriorityQueue<Pending> queue = new PriorityQueue<>((a, b) -> a.dueNanos != b.dueNanos
+            ? Long.compare(a.dueNanos, b.dueNanos) : Long.compare(a.sequence, b.sequence));
+    
+    private final Set<Object> queued = new HashSet<>();
+    
+    private boolean overflowed;
+    
+    private long sequence;
+    
+    private final long[] healed;
+    
+    /**
+     * @param delayMillis 首轮复查距发现差异的延迟（毫秒）
+     * @param rounds      复查轮数
+     * @param backoff     每轮延迟相对上一轮的倍数
+     * @param batchSize   每次回查的主键数
+     * @param maxKeys     最多接受的主键数
+     */
+    public RecheckQueue(long delayMillis, int rounds, double backoff, int batchSize, int maxKeys) {
+        this.delayNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(0, delayMillis));
+        this.rounds = Math.max(1, rounds);
+        this.backoff = Math.max(1.0, backoff);
+        this.batchSize = Math.max(1, batchSize);
+        this.maxKeys = maxKeys;
+        this.healed = new long[this.rounds];
+    }
+    
+    /**
+     * 差异主键入队（重复的主键只入队一次），超过上限时返回 false
+     */
+    public synchronized boolean offer(Object key) {
+        Object canonical = KeyOrder.canonicalize(key);
+        if (queued.contains(canonical)) {
+            return true;
+        }
+        if (maxKeys > 0 && queued.size() >= maxKeys) {
+            overflowed = true;
+            return false;
+        }
+        queued.add(canonical);
+        queue.add(new Pending(canonical, System.nanoTime() + delayNanos, 1, sequence++));
+        return true;
+    }
+    
+    /**
+     * 是否有主键因超过上限未能入队
+     */
+    public synchronized boolean isOverflowed() {
+        return overflowed;
+    }
+    
+    /**
+     * 已入队的主键数
+     */
+    public synchronized int size() {
+        return queued.size();
+    }
+    
+    /**
+     * 各轮复查中恢复一致的主键数
+     */
+    public synchronized long[] getHealed() {
+        return healed.clone();
+    }
+    
+    /**
+     * 按到期顺序复查全部入队主键，直到每个主键恢复一致或完成全部轮次
+     *
+     * @param probe 按主键回查两端并返回仍不一致的主键及其当前差异
+     * @return 持久差异（按最终确认的顺序）
+     */
+    public Map<Object, Outcome> run(Probe probe) {
+        Map<Object, Outcome> persistent = new LinkedHashMap<>();
+        while (true) {
+            List<Pending> due = new ArrayList<>();
+            synchronized (this) {
+                if (queue.isEmpty()) {
+                    break;
+                }
+                long wait = queue.peek().dueNanos - System.nanoTime();
+                if (wait <= 0) {
+                    while (!queue.isEmpty() && due.size() < batchSize
+                            && queue.peek().dueNanos <= System.nanoTime()) {
+                        due.add(queue.poll());
+                    }
+                }
+            }
+            if (due.isEmpty()) {
+                sleep();
+                continue;
+            }
+            
+            List<Object> keys = new ArrayList<>(due.size());
+            for (Pending pending : due) {
+                keys.add(pending.key);
+            }
+            Map<Object, Outcome> current = probe.probe(keys);
+            long now = System.nanoTime();
+            synchronized (this) {
+                for (Pending pending : due) {
+                    Outcome outcome = current.get(pending.key);
+                    if (outcome == null) {
+                        healed[pending.round - 1]++;
+                    } else if (pending.round >= rounds) {
+                        persistent.put(pending.key, outcome);
+                    } else {
+                        long delay = (long) (delayNanos * Math.pow(backoff, pending.round));
+                        queue.add(new Pending(pending.key, now + delay, pending.round + 1, sequence++));
+                    }
+                }
+            }
+        }
+        return persistent;
+    }
+    
+    private void sleep() {
+        long wait;
+        synchronized (this) {
+            wait = queue.isEmpty() ? 0 : queue.peek().dueNanos - System.nanoTime();
+        }
+        if (wait <= 0) {
+            return;
+        }
+        try {
+            TimeUnit.NANOSECONDS.sleep(wait);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("差异复查被中断", e);
+        }
+    }
+    
+    /**
+     * 一批主键的回查
+     */
+    @FunctionalInterface
+    public interface Probe {
+        
+        /**
+         * @param keys 规范化后的主键
+         * @return 仍不一致的主键及其当前差异，已一致的主键不返回
+         */
+        Map<Object, Outcome> probe(List<Object> keys);
+    }
+    
+    /**
+     * 主键的当前差异
+     */
+    public static class Outcome {
+        
+        /**
+         * 差异类型：{@link DifferenceSummary#KIND_MISSING} / {@link DifferenceSummary#KIND_EXTRA}
+         * / {@link DifferenceSummary#KIND_CHANGED}
+         */
+        private final String kind;
+        
+        /**
+         * 字段差异，仅 changed 时非空
+         */
+        private final FieldDifference difference;
+        
+        private Outcome(String kind, FieldDifference difference) {
+            this.kind = kind;
+            this.difference = difference;
+        }
+        
+        public static Outcome missing() {
+            return new Outcome(DifferenceSummary.KIND_MISSING, null);
+        }
+        
+        public static Outcome extra() {
+            return new Outcome(DifferenceSummary.KIND_EXTRA, null);
+        }
+        
+        public static Outcome changed(FieldDifference difference) {
+            return new Outcome(DifferenceSummary.KIND_CHANGED, difference);
+        }
+        
+        public String getKind() {
+            return kind;
+        }
+        
+        public FieldDifference getDifference() {
+            return difference;
+        }
+    }
+    
+    private static class Pending {
+        
+        private final Object key;
+        
+        private final long dueNanos;
+        
+        private final int round;
+        
+        private final long sequence;
+        
+        private Pending(Object key, long dueNanos, int round, long sequence) {
+            this.key = key;
+            this.dueNanos = dueNanos;
+            this.round = round;
+            this.sequence = sequence;
+        }
+    }
+}
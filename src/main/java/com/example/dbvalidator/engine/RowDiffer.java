@@ -0,0 +1,26 @@
+package com.example.dbvalidator.engine;
+
+import com.example.dbvalidator.model.FieldDifference;
+
+import java.util.Map;
+
+/**
+ * 单行对比函数
+ */
+@FunctionalInterface
+public interface RowDiffer {
+    
+    /**
+     * 对比同一主键在两个库中的行数据
+     *
+     * @return 存在差异时返回差异详情，否则返回 null
+     */
+    FieldDifference diff(Object primaryKey, Map<String, Object> oracleRow, Map<String, Object> postgresRow);
+    
+    /**
+     * 读取整行时在指定库上使用的查询列，默认读取全部列
+     */
+    default String selectList(Dialect dialect, String primaryKey) {
+        return "*";
+    }
+}
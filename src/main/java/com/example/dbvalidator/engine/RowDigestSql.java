@@ -0,0 +1,116 @@
+package com.example.dbvalidator.engine;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * 行摘要 SQL 生成器
+ * 在两个库中把同一行编码为完全相同的规范字符串，再在库内计算哈希，避免整行传输。
+ * 编码不比按主键对比时的字段比较（{@link ColumnComparison}）宽松，字段比较能发现的差异摘要同样能发现：
+ * <ul>
+ *   <li>数值：精确十进制串，去掉小数部分末尾的 0 和整数部分的前导 0（与 Oracle TO_CHAR 一致，如 -.5、100），
+ *       不做舍入</li>
+ *   <li>日期时间：统一为 yyyy-MM-dd HH:mm:ss.SSSSSSSSS（会话时区），保留纳秒</li>
+ *   <li>字符：非 NULL 值加前缀 s 后去除首尾空格，与字段比较的去空白比较一致；
+ *       空串与 NULL 不同（Oracle 把空串存为 NULL，PostgreSQL 端的空串会报为差异，与字段比较相同）</li>
+ *   <li>NULL：统一编码为 \N；只存在于一端的列，缺列一端同样编码为 \N</li>
+ * </ul>
+ * 以下差异摘要看不到或与字段比较结论不同：
+ * <ul>
+ *   <li>浮点列（Oracle BINARY_FLOAT/BINARY_DOUBLE、PostgreSQL real/double precision）先转为十进制数值，
+ *       PostgreSQL 只保留 15 位有效数字，超出部分的差异看不到</li>
+ *   <li>Oracle 绝对值极大（TO_CHAR 超过 64 个字符）的数值输出为科学计数法，会误报为差异</li>
+ *   <li>首尾的制表符、换行等空白字符字段比较会忽略，摘要只去除空格，会误报为差异</li>
+ *   <li>PostgreSQL 时间只有微秒精度，Oracle 端超出微秒的部分按差异报告（字段比较同样报告）</li>
+ * </ul>
+ * 误报的行在按主键复查时会被排除；看不到的差异只能用 key-set 模式发现。
+ * 各列按列名排序后以 | 拼接。Oracle 端拼接结果受 VARCHAR2 长度限制，超宽表需开启 MAX_STRING_SIZE=EXTENDED。
+ */
+public final class RowDigestSql {
+    
+    private static final String NULL_MARKER = "'\\N'";
+    
+    private static final String SEPARATOR = " || '|' || ";
+    
+    private RowDigestSql() {
+    }
+    
+    /**
+     * 单列的规范字符串表达式
+     *
+     * @param self 当前库的列定义，当前库没有该列时为 null（编码为 NULL）
+     */
+    public static String canonicalColumn(Dialect dialect, ColumnInfo self) {
+        if (self == null) {
+            return NULL_MARKER;
+        }
+        String column = self.getName();
+        String expr;
+        
+        if (self.isBoolean()) {
+            expr = dialect == Dialect.POSTGRESQL
+                    ? String.format("CASE WHEN %s THEN '1' WHEN NOT %s THEN '0' END", column, column)
+                    : String.format("TO_CHAR(%s)", column);
+        } else if (self.isNumeric()) {
+            expr = canonicalNumber(dialect, self);
+        } else if (self.isTemporal()) {
+            expr = canonicalTimestamp(dialect, self);
+        } else if (self.isCharacter()) {
+            // Oracle 中 's' || NULL 为 's'，全空格的值两端都编码为 s
+            expr = String.format("CASE WHEN %s IS NOT NULL THEN 's' || TRIM(%s) END", column, column);
+        } else {
+            expr = dialect == Dialect.POSTGRESQL
+                    ? String.format("CAST(%s AS TEXT)", column)
+                    : String.format("TO_CHAR(%s)", column);
+        }
+        
+        return String.format("COALESCE(%s, %s)", expr, NULL_MARKER);
+    }
+    
+    /**
+     * 整行的规范字符串表达式
+     */
+    public static String canonicalRow(Dialect dialect, TableMetadata metadata, List<String> columns) {
+        return columns.stream()
+                .map(name -> dialect == Dialect.ORACLE
+                        ? canonicalColumn(dialect, metadata.getOracleColumn(name))
+                        : canonicalColumn(dialect, metadata.getPostgresColumn(name)))
+                .collect(Collectors.joining(SEPARATOR));
+    }
+    
+    /**
+     * 32 位无符号整数哈希（取 MD5 前 8 个十六进制字符），两端结果相同，可直接 SUM 聚合
+     */
+    public static String hash32(Dialect dialect, String expr) {
+        if (dialect == Dialect.ORACLE) {
+            return String.format("TO_NUMBER(SUBSTR(RAWTOHEX(STANDARD_HASH(%s, 'MD5')), 1, 8), 'XXXXXXXX')", expr);
+        }
+        return String.format("CAST(CAST('x' || SUBSTR(MD5(%s), 1, 8) AS BIT(32)) AS BIGINT)", expr);
+    }
+    
+    private static String canonicalNumber(Dialect dialect, ColumnInfo column) {
+        String name = column.getName();
+        if (dialect == Dialect.ORACLE) {
+            return column.isFloating()
+                    ? String.format("TO_CHAR(CAST(%s AS NUMBER))", name)
+                    : String.format("TO_CHAR(%s)", name);
+        }
+        if (column.isIntegral()) {
+            return String.format("CAST(%s AS TEXT)", name);
+        }
+        // 去掉小数部分末尾的 0，再去掉整数部分的 0（0.5 → .5），与 Oracle TO_CHAR 的输出一致
+        return String.format("REGEXP_REPLACE(REGEXP_REPLACE(CAST(CAST(%s AS NUMERIC) AS TEXT), "
+                + "'(\\.[0-9]*[1-9])0+$|\\.0+$', '\\1'), '^(-?)0\\.', '\\1.')", name);
+    }
+    
+    private static String canonicalTimestamp(Dialect dialect, ColumnInfo column) {
+        if (dialect == Dialect.POSTGRESQL) {
+            return String.format("TO_CHAR(%s, 'YYYY-MM-DD HH24:MI:SS.US') || '000'", column.getName());
+        }
+        // Oracle DATE 不支持 FF 格式
+        if ("DATE".equalsIgnoreCase(column.getTypeName())) {
+            return String.format("TO_CHAR(%s, 'YYYY-MM-DD HH24:MI:SS') || '.000000000'", column.getName());
+        }
+        return String.format("TO_CHAR(%s, 'YYYY-MM-DD HH24:MI:SS.FF9')", column.getName());
+    }
+}
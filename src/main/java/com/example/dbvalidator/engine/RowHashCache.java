@@ -0,0 +1,320 @@
+package com.example.dbvalidator.engine;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.LongBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * 跨次运行的行哈希缓存
+ * <p>
+ * 行哈希模式下两端哈希不一致的行需要回查整行。规范编码（{@link RowDigestSql}）在少数情况下会把字段比较认为相同的值
+ * 编码成不同的串：首尾的制表符、换行等非空格空白，Oracle 以科学计数法输出的极大数值，以及两端没有共同文本表示的类型
+ * （如 RAW 与 bytea、布尔与字符标记）。这类行回查后无字段差异，但在每次运行中都会重复回查。缓存记录这些行的 (主键指纹, 两端哈希对指纹)，
+ * 下一次运行中两端哈希都没有变化的行直接视为一致，不再回查；任一端变化后哈希对不同，照常回查。
+ * <p>
+ * 文件格式：头部（魔数、版本、条目数）之后是按主键指纹排序的 (long, long) 条目，读取时内存映射并二分查找，
+ * 不加载到堆中。映射中的文件在部分平台（如 Windows）上不能被替换或删除，因此每次保存写入新的一代数据文件
+ * （{缓存文件}.{代数}），缓存文件本身只是记录当前代数据文件名的清单，通过原子替换清单切换到新一代；
+ * 旧的数据文件在保存后尝试删除，仍被映射而删除失败的留到下一次打开时清理。运行失败不保存，旧缓存保持不变。
+ */
+@Slf4j
+public class RowHashCache {
+    
+    private static final int MAGIC = 0x44425648;
+    
+    private static final int VERSION = 1;
+    
+    private static final int HEADER_BYTES = 16;
+    
+    private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+    
+    private static final long FNV_PRIME = 0x100000001b3L;
+    
+    private static final Pattern GENERATION = Pattern.compile("[0-9]{1,18}");
+    
+    /**
+     * 清单文件，内容为当前代数据文件的文件名
+     */
+    private final Path file;
+    
+    /**
+     * 当前代数，没有缓存时为 0
+     */
+    private final long generation;
+    
+    /**
+     * 上一次运行的条目（key0, pair0, key1, pair1, ...），没有缓存文件时为空
+     */
+    private final LongBuffer previous;
+    
+    private final int previousCount;
+    
+    private long[] keys = new long[1024];
+    
+    private long[] pairs = new long[1024];
+    
+    private int count;
+    
+    private RowHashCache(Path file, long generation, LongBuffer previous, int previousCount) {
+        this.file = file;
+        this.generation = generation;
+        this.previous = previous;
+        this.previousCount = previousCount;
+    }
+    
+    /**
+     * 打开缓存，清单或数据文件不存在、格式不符时从空缓存开始
+     */
+    public static RowHashCache open(Path file) {
+        long generation = readGeneration(file);
+        deleteStaleGenerations(file, generation);
+        if (generation == 0) {
+            return new RowHashCache(file, 0, LongBuffer.allocate(0), 0);
+        }
+        Path data = generationFile(file, generation);
+        if (!Files.isRegularFile(data)) {
+            log.warn("行哈希缓存数据文件不存在，忽略: {}", data);
+            return new RowHashCache(file, generation, LongBuffer.allocate(0), 0);
+        }
+        try (FileChannel channel = FileChannel.open(data, StandardOpenOption.READ)) {
+            MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            mapped.order(ByteOrder.BIG_ENDIAN);
+            if (channel.size() < HEADER_BYTES || mapped.getInt(0) != MAGIC || mapped.getInt(4) != VERSION) {
+                log.warn("行哈希缓存文件格式不符，忽略: {}", data);
+                return new RowHashCache(file, generation, LongBuffer.allocate(0), 0);
+            }
+            int entries = (int) mapped.getLong(8);
+            if (HEADER_BYTES + entries * 16L > channel.size()) {
+                log.warn("行哈希缓存文件不完整，忽略: {}", data);
+                return new RowHashCache(file, generation, LongBuffer.allocate(0), 0);
+            }
+            mapped.position(HEADER_BYTES);
+            return new RowHashCache(file, generation, mapped.slice().asLongBuffer(), entries);
+        } catch (IOException e) {
+            log.warn("行哈希缓存读取失败，忽略: {}", data, e);
+            return new RowHashCache(file, generation, LongBuffer.allocate(0), 0);
+        }
+    }
+    
+    /**
+     * 读取清单中的当前代数，清单不存在或内容不符（如旧版本直接存放数据的缓存文件）时返回 0
+     */
+    private static long readGeneration(Path file) {
+        if (!Files.isRegularFile(file)) {
+            return 0;
+        }
+        try {
+            String name = new String(Files.readAllBytes(file), StandardCharsets.UTF_8).trim();
+            String prefix = file.getFileName() + ".";
+            if (name.startsWith(prefix) && GENERATION.matcher(name.substring(prefix.length())).matches()) {
+                return Long.parseLong(name.substring(prefix.length()));
+            }
+        } catch (IOException | NumberFormatException e) {
+            log.warn("行哈希缓存清单读取失败，忽略: {}", file, e);
+            return 0;
+        }
+        log.warn("行哈希缓存清单格式不符，忽略: {}", file);
+        return 0;
+    }
+    
+    /**
+     * 删除当前代以外的数据文件（上一次保存后未能删除的旧代、保存中断留下的新代）
+     */
+    private static void deleteStaleGenerations(Path file, long generation) {
+        Path dir = file.toAbsolutePath().getParent();
+        if (dir == null || !Files.isDirectory(dir)) {
+            return;
+        }
+        String prefix = file.getFileName() + ".";
+        try (Stream<Path> siblings = Files.list(dir)) {
+            siblings.filter(path -> {
+                String name = path.getFileName().toString();
+                return name.startsWith(prefix)
+                        && GENERATION.matcher(name.substring(prefix.length())).matches()
+                        && Long.parseLong(name.substring(prefix.length())) != generation;
+            }).forEach(RowHashCache::deleteQuietly);
+        } catch (IOException e) {
+            log.debug("行哈希缓存旧数据文件清理失败: {}", dir, e);
+        }
+    }
+    
+    private static void deleteQuietly(Path path) {
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            log.debug("行哈希缓存旧数据文件暂不能删除: {}", path, e);
+        }
+    }
+    
+    private static Path generationFile(Path file, long generation) {
+        return file.resolveSibling(file.getFileName() + "." + generation);
+    }
+    
+    /**
+     * 上一次运行是否已确认该主键在两端哈希分别为 oracleHash / postgresHash 时无字段差异
+     */
+    public boolean isVerified(Object key, String oracleHash, String postgresHash) {
+        long keyPrint = keyFingerprint(key);
+        int low = 0;
+        int high = previousCount - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            long midKey = previous.get(2 * mid);
+            if (midKey < keyPrint) {
+                low = mid + 1;
+            } else if (midKey > keyPrint) {
+                high = mid - 1;
+            } else {
+                return previous.get(2 * mid + 1) == pairFingerprint(oracleHash, postgresHash);
+            }
+        }
+        return false;
+    }
+    
+    /**
+     * 记录本次运行确认无字段差异的行（含命中缓存的行），保存后供下一次运行使用
+     */
+    public synchronized void verified(Object key, String oracleHash, String postgresHash) {
+        if (count == keys.length) {
+            keys = Arrays.copyOf(keys, count * 2);
+            pairs = Arrays.copyOf(pairs, count * 2);
+        }
+        keys[count] = keyFingerprint(key);
+        pairs[count] = pairFingerprint(oracleHash, postgresHash);
+        count++;
+    }
+    
+    public int getPreviousCount() {
+        return previousCount;
+    }
+    
+    public synchronized int getCount() {
+        return count;
+    }
+    
+    /**
+     * 按主键指纹排序后写入新一代数据文件，再原子替换清单切换到新一代
+     * 缓存只用于减少回查，保存失败时记录告警并保留旧缓存，不影响对比结果
+     */
+    public synchronized void save() {
+        sort(keys, pairs, 0, count - 1);
+        Path data = generationFile(file, generation + 1);
+        try {
+            Files.createDirectories(file.toAbsolutePath().getParent());
+            try (FileChannel channel = FileChannel.open(data, StandardOpenOption.CREATE,
+                    StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                ByteBuffer buffer = ByteBuffer.allocate(64 * 1024).order(ByteOrder.BIG_ENDIAN);
+                buffer.putInt(MAGIC).putInt(VERSION);
+                int header = buffer.position();
+                buffer.putLong(0);
+                int written = 0;
+                long lastKey = 0;
+                for (int i = 0; i < count; i++) {
+                    // 同一主键只保留一条
+                    if (written > 0 && keys[i] == lastKey) {
+                        continue;
+                    }
+                    if (buffer.remaining() < 16) {
+                        buffer.flip();
+                        channel.write(buffer);
+                        buffer.clear();
+                    }
+                    buffer.putLong(keys[i]).putLong(pairs[i]);
+                    lastKey = keys[i];
+                    written++;
+                }
+                buffer.flip();
+                channel.write(buffer);
+                channel.write(ByteBuffer.allocate(8).putLong(0, written), header);
+                channel.force(true);
+            }
+            
+            Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+            Files.write(temp, data.getFileName().toString().getBytes(StandardCharsets.UTF_8));
+            try {
+                Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+            }
+            log.info("行哈希缓存已保存: {}", data);
+        } catch (IOException e) {
+            log.warn("行哈希缓存保存失败，下次运行沿用旧缓存: {}", data, e);
+            deleteQuietly(data);
+            return;
+        }
+        if (generation > 0) {
+            deleteQuietly(generationFile(file, generation));
+        }
+    }
+    
+    /**
+     * 主键指纹：规范化主键的字符串形式的 64 位 FNV-1a
+     */
+    static long keyFingerprint(Object key) {
+        return fnv(FNV_OFFSET, String.valueOf(KeyOrder.canonicalize(key)));
+    }
+    
+    static long pairFingerprint(String oracleHash, String postgresHash) {
+        return fnv(fnv(FNV_OFFSET, String.valueOf(oracleHash)), ":" + postgresHash);
+    }
+    
+    private static long fnv(long seed, String value) {
+        long hash = seed;
+        for (byte b : value.getBytes(StandardCharsets.UTF_8)) {
+            hash ^= b & 0xff;
+            hash *= FNV_PRIME;
+        }
+        return hash;
+    }
+    
+    /**
+     * 按 keys 对两个并行数组原地快速排序
+     */
+    private static void sort(long[] keys, long[] pairs, int low, int high) {
+        while (low < high) {
+            long pivot = keys[(low + high) >>> 1];
+            int i = low;
+            int j = high;
+            while (i <= j) {
+                while (keys[i] < pivot) {
+                    i++;
+                }
+                while (keys[j] > pivot) {
+                    j--;
+                }
+                if (i <= j) {
+                    long key = keys[i];
+                    keys[i] = keys[j];
+                    keys[j] = key;
+                    long pair = pairs[i];
+                    pairs[i] = pairs[j];
+                    pairs[j] = pair;
+                    i++;
+                    j--;
+                }
+            }
+            // 先递归较短的一侧，控制递归深度
+            if (j - low < high - i) {
+                sort(keys, pairs, low, j);
+                low = i;
+            } else {
+                sort(keys, pairs, i, high);
+                high = j;
+            }
+        }
+    }
+}
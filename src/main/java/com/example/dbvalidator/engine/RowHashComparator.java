@@ -0,0 +1,137 @@
+package com.example.dbvalidator.engine;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Consumer;
+
+/**
+ * 行哈希下推对比引擎
+ * <p>
+ * 两个库在库内把每行的规范字符串计算为 MD5（Oracle STANDARD_HASH / PostgreSQL md5），
+ * 按主键有序只传输 (主键, 哈希) 对并归并对比；只有哈希不一致的主键才回查整行逐字段对比。
+ * 启用 {@link RowHashCache} 时，上一次已确认无字段差异且两端哈希都未变化的行不再回查。
+ */
+@Slf4j
+public class RowHashComparator {
+    
+    private static final String HASH_COLUMN = "row_hash";
+    
+    private final JdbcTemplate oracleJdbcTemplate;
+    private final JdbcTemplate postgresJdbcTemplate;
+    private final MergeJoinComparator mergeJoinComparator;
+    private final RowRechecker rowRechecker;
+    private final int batchSize;
+    private final RowHashCache rowHashCache;
+    
+    public RowHashComparator(JdbcTemplate oracleJdbcTemplate,
+                             JdbcTemplate postgresJdbcTemplate,
+                             KeyLookup keyLookup,
+                             int fetchSize,
+                             int batchSize) {
+        this(oracleJdbcTemplate, postgresJdbcTemplate, keyLookup, fetchSize, batchSize, null);
+    }
+    
+    /**
+     * @param rowHashCache 跨次运行的行哈希缓存，为 null 时不使用
+     */
+    public RowHashComparator(JdbcTemplate oracleJdbcTemplate,
+                             JdbcTemplate postgresJdbcTemplate,
+                             KeyLookup keyLookup,
+                             int fetchSize,
+                             int batchSize,
+                             RowHashCache rowHashCache) {
+        this.oracleJdbcTemplate = oracleJdbcTemplate;
+        this.postgresJdbcTemplate = postgresJdbcTemplate;
+        this.mergeJoinComparator = new MergeJoinComparator(oracleJdbcTemplate, postgresJdbcTemplate, fetchSize);
+        this.rowRechecker = new RowRechecker(oracleJdbcTemplate, postgresJdbcTemplate, keyLookup);
+        this.batchSize = batchSize;
+        this.rowHashCache = rowHashCache;
+    }
+    
+    /**
+     * Oracle 端行哈希表达式（32 位十六进制大写）
+     */
+    public static String oracleRowHash(TableMetadata metadata, List<String> columns) {
+        return String.format("RAWTOHEX(STANDARD_HASH(%s, 'MD5'))",
+                RowDigestSql.canonicalRow(Dialect.ORACLE, metadata, columns));
+    }
+    
+    /**
+     * PostgreSQL 端行哈希表达式（32 位十六进制大写）
+     */
+    public static String postgresRowHash(TableMetadata metadata, List<String> columns) {
+        return String.format("UPPER(MD5(%s))",
+                RowDigestSql.canonicalRow(Dialect.POSTGRESQL, metadata, columns));
+    }
+    
+    /**
+     * 行哈希对比整张表
+     * 每积累 batchSize 个哈希不一致的主键即回查一次，回查时两端游标仍打开，调用方需为每个库预留两个连接
+     *
+     * @param ignoredFields 不参与行哈希的字段
+     * @param range         主键区间
+     * @return 双方扫描的行数
+     */
+    public ScanCounts compare(String tableName,
+                              String primaryKey,
+                              List<String> ignoredFields,
+                              KeyRange range,
+                              RowDiffer rowDiffer,
+                              ComparisonListener listener) {
+        TableMetadata metadata = TableMetadata.load(oracleJdbcTemplate, postgresJdbcTemplate, tableName);
+        List<String> columns = metadata.comparableColumns(ignoredFields);
+        
+        String oracleSelect = String.format("%s, %s AS %s",
+                primaryKey, oracleRowHash(metadata, columns), HASH_COLUMN);
+        String postgresSelect = String.format("%s, %s AS %s",
+                primaryKey, postgresRowHash(metadata, columns), HASH_COLUMN);
+        
+        List<Object> mismatched = new ArrayList<>(batchSize);
+        Map<Object, String[]> mismatchedHashes = new HashMap<>();
+        Consumer<Object> confirmedEqual = rowHashCache == null ? null : key -> {
+            String[] hashes = mismatchedHashes.get(key);
+            rowHashCache.verified(key, hashes[0], hashes[1]);
+        };
+        long[] recheckedRows = {0};
+        long[] cachedRows = {0};
+        
+        ScanCounts counts = mergeJoinComparator.walk(tableName, primaryKey, oracleSelect, postgresSelect, range,
+                (key, oracleRow, postgresRow) -> {
+                    String oracleHash = (String) oracleRow.get(HASH_COLUMN);
+                    String postgresHash = (String) postgresRow.get(HASH_COLUMN);
+                    if (Objects.equals(oracleHash, postgresHash)) {
+                        return;
+                    }
+                    if (rowHashCache != null) {
+                        if (rowHashCache.isVerified(key, oracleHash, postgresHash)) {
+                            rowHashCache.verified(key, oracleHash, postgresHash);
+                            cachedRows[0]++;
+                            return;
+                        }
+                        mismatchedHashes.put(key, new String[]{oracleHash, postgresHash});
+                    }
+                    mismatched.add(key);
+                    if (mismatched.size() >= batchSize) {
+                        recheckedRows[0] += rowRechecker.recheck(tableName, primaryKey, mismatched, rowDiffer,
+                                listener, confirmedEqual);
+                        mismatched.clear();
+                        mismatchedHashes.clear();
+                    }
+                }, listener);
+        
+        if (!mismatched.isEmpty()) {
+            recheckedRows[0] += rowRechecker.recheck(tableName, primaryKey, mismatched, rowDiffer,
+                    listener, confirmedEqual);
+        }
+        
+        log.info("表 {} 行哈希对比完成 - 哈希不一致回查: {} 行, 缓存确认跳过: {} 行",
+                tableName, recheckedRows[0], cachedRows[0]);
+        return counts;
+    }
+}
@@ -0,0 +1,104 @@
+package com.example.dbvalidator.engine;
+
+import com.example.dbvalidator.model.FieldDifference;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Types;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+/**
+ * 按主键回查整行并逐字段对比
+ * 用于摘要（行哈希）不一致之后的确认：规范编码在少数情况下会把相同的值编码成不同的串（见 {@link RowDigestSql}），
+ * 回查后无字段差异的行不计入差异
+ */
+public class RowRechecker {
+    
+    private final JdbcTemplate oracleJdbcTemplate;
+    private final JdbcTemplate postgresJdbcTemplate;
+    private final KeyLookup keyLookup;
+    
+    /**
+     * PostgreSQL 端主键列定义（按表缓存，用于数组参数的类型转换）
+     */
+    private final Map<String, ColumnInfo> postgresKeyColumns = new ConcurrentHashMap<>();
+    
+    public RowRechecker(JdbcTemplate oracleJdbcTemplate, JdbcTemplate postgresJdbcTemplate, KeyLookup keyLookup) {
+        this.oracleJdbcTemplate = oracleJdbcTemplate;
+        this.postgresJdbcTemplate = postgresJdbcTemplate;
+        this.keyLookup = keyLookup;
+    }
+    
+    /**
+     * 回查一批主键
+     *
+     * @return 回查的行数
+     */
+    public int recheck(String tableName,
+                       String primaryKey,
+                       List<Object> keys,
+                       RowDiffer rowDiffer,
+                       ComparisonListener listener) {
+        return recheck(tableName, primaryKey, keys, rowDiffer, listener, null);
+    }
+    
+    /**
+     * 回查一批主键
+     *
+     * @param confirmedEqual 回查后确认无字段差异的主键回调，可为 null
+     * @return 回查的行数
+     */
+    public int recheck(String tableName,
+                       String primaryKey,
+                       List<Object> keys,
+                       RowDiffer rowDiffer,
+                       ComparisonListener listener,
+                       Consumer<Object> confirmedEqual) {
+        if (keys.isEmpty()) {
+            return 0;
+        }
+        ColumnInfo postgresKey = postgresKeyColumns.computeIfAbsent(tableName, table -> {
+            ColumnInfo column = TableMetadata.loadColumn(postgresJdbcTemplate, table, primaryKey);
+            return column != null ? column : new ColumnInfo(primaryKey, Types.OTHER, null, 0, 0);
+        });
+        KeyLookup.KeyPredicate oraclePredicate = keyLookup.predicate(Dialect.ORACLE, primaryKey, null, keys);
+        KeyLookup.KeyPredicate postgresPredicate = keyLookup.predicate(Dialect.POSTGRESQL, primaryKey, postgresKey, keys);
+        
+        Map<Object, Map<String, Object>> oracleRows = indexByKey(oracleJdbcTemplate.queryForList(
+                String.format("SELECT %s FROM %s WHERE %s", rowDiffer.selectList(Dialect.ORACLE, primaryKey),
+                        tableName, oraclePredicate.getSql()),
+                oraclePredicate.getParameters().toArray()), primaryKey);
+        Map<Object, Map<String, Object>> postgresRows = indexByKey(postgresJdbcTemplate.queryForList(
+                String.format("SELECT %s FROM %s WHERE %s", rowDiffer.selectList(Dialect.POSTGRESQL, primaryKey),
+                        tableName, postgresPredicate.getSql()),
+                postgresPredicate.getParameters().toArray()), primaryKey);
+        
+        for (Object key : keys) {
+            Object canonicalKey = KeyOrder.canonicalize(key);
+            Map<String, Object> oracleRow = oracleRows.get(canonicalKey);
+            Map<String, Object> postgresRow = postgresRows.get(canonicalKey);
+            if (oracleRow == null || postgresRow == null) {
+                // 扫描与回查之间记录被删除，留给下一次对比
+                continue;
+            }
+            FieldDifference diff = rowDiffer.diff(key, oracleRow, postgresRow);
+            if (diff != null) {
+                listener.fieldDifference(diff);
+            } else if (confirmedEqual != null) {
+                confirmedEqual.accept(key);
+            }
+        }
+        return keys.size();
+    }
+    
+    private Map<Object, Map<String, Object>> indexByKey(List<Map<String, Object>> rows, String primaryKey) {
+        Map<Object, Map<String, Object>> index = new HashMap<>(rows.size() * 2);
+        for (Map<String, Object> row : rows) {
+            index.put(KeyOrder.canonicalize(row.get(primaryKey)), row);
+        }
+        return index;
+    }
+}
@@ -0,0 +1,19 @@
+package com.example.dbvalidator.engine;
+
+import lombok.Getter;
+
+/**
+ * 双方扫描行数
+ */
+@Getter
+public class ScanCounts {
+    
+    private final long oracleRows;
+    
+    private final long postgresRows;
+    
+    public ScanCounts(long oracleRows, long postgresRows) {
+        this.oracleRows = oracleRows;
+        this.postgresRows = postgresRows;
+    }
+}
@@ -0,0 +1,228 @@
+package com.example.dbvalidator.engine;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.ColumnMapRowMapper;
+import org.springframework.jdbc.core.SqlTypeValue;
+import org.springframework.jdbc.core.StatementCreatorUtils;
+import org.springframework.jdbc.datasource.DataSourceUtils;
+import org.springframework.jdbc.support.JdbcUtils;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * 按主键有序的只进游标
+ * 独占一个连接，关闭自动提交以便 PostgreSQL 驱动按 fetch size 分批拉取，而不是一次性读入整个结果集
+ * Oracle 端可在打开前调整会话 NLS 参数，关闭时恢复原值后再归还连接池，不影响该连接的后续使用者
+ */
+@Slf4j
+public class SortedRowCursor implements AutoCloseable {
+    
+    private final DataSource dataSource;
+    private final Connection connection;
+    private final boolean originalAutoCommit;
+    private final String primaryKey;
+    private final ColumnMapRowMapper rowMapper = new ColumnMapRowMapper();
+    
+    private StatementCanceller canceller;
+    
+    /**
+     * 打开前的会话 NLS 参数原值，关闭时恢复
+     */
+    private Map<String, String> originalNls = Collections.emptyMap();
+    
+    private PreparedStatement statement;
+    private ResultSet resultSet;
+    
+    private Map<String, Object> currentRow;
+    private Object currentKey;
+    private long rowCount;
+    private boolean exhausted;
+    
+    private SortedRowCursor(DataSource dataSource, Connection connection, String primaryKey) throws SQLException {
+        this.dataSource = dataSource;
+        this.connection = connection;
+        this.originalAutoCommit = connection != null && connection.getAutoCommit();
+        this.primaryKey = primaryKey;
+    }
+    
+    /**
+     * 在已按主键排序的结果集上遍历，不占用连接（关闭时只关闭结果集）
+     */
+    static SortedRowCursor of(ResultSet resultSet, String primaryKey) throws SQLException {
+        SortedRowCursor cursor = new SortedRowCursor(null, null, primaryKey);
+        cursor.resultSet = resultSet;
+        return cursor;
+    }
+    
+    /**
+     * 打开游标
+     *
+     * @param nlsParameters 打开游标前设置的 Oracle 会话 NLS 参数（如 NLS_SORT），关闭时恢复原值
+     * @param parameters    查询的绑定参数
+     */
+    public static SortedRowCursor open(DataSource dataSource,
+                                       String sql,
+                                       Object[] parameters,
+                                       String primaryKey,
+                                       int fetchSize,
+                                       Map<String, String> nlsParameters) throws SQLException {
+        return open(dataSource, sql, parameters, primaryKey, fetchSize, nlsParameters, null);
+    }
+    
+    /**
+     * 打开游标，查询语句执行前登记到取消器，关闭时注销
+     *
+     * @param canceller 在途语句取消器，为 null 时不登记
+     */
+    public static SortedRowCursor open(DataSource dataSource,
+                                       String sql,
+                                       Object[] parameters,
+                                       String primaryKey,
+                                       int fetchSize,
+                                       Map<String, String> nlsParameters,
+                                       StatementCanceller canceller) throws SQLException {
+        Connection connection = DataSourceUtils.getConnection(dataSource);
+        SortedRowCursor cursor = null;
+        try {
+            cursor = new SortedRowCursor(dataSource, connection, primaryKey);
+            connection.setAutoCommit(false);
+            
+            if (nlsParameters != null && !nlsParameters.isEmpty()) {
+                cursor.originalNls = sessionNls(connection, nlsParameters);
+                alterSession(connection, nlsParameters);
+            }
+            
+            cursor.statement = connection.prepareStatement(sql,
+                    ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            cursor.statement.setFetchSize(fetchSize);
+            for (int i = 0; i < parameters.length; i++) {
+                StatementCreatorUtils.setParameterValue(cursor.statement, i + 1,
+                        SqlTypeValue.TYPE_UNKNOWN, parameters[i]);
+            }
+            if (canceller != null) {
+                cursor.canceller = canceller;
+                canceller.register(cursor.statement);
+            }
+            cursor.resultSet = cursor.statement.executeQuery();
+            cursor.resultSet.setFetchDirection(ResultSet.FETCH_FORWARD);
+            return cursor;
+        } catch (SQLException | RuntimeException e) {
+            if (cursor != null) {
+                cursor.close();
+            } else {
+                DataSourceUtils.releaseConnection(connection, dataSource);
+            }
+            throw e;
+        }
+    }
+    
+    /**
+     * 前进到下一行
+     *
+     * @return 是否还有数据
+     */
+    public boolean next() throws SQLException {
+        if (exhausted) {
+            return false;
+        }
+        if (!resultSet.next()) {
+            exhausted = true;
+            currentRow = null;
+            currentKey = null;
+            return false;
+        }
+        currentRow = rowMapper.mapRow(resultSet, (int) rowCount);
+        currentKey = currentRow.get(primaryKey);
+        rowCount++;
+        return true;
+    }
+    
+    public boolean hasRow() {
+        return !exhausted && currentRow != null;
+    }
+    
+    public Map<String, Object> getCurrentRow() {
+        return currentRow;
+    }
+    
+    public Object getCurrentKey() {
+        return currentKey;
+    }
+    
+    /**
+     * 已读取的行数
+     */
+    public long getRowCount() {
+        return rowCount;
+    }
+    
+    /**
+     * 读取会话 NLS 参数的当前值
+     */
+    private static Map<String, String> sessionNls(Connection connection,
+                                                  Map<String, String> nlsParameters) throws SQLException {
+        String names = nlsParameters.keySet().stream()
+                .map(name -> "'" + name + "'")
+                .collect(Collectors.joining(", "));
+        Map<String, String> values = new LinkedHashMap<>();
+        try (Statement statement = connection.createStatement();
+             ResultSet rs = statement.executeQuery(
+                     "SELECT PARAMETER, VALUE FROM NLS_SESSION_PARAMETERS WHERE PARAMETER IN (" + names + ")")) {
+            while (rs.next()) {
+                values.put(rs.getString(1), rs.getString(2));
+            }
+        }
+        return values;
+    }
+    
+    private static void alterSession(Connection connection, Map<String, String> nlsParameters) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            for (Map.Entry<String, String> entry : nlsParameters.entrySet()) {
+                statement.execute("ALTER SESSION SET " + entry.getKey()
+                        + " = '" + entry.getValue().replace("'", "''") + "'");
+            }
+        }
+    }
+    
+    @Override
+    public void close() {
+        JdbcUtils.closeResultSet(resultSet);
+        if (canceller != null && statement != null) {
+            canceller.unregister(statement);
+        }
+        JdbcUtils.closeStatement(statement);
+        if (connection == null) {
+            return;
+        }
+        try {
+            // 只读游标，回滚即可结束事务
+            connection.rollback();
+            connection.setAutoCommit(originalAutoCommit);
+        } catch (SQLException ignored) {
+            // 连接归还连接池时由连接池负责重置
+        }
+        if (!originalNls.isEmpty()) {
+            try {
+                alterSession(connection, originalNls);
+            } catch (SQLException e) {
+                // 连接池不会重置会话 NLS 参数，恢复失败时丢弃该物理连接
+                log.warn("恢复会话 NLS 参数失败，丢弃该连接: {}", e.getMessage());
+                try {
+                    connection.abort(Runnable::run);
+                } catch (SQLException ignored) {
+                    // 归还时由连接池关闭
+                }
+            }
+        }
+        DataSourceUtils.releaseConnection(connection, dataSource);
+    }
+}
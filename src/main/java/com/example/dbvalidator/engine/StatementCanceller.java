@@ -0,0 +1,73 @@
+package com.example.dbvalidator.engine;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 在途语句的取消器
+ * <p>
+ * 同一次对比中各线程打开的游标语句在执行前登记，{@link #cancel} 时对所有在途语句调用 Statement.cancel()，
+ * 阻塞在执行或拉取中的语句立即以异常返回；取消后新登记的语句立即取消。
+ * 对比循环中通过 {@link #checkCancelled} 在两次拉取之间及时退出。
+ */
+@Slf4j
+public class StatementCanceller {
+    
+    private final Set<Statement> statements = ConcurrentHashMap.newKeySet();
+    
+    private volatile boolean cancelled;
+    
+    public void register(Statement statement) throws SQLException {
+        statements.add(statement);
+        if (cancelled) {
+            statement.cancel();
+        }
+    }
+    
+    public void unregister(Statement statement) {
+        statements.remove(statement);
+    }
+    
+    /**
+     * 取消所有在途语句
+     */
+    public void cancel() {
+        cancelled = true;
+        for (Statement statement : statements) {
+            try {
+                statement.cancel();
+            } catch (SQLException e) {
+                log.debug("取消语句失败: {}", e.getMessage());
+            }
+        }
+    }
+    
+    public boolean isCancelled() {
+        return cancelled;
+    }
+    
+    /**
+     * 已取消时抛出 {@link CancelledException}
+     */
+    public void checkCancelled() {
+        if (cancelled) {
+            throw new CancelledException();
+        }
+    }
+    
+    /**
+     * 对比被主动取消
+     */
+    public static class CancelledException extends RuntimeException {
+        
+        private static final long serialVersionUID = 1L;
+        
+        public CancelledException() {
+            super("对比已取消", null, false, false);
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package com.example.dbvalidator.engine;
+
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.SqlTypeValue;
+import org.springframework.jdbc.core.StatementCreatorUtils;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * 只进流式查询
+ * <p>
+ * PostgreSQL 驱动只在关闭自动提交时按 fetch size 分批拉取（服务端游标），自动提交下会先把整个结果集读入内存。
+ * 执行期间关闭连接的自动提交，以只进、只读方式逐行回调，结束后回滚并恢复自动提交再归还连接池；
+ * 连接已处于事务中时不改变其状态。
+ */
+public final class StreamingQuery {
+    
+    private StreamingQuery() {
+    }
+    
+    /**
+     * 执行查询，逐行回调 handler
+     *
+     * @param parameters 查询的绑定参数
+     */
+    public static void query(JdbcTemplate jdbcTemplate,
+                             String sql,
+                             Object[] parameters,
+                             int fetchSize,
+                             RowCallbackHandler handler) {
+        jdbcTemplate.execute((ConnectionCallback<Void>) connection -> {
+            boolean autoCommit = connection.getAutoCommit();
+            if (autoCommit) {
+                connection.setAutoCommit(false);
+            }
+            try {
+                forEachRow(connection, sql, parameters, fetchSize, handler);
+            } finally {
+                if (autoCommit) {
+                    restoreAutoCommit(connection);
+                }
+            }
+            return null;
+        });
+    }
+    
+    private static void forEachRow(Connection connection,
+                                   String sql,
+                                   Object[] parameters,
+                                   int fetchSize,
+                                   RowCallbackHandler handler) throws SQLException {
+        try (PreparedStatement ps = connection.prepareStatement(sql,
+                ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+            ps.setFetchSize(fetchSize);
+            for (int i = 0; i < parameters.length; i++) {
+                StatementCreatorUtils.setParameterValue(ps, i + 1, SqlTypeValue.TYPE_UNKNOWN, parameters[i]);
+            }
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    handler.processRow(rs);
+                }
+            }
+        }
+    }
+    
+    private static void restoreAutoCommit(Connection connection) {
+        try {
+            // 只读查询，回滚即可结束事务
+            connection.rollback();
+            connection.setAutoCommit(true);
+        } catch (SQLException ignored) {
+            // 连接归还连接池时由连接池负责重置
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package com.example.dbvalidator.engine;
+
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
+
+/**
+ * 表在两个库中的列元数据
+ */
+@Slf4j
+@Getter
+public class TableMetadata {
+    
+    private final String tableName;
+    
+    private final Map<String, ColumnInfo> oracleColumns;
+    
+    private final Map<String, ColumnInfo> postgresColumns;
+    
+    private TableMetadata(String tableName,
+                          Map<String, ColumnInfo> oracleColumns,
+                          Map<String, ColumnInfo> postgresColumns) {
+        this.tableName = tableName;
+        this.oracleColumns = oracleColumns;
+        this.postgresColumns = postgresColumns;
+    }
+    
+    /**
+     * 通过空结果集的元数据读取两个库的列定义
+     */
+    public static TableMetadata load(JdbcTemplate oracleJdbcTemplate,
+                                     JdbcTemplate postgresJdbcTemplate,
+                                     String tableName) {
+        return new TableMetadata(tableName,
+                loadColumns(oracleJdbcTemplate, tableName),
+                loadColumns(postgresJdbcTemplate, tableName));
+    }
+    
+    /**
+     * 读取单列的定义
+     */
+    public static ColumnInfo loadColumn(JdbcTemplate jdbcTemplate, String tableName, String columnName) {
+        return loadColumns(jdbcTemplate, tableName, columnName).get(columnName.toLowerCase(Locale.ROOT));
+    }
+    
+    private static Map<String, ColumnInfo> loadColumns(JdbcTemplate jdbcTemplate, String tableName) {
+        return loadColumns(jdbcTemplate, tableName, "*");
+    }
+    
+    private static Map<String, ColumnInfo> loadColumns(JdbcTemplate jdbcTemplate, String tableName, String selectList) {
+        String sql = String.format("SELECT %s FROM %s WHERE 1 = 0", selectList, tableName);
+        Map<String, ColumnInfo> columns = jdbcTemplate.query(sql, (ResultSet rs) -> {
+            ResultSetMetaData meta = rs.getMetaData();
+            Map<String, ColumnInfo> result = new LinkedHashMap<>();
+            for (int i = 1; i <= meta.getColumnCount(); i++) {
+                String name = meta.getColumnLabel(i).toLowerCase(Locale.ROOT);
+                result.put(name, new ColumnInfo(name,
+                        meta.getColumnType(i),
+                        meta.getColumnTypeName(i),
+                        meta.getPrecision(i),
+                        meta.getScale(i)));
+            }
+            return result;
+        });
+        return columns != null ? columns : Collections.emptyMap();
+    }
+    
+    /**
+     * 两个库中未被忽略的全部列（按列名排序，保证两端拼接顺序一致）
+     * 只存在于一端的列也参与对比，缺少该列的一端按 NULL 编码，与按主键对比时缺列一端取 NULL 的语义一致
+     */
+    public List<String> comparableColumns(Collection<String> ignoredFields) {
+        Set<String> ignored = ignoredFields == null ? Collections.emptySet()
+                : ignoredFields.stream().map(f -> f.toLowerCase(Locale.ROOT)).collect(Collectors.toSet());
+        
+        Set<String> names = new TreeSet<>(oracleColumns.keySet());
+        names.addAll(postgresColumns.keySet());
+        names.removeAll(ignored);
+        
+        List<String> oneSided = names.stream()
+                .filter(name -> !oracleColumns.containsKey(name) || !postgresColumns.containsKey(name))
+                .collect(Collectors.toList());
+        if (!oneSided.isEmpty()) {
+            log.warn("表 {} 两端列定义不一致，仅存在于一端的列按另一端为 NULL 对比: {}", tableName, oneSided);
+        }
+        return new ArrayList<>(names);
+    }
+    
+    public ColumnInfo getOracleColumn(String name) {
+        return oracleColumns.get(name.toLowerCase(Locale.ROOT));
+    }
+    
+    public ColumnInfo getPostgresColumn(String name) {
+        return postgresColumns.get(name.toLowerCase(Locale.ROOT));
+    }
+}
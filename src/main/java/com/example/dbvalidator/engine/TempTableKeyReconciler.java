@@ -0,0 +1,423 @@
+package com.example.dbvalidator.engine;
+
+import lombok.extern.slf4j.Slf4j;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyIn;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.SqlTypeValue;
+import org.springframework.jdbc.core.StatementCreatorUtils;
+import org.springframework.jdbc.datasource.DataSourceUtils;
+import org.springframework.jdbc.support.JdbcUtils;
+
+import javax.sql.DataSource;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * 库内主键对账
+ * <p>
+ * 将一端（源库）的主键流式写入另一端（目标库）的会话临时表，由目标库执行反连接，只返回缺失的主键：
+ * 目标为 PostgreSQL 时用 COPY 写入 ON COMMIT DROP 的临时表；
+ * 目标为 Oracle 时批量（数组绑定）插入预先创建的全局临时表（ON COMMIT DELETE ROWS）。
+ * 临时表只在对账会话独占的连接上可见，会话结束时回滚即清空，JVM 内不保存主键集合；
+ * 源库主键在关闭自动提交的连接上流式读取（见 {@link StreamingQuery}），PostgreSQL 驱动不会先把整个结果集读入内存。
+ */
+@Slf4j
+public class TempTableKeyReconciler {
+    
+    /**
+     * 临时表中的主键列名
+     */
+    private static final String KEY_COLUMN = "k";
+    
+    /**
+     * 子查询中主键列的别名
+     */
+    private static final String KEY_ALIAS = "dbv_key";
+    
+    private static final int COPY_BUFFER_SIZE = 64 * 1024;
+    
+    private final JdbcTemplate sourceJdbcTemplate;
+    private final JdbcTemplate targetJdbcTemplate;
+    private final Dialect target;
+    private final String oracleKeyTable;
+    private final int fetchSize;
+    private final int batchSize;
+    
+    /**
+     * @param target         执行反连接的库
+     * @param oracleKeyTable 目标为 Oracle 时使用的全局临时表（单列 K）
+     */
+    public TempTableKeyReconciler(JdbcTemplate oracleJdbcTemplate,
+                                  JdbcTemplate postgresJdbcTemplate,
+                                  Dialect target,
+                                  String oracleKeyTable,
+                                  int fetchSize,
+                                  int batchSize) {
+        this.sourceJdbcTemplate = target == Dialect.POSTGRESQL ? oracleJdbcTemplate : postgresJdbcTemplate;
+        this.targetJdbcTemplate = target == Dialect.POSTGRESQL ? postgresJdbcTemplate : oracleJdbcTemplate;
+        this.target = target;
+        this.oracleKeyTable = oracleKeyTable;
+        this.fetchSize = fetchSize;
+        this.batchSize = batchSize;
+    }
+    
+    public Dialect getTarget() {
+        return target;
+    }
+    
+    /**
+     * 目标库临时表的主键列能否存放该表的主键
+     * 目标为 Oracle 时全局临时表的列类型是预先建好的（如 k NUMBER），字符主键写入数值列会失败或按隐式转换比较，
+     * 类型不兼容时返回 false，调用方改为在内存中求差集；PostgreSQL 临时表按主键类型创建，总是兼容
+     */
+    public boolean supportsKey(String tableName, String primaryKey) {
+        if (target == Dialect.POSTGRESQL) {
+            return true;
+        }
+        ColumnInfo tempKey = TableMetadata.loadColumn(targetJdbcTemplate, oracleKeyTable, KEY_COLUMN);
+        ColumnInfo tableKey = TableMetadata.loadColumn(targetJdbcTemplate, tableName, primaryKey);
+        if (tempKey == null || tableKey == null) {
+            log.warn("表 {} 无法读取主键列或全局临时表 {} 的列定义，改为在内存中求主键差集", tableName, oracleKeyTable);
+            return false;
+        }
+        boolean compatible = tempKey.isNumeric() ? tableKey.isNumeric()
+                : tempKey.isCharacter() ? tableKey.isCharacter()
+                : tempKey.getSqlType() == tableKey.getSqlType();
+        if (!compatible) {
+            log.warn("表 {} 的主键 {} 类型为 {}，与全局临时表 {} 的列 {} 类型 {} 不兼容，改为在内存中求主键差集"
+                            + "（不同类型的主键需另建对应类型的全局临时表并在 oracle-key-table 中配置）",
+                    tableName, primaryKey, tableKey.getTypeName(), oracleKeyTable, KEY_COLUMN, tempKey.getTypeName());
+        }
+        return compatible;
+    }
+    
+    /**
+     * 打开对账会话：将源库主键写入目标库临时表
+     *
+     * @param tableName    表名
+     * @param primaryKey   主键列
+     * @param filter       两端共用的附加过滤条件（不含 WHERE），无则为 null
+     * @param filterParams 过滤条件参数
+     */
+    public Session open(String tableName, String primaryKey, String filter, Object[] filterParams) {
+        String keySql = keySql(tableName, primaryKey, filter);
+        
+        DataSource dataSource = targetJdbcTemplate.getDataSource();
+        Connection connection = DataSourceUtils.getConnection(dataSource);
+        Session session = null;
+        try {
+            session = new Session(dataSource, connection, keySql, filterParams);
+            connection.setAutoCommit(false);
+            
+            long loaded = target == Dialect.POSTGRESQL
+                    ? copyIntoPostgres(connection, tableName, primaryKey, keySql, filterParams)
+                    : insertIntoOracle(connection, keySql, filterParams);
+            log.info("表 {} 已将 {} 个主键写入{}临时表", tableName, loaded, target);
+            return session;
+        } catch (SQLException e) {
+            if (session != null) {
+                session.close();
+            } else {
+                DataSourceUtils.releaseConnection(connection, dataSource);
+            }
+            throw targetJdbcTemplate.getExceptionTranslator().translate("temp-key-load", keySql, e);
+        } catch (RuntimeException e) {
+            if (session != null) {
+                session.close();
+            } else {
+                DataSourceUtils.releaseConnection(connection, dataSource);
+            }
+            throw e;
+        }
+    }
+    
+    /**
+     * 通过 COPY 写入 PostgreSQL 临时表，临时表在事务结束时删除
+     */
+    private long copyIntoPostgres(Connection connection,
+                                  String tableName,
+                                  String primaryKey,
+                                  String keySql,
+                                  Object[] filterParams) throws SQLException {
+        ColumnInfo keyColumn = TableMetadata.loadColumn(targetJdbcTemplate, tableName, primaryKey);
+        // 自增主键按实际类型建列（bigserial → int8），不创建序列和默认值
+        String keyType = keyColumn != null && keyColumn.getTypeName() != null ? keyColumn.baseTypeName() : "text";
+        try (Statement statement = connection.createStatement()) {
+            statement.execute(String.format("CREATE TEMP TABLE %s (%s %s) ON COMMIT DROP",
+                    tempTable(), KEY_COLUMN, keyType));
+        }
+        
+        CopyIn copyIn = connection.unwrap(PGConnection.class).getCopyAPI()
+                .copyIn(String.format("COPY %s (%s) FROM STDIN", tempTable(), KEY_COLUMN));
+        long[] rows = {0};
+        try {
+            ByteArrayOutputStream buffer = new ByteArrayOutputStream(COPY_BUFFER_SIZE);
+            StreamingQuery.query(sourceJdbcTemplate, keySql, filterParams, fetchSize, rs -> {
+                Object key = KeyOrder.canonicalize(rs.getObject(1));
+                if (key == null) {
+                    return;
+                }
+                byte[] line = (escapeCopyText(key.toString()) + "\n").getBytes(StandardCharsets.UTF_8);
+                buffer.write(line, 0, line.length);
+                if (buffer.size() >= COPY_BUFFER_SIZE) {
+                    copyIn.writeToCopy(buffer.toByteArray(), 0, buffer.size());
+                    buffer.reset();
+                }
+                rows[0]++;
+            });
+            if (buffer.size() > 0) {
+                copyIn.writeToCopy(buffer.toByteArray(), 0, buffer.size());
+            }
+            copyIn.endCopy();
+        } finally {
+            if (copyIn.isActive()) {
+                copyIn.cancelCopy();
+            }
+        }
+        
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("ANALYZE " + tempTable());
+        }
+        return rows[0];
+    }
+    
+    /**
+     * 批量插入 Oracle 全局临时表（ON COMMIT DELETE ROWS，会话结束回滚即清空）
+     */
+    private long insertIntoOracle(Connection connection, String keySql, Object[] filterParams) throws SQLException {
+        long[] rows = {0};
+        try (PreparedStatement insert = connection.prepareStatement(
+                String.format("INSERT INTO %s (%s) VALUES (?)", tempTable(), KEY_COLUMN))) {
+            StreamingQuery.query(sourceJdbcTemplate, keySql, filterParams, fetchSize, rs -> {
+                Object key = KeyOrder.canonicalize(rs.getObject(1));
+                if (key == null) {
+                    return;
+                }
+                try {
+                    insert.setObject(1, key);
+                    insert.addBatch();
+                    if (++rows[0] % batchSize == 0) {
+                        insert.executeBatch();
+                    }
+                } catch (SQLException e) {
+                    throw targetJdbcTemplate.getExceptionTranslator().translate("temp-key-insert", null, e);
+                }
+            });
+            if (rows[0] % batchSize != 0) {
+                insert.executeBatch();
+            }
+        }
+        return rows[0];
+    }
+    
+    private String tempTable() {
+        return target == Dialect.POSTGRESQL ? "dbv_source_keys" : oracleKeyTable;
+    }
+    
+    /**
+     * 两端共用的主键查询，主键列以 {@link #KEY_ALIAS} 为别名
+     */
+    static String keySql(String tableName, String primaryKey, String filter) {
+        String where = filter != null && !filter.isEmpty() ? " WHERE " + filter : "";
+        return String.format("SELECT %s AS %s FROM %s%s", primaryKey, KEY_ALIAS, tableName, where);
+    }
+    
+    /**
+     * 临时表中有、目标库主键查询中没有的主键（反连接）
+     */
+    static String onlyInSourceSql(String tempTable, String targetKeySql) {
+        return String.format(
+                "SELECT t.%s FROM %s t WHERE NOT EXISTS (SELECT 1 FROM (%s) x WHERE x.%s = t.%s)",
+                KEY_COLUMN, tempTable, targetKeySql, KEY_ALIAS, KEY_COLUMN);
+    }
+    
+    /**
+     * 目标库主键查询中有、临时表中没有的主键（反连接）
+     */
+    static String onlyInTargetSql(String tempTable, String targetKeySql) {
+        return String.format(
+                "SELECT x.%s FROM (%s) x WHERE NOT EXISTS (SELECT 1 FROM %s t WHERE t.%s = x.%s)",
+                KEY_ALIAS, targetKeySql, tempTable, KEY_COLUMN, KEY_ALIAS);
+    }
+    
+    /**
+     * 两端共有的主键（半连接）
+     */
+    static String commonKeySql(String tempTable, String targetKeySql) {
+        return String.format(
+                "SELECT t.%s FROM %s t WHERE EXISTS (SELECT 1 FROM (%s) x WHERE x.%s = t.%s)",
+                KEY_COLUMN, tempTable, targetKeySql, KEY_ALIAS, KEY_COLUMN);
+    }
+    
+    /**
+     * COPY 文本格式转义
+     */
+    static String escapeCopyText(String value) {
+        StringBuilder escaped = null;
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            String replacement = c == '\\' ? "\\\\" : c == '\t' ? "\\t" : c == '\n' ? "\\n" : c == '\r' ? "\\r" : null;
+            if (replacement != null && escaped == null) {
+                escaped = new StringBuilder(value.length() + 8).append(value, 0, i);
+            }
+            if (escaped != null) {
+                if (replacement != null) {
+                    escaped.append(replacement);
+                } else {
+                    escaped.append(c);
+                }
+            }
+        }
+        return escaped != null ? escaped.toString() : value;
+    }
+    
+    /**
+     * 对账会话，独占目标库的一个连接
+     */
+    public class Session implements AutoCloseable {
+        
+        private final DataSource dataSource;
+        private final Connection connection;
+        private final boolean originalAutoCommit;
+        private final String targetKeySql;
+        private final Object[] filterParams;
+        
+        private Session(DataSource dataSource, Connection connection, String targetKeySql, Object[] filterParams)
+                throws SQLException {
+            this.dataSource = dataSource;
+            this.connection = connection;
+            this.originalAutoCommit = connection.getAutoCommit();
+            this.targetKeySql = targetKeySql;
+            this.filterParams = filterParams;
+        }
+        
+        /**
+         * 只在源库存在的主键
+         */
+        public List<Object> onlyInSource() {
+            return queryKeys(onlyInSourceSql(tempTable(), targetKeySql));
+        }
+        
+        /**
+         * 只在目标库存在的主键
+         */
+        public List<Object> onlyInTarget() {
+            return queryKeys(onlyInTargetSql(tempTable(), targetKeySql));
+        }
+        
+        /**
+         * 按批次遍历两端共有的主键（目标库游标按 fetch size 分批拉取，每次只装箱一个批次）
+         */
+        public Iterator<List<Object>> commonBatches(int batchSize) {
+            String sql = commonKeySql(tempTable(), targetKeySql);
+            try {
+                PreparedStatement statement = prepare(sql);
+                ResultSet resultSet = statement.executeQuery();
+                return new KeyBatchIterator(statement, resultSet, Math.max(1, batchSize));
+            } catch (SQLException e) {
+                throw targetJdbcTemplate.getExceptionTranslator().translate("temp-key-common", sql, e);
+            }
+        }
+        
+        private List<Object> queryKeys(String sql) {
+            List<Object> keys = new ArrayList<>();
+            try (PreparedStatement statement = prepare(sql);
+                 ResultSet resultSet = statement.executeQuery()) {
+                while (resultSet.next()) {
+                    keys.add(KeyOrder.canonicalize(resultSet.getObject(1)));
+                }
+                return keys;
+            } catch (SQLException e) {
+                throw targetJdbcTemplate.getExceptionTranslator().translate("temp-key-anti-join", sql, e);
+            }
+        }
+        
+        private PreparedStatement prepare(String sql) throws SQLException {
+            PreparedStatement statement = connection.prepareStatement(sql,
+                    ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            statement.setFetchSize(fetchSize);
+            for (int i = 0; i < filterParams.length; i++) {
+                StatementCreatorUtils.setParameterValue(statement, i + 1, SqlTypeValue.TYPE_UNKNOWN, filterParams[i]);
+            }
+            return statement;
+        }
+        
+        @Override
+        public void close() {
+            try {
+                // 回滚即删除（PostgreSQL）或清空（Oracle）临时表
+                connection.rollback();
+                connection.setAutoCommit(originalAutoCommit);
+            } catch (SQLException e) {
+                log.debug("对账会话回滚失败: {}", e.getMessage());
+            } finally {
+                DataSourceUtils.releaseConnection(connection, dataSource);
+            }
+        }
+    }
+    
+    /**
+     * 共有主键的批次迭代器，读完后关闭游标
+     */
+    private class KeyBatchIterator implements Iterator<List<Object>> {
+        
+        private final PreparedStatement statement;
+        private final ResultSet resultSet;
+        private final int batchSize;
+        private List<Object> nextBatch;
+        
+        KeyBatchIterator(PreparedStatement statement, ResultSet resultSet, int batchSize) {
+            this.statement = statement;
+            this.resultSet = resultSet;
+            this.batchSize = batchSize;
+            this.nextBatch = advance();
+        }
+        
+        private List<Object> advance() {
+            List<Object> batch = new ArrayList<>(batchSize);
+            try {
+                while (batch.size() < batchSize && resultSet.next()) {
+                    batch.add(KeyOrder.canonicalize(resultSet.getObject(1)));
+                }
+            } catch (SQLException e) {
+                closeCursor();
+                throw targetJdbcTemplate.getExceptionTranslator().translate("temp-key-common", null, e);
+            }
+            if (batch.isEmpty()) {
+                closeCursor();
+                return null;
+            }
+            return batch;
+        }
+        
+        private void closeCursor() {
+            JdbcUtils.closeResultSet(resultSet);
+            JdbcUtils.closeStatement(statement);
+        }
+        
+        @Override
+        public boolean hasNext() {
+            return nextBatch != null;
+        }
+        
+        @Override
+        public List<Object> next() {
+            if (nextBatch == null) {
+                throw new NoSuchElementException();
+            }
+            List<Object> batch = nextBatch;
+            nextBatch = advance();
+            return batch;
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package com.example.dbvalidator.engine;
+
+import com.example.dbvalidator.model.FieldDifference;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 差异数达到阈值即终止对比的回调包装
+ * <p>
+ * 差异先交给被包装的 listener，累计差异数（含仅一端存在的记录）达到阈值时取消所有在途语句，
+ * 并在当前线程抛出 {@link StatementCanceller.CancelledException} 结束遍历。可被多个分区共享。
+ */
+public class ThresholdListener implements ComparisonListener {
+    
+    private final ComparisonListener delegate;
+    
+    private final long maxDifferences;
+    
+    private final StatementCanceller canceller;
+    
+    private final AtomicLong differences = new AtomicLong();
+    
+    public ThresholdListener(ComparisonListener delegate, long maxDifferences, StatementCanceller canceller) {
+        this.delegate = delegate;
+        this.maxDifferences = maxDifferences;
+        this.canceller = canceller;
+    }
+    
+    @Override
+    public void onlyInOracle(Object primaryKey) {
+        canceller.checkCancelled();
+        delegate.onlyInOracle(primaryKey);
+        counted();
+    }
+    
+    @Override
+    public void onlyInPostgres(Object primaryKey) {
+        canceller.checkCancelled();
+        delegate.onlyInPostgres(primaryKey);
+        counted();
+    }
+    
+    @Override
+    public void fieldDifference(FieldDifference difference) {
+        canceller.checkCancelled();
+        delegate.fieldDifference(difference);
+        counted();
+    }
+    
+    private void counted() {
+        if (differences.incrementAndGet() >= maxDifferences) {
+            canceller.cancel();
+            throw new StatementCanceller.CancelledException();
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package com.example.dbvalidator.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 紧凑字段差异：只保存主键、不一致列的下标及其两端取值
+ * 列下标指向对比结果的 diffColumns 列表，整行数据按需回查
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class CompactDifference {
+    
+    /**
+     * 主键值
+     */
+    private Object primaryKey;
+    
+    /**
+     * 不一致列在 diffColumns 中的下标
+     */
+    private int[] columns;
+    
+    /**
+     * 不一致列的 Oracle 值（与 columns 一一对应）
+     */
+    private Object[] oracleValues;
+    
+    /**
+     * 不一致列的 PostgreSQL 值（与 columns 一一对应）
+     */
+    private Object[] postgresValues;
+    
+    /**
+     * 按列名展开为字段差异详情（不含整行数据）
+     *
+     * @param columnNames 对比结果的 diffColumns
+     */
+    public FieldDifference toFieldDifference(List<String> columnNames) {
+        Map<String, FieldValuePair> differentFields = new LinkedHashMap<>();
+        for (int i = 0; i < columns.length; i++) {
+            String fieldName = columnNames.get(columns[i]);
+            differentFields.put(fieldName, FieldValuePair.builder()
+                    .fieldName(fieldName)
+                    .oracleValue(oracleValues[i])
+                    .postgresValue(postgresValues[i])
+                    .build());
+        }
+        return FieldDifference.builder()
+                .primaryKey(primaryKey)
+                .differentFields(differentFields)
+                .build();
+    }
+}
@@ -1,10 +1,12 @@
 package com.example.dbvalidator.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -48,11 +50,29 @@ public class ComparisonResult {
     private List<Object> onlyInPostgres;
     
     /**
-     * 字段值不一致的记录
-     * Key: 主键值
-     * Value: 差异详情
+     * 紧凑字段差异中列下标对应的列名
+     */
+    private List<String> diffColumns;
+    
+    /**
+     * 字段值不一致的记录（紧凑格式，超过内存上限时只含前若干条，其余按 diffId 分页查询）
      */
-    private Map<Object, FieldDifference> fieldDifferences;
+    private List<CompactDifference> compactDifferences;
+    
+    /**
+     * 字段值不一致的记录总数（含溢出到磁盘的部分）
+     */
+    private long fieldDifferenceCount;
+    
+    /**
+     * 差异集标识，用于分页查询全部字段差异（全部保留在内存中时为空）
+     */
+    private String diffId;
+    
+    /**
+     * 差异汇总：按类型、按列的精确计数与差异样例
+     */
+    private DifferenceSummary summary;
     
     /**
      * 对比耗时（毫秒）
@@ -63,4 +83,50 @@ public class ComparisonResult {
      * 对比时间
      */
     private String comparisonTime;
+    
+    /**
+     * 是否因差异数达到阈值提前结束（快速探测模式），为 true 时结果只包含已发现的部分差异
+     */
+    private boolean truncated;
+    
+    /**
+     * 抽样对比的不一致率估计（全量对比时为空）
+     */
+    private SamplingEstimate sampling;
+    
+    /**
+     * 快照读时 Oracle 端读取的 SCN（未开启快照读时为空），可按该 SCN 以 AS OF SCN 重新读取
+     */
+    private Long oracleScn;
+    
+    /**
+     * 快照读时 PostgreSQL 端的快照（xmin:xmax:xip，未开启快照读时为空）
+     */
+    private String postgresSnapshot;
+    
+    /**
+     * 延迟复查的差异主键数（未复查时为 0）
+     */
+    private long recheckedKeys;
+    
+    /**
+     * 复查中恢复一致、未计入结果的瞬时差异主键数
+     */
+    private long transientKeys;
+    
+    /**
+     * 按列名展开的字段差异（不含整行数据，序列化时只输出紧凑格式）
+     * Key: 主键值
+     * Value: 差异详情
+     */
+    @JsonIgnore
+    public Map<Object, FieldDifference> getFieldDifferences() {
+        Map<Object, FieldDifference> fieldDifferences = new LinkedHashMap<>();
+        if (compactDifferences != null) {
+            for (CompactDifference difference : compactDifferences) {
+                fieldDifferences.put(difference.getPrimaryKey(), difference.toFieldDifference(diffColumns));
+            }
+        }
+        return fieldDifferences;
+    }
 }
@@ -0,0 +1,86 @@
+package com.example.dbvalidator.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 差异汇总：按类型、按列的精确计数与差异样例
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class DifferenceSummary {
+    
+    /**
+     * 差异类型：PostgreSQL 缺失（仅在 Oracle 中存在）
+     */
+    public static final String KIND_MISSING = "missing";
+    
+    /**
+     * 差异类型：PostgreSQL 多余（仅在 PostgreSQL 中存在）
+     */
+    public static final String KIND_EXTRA = "extra";
+    
+    /**
+     * 差异类型：两端都存在但字段值不一致
+     */
+    public static final String KIND_CHANGED = "changed";
+    
+    /**
+     * 仅在 Oracle 中存在的记录数
+     */
+    private long missingCount;
+    
+    /**
+     * 仅在 PostgreSQL 中存在的记录数
+     */
+    private long extraCount;
+    
+    /**
+     * 字段值不一致的记录数
+     */
+    private long changedCount;
+    
+    /**
+     * 各列不一致的记录数（按计数降序）
+     * Key: 列名
+     * Value: 该列不一致的记录数
+     */
+    private Map<String, Long> columnMismatches;
+    
+    /**
+     * 从全部差异中等概率抽取的样例（蓄水池抽样）
+     */
+    private List<Example> examples;
+    
+    /**
+     * 差异样例
+     */
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Example {
+        
+        /**
+         * 差异类型：missing / extra / changed
+         */
+        private String kind;
+        
+        /**
+         * 主键值
+         */
+        private Object primaryKey;
+        
+        /**
+         * 不一致的字段（仅 changed 类型）
+         */
+        private Map<String, FieldValuePair> differentFields;
+    }
+}
@@ -0,0 +1,128 @@
+package com.example.dbvalidator.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * 对比流水线的运行统计：各阶段吞吐与各队列深度，用于定位瓶颈阶段
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class PipelineStats {
+    
+    /**
+     * 表名
+     */
+    private String tableName;
+    
+    /**
+     * 是否仍在运行
+     */
+    private boolean running;
+    
+    /**
+     * 已运行时长（毫秒）
+     */
+    private long elapsedMs;
+    
+    /**
+     * 各阶段统计（按数据流顺序）
+     */
+    private List<Stage> stages;
+    
+    /**
+     * 各阶段之间的队列统计（按数据流顺序）
+     */
+    private List<Queue> queues;
+    
+    /**
+     * 阶段统计
+     */
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Stage {
+        
+        /**
+         * 阶段名：key-producer / oracle-fetch / postgres-fetch / compare / diff-sink
+         */
+        private String name;
+        
+        /**
+         * 线程数
+         */
+        private int threads;
+        
+        /**
+         * 已处理的批次数
+         */
+        private long items;
+        
+        /**
+         * 已处理的行数（主键生产为主键数，差异收集为差异条数）
+         */
+        private long rows;
+        
+        /**
+         * 各线程处理耗时之和（毫秒），不含在队列上等待的时间
+         */
+        private long busyMs;
+        
+        /**
+         * 每秒处理的行数
+         */
+        private double rowsPerSecond;
+        
+        /**
+         * 线程忙碌比例 busyMs / (elapsedMs * threads)，接近 1 的阶段是瓶颈
+         */
+        private double utilization;
+    }
+    
+    /**
+     * 队列统计
+     */
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Queue {
+        
+        /**
+         * 队列名（下游阶段的输入）
+         */
+        private String name;
+        
+        /**
+         * 容量（批次）
+         */
+        private int capacity;
+        
+        /**
+         * 当前深度
+         */
+        private int depth;
+        
+        /**
+         * 运行期间的最大深度
+         */
+        private int maxDepth;
+        
+        /**
+         * 上游因队列已满而等待的次数（下游处理不过来）
+         */
+        private long fullWaits;
+        
+        /**
+         * 下游因队列为空而等待的次数（上游供应不足）
+         */
+        private long emptyWaits;
+    }
+}
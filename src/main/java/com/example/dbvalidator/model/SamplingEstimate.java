@@ -0,0 +1,56 @@
+package com.example.dbvalidator.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 抽样对比的不一致率估计
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class SamplingEstimate {
+    
+    /**
+     * 抽样百分比
+     */
+    private double samplePercent;
+    
+    /**
+     * 样本行数（两端样本主键的并集）
+     */
+    private long sampledRows;
+    
+    /**
+     * 样本中不一致的行数（仅一端存在 + 字段差异）
+     */
+    private long inconsistentRows;
+    
+    /**
+     * 样本不一致率
+     */
+    private double inconsistencyRate;
+    
+    /**
+     * 置信水平
+     */
+    private double confidenceLevel;
+    
+    /**
+     * 不一致率置信区间下限（Wilson 得分区间）
+     */
+    private double lowerBound;
+    
+    /**
+     * 不一致率置信区间上限（Wilson 得分区间）
+     */
+    private double upperBound;
+    
+    /**
+     * 按样本不一致率推算的全表不一致行数
+     */
+    private long estimatedInconsistentRows;
+}
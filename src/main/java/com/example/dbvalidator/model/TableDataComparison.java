@@ -1,10 +1,12 @@
 package com.example.dbvalidator.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -17,6 +19,11 @@ import java.util.Map;
 @AllArgsConstructor
 public class TableDataComparison {
     
+    /**
+     * 对比窗口起始时间（增量对比时为水位减去重叠时间，为空表示全量）
+     */
+    private String startTime;
+    
     /**
      * Oracle数量
      */
@@ -43,7 +50,43 @@ public class TableDataComparison {
     private List<Object> onlyInPostgres;
     
     /**
-     * 字段差异
+     * 紧凑字段差异中列下标对应的列名
+     */
+    private List<String> diffColumns;
+    
+    /**
+     * 字段值不一致的记录（紧凑格式，超过内存上限时只含前若干条，其余按 diffId 分页查询）
+     */
+    private List<CompactDifference> compactDifferences;
+    
+    /**
+     * 字段值不一致的记录总数（含溢出到磁盘的部分）
+     */
+    private Long fieldDifferenceCount;
+    
+    /**
+     * 差异集标识，用于分页查询全部字段差异（全部保留在内存中时为空）
+     */
+    private String diffId;
+    
+    /**
+     * 差异汇总：按类型、按列的精确计数与差异样例
+     */
+    private DifferenceSummary summary;
+    
+    /**
+     * 按列名展开的字段差异（不含整行数据，序列化时只输出紧凑格式）
+     * Key: 主键值
+     * Value: 差异详情
      */
-    private Map<Object, FieldDifference> fieldDifferences;
-}
\ No newline at end of file
+    @JsonIgnore
+    public Map<Object, FieldDifference> getFieldDifferences() {
+        Map<Object, FieldDifference> fieldDifferences = new LinkedHashMap<>();
+        if (compactDifferences != null) {
+            for (CompactDifference difference : compactDifferences) {
+                fieldDifferences.put(difference.getPrimaryKey(), difference.toFieldDifference(diffColumns));
+            }
+        }
+        return fieldDifferences;
+    }
+}
@@ -0,0 +1,38 @@
+package com.example.dbvalidator.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * 表的增量对比水位 - 用于数据库持久化
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class TableWatermark {
+    
+    /**
+     * 表名
+     */
+    private String tableName;
+    
+    /**
+     * 增量对比使用的时间字段
+     */
+    private String timeField;
+    
+    /**
+     * 上一次成功对比的截止时间（源库时钟），下一次从该时间减去重叠时间开始对比
+     */
+    private LocalDateTime watermark;
+    
+    /**
+     * 更新时间
+     */
+    private LocalDateTime updatedTime;
+}
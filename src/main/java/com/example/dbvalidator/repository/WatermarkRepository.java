@@ -0,0 +1,69 @@
+package com.example.dbvalidator.repository;
+
+import com.example.dbvalidator.model.TableWatermark;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * 增量对比水位数据访问层
+ */
+@Slf4j
+@Repository
+@RequiredArgsConstructor
+public class WatermarkRepository {
+    
+    private final JdbcTemplate jdbcTemplate;
+    
+    /**
+     * 查询表的水位，没有记录时返回 null
+     */
+    public TableWatermark findByTableName(String tableName) {
+        String sql = "SELECT table_name, time_field, watermark, updated_time FROM validation_watermark " +
+                "WHERE table_name = ?";
+        
+        List<TableWatermark> watermarks = jdbcTemplate.query(sql, (rs, rowNum) -> TableWatermark.builder()
+                .tableName(rs.getString("table_name"))
+                .timeField(rs.getString("time_field"))
+                .watermark(rs.getTimestamp("watermark").toLocalDateTime())
+                .updatedTime(rs.getTimestamp("updated_time").toLocalDateTime())
+                .build(), tableName);
+        return watermarks.isEmpty() ? null : watermarks.get(0);
+    }
+    
+    /**
+     * 保存表的水位（已存在则更新）
+     */
+    public void save(TableWatermark watermark) {
+        LocalDateTime now = LocalDateTime.now();
+        int updated = jdbcTemplate.update("UPDATE validation_watermark " +
+                        "SET time_field = ?, watermark = ?, updated_time = ? WHERE table_name = ?",
+                watermark.getTimeField(),
+                Timestamp.valueOf(watermark.getWatermark()),
+                Timestamp.valueOf(now),
+                watermark.getTableName());
+        if (updated == 0) {
+            jdbcTemplate.update("INSERT INTO validation_watermark " +
+                            "(table_name, time_field, watermark, updated_time) VALUES (?, ?, ?, ?)",
+                    watermark.getTableName(),
+                    watermark.getTimeField(),
+                    Timestamp.valueOf(watermark.getWatermark()),
+                    Timestamp.valueOf(now));
+        }
+        
+        log.info("增量水位已保存: 表={}, 水位={}", watermark.getTableName(), watermark.getWatermark());
+    }
+    
+    /**
+     * 删除表的水位（下一次增量对比退回全量）
+     */
+    public void delete(String tableName) {
+        jdbcTemplate.update("DELETE FROM validation_watermark WHERE table_name = ?", tableName);
+        log.info("增量水位已重置: 表={}", tableName);
+    }
+}
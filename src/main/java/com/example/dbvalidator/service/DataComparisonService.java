@@ -1,15 +1,58 @@
 package com.example.dbvalidator.service;
 
 import com.example.dbvalidator.config.ValidatorProperties;
+import com.example.dbvalidator.engine.BatchPrefetcher;
+import com.example.dbvalidator.engine.BucketChecksumComparator;
+import com.example.dbvalidator.engine.CollectingComparisonListener;
+import com.example.dbvalidator.engine.ColumnInfo;
+import com.example.dbvalidator.engine.ColumnarBatch;
+import com.example.dbvalidator.engine.CompiledRowComparator;
+import com.example.dbvalidator.engine.ComparisonPipeline;
+import com.example.dbvalidator.engine.ConnectionBudget;
+import com.example.dbvalidator.engine.Dialect;
+import com.example.dbvalidator.engine.DiffSink;
+import com.example.dbvalidator.engine.KeyOrder;
+import com.example.dbvalidator.engine.KeyLookup;
+import com.example.dbvalidator.engine.KeyRange;
+import com.example.dbvalidator.engine.KeySampler;
+import com.example.dbvalidator.engine.KeySet;
+import com.example.dbvalidator.engine.MergeJoinComparator;
+import com.example.dbvalidator.engine.OracleBatchReader;
+import com.example.dbvalidator.engine.ParallelTableScheduler;
+import com.example.dbvalidator.engine.PhysicalChunkComparator;
+import com.example.dbvalidator.engine.RangePartitioner;
+import com.example.dbvalidator.engine.ReadSnapshot;
+import com.example.dbvalidator.engine.RecheckQueue;
+import com.example.dbvalidator.engine.RowDiffer;
+import com.example.dbvalidator.engine.RowHashCache;
+import com.example.dbvalidator.engine.RowHashComparator;
+import com.example.dbvalidator.engine.ScanCounts;
+import com.example.dbvalidator.engine.StatementCanceller;
+import com.example.dbvalidator.engine.TableMetadata;
+import com.example.dbvalidator.engine.TempTableKeyReconciler;
+import com.example.dbvalidator.engine.ThresholdListener;
 import com.example.dbvalidator.model.*;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataAccessException;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
 
+import javax.annotation.PostConstruct;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.Timestamp;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
 import java.util.*;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
 /**
@@ -24,61 +67,737 @@ public class DataComparisonService {
     private final JdbcTemplate postgresJdbcTemplate;
     private final ValidatorProperties validatorProperties;
     
+    /**
+     * 排序归并对比模式
+     */
+    public static final String MODE_MERGE_JOIN = "merge-join";
+    
+    /**
+     * 分桶校验和对比模式
+     */
+    public static final String MODE_BUCKET_CHECKSUM = "bucket-checksum";
+    
+    /**
+     * 行哈希下推对比模式
+     */
+    public static final String MODE_ROW_HASH = "row-hash";
+    
+    /**
+     * 时间过滤参数的接口格式
+     */
+    private static final DateTimeFormatter TIME_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+    
+    /**
+     * 两个库共享的连接预算（按连接池大小延迟初始化）
+     */
+    private volatile ConnectionBudget connectionBudget;
+    
+    /**
+     * 最近对比中发生溢出的差异集，按 diffId 分页查询；超过保留次数时删除最早的差异集及其溢出文件
+     */
+    private final Map<String, DiffSink> diffSinks = new LinkedHashMap<>();
+    
+    /**
+     * 各表最近一次批量回查流水线的阶段吞吐与队列深度：运行中取流水线的实时快照，
+     * 结束后只保留最终快照，不再引用流水线及其回查器、读取缓冲
+     */
+    private final Map<String, Supplier<PipelineStats>> pipelines = new LinkedHashMap<>();
+    
+    /**
+     * 启动时删除上次运行遗留的差异溢出文件：差异集只登记在内存中，重启后这些文件已无法分页查询
+     */
+    @PostConstruct
+    void clearStaleDiffs() {
+        Path dir = Paths.get(validatorProperties.getDataDir(), "diffs");
+        if (!Files.isDirectory(dir)) {
+            return;
+        }
+        int deleted = 0;
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(dir, "*.jsonl")) {
+            for (Path file : files) {
+                Files.deleteIfExists(file);
+                deleted++;
+            }
+        } catch (IOException e) {
+            log.warn("清理遗留的差异溢出文件失败: {}", dir, e);
+        }
+        if (deleted > 0) {
+            log.info("已删除上次运行遗留的差异溢出文件 {} 个: {}", deleted, dir);
+        }
+    }
+    
     /**
      * 对比所有配置的表
      */
     public List<ComparisonResult> compareAllTables() {
-        List<ComparisonResult> results = new ArrayList<>();
-        
-        for (String tableName : validatorProperties.getTables()) {
+        return newTableScheduler().run(validatorProperties.getTables(), this::estimateRowCount, tableName -> {
             log.info("开始对比表: {}", tableName);
             ComparisonResult result = compareTable(tableName);
-            results.add(result);
             log.info("表 {} 对比完成, 数据一致性: {}", tableName, result.isConsistent());
+            return result;
+        });
+    }
+    
+    /**
+     * 创建多表并行调度器，并发度受两个库连接池大小约束
+     */
+    private ParallelTableScheduler newTableScheduler() {
+        int limit = connectionBudget().getSize();
+        int configured = validatorProperties.getTableParallelism();
+        return new ParallelTableScheduler(
+                configured > 0 ? Math.min(configured, limit) : limit, "table-compare");
+    }
+    
+    private ConnectionBudget connectionBudget() {
+        ConnectionBudget budget = connectionBudget;
+        if (budget == null) {
+            synchronized (this) {
+                if (connectionBudget == null) {
+                    connectionBudget = new ConnectionBudget(
+                            oracleJdbcTemplate.getDataSource(), postgresJdbcTemplate.getDataSource());
+                }
+                budget = connectionBudget;
+            }
+        }
+        return budget;
+    }
+    
+    /**
+     * 根据统计信息预估表行数（不执行 COUNT），用于大表优先调度；取不到时返回 0
+     */
+    private long estimateRowCount(String tableName) {
+        Long rows = queryStatistic(postgresJdbcTemplate,
+                "SELECT CAST(reltuples AS BIGINT) FROM pg_class WHERE oid = to_regclass(?)", tableName);
+        if (rows == null || rows <= 0) {
+            rows = queryStatistic(oracleJdbcTemplate,
+                    "SELECT NUM_ROWS FROM USER_TABLES WHERE TABLE_NAME = ?", tableName.toUpperCase());
+        }
+        return rows != null ? rows : 0;
+    }
+    
+    private Long queryStatistic(JdbcTemplate jdbcTemplate, String sql, String tableName) {
+        try {
+            return jdbcTemplate.queryForObject(sql, Long.class, tableName);
+        } catch (DataAccessException e) {
+            log.debug("表 {} 统计信息查询失败: {}", tableName, e.getMessage());
+            return null;
         }
-        
-        return results;
     }
     
     /**
      * 对比单个表的数据
      */
     public ComparisonResult compareTable(String tableName) {
+        String compareMode = validatorProperties.getCompareMode();
+        ValidatorProperties.TableOptions options = validatorProperties.optionsFor(tableName);
+        int partitions = options.getPartitions();
+        boolean keySet = !MODE_MERGE_JOIN.equalsIgnoreCase(compareMode)
+                && !MODE_BUCKET_CHECKSUM.equalsIgnoreCase(compareMode)
+                && !MODE_ROW_HASH.equalsIgnoreCase(compareMode);
+        if (validatorProperties.isSnapshotReads() && !keySet) {
+            log.warn("表 {} 快照读只支持不分区的主键集合模式，本次按各自的最新数据对比", tableName);
+        }
+        if (keySet && partitions > 1) {
+            warnPartitionedKeySet(tableName, partitions, options.isPhysicalChunking());
+        }
+        if (partitions > 1 && MODE_BUCKET_CHECKSUM.equalsIgnoreCase(compareMode)) {
+            log.warn("表 {} 配置了 {} 个分区，分桶校验和模式不支持分区，本次按整表逐层下钻对比", tableName, partitions);
+        }
+        if (partitions > 1 && !MODE_BUCKET_CHECKSUM.equalsIgnoreCase(compareMode)) {
+            return options.isPhysicalChunking()
+                    ? compareTableByPhysicalChunks(tableName, partitions)
+                    : compareTablePartitioned(tableName, partitions);
+        }
+        
+        // 主键集合模式批量回查时预取后续批次，需要额外的连接
+        // 快照读时导出快照的事务在 PostgreSQL 另占一个连接（快照读不使用库内求差集）；
+        // 库内求差集时对账会话在目标库另占一个连接，写入主键时源库流式读取主键再占一个连接；
+        // 行哈希模式在两端游标仍打开时分批回查哈希不一致的行，回查需要另一个连接
+        int connections = keySet
+                ? newBatchPrefetcher(tableName).getConnections()
+                        + (validatorProperties.isSnapshotReads() ? 1 : keyReconciler() != null ? 2 : 0)
+                : MODE_ROW_HASH.equalsIgnoreCase(compareMode) ? 2 : 1;
+        
+        return connectionBudget().call(connections, () -> {
+            if (MODE_MERGE_JOIN.equalsIgnoreCase(compareMode)) {
+                return compareTableByMergeJoin(tableName);
+            }
+            if (MODE_BUCKET_CHECKSUM.equalsIgnoreCase(compareMode)) {
+                return compareTableByBucketChecksum(tableName);
+            }
+            if (MODE_ROW_HASH.equalsIgnoreCase(compareMode)) {
+                return compareTableByRowHash(tableName);
+            }
+            return compareTableByKeySet(tableName);
+        });
+    }
+    
+    /**
+     * 主键集合模式配置了多个分区时改为分区对比，只属于主键集合模式的选项不再生效，逐项告警
+     */
+    private void warnPartitionedKeySet(String tableName, int partitions, boolean physical) {
+        List<String> dropped = new ArrayList<>();
+        if (validatorProperties.isSnapshotReads()) {
+            dropped.add("snapshot-reads（快照读）");
+        }
+        if (validatorProperties.getRecheckRounds() > 0) {
+            dropped.add("recheck-rounds（差异延迟复查）");
+        }
+        if (keyReconciler() != null) {
+            dropped.add("key-reconciliation（库内临时表求差集）");
+        }
+        if (validatorProperties.getCompareWorkers() > 0) {
+            dropped.add("compare-workers（批量回查流水线）");
+        }
+        log.warn("表 {} 配置了 {} 个分区，主键集合模式改为{}", tableName, partitions,
+                physical ? "按物理地址分块的行哈希对比" : "按主键区间分区的归并对比");
+        for (String option : dropped) {
+            log.warn("表 {} 分区对比不支持 {}，本次对比中该选项不生效", tableName, option);
+        }
+    }
+    
+    /**
+     * 对比单个表的数据，指定抽样百分比或目标样本行数时按主键哈希抽样对比
+     *
+     * @param samplePercent 抽样百分比（0, 100]，可为 null
+     * @param sampleRows    目标样本行数，按预估表行数换算为抽样比例，可为 null
+     */
+    public ComparisonResult compareTable(String tableName, Double samplePercent, Long sampleRows) {
+        if (samplePercent == null && sampleRows == null) {
+            return compareTable(tableName);
+        }
+        KeySampler sampler = samplePercent != null
+                ? new KeySampler(samplePercent)
+                : KeySampler.forTargetRows(sampleRows, estimateRowCount(tableName));
+        return connectionBudget().call(newBatchPrefetcher(tableName).getConnections(),
+                () -> compareTableBySample(tableName, sampler));
+    }
+    
+    /**
+     * 快速一致性探测：发现 maxDifferences 条差异即停止
+     * 先对比两端记录数，记录数之差已达到阈值时直接返回；否则按主键区间流式归并，
+     * 差异数达到阈值时取消所有在途语句，返回标记为 truncated 的部分结果
+     *
+     * @param maxDifferences 差异阈值（仅一端存在的记录与字段差异合计），至少为 1
+     */
+    public ComparisonResult probeTable(String tableName, long maxDifferences) {
+        if (maxDifferences < 1) {
+            throw new IllegalArgumentException("maxDifferences 至少为 1: " + maxDifferences);
+        }
         long startTime = System.currentTimeMillis();
         
         String primaryKey = validatorProperties.getPrimaryKey();
         
-        // 1. 查询记录总数
+        // 1. 记录数之差即为差异数下限
         long oracleCount = getRecordCount(oracleJdbcTemplate, tableName);
         long postgresCount = getRecordCount(postgresJdbcTemplate, tableName);
+        DiffSink fieldDifferences = newDiffSink(tableName);
+        try {
+            if (Math.abs(oracleCount - postgresCount) >= maxDifferences) {
+                log.info("表 {} (快速探测) - 记录数之差 {} 已达到阈值 {}, 跳过逐行对比",
+                        tableName, Math.abs(oracleCount - postgresCount), maxDifferences);
+                return probeResult(tableName, oracleCount, postgresCount,
+                        new CollectingComparisonListener(fieldDifferences), true, startTime);
+            }
+            
+            // 2. 按主键区间流式归并，达到阈值时取消所有分区的在途语句
+            ValidatorProperties.TableOptions options = validatorProperties.optionsFor(tableName);
+            List<KeyRange> ranges = options.getPartitions() > 1
+                    ? new RangePartitioner(oracleJdbcTemplate, postgresJdbcTemplate)
+                            .split(tableName, primaryKey, options.getPartitions(), estimateRowCount(tableName))
+                    : Collections.singletonList(KeyRange.ALL);
+            RowDiffer rowDiffer = rowComparator(tableName, null);
+            StatementCanceller canceller = new StatementCanceller();
+            CollectingComparisonListener listener = new CollectingComparisonListener(fieldDifferences);
+            ThresholdListener probe = new ThresholdListener(listener, maxDifferences, canceller);
+            
+            boolean truncated = false;
+            try {
+                new ParallelTableScheduler(Math.min(ranges.size(), connectionBudget().getSize()), "probe-compare")
+                        .run(ranges, range -> 0L, range -> connectionBudget().call(1,
+                                () -> new MergeJoinComparator(oracleJdbcTemplate, postgresJdbcTemplate,
+                                        validatorProperties.getFetchSize(), canceller)
+                                        .compare(tableName, primaryKey, range, rowDiffer, probe)));
+            } catch (RuntimeException e) {
+                if (!canceller.isCancelled()) {
+                    throw e;
+                }
+                truncated = true;
+            }
+            
+            log.info("表 {} (快速探测) - 发现差异: {}{}", tableName,
+                    listener.getOnlyInOracle().size() + listener.getOnlyInPostgres().size() + fieldDifferences.size(),
+                    truncated ? ", 已达到阈值提前结束" : "");
+            return probeResult(tableName, oracleCount, postgresCount, listener, truncated, startTime);
+        } catch (RuntimeException e) {
+            discardDiffs(fieldDifferences);
+            throw e;
+        }
+    }
+    
+    /**
+     * 构建快速探测的对比结果，记录数取自 COUNT 查询
+     */
+    private ComparisonResult probeResult(String tableName,
+                                         long oracleCount,
+                                         long postgresCount,
+                                         CollectingComparisonListener listener,
+                                         boolean truncated,
+                                         long startTime) {
+        DiffSink fieldDifferences = listener.getDiffSink();
+        return ComparisonResult.builder()
+                .tableName(tableName)
+                .oracleCount(oracleCount)
+                .postgresCount(postgresCount)
+                .isConsistent(!truncated && oracleCount == postgresCount && listener.isEmpty())
+                .onlyInOracle(new ArrayList<>(listener.getOnlyInOracle()))
+                .onlyInPostgres(new ArrayList<>(listener.getOnlyInPostgres()))
+                .diffColumns(fieldDifferences.getColumns())
+                .compactDifferences(fieldDifferences.getHead())
+                .fieldDifferenceCount(fieldDifferences.size())
+                .diffId(retainDiffs(fieldDifferences))
+                .summary(fieldDifferences.summarize())
+                .truncated(truncated)
+                .durationMs(System.currentTimeMillis() - startTime)
+                .comparisonTime(LocalDateTime.now().format(
+                        DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss")))
+                .build();
+    }
+    
+    /**
+     * 抽样模式对比单个表
+     * 两端按同一主键哈希抽取相同的主键集合，样本内按主键集合模式对比，
+     * 并以 Wilson 得分区间给出全表不一致率的 95% 置信区间
+     */
+    private ComparisonResult compareTableBySample(String tableName, KeySampler sampler) {
+        long startTime = System.currentTimeMillis();
+        
+        String primaryKey = validatorProperties.getPrimaryKey();
+        TableMetadata metadata = TableMetadata.load(oracleJdbcTemplate, postgresJdbcTemplate, tableName);
+        
+        // 1. 按主键哈希抽取两端样本主键
+        KeySet oracleKeys = getSampledKeys(oracleJdbcTemplate, Dialect.ORACLE, tableName, primaryKey, metadata, sampler);
+        KeySet postgresKeys = getSampledKeys(postgresJdbcTemplate, Dialect.POSTGRESQL, tableName, primaryKey, metadata, sampler);
+        
+        // 2. 样本内对比
+        List<Object> onlyInOracle = oracleKeys.difference(postgresKeys);
+        List<Object> onlyInPostgres = postgresKeys.difference(oracleKeys);
+        DiffSink fieldDifferences = newDiffSink(tableName);
+        try {
+            onlyInOracle.forEach(fieldDifferences::onlyInOracle);
+            onlyInPostgres.forEach(fieldDifferences::onlyInPostgres);
+            compareRecords(tableName, primaryKey,
+                    oracleKeys.intersectionBatches(postgresKeys, validatorProperties.getBatchSize()),
+                    fieldDifferences::add, null);
+            
+            // 3. 估计全表不一致率
+            long sampledRows = oracleKeys.size() + onlyInPostgres.size();
+            long inconsistentRows = onlyInOracle.size() + onlyInPostgres.size() + fieldDifferences.size();
+            double rate = sampledRows > 0 ? (double) inconsistentRows / sampledRows : 0;
+            double[] interval = KeySampler.wilsonInterval(sampledRows, inconsistentRows, KeySampler.Z_95);
+            long estimatedRows = Math.round(sampledRows * 100 / sampler.getSamplePercent());
+            
+            log.info("表 {} (抽样 {}%) - 样本行数: {}, 不一致: {}, 不一致率 95% 置信区间: [{}, {}]",
+                    tableName, sampler.getSamplePercent(), sampledRows, inconsistentRows,
+                    String.format("%.4f%%", interval[0] * 100), String.format("%.4f%%", interval[1] * 100));
+            
+            return ComparisonResult.builder()
+                    .tableName(tableName)
+                    .oracleCount(oracleKeys.size())
+                    .postgresCount(postgresKeys.size())
+                    .isConsistent(inconsistentRows == 0)
+                    .onlyInOracle(retainedKeys(onlyInOracle, fieldDifferences))
+                    .onlyInPostgres(retainedKeys(onlyInPostgres, fieldDifferences))
+                    .diffColumns(fieldDifferences.getColumns())
+                    .compactDifferences(fieldDifferences.getHead())
+                    .fieldDifferenceCount(fieldDifferences.size())
+                    .diffId(retainDiffs(fieldDifferences))
+                    .summary(fieldDifferences.summarize())
+                    .durationMs(System.currentTimeMillis() - startTime)
+                    .comparisonTime(LocalDateTime.now().format(
+                            DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss")))
+                    .sampling(SamplingEstimate.builder()
+                            .samplePercent(sampler.getSamplePercent())
+                            .sampledRows(sampledRows)
+                            .inconsistentRows(inconsistentRows)
+                            .inconsistencyRate(rate)
+                            .confidenceLevel(0.95)
+                            .lowerBound(interval[0])
+                            .upperBound(interval[1])
+                            .estimatedInconsistentRows(Math.round(rate * estimatedRows))
+                            .build())
+                    .build();
+        } catch (RuntimeException e) {
+            discardDiffs(fieldDifferences);
+            throw e;
+        }
+    }
+    
+    /**
+     * 获取按主键哈希抽样的主键
+     */
+    private KeySet getSampledKeys(JdbcTemplate jdbcTemplate,
+                                  Dialect dialect,
+                                  String tableName,
+                                  String primaryKey,
+                                  TableMetadata metadata,
+                                  KeySampler sampler) {
+        String predicate = sampler.predicate(dialect, metadata, primaryKey);
+        if (predicate == null) {
+            return getPrimaryKeys(jdbcTemplate, tableName, primaryKey);
+        }
+        String sql = String.format("SELECT %s FROM %s WHERE %s", primaryKey, tableName, predicate);
+        return KeySet.load(jdbcTemplate, sql, new Object[0], validatorProperties.getFetchSize());
+    }
+    
+    /**
+     * 主键集合模式对比单个表
+     * 开启 snapshotReads 时整个对比在同一个一致性读快照中进行，结果中记录 Oracle SCN 与 PostgreSQL 快照
+     */
+    private ComparisonResult compareTableByKeySet(String tableName) {
+        if (!validatorProperties.isSnapshotReads()) {
+            return compareTableByKeySet(tableName, null);
+        }
+        try (ReadSnapshot snapshot = ReadSnapshot.open(oracleJdbcTemplate, postgresJdbcTemplate)) {
+            ComparisonResult result = compareTableByKeySet(tableName, snapshot);
+            result.setOracleScn(snapshot.getOracleScn());
+            result.setPostgresSnapshot(snapshot.getPostgresSnapshot());
+            return result;
+        }
+    }
+    
+    /**
+     * 开启差异复查（recheckRounds > 0）时，差异主键在发现时入队，对比结束后按延迟与退避多轮回查，
+     * 结果中只保留每轮都不一致的持久差异
+     *
+     * @param snapshot 一致性读快照，为 null 时读取各自的最新数据
+     */
+    private ComparisonResult compareTableByKeySet(String tableName, ReadSnapshot snapshot) {
+        long startTime = System.currentTimeMillis();
+        
+        String primaryKey = validatorProperties.getPrimaryKey();
+        JdbcTemplate postgresTemplate = postgresTemplate(snapshot);
+        
+        // 1. 查询记录总数
+        long oracleCount = getRecordCount(oracleJdbcTemplate, oracleTable(tableName, snapshot));
+        long postgresCount = getRecordCount(postgresTemplate, tableName);
         
         log.info("表 {} - Oracle记录数: {}, PostgreSQL记录数: {}", 
                 tableName, oracleCount, postgresCount);
         
-        // 2. 获取所有主键
-        Set<Object> oracleKeys = getPrimaryKeys(oracleJdbcTemplate, tableName, primaryKey);
-        Set<Object> postgresKeys = getPrimaryKeys(postgresJdbcTemplate, tableName, primaryKey);
+        List<Object> onlyInOracle;
+        List<Object> onlyInPostgres;
+        DiffSink compared = newDiffSink(tableName);
+        // 复查后改为只收集持久差异的收集器
+        DiffSink fieldDifferences = compared;
+        try {
+            RecheckQueue recheck = newRecheckQueue();
+            Consumer<FieldDifference> found = recheck == null ? compared::add : difference -> {
+                compared.add(difference);
+                recheck.offer(difference.getPrimaryKey());
+            };
+            
+            // 库内对账的临时表会话不在快照中，快照读时在内存中求差集
+            TempTableKeyReconciler reconciler = snapshot == null ? keyReconciler(tableName, primaryKey) : null;
+            if (reconciler != null) {
+                // 2-4. 一端主键写入另一端临时表，库内求差集并遍历共同主键
+                try (TempTableKeyReconciler.Session session =
+                             reconciler.open(tableName, primaryKey, null, new Object[0])) {
+                    boolean postgresTarget = reconciler.getTarget() == Dialect.POSTGRESQL;
+                    onlyInOracle = postgresTarget ? session.onlyInSource() : session.onlyInTarget();
+                    onlyInPostgres = postgresTarget ? session.onlyInTarget() : session.onlyInSource();
+                    offerAll(recheck, onlyInOracle, onlyInPostgres);
+                    compareRecords(tableName, primaryKey,
+                            session.commonBatches(validatorProperties.getBatchSize()), found, null);
+                }
+            } else {
+                // 2. 获取所有主键
+                KeySet oracleKeys = getPrimaryKeys(oracleJdbcTemplate, oracleTable(tableName, snapshot), primaryKey);
+                KeySet postgresKeys = getPrimaryKeys(postgresTemplate, tableName, primaryKey);
+            
+                // 3. 找出差异主键
+                onlyInOracle = oracleKeys.difference(postgresKeys);
+            
+                onlyInPostgres = postgresKeys.difference(oracleKeys);
+                offerAll(recheck, onlyInOracle, onlyInPostgres);
+            
+                // 4. 对比共同存在的记录
+                compareRecords(tableName, primaryKey,
+                        oracleKeys.intersectionBatches(postgresKeys, validatorProperties.getBatchSize()), found,
+                        snapshot);
+            }
+            
+            // 5. 延迟复查差异主键，瞬时差异（如复制延迟）丢弃，只保留持久差异
+            long recheckedKeys = 0;
+            long transientKeys = 0;
+            if (recheck != null && recheck.size() > 0) {
+                if (recheck.isOverflowed()) {
+                    log.warn("表 {} 差异主键超过复查上限 {}，跳过复查",
+                            tableName, validatorProperties.getRecheckMaxKeys());
+                } else {
+                    Map<Object, RecheckQueue.Outcome> persistent = recheckDifferences(tableName, primaryKey, recheck);
+                    compared.close();
+                    fieldDifferences = newDiffSink(tableName);
+                    onlyInOracle = new ArrayList<>();
+                    onlyInPostgres = new ArrayList<>();
+                    for (Map.Entry<Object, RecheckQueue.Outcome> entry : persistent.entrySet()) {
+                        RecheckQueue.Outcome outcome = entry.getValue();
+                        if (DifferenceSummary.KIND_MISSING.equals(outcome.getKind())) {
+                            onlyInOracle.add(entry.getKey());
+                        } else if (DifferenceSummary.KIND_EXTRA.equals(outcome.getKind())) {
+                            onlyInPostgres.add(entry.getKey());
+                        } else {
+                            fieldDifferences.add(outcome.getDifference());
+                        }
+                    }
+                    recheckedKeys = recheck.size();
+                    transientKeys = recheckedKeys - persistent.size();
+                    log.info("表 {} 复查 {} 个差异主键，各轮恢复一致 {} 个，持久差异 {} 个",
+                            tableName, recheckedKeys, Arrays.toString(recheck.getHealed()), persistent.size());
+                }
+            }
+            
+            // 6. 构建结果
+            onlyInOracle.forEach(fieldDifferences::onlyInOracle);
+            onlyInPostgres.forEach(fieldDifferences::onlyInPostgres);
+            boolean isConsistent = onlyInOracle.isEmpty() 
+                    && onlyInPostgres.isEmpty() 
+                    && fieldDifferences.size() == 0;
+            
+            long duration = System.currentTimeMillis() - startTime;
+            
+            return ComparisonResult.builder()
+                    .tableName(tableName)
+                    .oracleCount(oracleCount)
+                    .postgresCount(postgresCount)
+                    .isConsistent(isConsistent)
+                    .onlyInOracle(retainedKeys(onlyInOracle, fieldDifferences))
+                    .onlyInPostgres(retainedKeys(onlyInPostgres, fieldDifferences))
+                    .diffColumns(fieldDifferences.getColumns())
+                    .compactDifferences(fieldDifferences.getHead())
+                    .fieldDifferenceCount(fieldDifferences.size())
+                    .diffId(retainDiffs(fieldDifferences))
+                    .summary(fieldDifferences.summarize())
+                    .recheckedKeys(recheckedKeys)
+                    .transientKeys(transientKeys)
+                    .durationMs(duration)
+                    .comparisonTime(LocalDateTime.now().format(
+                            DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss")))
+                    .build();
+        } catch (RuntimeException e) {
+            discardDiffs(compared);
+            discardDiffs(fieldDifferences);
+            throw e;
+        }
+    }
+    
+    /**
+     * 按配置创建差异复查队列，recheckRounds <= 0 时返回 null
+     */
+    private RecheckQueue newRecheckQueue() {
+        if (validatorProperties.getRecheckRounds() <= 0) {
+            return null;
+        }
+        return new RecheckQueue(validatorProperties.getRecheckDelayMs(), validatorProperties.getRecheckRounds(),
+                validatorProperties.getRecheckBackoff(), validatorProperties.getBatchSize(),
+                validatorProperties.getRecheckMaxKeys());
+    }
+    
+    private static void offerAll(RecheckQueue recheck, List<Object> onlyInOracle, List<Object> onlyInPostgres) {
+        if (recheck != null) {
+            onlyInOracle.forEach(recheck::offer);
+            onlyInPostgres.forEach(recheck::offer);
+        }
+    }
+    
+    /**
+     * 复查差异主键：按主键批量回查两端的最新数据（不使用一致性读快照），返回每轮都不一致的主键及最后一轮的差异
+     */
+    private Map<Object, RecheckQueue.Outcome> recheckDifferences(String tableName,
+                                                                 String primaryKey,
+                                                                 RecheckQueue recheck) {
+        CompiledRowComparator rowComparator = rowComparator(tableName, null);
+        ColumnInfo postgresKey = TableMetadata.loadColumn(postgresJdbcTemplate, tableName, primaryKey);
+        BatchPrefetcher fetcher = newBatchPrefetcher(tableName);
+        return recheck.run(keys -> {
+            Map<Object, RecheckQueue.Outcome> outcomes = new HashMap<>();
+            // 两端回查在预取线程上并发执行，处理完成后由预取器归还批次
+            fetcher.run(Collections.singletonList(keys).iterator(),
+                    batch -> batchQuery(tableName, primaryKey, postgresKey, batch, rowComparator,
+                            "", Collections.emptyList(), null),
+                    (batch, oracleData, postgresData) -> {
+                        Set<Object> oracleKeys = batchKeys(oracleData, primaryKey);
+                        Set<Object> postgresKeys = batchKeys(postgresData, primaryKey);
+                        for (Object key : oracleKeys) {
+                            if (!postgresKeys.contains(key)) {
+                                outcomes.put(key, RecheckQueue.Outcome.missing());
+                            }
+                        }
+                        for (Object key : postgresKeys) {
+                            if (!oracleKeys.contains(key)) {
+                                outcomes.put(key, RecheckQueue.Outcome.extra());
+                            }
+                        }
+                        compareBatch(primaryKey, oracleData, postgresData, rowComparator).forEach(
+                                (key, difference) -> outcomes.put(key, RecheckQueue.Outcome.changed(difference)));
+                    });
+            return outcomes;
+        });
+    }
+    
+    private static Set<Object> batchKeys(ColumnarBatch batch, String primaryKey) {
+        int keyColumn = batch.indexOf(primaryKey);
+        Set<Object> keys = new HashSet<>(batch.getRowCount() * 2);
+        for (int row = 0; row < batch.getRowCount(); row++) {
+            keys.add(KeyOrder.canonicalize(batch.getObject(row, keyColumn)));
+        }
+        return keys;
+    }
+    
+    /**
+     * 排序归并模式对比单个表
+     * 双方按主键有序流式读取，记录数由扫描过程统计，无需额外的 COUNT 查询
+     */
+    private ComparisonResult compareTableByMergeJoin(String tableName) {
+        DiffSink fieldDifferences = newDiffSink(tableName);
+        ComparisonResult result;
+        try {
+            result = compareRange(tableName, validatorProperties.getPrimaryKey(),
+                    KeyRange.ALL, false, rowComparator(tableName, null), null, fieldDifferences);
+        } catch (RuntimeException e) {
+            discardDiffs(fieldDifferences);
+            throw e;
+        }
+        
+        log.info("表 {} (归并模式) - Oracle记录数: {}, PostgreSQL记录数: {}",
+                tableName, result.getOracleCount(), result.getPostgresCount());
+        
+        return result;
+    }
+    
+    /**
+     * 分区并行对比单个表
+     * 主键区间拆分后各分区独立归并（行哈希模式下按行哈希归并），分区结果合并为一个对比结果
+     */
+    private ComparisonResult compareTablePartitioned(String tableName, int partitions) {
+        long startTime = System.currentTimeMillis();
         
-        // 3. 找出差异主键
-        List<Object> onlyInOracle = oracleKeys.stream()
-                .filter(key -> !postgresKeys.contains(key))
-                .collect(Collectors.toList());
+        String primaryKey = validatorProperties.getPrimaryKey();
+        boolean rowHash = MODE_ROW_HASH.equalsIgnoreCase(validatorProperties.getCompareMode());
+        List<KeyRange> ranges = new RangePartitioner(oracleJdbcTemplate, postgresJdbcTemplate)
+                .split(tableName, primaryKey, partitions, estimateRowCount(tableName));
+        RowDiffer rowDiffer = rowComparator(tableName, null);
+        RowHashCache cache = rowHash ? rowHashCache(tableName) : null;
+        DiffSink fieldDifferences = newDiffSink(tableName);
+        try {
+            log.info("表 {} 拆分为 {} 个主键区间并行对比", tableName, ranges.size());
+            
+            // 行哈希模式在游标打开期间分批回查，每个分区需要两个连接
+            int connections = rowHash ? 2 : 1;
+            ParallelTableScheduler scheduler = new ParallelTableScheduler(
+                    Math.min(ranges.size(), Math.max(1, connectionBudget().getSize() / connections)),
+                    "partition-compare");
+            List<ComparisonResult> partitionResults = scheduler.run(ranges, range -> 0L,
+                    range -> connectionBudget().call(connections,
+                            () -> compareRange(tableName, primaryKey, range, rowHash, rowDiffer, cache,
+                                    fieldDifferences)));
+            if (cache != null) {
+                cache.save();
+            }
+            
+            ComparisonResult result = mergeResults(tableName, partitionResults, fieldDifferences, startTime);
+            log.info("表 {} (分区模式) - Oracle记录数: {}, PostgreSQL记录数: {}",
+                    tableName, result.getOracleCount(), result.getPostgresCount());
+            return result;
+        } catch (RuntimeException e) {
+            discardDiffs(fieldDifferences);
+            throw e;
+        }
+    }
+    
+    /**
+     * 物理地址分块并行对比单个表
+     * 双方按 ROWID / ctid 区间并行扫描行哈希，扫描不依赖主键顺序，适合无法按主键均匀拆分的表
+     */
+    private ComparisonResult compareTableByPhysicalChunks(String tableName, int chunks) {
+        long startTime = System.currentTimeMillis();
         
-        List<Object> onlyInPostgres = postgresKeys.stream()
-                .filter(key -> !oracleKeys.contains(key))
-                .collect(Collectors.toList());
+        DiffSink fieldDifferences = newDiffSink(tableName);
+        CollectingComparisonListener listener = new CollectingComparisonListener(fieldDifferences);
+        RowHashCache cache = rowHashCache(tableName);
+        try {
+            ScanCounts counts = new PhysicalChunkComparator(oracleJdbcTemplate, postgresJdbcTemplate,
+                    connectionBudget(), keyLookup(), validatorProperties.getFetchSize(),
+                    validatorProperties.getBatchSize(), cache,
+                    validatorProperties.optionsFor(tableName).getPendingRowLimit())
+                    .compare(tableName, validatorProperties.getPrimaryKey(), validatorProperties.getIgnoreFields(),
+                            chunks, rowComparator(tableName, null), listener);
+            if (cache != null) {
+                cache.save();
+            }
+            
+            ComparisonResult result = buildResult(tableName, counts, listener, startTime);
+            log.info("表 {} (物理分块模式) - Oracle记录数: {}, PostgreSQL记录数: {}",
+                    tableName, result.getOracleCount(), result.getPostgresCount());
+            return result;
+        } catch (RuntimeException e) {
+            discardDiffs(fieldDifferences);
+            throw e;
+        }
+    }
+    
+    /**
+     * 流式对比一个主键区间
+     *
+     * @param rowHash  true 时按行哈希归并，否则按整行归并
+     * @param cache    行哈希模式下跨次运行的行哈希缓存，未启用时为 null
+     * @param diffSink 字段差异收集器，分区并行时各分区共享
+     */
+    private ComparisonResult compareRange(String tableName,
+                                          String primaryKey,
+                                          KeyRange range,
+                                          boolean rowHash,
+                                          RowDiffer rowDiffer,
+                                          RowHashCache cache,
+                                          DiffSink diffSink) {
+        long startTime = System.currentTimeMillis();
         
-        // 4. 对比共同存在的记录
-        Set<Object> commonKeys = new HashSet<>(oracleKeys);
-        commonKeys.retainAll(postgresKeys);
+        CollectingComparisonListener listener = new CollectingComparisonListener(diffSink);
+        ScanCounts counts;
+        if (rowHash) {
+            counts = new RowHashComparator(oracleJdbcTemplate, postgresJdbcTemplate, keyLookup(),
+                    validatorProperties.getFetchSize(), validatorProperties.getBatchSize(), cache)
+                    .compare(tableName, primaryKey, validatorProperties.getIgnoreFields(),
+                            range, rowDiffer, listener);
+        } else {
+            counts = new MergeJoinComparator(oracleJdbcTemplate, postgresJdbcTemplate,
+                    validatorProperties.getFetchSize())
+                    .compare(tableName, primaryKey, range, rowDiffer, listener);
+        }
         
-        Map<Object, FieldDifference> fieldDifferences = compareRecords(
-                tableName, primaryKey, commonKeys);
+        return buildResult(tableName, counts, listener, startTime);
+    }
+    
+    /**
+     * 合并多个分区的对比结果（各分区共享同一个字段差异收集器）
+     */
+    private ComparisonResult mergeResults(String tableName,
+                                          List<ComparisonResult> partitionResults,
+                                          DiffSink fieldDifferences,
+                                          long startTime) {
+        long oracleCount = 0;
+        long postgresCount = 0;
+        List<Object> onlyInOracle = new ArrayList<>();
+        List<Object> onlyInPostgres = new ArrayList<>();
+        
+        for (ComparisonResult partition : partitionResults) {
+            oracleCount += partition.getOracleCount();
+            postgresCount += partition.getPostgresCount();
+            onlyInOracle.addAll(partition.getOnlyInOracle());
+            onlyInPostgres.addAll(partition.getOnlyInPostgres());
+        }
         
-        // 5. 构建结果
-        boolean isConsistent = onlyInOracle.isEmpty() 
-                && onlyInPostgres.isEmpty() 
-                && fieldDifferences.isEmpty();
+        boolean isConsistent = !fieldDifferences.hasDifferences();
         
         long duration = System.currentTimeMillis() - startTime;
         
@@ -87,15 +806,113 @@ public class DataComparisonService {
                 .oracleCount(oracleCount)
                 .postgresCount(postgresCount)
                 .isConsistent(isConsistent)
-                .onlyInOracle(onlyInOracle)
-                .onlyInPostgres(onlyInPostgres)
-                .fieldDifferences(fieldDifferences)
+                .onlyInOracle(retainedKeys(onlyInOracle, fieldDifferences))
+                .onlyInPostgres(retainedKeys(onlyInPostgres, fieldDifferences))
+                .diffColumns(fieldDifferences.getColumns())
+                .compactDifferences(fieldDifferences.getHead())
+                .fieldDifferenceCount(fieldDifferences.size())
+                .diffId(retainDiffs(fieldDifferences))
+                .summary(fieldDifferences.summarize())
+                .durationMs(duration)
+                .comparisonTime(LocalDateTime.now().format(
+                        DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss")))
+                .build();
+    }
+    
+    /**
+     * 分桶校验和模式对比单个表
+     * 只传输桶摘要，摘要不一致的桶逐层下钻到行级
+     */
+    private ComparisonResult compareTableByBucketChecksum(String tableName) {
+        long startTime = System.currentTimeMillis();
+        
+        String primaryKey = validatorProperties.getPrimaryKey();
+        BucketChecksumComparator comparator = new BucketChecksumComparator(
+                oracleJdbcTemplate, postgresJdbcTemplate,
+                validatorProperties.getBucketFanout(), validatorProperties.getBatchSize());
+        DiffSink fieldDifferences = newDiffSink(tableName);
+        CollectingComparisonListener listener = new CollectingComparisonListener(fieldDifferences);
+        try {
+            ScanCounts counts = comparator.compare(
+                    tableName, primaryKey, validatorProperties.getIgnoreFields(),
+                    rowComparator(tableName, null), listener);
+            
+            log.info("表 {} (分桶模式) - Oracle记录数: {}, PostgreSQL记录数: {}",
+                    tableName, counts.getOracleRows(), counts.getPostgresRows());
+            
+            return buildResult(tableName, counts, listener, startTime);
+        } catch (RuntimeException e) {
+            discardDiffs(fieldDifferences);
+            throw e;
+        }
+    }
+    
+    /**
+     * 行哈希模式对比单个表
+     * 只传输 (主键, 行哈希)，哈希不一致的记录才回查整行
+     */
+    private ComparisonResult compareTableByRowHash(String tableName) {
+        RowHashCache cache = rowHashCache(tableName);
+        DiffSink fieldDifferences = newDiffSink(tableName);
+        ComparisonResult result;
+        try {
+            result = compareRange(tableName, validatorProperties.getPrimaryKey(),
+                    KeyRange.ALL, true, rowComparator(tableName, null), cache, fieldDifferences);
+        } catch (RuntimeException e) {
+            discardDiffs(fieldDifferences);
+            throw e;
+        }
+        if (cache != null) {
+            cache.save();
+        }
+        
+        log.info("表 {} (行哈希模式) - Oracle记录数: {}, PostgreSQL记录数: {}",
+                tableName, result.getOracleCount(), result.getPostgresCount());
+        
+        return result;
+    }
+    
+    /**
+     * 由流式对比引擎的收集结果构建对比结果
+     */
+    private ComparisonResult buildResult(String tableName,
+                                         ScanCounts counts,
+                                         CollectingComparisonListener listener,
+                                         long startTime) {
+        long duration = System.currentTimeMillis() - startTime;
+        
+        return ComparisonResult.builder()
+                .tableName(tableName)
+                .oracleCount(counts.getOracleRows())
+                .postgresCount(counts.getPostgresRows())
+                .isConsistent(listener.isEmpty())
+                .onlyInOracle(listener.getOnlyInOracle())
+                .onlyInPostgres(listener.getOnlyInPostgres())
+                .diffColumns(listener.getDiffSink().getColumns())
+                .compactDifferences(listener.getDiffSink().getHead())
+                .fieldDifferenceCount(listener.getDiffSink().size())
+                .diffId(retainDiffs(listener.getDiffSink()))
+                .summary(listener.getDiffSink().summarize())
                 .durationMs(duration)
                 .comparisonTime(LocalDateTime.now().format(
                         DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss")))
                 .build();
     }
     
+    /**
+     * Oracle 端查询中引用表的方式，快照读时为 {@code 表名 AS OF SCN n}
+     */
+    private String oracleTable(String tableName, ReadSnapshot snapshot) {
+        return snapshot != null ? snapshot.oracleTable(tableName) : tableName;
+    }
+    
+    /**
+     * PostgreSQL 端查询使用的 JdbcTemplate，快照读时每个连接导入同一快照
+     */
+    private JdbcTemplate postgresTemplate(ReadSnapshot snapshot) {
+        return snapshot != null ? snapshot.getPostgresJdbcTemplate() : postgresJdbcTemplate;
+    }
+    
     /**
      * 获取表的记录总数
      */
@@ -108,163 +925,354 @@ public class DataComparisonService {
     /**
      * 获取表的所有主键
      */
-    private Set<Object> getPrimaryKeys(JdbcTemplate jdbcTemplate, 
-                                       String tableName, 
-                                       String primaryKey) {
+    private KeySet getPrimaryKeys(JdbcTemplate jdbcTemplate, 
+                                  String tableName, 
+                                  String primaryKey) {
         String sql = String.format("SELECT %s FROM %s", primaryKey, tableName);
-        List<Object> keys = jdbcTemplate.queryForList(sql, Object.class);
-        return new HashSet<>(keys);
+        return KeySet.load(jdbcTemplate, sql, new Object[0], validatorProperties.getFetchSize());
     }
     
     /**
-     * 对比共同存在的记录
+     * 对比共同存在的记录，字段差异写入 differences
+     * 每批主键在两个库并发查询，回查与对比重叠执行（见 runBatches）
      */
-    private Map<Object, FieldDifference> compareRecords(String tableName, 
-                                                         String primaryKey, 
-                                                         Set<Object> commonKeys) {
-        Map<Object, FieldDifference> differences = new HashMap<>();
-        
-        // 批量处理
-        List<Object> keyList = new ArrayList<>(commonKeys);
-        int batchSize = validatorProperties.getBatchSize();
-        
-        for (int i = 0; i < keyList.size(); i += batchSize) {
-            int end = Math.min(i + batchSize, keyList.size());
-            List<Object> batch = keyList.subList(i, end);
-            
-            Map<Object, FieldDifference> batchDiff = compareBatch(
-                    tableName, primaryKey, batch);
-            differences.putAll(batchDiff);
-        }
-        
-        return differences;
+    private void compareRecords(String tableName, 
+                                String primaryKey, 
+                                Iterator<List<Object>> batches,
+                                Consumer<FieldDifference> differences,
+                                ReadSnapshot snapshot) {
+        CompiledRowComparator rowComparator = rowComparator(tableName, null);
+        ColumnInfo postgresKey = TableMetadata.loadColumn(postgresJdbcTemplate, tableName, primaryKey);
+        runBatches(tableName, primaryKey, batches,
+                batch -> batchQuery(tableName, primaryKey, postgresKey, batch, rowComparator,
+                        "", Collections.emptyList(), snapshot),
+                rowComparator, differences, snapshot);
     }
     
     /**
-     * 批量对比记录
+     * 按批次回查并对比
+     * compareWorkers > 0 时使用多阶段流水线（回查与对比分别由独立线程池并发执行），
+     * 否则由预取器在调用线程上按批次顺序对比
      */
-    private Map<Object, FieldDifference> compareBatch(String tableName, 
-                                                      String primaryKey, 
-                                                      List<Object> keys) {
-        Map<Object, FieldDifference> differences = new HashMap<>();
-        
-        // 构建 IN 查询
-        String inClause = keys.stream()
-                .map(k -> "?")
-                .collect(Collectors.joining(","));
-        
-        String sql = String.format("SELECT * FROM %s WHERE %s IN (%s)", 
-                tableName, primaryKey, inClause);
-        
-        // 查询 Oracle 数据
-        List<Map<String, Object>> oracleData = oracleJdbcTemplate.queryForList(
-                sql, keys.toArray());
-        Map<Object, Map<String, Object>> oracleMap = oracleData.stream()
-                .collect(Collectors.toMap(
-                        row -> row.get(primaryKey.toUpperCase()),
-                        row -> row
-                ));
-        
-        // 查询 PostgreSQL 数据
-        List<Map<String, Object>> postgresData = postgresJdbcTemplate.queryForList(
-                sql, keys.toArray());
-        Map<Object, Map<String, Object>> postgresMap = postgresData.stream()
-                .collect(Collectors.toMap(
-                        row -> row.get(primaryKey.toLowerCase()),
-                        row -> row
-                ));
+    private void runBatches(String tableName,
+                            String primaryKey,
+                            Iterator<List<Object>> batches,
+                            Function<List<Object>, BatchPrefetcher.BatchQuery> queryFactory,
+                            CompiledRowComparator rowComparator,
+                            Consumer<FieldDifference> differences,
+                            ReadSnapshot snapshot) {
+        BatchPrefetcher prefetcher = newBatchPrefetcher(tableName, postgresTemplate(snapshot));
+        int workers = validatorProperties.getCompareWorkers();
+        if (workers <= 0) {
+            prefetcher.run(batches, queryFactory,
+                    (batch, oracleData, postgresData) -> compareBatch(primaryKey, oracleData, postgresData,
+                            rowComparator).values().forEach(differences));
+            return;
+        }
         
-        // 对比每条记录
-        for (Object key : keys) {
-            Map<String, Object> oracleRow = oracleMap.get(key);
-            Map<String, Object> postgresRow = postgresMap.get(key);
-            
-            if (oracleRow == null || postgresRow == null) {
-                continue;
+        ComparisonPipeline pipeline = new ComparisonPipeline(tableName, prefetcher, prefetcher.getConnections(),
+                workers, validatorProperties.getPipelineQueueCapacity());
+        synchronized (pipelines) {
+            pipelines.remove(tableName);
+            pipelines.put(tableName, pipeline::snapshot);
+        }
+        try {
+            pipeline.run(batches, queryFactory,
+                    (batch, oracleData, postgresData) -> compareBatch(primaryKey, oracleData, postgresData,
+                            rowComparator).values(),
+                    differences);
+        } finally {
+            PipelineStats stats = pipeline.snapshot();
+            synchronized (pipelines) {
+                pipelines.put(tableName, () -> stats);
             }
-            
-            FieldDifference diff = compareRow(key, oracleRow, postgresRow);
-            if (diff != null && !diff.getDifferentFields().isEmpty()) {
-                differences.put(key, diff);
+            for (PipelineStats.Stage stage : stats.getStages()) {
+                log.info("表 {} 流水线阶段 {}: 线程 {}, 批次 {}, 行数 {}, {} 行/秒, 忙碌比例 {}",
+                        tableName, stage.getName(), stage.getThreads(), stage.getItems(), stage.getRows(),
+                        String.format("%.0f", stage.getRowsPerSecond()), String.format("%.2f", stage.getUtilization()));
             }
         }
-        
-        return differences;
     }
     
     /**
-     * 对比单行数据
+     * 各表最近一次批量回查流水线的阶段吞吐与队列深度（含运行中的对比）
      */
-    private FieldDifference compareRow(Object primaryKey, 
-                                       Map<String, Object> oracleRow, 
-                                       Map<String, Object> postgresRow) {
-        Map<String, FieldValuePair> differentFields = new HashMap<>();
-        List<String> ignoreFields = validatorProperties.getIgnoreFields();
-        
-        // 获取所有字段名（Oracle 通常是大写，PostgreSQL 通常是小写）
-        Set<String> allFields = new HashSet<>();
-        oracleRow.keySet().forEach(k -> allFields.add(k.toLowerCase()));
-        postgresRow.keySet().forEach(k -> allFields.add(k.toLowerCase()));
-        
-        for (String field : allFields) {
-            // 跳过忽略字段
-            if (ignoreFields != null && ignoreFields.contains(field.toLowerCase())) {
-                continue;
+    public List<PipelineStats> getPipelineStats() {
+        synchronized (pipelines) {
+            return pipelines.values().stream()
+                    .map(Supplier::get)
+                    .collect(Collectors.toList());
+        }
+    }
+    
+    private BatchPrefetcher newBatchPrefetcher(String tableName) {
+        return newBatchPrefetcher(tableName, postgresJdbcTemplate);
+    }
+    
+    private BatchPrefetcher newBatchPrefetcher(String tableName, JdbcTemplate postgresTemplate) {
+        ValidatorProperties.TableOptions options = validatorProperties.optionsFor(tableName);
+        int oracleFetchSize = options.getOracleFetchSize() > 0
+                ? options.getOracleFetchSize() : validatorProperties.getBatchSize();
+        return new BatchPrefetcher(oracleJdbcTemplate, postgresTemplate,
+                validatorProperties.getPrefetchBatches(),
+                new OracleBatchReader.Settings(oracleFetchSize, options.getOracleLobPrefetchSize(),
+                        options.isOracleDefineColumns()),
+                "copy".equalsIgnoreCase(validatorProperties.getPostgresExtraction()));
+    }
+    
+    /**
+     * 表的主键可以写入目标库临时表时的库内对账器，否则返回 null（在内存中求差集）
+     */
+    private TempTableKeyReconciler keyReconciler(String tableName, String primaryKey) {
+        TempTableKeyReconciler reconciler = keyReconciler();
+        return reconciler != null && reconciler.supportsKey(tableName, primaryKey) ? reconciler : null;
+    }
+    
+    /**
+     * 按配置创建库内主键对账器，keyReconciliation=jvm 时返回 null
+     */
+    private TempTableKeyReconciler keyReconciler() {
+        String mode = validatorProperties.getKeyReconciliation();
+        Dialect target;
+        if ("postgresql".equalsIgnoreCase(mode)) {
+            target = Dialect.POSTGRESQL;
+        } else if ("oracle".equalsIgnoreCase(mode)) {
+            target = Dialect.ORACLE;
+        } else {
+            return null;
+        }
+        return new TempTableKeyReconciler(oracleJdbcTemplate, postgresJdbcTemplate, target,
+                validatorProperties.getOracleKeyTable(), validatorProperties.getFetchSize(),
+                validatorProperties.getBatchSize());
+    }
+    
+    /**
+     * 打开表的行哈希缓存（{dataDir}/row-hash/{表名}.bin），未启用时返回 null
+     */
+    private RowHashCache rowHashCache(String tableName) {
+        if (!validatorProperties.isRowHashCache()) {
+            return null;
+        }
+        return RowHashCache.open(Paths.get(validatorProperties.getDataDir(), "row-hash",
+                tableName.toLowerCase(Locale.ROOT) + ".bin"));
+    }
+    
+    /**
+     * 创建单次对比的字段差异收集器，超过内存上限的差异溢出到 {dataDir}/diffs/{diffId}.jsonl；
+     * 配置只汇总时不保留差异，只输出差异汇总
+     */
+    private DiffSink newDiffSink(String tableName) {
+        int sampleSize = validatorProperties.getDiffSampleSize();
+        if (validatorProperties.isDiffSummaryOnly()) {
+            return DiffSink.summaryOnly(sampleSize);
+        }
+        int memoryLimit = validatorProperties.getDiffMemoryLimit();
+        if (memoryLimit <= 0) {
+            return new DiffSink(null, 0, null, sampleSize);
+        }
+        String diffId = tableName.toLowerCase(Locale.ROOT) + "-" + UUID.randomUUID();
+        return new DiffSink(diffId, memoryLimit,
+                Paths.get(validatorProperties.getDataDir(), "diffs", diffId + ".jsonl"), sampleSize);
+    }
+    
+    /**
+     * 结果中返回的仅一端存在的主键：只汇总模式下不返回（数量以差异汇总的计数为准）
+     */
+    private static List<Object> retainedKeys(List<Object> keys, DiffSink sink) {
+        return sink.isRetaining() ? keys : Collections.emptyList();
+    }
+    
+    /**
+     * 登记发生溢出的差异集以供分页查询，返回 diffId；未溢出时差异已全部在结果中，返回 null
+     */
+    private String retainDiffs(DiffSink sink) {
+        if (sink.getSpilled() == 0) {
+            return null;
+        }
+        synchronized (diffSinks) {
+            diffSinks.put(sink.getId(), sink);
+            Iterator<DiffSink> eldest = diffSinks.values().iterator();
+            while (diffSinks.size() > Math.max(1, validatorProperties.getDiffRetention())) {
+                DiffSink expired = eldest.next();
+                eldest.remove();
+                expired.close();
+                log.info("差异集 {} 超过保留次数，已删除溢出文件", expired.getId());
             }
-            
-            Object oracleValue = oracleRow.get(field.toUpperCase());
-            Object postgresValue = postgresRow.get(field.toLowerCase());
-            
-            // 对比值
-            if (!Objects.equals(normalizeValue(oracleValue), normalizeValue(postgresValue))) {
-                differentFields.put(field, FieldValuePair.builder()
-                        .fieldName(field)
-                        .oracleValue(oracleValue)
-                        .postgresValue(postgresValue)
-                        .build());
+        }
+        return sink.getId();
+    }
+    
+    /**
+     * 对比失败时丢弃差异集：撤销登记（分区对比可能已登记共享的差异集），关闭并删除溢出文件
+     */
+    private void discardDiffs(DiffSink sink) {
+        if (sink.getId() != null) {
+            synchronized (diffSinks) {
+                diffSinks.remove(sink.getId(), sink);
             }
         }
-        
-        if (differentFields.isEmpty()) {
-            return null;
+        sink.close();
+    }
+    
+    /**
+     * 查找已登记的差异集，不存在（未溢出或已过期）时返回 null
+     */
+    public DiffSink getDiffSink(String diffId) {
+        synchronized (diffSinks) {
+            return diffId != null ? diffSinks.get(diffId) : null;
         }
-        
+    }
+    
+    /**
+     * 分页查询差异集中的字段差异（按发现顺序，包含内存部分与溢出部分）
+     *
+     * @throws IllegalArgumentException 差异集不存在或已过期
+     */
+    public List<CompactDifference> pageFieldDifferences(String diffId, long offset, int limit) {
+        DiffSink sink = getDiffSink(diffId);
+        if (sink == null) {
+            throw new IllegalArgumentException("差异集不存在或已过期: " + diffId);
+        }
+        return sink.page(offset, limit);
+    }
+    
+    /**
+     * 查找配置中的对比表（忽略大小写），未配置时返回 null
+     */
+    public String configuredTable(String tableName) {
+        for (String table : validatorProperties.getTables()) {
+            if (table.equalsIgnoreCase(tableName)) {
+                return table;
+            }
+        }
+        return null;
+    }
+    
+    /**
+     * 按主键回查两端的整行数据，用于查看紧凑差异对应的完整记录
+     * 差异字段按当前数据重新对比；某一端不存在该主键时对应整行为 null
+     * 只允许查询配置中的对比表，表名取配置中的写法拼入查询
+     *
+     * @throws IllegalArgumentException 表不在对比配置中
+     */
+    public FieldDifference fetchFullRows(String requestedTable, Object primaryKey) {
+        String tableName = configuredTable(requestedTable);
+        if (tableName == null) {
+            throw new IllegalArgumentException("表不在对比配置中: " + requestedTable);
+        }
+        String keyColumn = validatorProperties.getPrimaryKey();
+        ColumnInfo postgresKey = TableMetadata.loadColumn(postgresJdbcTemplate, tableName, keyColumn);
+        List<Object> keys = Collections.singletonList(primaryKey);
+        KeyLookup.KeyPredicate oraclePredicate = keyLookup().predicate(Dialect.ORACLE, keyColumn, null, keys);
+        KeyLookup.KeyPredicate postgresPredicate = keyLookup().predicate(Dialect.POSTGRESQL, keyColumn, postgresKey, keys);
+        
+        Map<String, Object> oracleRow = oracleJdbcTemplate.queryForList(
+                String.format("SELECT * FROM %s WHERE %s", tableName, oraclePredicate.getSql()),
+                oraclePredicate.getParameters().toArray()).stream().findFirst().orElse(null);
+        Map<String, Object> postgresRow = postgresJdbcTemplate.queryForList(
+                String.format("SELECT * FROM %s WHERE %s", tableName, postgresPredicate.getSql()),
+                postgresPredicate.getParameters().toArray()).stream().findFirst().orElse(null);
+        
+        FieldDifference difference = oracleRow != null && postgresRow != null
+                ? rowComparator(tableName, null).diff(primaryKey, oracleRow, postgresRow)
+                : null;
         return FieldDifference.builder()
                 .primaryKey(primaryKey)
                 .oracleData(oracleRow)
                 .postgresData(postgresRow)
-                .differentFields(differentFields)
+                .differentFields(difference != null ? difference.getDifferentFields() : Collections.emptyMap())
                 .build();
     }
     
+    private KeyLookup keyLookup() {
+        return new KeyLookup(validatorProperties.getOracleKeyLookup());
+    }
+    
     /**
-     * 标准化值（处理类型差异）
+     * 构建两个库的批量主键查询
+     * 主键条件按库生成（PostgreSQL 绑定数组，Oracle 补齐档位或绑定集合），语句形态不随批次长度变化
+     *
+     * @param postgresKey  PostgreSQL 端主键列定义，用于数组参数的类型转换
+     * @param filter       附加过滤条件（以 AND 开头），无则为空串
+     * @param filterParams 附加过滤条件的参数
+     * @param snapshot     一致性读快照，为 null 时读取最新数据
      */
-    private Object normalizeValue(Object value) {
-        if (value == null) {
-            return null;
-        }
+    private BatchPrefetcher.BatchQuery batchQuery(String tableName,
+                                                  String primaryKey,
+                                                  ColumnInfo postgresKey,
+                                                  List<Object> keys,
+                                                  CompiledRowComparator rowComparator,
+                                                  String filter,
+                                                  List<Object> filterParams,
+                                                  ReadSnapshot snapshot) {
+        KeyLookup keyLookup = keyLookup();
+        KeyLookup.KeyPredicate oraclePredicate = keyLookup.predicate(Dialect.ORACLE, primaryKey, null, keys);
+        KeyLookup.KeyPredicate postgresPredicate = keyLookup.predicate(Dialect.POSTGRESQL, primaryKey, postgresKey, keys);
+        
+        List<Object> oracleParams = new ArrayList<>(oraclePredicate.getParameters());
+        oracleParams.addAll(filterParams);
+        List<Object> postgresParams = new ArrayList<>(postgresPredicate.getParameters());
+        postgresParams.addAll(filterParams);
+        
+        return new BatchPrefetcher.BatchQuery(
+                String.format("SELECT %s FROM %s WHERE %s%s", rowComparator.selectList(Dialect.ORACLE, primaryKey),
+                        oracleTable(tableName, snapshot), oraclePredicate.getSql(), filter),
+                oracleParams.toArray(),
+                String.format("SELECT %s FROM %s WHERE %s%s", rowComparator.selectList(Dialect.POSTGRESQL, primaryKey),
+                        tableName, postgresPredicate.getSql(), filter),
+                postgresParams.toArray());
+    }
+    
+    /**
+     * 批量对比记录
+     * 两端结果为列式批次，PostgreSQL 端按主键建立行号索引后逐行对比
+     */
+    private Map<Object, FieldDifference> compareBatch(String primaryKey, 
+                                                      ColumnarBatch oracleData,
+                                                      ColumnarBatch postgresData,
+                                                      CompiledRowComparator rowComparator) {
+        Map<Object, FieldDifference> differences = new HashMap<>();
         
-        // 处理数值类型
-        if (value instanceof Number) {
-            return ((Number) value).doubleValue();
-        }
+        int oracleKeyColumn = oracleData.indexOf(primaryKey);
+        int postgresKeyColumn = postgresData.indexOf(primaryKey);
         
-        // 处理字符串，去除首尾空格
-        if (value instanceof String) {
-            return ((String) value).trim();
+        Map<Object, Integer> postgresRows = new HashMap<>(postgresData.getRowCount() * 2);
+        for (int row = 0; row < postgresData.getRowCount(); row++) {
+            postgresRows.put(KeyOrder.canonicalize(postgresData.getObject(row, postgresKeyColumn)), row);
         }
         
-        // 处理日期时间类型
-        if (value instanceof java.sql.Timestamp) {
-            return ((java.sql.Timestamp) value).getTime();
+        // 对比每条记录
+        CompiledRowComparator.BoundBatches bound = rowComparator.bind(oracleData, postgresData);
+        for (int row = 0; row < oracleData.getRowCount(); row++) {
+            Object key = KeyOrder.canonicalize(oracleData.getObject(row, oracleKeyColumn));
+            Integer postgresRow = postgresRows.get(key);
+            
+            if (postgresRow == null) {
+                continue;
+            }
+            
+            FieldDifference diff = bound.diff(key, row, postgresRow);
+            if (diff != null && !diff.getDifferentFields().isEmpty()) {
+                differences.put(key, diff);
+            }
         }
         
-        if (value instanceof java.sql.Date) {
-            return ((java.sql.Date) value).getTime();
+        return differences;
+    }
+    
+    /**
+     * 编译单表的行对比计划（配置的忽略字段与本次传入的忽略字段合并）
+     */
+    private CompiledRowComparator rowComparator(String tableName, List<String> ignoredFields) {
+        List<String> allIgnoreFields = new ArrayList<>();
+        if (validatorProperties.getIgnoreFields() != null) {
+            allIgnoreFields.addAll(validatorProperties.getIgnoreFields());
         }
-        
-        return value;
+        if (ignoredFields != null) {
+            allIgnoreFields.addAll(ignoredFields);
+        }
+        return CompiledRowComparator.compile(
+                TableMetadata.load(oracleJdbcTemplate, postgresJdbcTemplate, tableName), allIgnoreFields);
     }
     
     /**
@@ -277,8 +1285,10 @@ public class DataComparisonService {
      * @return 表数据总量对比结果
      */
     public TableCountComparison compareTableCount(String tableName, String startTime, String endTime, String timeField) {
-        long oracleCount = getRecordCountWithTimeFilter(oracleJdbcTemplate, tableName, startTime, endTime, timeField);
-        long postgresCount = getRecordCountWithTimeFilter(postgresJdbcTemplate, tableName, startTime, endTime, timeField);
+        LocalDateTime start = parseTime(startTime);
+        LocalDateTime end = parseTime(endTime);
+        long oracleCount = getRecordCountWithTimeFilter(oracleJdbcTemplate, tableName, start, end, timeField);
+        long postgresCount = getRecordCountWithTimeFilter(postgresJdbcTemplate, tableName, start, end, timeField);
         
         Double ratio = oracleCount > 0 ? (double) postgresCount / oracleCount : 0.0;
         
@@ -303,17 +1313,13 @@ public class DataComparisonService {
      * @return 所有表的总量对比结果数组
      */
     public List<TableCountComparison> compareTableCounts(List<String> tableNames, String startTime, String endTime, String timeField) {
-        List<TableCountComparison> results = new ArrayList<>();
-        
-        for (String tableName : tableNames) {
+        return newTableScheduler().run(tableNames, this::estimateRowCount, tableName -> {
             log.info("开始总量对比表: {}", tableName);
             TableCountComparison result = compareTableCount(tableName, startTime, endTime, timeField);
-            results.add(result);
             log.info("表 {} 总量对比完成, Oracle: {}, PostgreSQL: {}, Ratio: {}", 
                     tableName, result.getOracleCount(), result.getPostgresCount(), result.getRatio());
-        }
-        
-        return results;
+            return result;
+        });
     }
     
     /**
@@ -332,6 +1338,22 @@ public class DataComparisonService {
             String startTime, 
             String endTime, 
             String timeField) {
+        return compareSingleTableWithDataFilter(tableName, ignoredFields,
+                parseTime(startTime), parseTime(endTime), timeField);
+    }
+    
+    /**
+     * 需求2：单个表数据对比（带过滤条件），时间范围以 Timestamp 绑定，不依赖数据库的字符串到时间隐式转换
+     *
+     * @param startTime 开始时间（含），为 null 时不过滤
+     * @param endTime   结束时间（含），为 null 时不限上界
+     */
+    public TableDataComparison compareSingleTableWithDataFilter(
+            String tableName,
+            List<String> ignoredFields,
+            LocalDateTime startTime,
+            LocalDateTime endTime,
+            String timeField) {
         
         String primaryKey = validatorProperties.getPrimaryKey();
         
@@ -342,245 +1364,169 @@ public class DataComparisonService {
         log.info("表 {} (带时间过滤) - Oracle记录数: {}, PostgreSQL记录数: {}", 
                 tableName, oracleCount, postgresCount);
         
-        // 获取带时间过滤的主键
-        Set<Object> oracleKeys = getPrimaryKeysWithTimeFilter(oracleJdbcTemplate, tableName, primaryKey, startTime, endTime, timeField);
-        Set<Object> postgresKeys = getPrimaryKeysWithTimeFilter(postgresJdbcTemplate, tableName, primaryKey, startTime, endTime, timeField);
-        
-        // 找出差异主键
-        List<Object> onlyInOracle = oracleKeys.stream()
-                .filter(key -> !postgresKeys.contains(key))
-                .collect(Collectors.toList());
-        
-        List<Object> onlyInPostgres = postgresKeys.stream()
-                .filter(key -> !oracleKeys.contains(key))
-                .collect(Collectors.toList());
-        
-        // 对比共同存在的记录
-        Set<Object> commonKeys = new HashSet<>(oracleKeys);
-        commonKeys.retainAll(postgresKeys);
-        
-        Map<Object, FieldDifference> fieldDifferences = compareRecordsWithDataFilter(
-                tableName, primaryKey, commonKeys, ignoredFields, startTime, endTime, timeField);
-        
-        Double ratio = oracleCount > 0 ? (double) postgresCount / oracleCount : 0.0;
-        
-        return TableDataComparison.builder()
-                .oracleCount(oracleCount)
-                .postgresCount(postgresCount)
-                .ratio(ratio)
-                .onlyInOracle(onlyInOracle)
-                .onlyInPostgres(onlyInPostgres)
-                .fieldDifferences(fieldDifferences)
-                .build();
+        List<Object> onlyInOracle;
+        List<Object> onlyInPostgres;
+        DiffSink fieldDifferences = newDiffSink(tableName);
+        try {
+            TempTableKeyReconciler reconciler = keyReconciler(tableName, primaryKey);
+            if (reconciler != null) {
+                // 一端主键写入另一端临时表，库内求差集并遍历共同主键（两端使用相同的时间过滤条件）
+                List<Object> filterParams = new ArrayList<>();
+                String filter = timeCondition(timeField, startTime, endTime, filterParams);
+                try (TempTableKeyReconciler.Session session = reconciler.open(
+                        tableName, primaryKey, filter, filterParams.toArray())) {
+                    boolean postgresTarget = reconciler.getTarget() == Dialect.POSTGRESQL;
+                    onlyInOracle = postgresTarget ? session.onlyInSource() : session.onlyInTarget();
+                    onlyInPostgres = postgresTarget ? session.onlyInTarget() : session.onlyInSource();
+                    compareRecordsWithDataFilter(tableName, primaryKey,
+                            session.commonBatches(validatorProperties.getBatchSize()),
+                            ignoredFields, startTime, endTime, timeField, fieldDifferences);
+                }
+            } else {
+                // 获取带时间过滤的主键
+                KeySet oracleKeys = getPrimaryKeysWithTimeFilter(oracleJdbcTemplate, tableName, primaryKey, startTime, endTime, timeField);
+                KeySet postgresKeys = getPrimaryKeysWithTimeFilter(postgresJdbcTemplate, tableName, primaryKey, startTime, endTime, timeField);
+            
+                // 找出差异主键
+                onlyInOracle = oracleKeys.difference(postgresKeys);
+            
+                onlyInPostgres = postgresKeys.difference(oracleKeys);
+            
+                // 对比共同存在的记录
+                compareRecordsWithDataFilter(tableName, primaryKey,
+                        oracleKeys.intersectionBatches(postgresKeys, validatorProperties.getBatchSize()),
+                        ignoredFields, startTime, endTime, timeField, fieldDifferences);
+            }
+            
+            Double ratio = oracleCount > 0 ? (double) postgresCount / oracleCount : 0.0;
+            onlyInOracle.forEach(fieldDifferences::onlyInOracle);
+            onlyInPostgres.forEach(fieldDifferences::onlyInPostgres);
+            
+            return TableDataComparison.builder()
+                    .startTime(startTime != null ? startTime.format(TIME_FORMAT) : null)
+                    .oracleCount(oracleCount)
+                    .postgresCount(postgresCount)
+                    .ratio(ratio)
+                    .onlyInOracle(retainedKeys(onlyInOracle, fieldDifferences))
+                    .onlyInPostgres(retainedKeys(onlyInPostgres, fieldDifferences))
+                    .diffColumns(fieldDifferences.getColumns())
+                    .compactDifferences(fieldDifferences.getHead())
+                    .fieldDifferenceCount(fieldDifferences.size())
+                    .diffId(retainDiffs(fieldDifferences))
+                    .summary(fieldDifferences.summarize())
+                    .build();
+        } catch (RuntimeException e) {
+            discardDiffs(fieldDifferences);
+            throw e;
+        }
     }
     
     /**
      * 获取带时间过滤的记录总数
      */
-    private long getRecordCountWithTimeFilter(JdbcTemplate jdbcTemplate, String tableName, String startTime, String endTime, String timeField) {
-        StringBuilder sql = new StringBuilder();
-        sql.append("SELECT COUNT(*) FROM ").append(tableName);
-        
-        if (timeField != null && !timeField.trim().isEmpty() && startTime != null && !startTime.trim().isEmpty()) {
-            sql.append(" WHERE ").append(timeField).append(" >= ?");
-            if (endTime != null && !endTime.trim().isEmpty()) {
-                sql.append(" AND ").append(timeField).append(" <= ?");
-            }
-        }
-        
-        if (timeField != null && !timeField.trim().isEmpty() && startTime != null && !startTime.trim().isEmpty() && endTime != null && !endTime.trim().isEmpty()) {
-            return jdbcTemplate.queryForObject(sql.toString(), Long.class, startTime, endTime);
-        } else if (timeField != null && !timeField.trim().isEmpty() && startTime != null && !startTime.trim().isEmpty()) {
-            return jdbcTemplate.queryForObject(sql.toString(), Long.class, startTime);
-        } else {
+    private long getRecordCountWithTimeFilter(JdbcTemplate jdbcTemplate, String tableName, LocalDateTime startTime, LocalDateTime endTime, String timeField) {
+        List<Object> params = new ArrayList<>();
+        String condition = timeCondition(timeField, startTime, endTime, params);
+        if (condition == null) {
             // 如果没有时间过滤条件，则查询全部
             return getRecordCount(jdbcTemplate, tableName);
         }
+        Long count = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM " + tableName + " WHERE " + condition,
+                Long.class, params.toArray());
+        return count != null ? count : 0L;
     }
     
     /**
      * 获取带时间过滤的主键
      */
-    private Set<Object> getPrimaryKeysWithTimeFilter(JdbcTemplate jdbcTemplate, 
-                                                     String tableName, 
-                                                     String primaryKey, 
-                                                     String startTime, 
-                                                     String endTime, 
-                                                     String timeField) {
-        StringBuilder sql = new StringBuilder();
-        sql.append("SELECT ").append(primaryKey).append(" FROM ").append(tableName);
-        
-        if (timeField != null && !timeField.trim().isEmpty() && startTime != null && !startTime.trim().isEmpty()) {
-            sql.append(" WHERE ").append(timeField).append(" >= ?");
-            if (endTime != null && !endTime.trim().isEmpty()) {
-                sql.append(" AND ").append(timeField).append(" <= ?");
-            }
-        }
-        
-        if (timeField != null && !timeField.trim().isEmpty() && startTime != null && !startTime.trim().isEmpty() && endTime != null && !endTime.trim().isEmpty()) {
-            List<Object> keys = jdbcTemplate.queryForList(sql.toString(), Object.class, startTime, endTime);
-            return new HashSet<>(keys);
-        } else if (timeField != null && !timeField.trim().isEmpty() && startTime != null && !startTime.trim().isEmpty()) {
-            List<Object> keys = jdbcTemplate.queryForList(sql.toString(), Object.class, startTime);
-            return new HashSet<>(keys);
-        } else {
+    private KeySet getPrimaryKeysWithTimeFilter(JdbcTemplate jdbcTemplate, 
+                                                String tableName, 
+                                                String primaryKey, 
+                                                LocalDateTime startTime, 
+                                                LocalDateTime endTime, 
+                                                String timeField) {
+        List<Object> params = new ArrayList<>();
+        String condition = timeCondition(timeField, startTime, endTime, params);
+        if (condition == null) {
             // 如果没有时间过滤条件，则查询全部
             return getPrimaryKeys(jdbcTemplate, tableName, primaryKey);
         }
+        return KeySet.load(jdbcTemplate,
+                "SELECT " + primaryKey + " FROM " + tableName + " WHERE " + condition,
+                params.toArray(), validatorProperties.getFetchSize());
     }
     
     /**
-     * 对比带过滤条件的记录
+     * 对比带过滤条件的记录，字段差异写入 differences
+     * 每批主键在两个库并发查询，回查与对比重叠执行（见 runBatches）
      */
-    private Map<Object, FieldDifference> compareRecordsWithDataFilter(String tableName, 
-                                                                 String primaryKey, 
-                                                                 Set<Object> commonKeys,
-                                                                 List<String> ignoredFields,
-                                                                 String startTime,
-                                                                 String endTime,
-                                                                 String timeField) {
-        Map<Object, FieldDifference> differences = new HashMap<>();
-        
-        // 批量处理
-        List<Object> keyList = new ArrayList<>(commonKeys);
-        int batchSize = validatorProperties.getBatchSize();
-        
-        for (int i = 0; i < keyList.size(); i += batchSize) {
-            int end = Math.min(i + batchSize, keyList.size());
-            List<Object> batch = keyList.subList(i, end);
-            
-            Map<Object, FieldDifference> batchDiff = compareBatchWithDataFilter(
-                    tableName, primaryKey, batch, ignoredFields, startTime, endTime, timeField);
-            differences.putAll(batchDiff);
-        }
-        
-        return differences;
+    private void compareRecordsWithDataFilter(String tableName, 
+                                              String primaryKey, 
+                                              Iterator<List<Object>> batches,
+                                              List<String> ignoredFields,
+                                              LocalDateTime startTime,
+                                              LocalDateTime endTime,
+                                              String timeField,
+                                              DiffSink differences) {
+        CompiledRowComparator rowComparator = rowComparator(tableName, ignoredFields);
+        ColumnInfo postgresKey = TableMetadata.loadColumn(postgresJdbcTemplate, tableName, primaryKey);
+        runBatches(tableName, primaryKey, batches,
+                batch -> batchQueryWithDataFilter(tableName, primaryKey, postgresKey, batch, rowComparator,
+                        startTime, endTime, timeField),
+                rowComparator, differences::add, null);
     }
     
     /**
-     * 批量对比带过滤条件的记录
+     * 构建带时间过滤条件的批量主键查询
      */
-    private Map<Object, FieldDifference> compareBatchWithDataFilter(String tableName, 
-                                                                  String primaryKey, 
-                                                                  List<Object> keys,
-                                                                  List<String> ignoredFields,
-                                                                  String startTime,
-                                                                  String endTime,
-                                                                  String timeField) {
-        Map<Object, FieldDifference> differences = new HashMap<>();
-        
-        // 构建 IN 查询
-        String inClause = keys.stream()
-                .map(k -> "?")
-                .collect(Collectors.joining(","));
-        
-        StringBuilder sql = new StringBuilder();
-        sql.append("SELECT * FROM ").append(tableName).append(" WHERE ").append(primaryKey).append(" IN (").append(inClause).append(")");
+    private BatchPrefetcher.BatchQuery batchQueryWithDataFilter(String tableName,
+                                                                String primaryKey,
+                                                                ColumnInfo postgresKey,
+                                                                List<Object> keys,
+                                                                CompiledRowComparator rowComparator,
+                                                                LocalDateTime startTime,
+                                                                LocalDateTime endTime,
+                                                                String timeField) {
+        List<Object> params = new ArrayList<>();
         
         // 添加时间过滤条件
-        if (timeField != null && !timeField.trim().isEmpty() && startTime != null && !startTime.trim().isEmpty()) {
-            sql.append(" AND ").append(timeField).append(" >= ?");
-            if (endTime != null && !endTime.trim().isEmpty()) {
-                sql.append(" AND ").append(timeField).append(" <= ?");
-            }
-        }
-        
-        List<Object> params = new ArrayList<>(keys);
-        if (timeField != null && !timeField.trim().isEmpty() && startTime != null && !startTime.trim().isEmpty()) {
-            params.add(startTime);
-            if (endTime != null && !endTime.trim().isEmpty()) {
-                params.add(endTime);
-            }
-        }
-        
-        // 查询 Oracle 数据
-        List<Map<String, Object>> oracleData = oracleJdbcTemplate.queryForList(
-                sql.toString(), params.toArray());
-        Map<Object, Map<String, Object>> oracleMap = oracleData.stream()
-                .collect(Collectors.toMap(
-                        row -> row.get(primaryKey.toUpperCase()),
-                        row -> row
-                ));
-        
-        // 查询 PostgreSQL 数据
-        List<Map<String, Object>> postgresData = postgresJdbcTemplate.queryForList(
-                sql.toString(), params.toArray());
-        Map<Object, Map<String, Object>> postgresMap = postgresData.stream()
-                .collect(Collectors.toMap(
-                        row -> row.get(primaryKey.toLowerCase()),
-                        row -> row
-                ));
-        
-        // 对比每条记录
-        for (Object key : keys) {
-            Map<String, Object> oracleRow = oracleMap.get(key);
-            Map<String, Object> postgresRow = postgresMap.get(key);
-            
-            if (oracleRow == null || postgresRow == null) {
-                continue;
-            }
-            
-            FieldDifference diff = compareRowWithIgnoredFields(key, oracleRow, postgresRow, ignoredFields);
-            if (diff != null && !diff.getDifferentFields().isEmpty()) {
-                differences.put(key, diff);
-            }
-        }
+        String condition = timeCondition(timeField, startTime, endTime, params);
+        String filter = condition != null ? " AND " + condition : "";
         
-        return differences;
+        return batchQuery(tableName, primaryKey, postgresKey, keys, rowComparator, filter, params, null);
     }
     
     /**
-     * 对比单行数据（带忽略字段）
+     * 构建时间过滤条件（不含 WHERE/AND），参数以 Timestamp 追加到 params；无时间过滤时返回 null
      */
-    private FieldDifference compareRowWithIgnoredFields(Object primaryKey, 
-                                                        Map<String, Object> oracleRow, 
-                                                        Map<String, Object> postgresRow,
-                                                        List<String> ignoredFields) {
-        Map<String, FieldValuePair> differentFields = new HashMap<>();
-        List<String> configuredIgnoreFields = validatorProperties.getIgnoreFields();
-        
-        // 合并配置的忽略字段和传入的忽略字段
-        Set<String> allIgnoreFields = new HashSet<>();
-        if (configuredIgnoreFields != null) {
-            allIgnoreFields.addAll(configuredIgnoreFields.stream().map(String::toLowerCase).collect(Collectors.toSet()));
+    private static String timeCondition(String timeField, LocalDateTime startTime, LocalDateTime endTime, List<Object> params) {
+        if (timeField == null || timeField.trim().isEmpty() || startTime == null) {
+            return null;
         }
-        if (ignoredFields != null) {
-            allIgnoreFields.addAll(ignoredFields.stream().map(String::toLowerCase).collect(Collectors.toSet()));
+        StringBuilder condition = new StringBuilder();
+        condition.append(timeField).append(" >= ?");
+        params.add(Timestamp.valueOf(startTime));
+        if (endTime != null) {
+            condition.append(" AND ").append(timeField).append(" <= ?");
+            params.add(Timestamp.valueOf(endTime));
         }
-        
-        // 获取所有字段名（Oracle 通常是大写，PostgreSQL 通常是小写）
-        Set<String> allFields = new HashSet<>();
-        oracleRow.keySet().forEach(k -> allFields.add(k.toLowerCase()));
-        postgresRow.keySet().forEach(k -> allFields.add(k.toLowerCase()));
-        
-        for (String field : allFields) {
-            // 跳过忽略字段
-            if (allIgnoreFields.contains(field.toLowerCase())) {
-                continue;
-            }
-            
-            Object oracleValue = oracleRow.get(field.toUpperCase());
-            Object postgresValue = postgresRow.get(field.toLowerCase());
-            
-            // 对比值
-            if (!Objects.equals(normalizeValue(oracleValue), normalizeValue(postgresValue))) {
-                differentFields.put(field, FieldValuePair.builder()
-                        .fieldName(field)
-                        .oracleValue(oracleValue)
-                        .postgresValue(postgresValue)
-                        .build());
-            }
-        }
-        
-        if (differentFields.isEmpty()) {
+        return condition.toString();
+    }
+    
+    /**
+     * 解析接口传入的时间（yyyy-MM-dd HH:mm:ss 或 yyyy-MM-dd），为空时返回 null
+     */
+    static LocalDateTime parseTime(String time) {
+        if (time == null || time.trim().isEmpty()) {
             return null;
         }
-        
-        return FieldDifference.builder()
-                .primaryKey(primaryKey)
-                .oracleData(oracleRow)
-                .postgresData(postgresRow)
-                .differentFields(differentFields)
-                .build();
+        String value = time.trim();
+        try {
+            return value.length() <= 10
+                    ? LocalDate.parse(value).atStartOfDay()
+                    : LocalDateTime.parse(value, TIME_FORMAT);
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("时间格式应为 yyyy-MM-dd HH:mm:ss: " + time, e);
+        }
     }
 }
@@ -1,7 +1,8 @@
 package com.example.dbvalidator.service;
 
+import com.example.dbvalidator.engine.DiffSink;
+import com.example.dbvalidator.model.CompactDifference;
 import com.example.dbvalidator.model.ComparisonResult;
-import com.example.dbvalidator.model.FieldDifference;
 import com.example.dbvalidator.model.ValidationRecord;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.RequiredArgsConstructor;
@@ -28,6 +29,7 @@ import java.util.zip.GZIPOutputStream;
 public class EnhancedReportService {
     
     private final ObjectMapper objectMapper;
+    private final DataComparisonService comparisonService;
     private static final String REPORT_BASE_DIR = "reports";
     private static final int MAX_DETAIL_RECORDS = 100; // 每个报告最多显示的详细差异记录数
     
@@ -83,19 +85,47 @@ public class EnhancedReportService {
         report.append(String.format("表: %s\n", result.getTableName()));
         report.append(String.format("  Oracle: %,d 条 | PostgreSQL: %,d 条 | 耗时: %d ms\n",
                 result.getOracleCount(), result.getPostgresCount(), result.getDurationMs()));
+        if (result.getOracleScn() != null) {
+            report.append(String.format("  快照: Oracle SCN %d | PostgreSQL %s\n",
+                    result.getOracleScn(), result.getPostgresSnapshot()));
+        }
+        if (result.getRecheckedKeys() > 0) {
+            report.append(String.format("  复查: %d 个差异主键 | 瞬时差异 %d 个\n",
+                    result.getRecheckedKeys(), result.getTransientKeys()));
+        }
         
-        if (!result.getOnlyInOracle().isEmpty()) {
-            report.append(String.format("  ⚠ 仅在 Oracle: %d 条\n", result.getOnlyInOracle().size()));
+        if (onlyInOracleCount(result) > 0) {
+            report.append(String.format("  ⚠ 仅在 Oracle: %d 条\n", onlyInOracleCount(result)));
+        }
+        if (onlyInPostgresCount(result) > 0) {
+            report.append(String.format("  ⚠ 仅在 PostgreSQL: %d 条\n", onlyInPostgresCount(result)));
         }
-        if (!result.getOnlyInPostgres().isEmpty()) {
-            report.append(String.format("  ⚠ 仅在 PostgreSQL: %d 条\n", result.getOnlyInPostgres().size()));
+        if (result.getFieldDifferenceCount() > 0) {
+            report.append(String.format("  ⚠ 字段差异: %d 条\n", result.getFieldDifferenceCount()));
         }
-        if (!result.getFieldDifferences().isEmpty()) {
-            report.append(String.format("  ⚠ 字段差异: %d 条\n", result.getFieldDifferences().size()));
+        if (result.getSummary() != null && !result.getSummary().getColumnMismatches().isEmpty()) {
+            report.append("  差异最多的列: ").append(result.getSummary().getColumnMismatches().entrySet().stream()
+                    .limit(5)
+                    .map(entry -> entry.getKey() + "(" + entry.getValue() + ")")
+                    .collect(Collectors.joining(", "))).append("\n");
         }
         report.append("\n");
     }
     
+    /**
+     * 仅在 Oracle 中存在的记录数（只汇总模式下主键列表不保留，以差异汇总为准）
+     */
+    private long onlyInOracleCount(ComparisonResult result) {
+        return result.getSummary() != null ? result.getSummary().getMissingCount() : result.getOnlyInOracle().size();
+    }
+    
+    /**
+     * 仅在 PostgreSQL 中存在的记录数（只汇总模式下主键列表不保留，以差异汇总为准）
+     */
+    private long onlyInPostgresCount(ComparisonResult result) {
+        return result.getSummary() != null ? result.getSummary().getExtraCount() : result.getOnlyInPostgres().size();
+    }
+    
     /**
      * 生成分段报告（按日期范围）
      */
@@ -238,23 +268,19 @@ public class EnhancedReportService {
                 writer.write(String.format("%s,全部,不存在,存在,记录多余\n", key));
             }
             
-            // 字段值差异
-            for (Map.Entry<Object, FieldDifference> entry : 
-                    result.getFieldDifferences().entrySet()) {
-                Object primaryKey = entry.getKey();
-                FieldDifference diff = entry.getValue();
-                
-                diff.getDifferentFields().forEach((fieldName, pair) -> {
-                    try {
-                        writer.write(String.format("%s,%s,%s,%s,字段不一致\n",
-                                primaryKey,
-                                fieldName,
-                                escapeCSV(pair.getOracleValue()),
-                                escapeCSV(pair.getPostgresValue())));
-                    } catch (IOException e) {
-                        log.error("写入 CSV 失败", e);
-                    }
-                });
+            // 字段值差异（差异集溢出到磁盘时流式读取全部差异）
+            DiffSink sink = comparisonService.getDiffSink(result.getDiffId());
+            if (sink != null) {
+                List<String> columns = sink.getColumns();
+                sink.forEach(diff -> writeDifferenceRows(writer, diff, columns));
+            } else {
+                if (result.getDiffId() != null) {
+                    log.warn("差异集 {} 已过期，CSV 只包含内存中保留的 {} 条字段差异",
+                            result.getDiffId(), result.getCompactDifferences().size());
+                }
+                for (CompactDifference diff : result.getCompactDifferences()) {
+                    writeDifferenceRows(writer, diff, result.getDiffColumns());
+                }
             }
         }
         
@@ -262,6 +288,23 @@ public class EnhancedReportService {
         return filePath.toString();
     }
     
+    /**
+     * 写入一条记录的字段差异明细行
+     */
+    private void writeDifferenceRows(BufferedWriter writer, CompactDifference diff, List<String> columns) {
+        for (int i = 0; i < diff.getColumns().length; i++) {
+            try {
+                writer.write(String.format("%s,%s,%s,%s,字段不一致\n",
+                        diff.getPrimaryKey(),
+                        columns.get(diff.getColumns()[i]),
+                        escapeCSV(diff.getOracleValues()[i]),
+                        escapeCSV(diff.getPostgresValues()[i])));
+            } catch (IOException e) {
+                log.error("写入 CSV 失败", e);
+            }
+        }
+    }
+    
     /**
      * CSV 值转义
      */
@@ -286,9 +329,9 @@ public class EnhancedReportService {
                 .oracleCount(result.getOracleCount())
                 .postgresCount(result.getPostgresCount())
                 .isConsistent(result.isConsistent())
-                .onlyInOracleCount(result.getOnlyInOracle().size())
-                .onlyInPostgresCount(result.getOnlyInPostgres().size())
-                .fieldDifferenceCount(result.getFieldDifferences().size())
+                .onlyInOracleCount((int) onlyInOracleCount(result))
+                .onlyInPostgresCount((int) onlyInPostgresCount(result))
+                .fieldDifferenceCount((int) result.getFieldDifferenceCount())
                 .durationMs(result.getDurationMs())
                 .validationTime(LocalDateTime.now())
                 .build();
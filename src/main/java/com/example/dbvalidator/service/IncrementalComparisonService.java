@@ -0,0 +1,122 @@
+package com.example.dbvalidator.service;
+
+import com.example.dbvalidator.config.ValidatorProperties;
+import com.example.dbvalidator.model.DifferenceSummary;
+import com.example.dbvalidator.model.TableDataComparison;
+import com.example.dbvalidator.model.TableWatermark;
+import com.example.dbvalidator.repository.WatermarkRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 增量对比服务
+ * 每张表持久化一个水位（上一次成功对比的截止时间），下一次只对比时间字段在
+ * [水位 - 重叠时间, 当前) 之后变更的行；没有水位或时间字段变更时退回全量对比。
+ * 截止时间取自源库（Oracle）时钟，与时间字段的写入方一致，不受本机时钟偏差影响。
+ * <p>
+ * 增量对比只能看到时间字段落在窗口内的行：源库删除的行（目标库残留的旧行时间字段在窗口之前），
+ * 以及变更时不更新时间字段的行都不会被对比，需定期重置水位做全量对比。
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class IncrementalComparisonService {
+    
+    private final JdbcTemplate oracleJdbcTemplate;
+    private final DataComparisonService comparisonService;
+    private final WatermarkRepository watermarkRepository;
+    private final ValidatorProperties validatorProperties;
+    
+    /**
+     * 增量对比所有配置了增量字段的表
+     *
+     * @return Key: 表名
+     */
+    public Map<String, TableDataComparison> compareAllTablesIncremental(List<String> ignoredFields) {
+        Map<String, TableDataComparison> results = new LinkedHashMap<>();
+        for (String tableName : validatorProperties.getTables()) {
+            if (validatorProperties.optionsFor(tableName).getIncrementalField() == null) {
+                log.debug("表 {} 未配置增量字段，跳过增量对比", tableName);
+                continue;
+            }
+            results.put(tableName, compareTableIncremental(tableName, ignoredFields));
+        }
+        return results;
+    }
+    
+    /**
+     * 增量对比单个表，两端一致时将水位推进到本次开始时的源库时间
+     * 存在差异或对比过程中抛出异常时水位不变，下一次从原水位重新对比，未解决的差异行仍在窗口内
+     */
+    public TableDataComparison compareTableIncremental(String tableName, List<String> ignoredFields) {
+        ValidatorProperties.TableOptions options = validatorProperties.optionsFor(tableName);
+        String timeField = options.getIncrementalField();
+        if (timeField == null || timeField.trim().isEmpty()) {
+            throw new IllegalArgumentException("表 " + tableName + " 未配置增量字段 incremental-field");
+        }
+        
+        // 先取截止时间再对比，对比期间提交的行由下一次的重叠窗口覆盖
+        LocalDateTime runStart = sourceTime();
+        
+        TableWatermark previous = watermarkRepository.findByTableName(tableName);
+        LocalDateTime startTime = windowStart(previous, timeField, options.getIncrementalOverlapSeconds());
+        log.info("表 {} 增量对比 - 时间字段: {}, 起始时间: {}", tableName, timeField,
+                startTime != null ? startTime : "无水位，全量对比");
+        
+        TableDataComparison result = comparisonService.compareSingleTableWithDataFilter(
+                tableName, ignoredFields, startTime, null, timeField);
+        
+        if (!isConsistent(result)) {
+            log.warn("表 {} 增量对比存在差异，水位保持不变: {}", tableName,
+                    previous != null ? previous.getWatermark() : "无水位");
+            return result;
+        }
+        watermarkRepository.save(TableWatermark.builder()
+                .tableName(tableName)
+                .timeField(timeField)
+                .watermark(runStart)
+                .build());
+        return result;
+    }
+    
+    /**
+     * 重置表的水位，下一次增量对比退回全量
+     */
+    public void resetWatermark(String tableName) {
+        watermarkRepository.delete(tableName);
+    }
+    
+    /**
+     * 本次增量窗口的起始时间：水位减去重叠时间；没有水位或时间字段已变更时返回 null（全量对比）
+     */
+    static LocalDateTime windowStart(TableWatermark previous, String timeField, long overlapSeconds) {
+        if (previous == null || !timeField.equalsIgnoreCase(previous.getTimeField())) {
+            return null;
+        }
+        return previous.getWatermark().minusSeconds(overlapSeconds);
+    }
+    
+    private static boolean isConsistent(TableDataComparison result) {
+        // 只汇总模式下结果不含主键列表，以汇总计数为准
+        DifferenceSummary summary = result.getSummary();
+        if (summary != null) {
+            return summary.getMissingCount() == 0 && summary.getExtraCount() == 0 && summary.getChangedCount() == 0;
+        }
+        return (result.getOnlyInOracle() == null || result.getOnlyInOracle().isEmpty())
+                && (result.getOnlyInPostgres() == null || result.getOnlyInPostgres().isEmpty())
+                && (result.getFieldDifferenceCount() == null || result.getFieldDifferenceCount() == 0);
+    }
+    
+    private LocalDateTime sourceTime() {
+        Timestamp now = oracleJdbcTemplate.queryForObject("SELECT SYSDATE FROM DUAL", Timestamp.class);
+        return now != null ? now.toLocalDateTime() : LocalDateTime.now();
+    }
+}
@@ -1,8 +1,8 @@
 package com.example.dbvalidator.service;
 
+import com.example.dbvalidator.model.CompactDifference;
 import com.example.dbvalidator.model.ComparisonResult;
-import com.example.dbvalidator.model.FieldDifference;
-import com.example.dbvalidator.model.FieldValuePair;
+import com.example.dbvalidator.model.DifferenceSummary;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -14,7 +14,6 @@ import java.io.IOException;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.List;
-import java.util.Map;
 
 /**
  * 报告生成服务
@@ -60,6 +59,14 @@ public class ReportService {
         report.append(String.format("表名: %s\n", result.getTableName()));
         report.append(String.format("一致性: %s\n", result.isConsistent() ? "✓ 一致" : "✗ 不一致"));
         report.append(String.format("对比耗时: %d ms\n", result.getDurationMs()));
+        if (result.getOracleScn() != null) {
+            report.append(String.format("一致性读快照: Oracle SCN %d, PostgreSQL %s\n",
+                    result.getOracleScn(), result.getPostgresSnapshot()));
+        }
+        if (result.getRecheckedKeys() > 0) {
+            report.append(String.format("延迟复查: %d 个差异主键，其中 %d 个为瞬时差异，未计入结果\n",
+                    result.getRecheckedKeys(), result.getTransientKeys()));
+        }
         report.append("\n");
         
         report.append(String.format("Oracle 记录数: %d\n", result.getOracleCount()));
@@ -80,17 +87,32 @@ public class ReportService {
             report.append("主键列表: ").append(result.getOnlyInPostgres()).append("\n\n");
         }
         
-        // 字段值差异
-        if (!result.getFieldDifferences().isEmpty()) {
+        // 字段值差异（只输出内存中保留的部分，其余按 diffId 分页查询）
+        if (result.getFieldDifferenceCount() > 0) {
             report.append(String.format("字段值不一致的记录数: %d\n\n", 
-                    result.getFieldDifferences().size()));
+                    result.getFieldDifferenceCount()));
+            
+            for (CompactDifference diff : result.getCompactDifferences()) {
+                appendFieldDifference(report, diff, result.getDiffColumns());
+            }
             
-            for (Map.Entry<Object, FieldDifference> entry : 
-                    result.getFieldDifferences().entrySet()) {
-                appendFieldDifference(report, entry.getValue());
+            long omitted = result.getFieldDifferenceCount() - result.getCompactDifferences().size();
+            if (omitted > 0 && result.getDiffId() != null) {
+                report.append(String.format("  ... 其余 %d 条差异已写入溢出文件，可通过 /api/validation/differences/%s 分页查看\n\n",
+                        omitted, result.getDiffId()));
             }
         }
         
+        // 差异汇总（只汇总模式下差异明细不保留，以汇总为准）
+        DifferenceSummary summary = result.getSummary();
+        if (summary != null && !result.isConsistent()) {
+            report.append(String.format("差异汇总: 缺失 %d 条, 多余 %d 条, 字段不一致 %d 条\n",
+                    summary.getMissingCount(), summary.getExtraCount(), summary.getChangedCount()));
+            summary.getColumnMismatches().forEach((column, count) ->
+                    report.append(String.format("  列 [%s] 不一致: %d 条\n", column, count)));
+            report.append("\n");
+        }
+        
         if (result.isConsistent()) {
             report.append("✓ 该表数据完全一致\n");
         }
@@ -101,15 +123,13 @@ public class ReportService {
     /**
      * 添加字段差异详情
      */
-    private void appendFieldDifference(StringBuilder report, FieldDifference diff) {
+    private void appendFieldDifference(StringBuilder report, CompactDifference diff, List<String> columns) {
         report.append(String.format("  主键: %s\n", diff.getPrimaryKey()));
         
-        for (Map.Entry<String, FieldValuePair> entry : 
-                diff.getDifferentFields().entrySet()) {
-            FieldValuePair pair = entry.getValue();
-            report.append(String.format("    字段 [%s]:\n", pair.getFieldName()));
-            report.append(String.format("      Oracle:     %s\n", pair.getOracleValue()));
-            report.append(String.format("      PostgreSQL: %s\n", pair.getPostgresValue()));
+        for (int i = 0; i < diff.getColumns().length; i++) {
+            report.append(String.format("    字段 [%s]:\n", columns.get(diff.getColumns()[i])));
+            report.append(String.format("      Oracle:     %s\n", diff.getOracleValues()[i]));
+            report.append(String.format("      PostgreSQL: %s\n", diff.getPostgresValues()[i]));
         }
         report.append("\n");
     }
@@ -155,8 +175,8 @@ public class ReportService {
                 if (!result.getOnlyInPostgres().isEmpty()) {
                     log.warn("  - 仅在 PostgreSQL: {} 条", result.getOnlyInPostgres().size());
                 }
-                if (!result.getFieldDifferences().isEmpty()) {
-                    log.warn("  - 字段差异: {} 条", result.getFieldDifferences().size());
+                if (result.getFieldDifferenceCount() > 0) {
+                    log.warn("  - 字段差异: {} 条", result.getFieldDifferenceCount());
                 }
             }
         }
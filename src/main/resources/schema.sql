@@ -36,6 +36,14 @@ CREATE TABLE validation_summary (
     INDEX idx_validation_date (validation_date)
 ) COMMENT '数据验证汇总表';
 
+-- 创建增量对比水位表（每表一行，记录上一次成功对比的截止时间）
+CREATE TABLE validation_watermark (
+    table_name VARCHAR(100) PRIMARY KEY COMMENT '表名',
+    time_field VARCHAR(100) NOT NULL COMMENT '增量对比使用的时间字段',
+    watermark DATETIME NOT NULL COMMENT '上一次成功对比的截止时间',
+    updated_time DATETIME NOT NULL COMMENT '更新时间'
+) COMMENT '增量对比水位表';
+
 -- 查询最近7天的验证情况
 SELECT 
     validation_date,
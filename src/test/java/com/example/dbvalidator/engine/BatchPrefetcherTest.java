@@ -0,0 +1,104 @@
+package com.example.dbvalidator.engine;
+
+import org.junit.jupiter.api.Test;
+
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 批量回查预取测试（两端查询以内存数据代替）
+ */
+class BatchPrefetcherTest {
+    
+    @Test
+    void testRun_ShouldHandleBatchesInOrderAndReleaseEachOnce() {
+        FakeFetcher fetcher = new FakeFetcher(2);
+        List<Long> batches = new ArrayList<>();
+        for (long i = 0; i < 30; i++) {
+            batches.add(i);
+        }
+        List<Long> handled = new ArrayList<>();
+        
+        fetcher.run(batches.iterator(), FakeFetcher::query, (batch, oracleRows, postgresRows) -> {
+            // 部分批次查询较慢、晚于后续批次返回，处理顺序仍与批次顺序一致
+            assertEquals(batch.longValue(), oracleRows.getLong(0, 0));
+            assertEquals(batch.longValue(), postgresRows.getLong(0, 0));
+            assertEquals(handled.size(), fetcher.released.size());
+            handled.add(batch);
+        });
+        
+        assertEquals(batches, handled);
+        assertEquals(batches, fetcher.released);
+        // 每个库同时在途的查询不超过 prefetchBatches + 1 个
+        assertTrue(fetcher.maxInFlight.get() <= 2 * fetcher.getConnections(), String.valueOf(fetcher.maxInFlight.get()));
+    }
+    
+    @Test
+    void testRun_WhenNoBatches_ShouldNotQuery() {
+        FakeFetcher fetcher = new FakeFetcher(2);
+        
+        fetcher.run(Collections.<Long>emptyIterator(), FakeFetcher::query, (batch, o, p) -> fail("不应有批次"));
+        
+        assertEquals(0, fetcher.maxInFlight.get());
+    }
+    
+    /**
+     * 按批次号构造单行结果，批次号为 3 的倍数时查询较慢，不访问数据库
+     */
+    private static class FakeFetcher extends BatchPrefetcher {
+        
+        private final AtomicInteger inFlight = new AtomicInteger();
+        
+        private final AtomicInteger maxInFlight = new AtomicInteger();
+        
+        private final List<Long> released = Collections.synchronizedList(new ArrayList<>());
+        
+        private FakeFetcher(int prefetchBatches) {
+            super(null, null, prefetchBatches);
+        }
+        
+        private static BatchQuery query(Long batch) {
+            Object[] parameters = {batch};
+            return new BatchQuery("oracle", parameters, "postgres", parameters);
+        }
+        
+        @Override
+        public ColumnarBatch queryOracle(BatchQuery query) {
+            return rows((Long) query.getOracleParameters()[0]);
+        }
+        
+        @Override
+        public ColumnarBatch queryPostgres(BatchQuery query) {
+            return rows((Long) query.getPostgresParameters()[0]);
+        }
+        
+        @Override
+        public void release(ColumnarBatch oracleRows, ColumnarBatch postgresRows) {
+            assertEquals(oracleRows.getLong(0, 0), postgresRows.getLong(0, 0));
+            released.add(oracleRows.getLong(0, 0));
+        }
+        
+        private ColumnarBatch rows(long batchNo) {
+            maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+            try {
+                TimeUnit.MILLISECONDS.sleep(batchNo % 3 == 0 ? 6 : 1);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException(e);
+            } finally {
+                inFlight.decrementAndGet();
+            }
+            ColumnarBatch batch = new ColumnarBatch();
+            batch.begin(new ColumnarBatch.Columns(new String[]{"id"},
+                    new int[]{Types.BIGINT}, new int[]{19}, new int[]{0}));
+            batch.setLong(batch.appendRow(), 0, batchNo);
+            return batch;
+        }
+    }
+}
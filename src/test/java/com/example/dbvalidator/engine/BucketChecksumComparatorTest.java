@@ -0,0 +1,232 @@
+package com.example.dbvalidator.engine;
+
+import com.example.dbvalidator.model.FieldDifference;
+import com.example.dbvalidator.model.FieldValuePair;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 分桶校验和下钻测试（两端摘要查询以内存数据代替）
+ */
+class BucketChecksumComparatorTest {
+    
+    @Test
+    void testDrillDown_ShouldCompareOnlyLeafBucketsContainingDifferences() {
+        FakeBucketQuery oracle = new FakeBucketQuery();
+        FakeBucketQuery postgres = new FakeBucketQuery();
+        for (long key = 1; key <= 100; key++) {
+            oracle.put(key, key);
+            postgres.put(key, key);
+        }
+        oracle.rows.remove(12L);
+        postgres.rows.remove(80L);
+        postgres.put(37L, 1037L);
+        List<Object> changed = new ArrayList<>();
+        CollectingComparisonListener listener = new CollectingComparisonListener();
+        
+        ScanCounts counts = new BucketChecksumComparator(null, null, 4, 2).drillDown("t", "id",
+                new long[]{1, 100}, oracle, postgres, (key, oracleRow, postgresRow) -> {
+                    if (oracleRow.get("v").equals(postgresRow.get("v"))) {
+                        return null;
+                    }
+                    changed.add(key);
+                    return FieldDifference.builder()
+                            .primaryKey(key)
+                            .differentFields(Collections.singletonMap("v", FieldValuePair.builder()
+                                    .fieldName("v")
+                                    .oracleValue(oracleRow.get("v"))
+                                    .postgresValue(postgresRow.get("v"))
+                                    .build()))
+                            .build();
+                }, listener);
+        
+        assertEquals(99, counts.getOracleRows());
+        assertEquals(99, counts.getPostgresRows());
+        assertEquals(Collections.singletonList(37L), changed);
+        assertEquals(Collections.singletonList(80L), listener.getOnlyInOracle());
+        assertEquals(Collections.singletonList(12L), listener.getOnlyInPostgres());
+        // 只有包含差异的三个叶子桶被逐行拉取，每个叶子桶不超过两行
+        assertEquals(3, oracle.leaves.size());
+        for (long[] leaf : oracle.leaves) {
+            assertTrue(leaf[1] - leaf[0] < 2, Arrays.toString(leaf));
+        }
+        // 桶宽 64、16、4、1 各一层，每层一次摘要查询；三个叶子桶在同一层，合并为一次整行查询
+        assertEquals(4, oracle.digests);
+        assertEquals(1, oracle.rowQueries);
+    }
+    
+    @Test
+    void testDrillDown_WhenManyScatteredDifferences_ShouldQueryOncePerLevel() {
+        FakeBucketQuery oracle = new FakeBucketQuery();
+        FakeBucketQuery postgres = new FakeBucketQuery();
+        for (long key = 0; key < 4096; key++) {
+            oracle.put(key, key);
+            postgres.put(key, key % 97 == 0 ? key + 1 : key);
+        }
+        CollectingComparisonListener listener = new CollectingComparisonListener();
+        
+        new BucketChecksumComparator(null, null, 8, 1).drillDown("t", "id",
+                new long[]{0, 4095}, oracle, postgres, (key, o, p) -> FieldDifference.builder()
+                        .primaryKey(key)
+                        .differentFields(Collections.singletonMap("v", FieldValuePair.builder()
+                                .fieldName("v").oracleValue(o.get("v")).postgresValue(p.get("v")).build()))
+                        .build(), listener);
+        
+        assertEquals(43, listener.getDiffSink().size());
+        // 桶宽 512、64、8、1 共四层，摘要查询次数与差异数量无关
+        assertEquals(4, oracle.digests);
+        assertEquals(4, postgres.digests);
+        assertEquals(1, oracle.rowQueries);
+    }
+    
+    @Test
+    void testLeafChunks_ShouldCapRowsAndBucketsPerQuery() {
+        Map<Long, Long> large = new LinkedHashMap<>();
+        for (long bucket = 0; bucket < 10; bucket++) {
+            large.put(bucket, 6000L);
+        }
+        large.put(10L, 50_000L);
+        List<List<Long>> chunks = BucketChecksumComparator.leafChunks(large);
+        // 每次最多 20000 行：3 个 6000 行的桶一组，超过上限的单个桶独占一次查询
+        assertEquals(Arrays.asList(0L, 1L, 2L), chunks.get(0));
+        assertEquals(Collections.singletonList(9L), chunks.get(3));
+        assertEquals(Collections.singletonList(10L), chunks.get(4));
+        assertEquals(5, chunks.size());
+        
+        Map<Long, Long> many = new LinkedHashMap<>();
+        for (long bucket = 0; bucket < 2500; bucket++) {
+            many.put(bucket, 1L);
+        }
+        assertEquals(3, BucketChecksumComparator.leafChunks(many).size());
+        assertEquals(BucketChecksumComparator.MAX_BUCKETS_PER_QUERY,
+                BucketChecksumComparator.leafChunks(many).get(0).size());
+    }
+    
+    @Test
+    void testFilter_ShouldMergeAdjacentKeyBucketsAndListHashBuckets() {
+        BucketChecksumComparator.BucketQuery keyQuery = new BucketChecksumComparator.BucketQuery(
+                null, Dialect.ORACLE, "t", true, "id", "h");
+        assertEquals("id BETWEEN (1) AND (100)", keyQuery.filter(1, 100, 16, null));
+        assertEquals("(id BETWEEN (17) AND (48) OR id BETWEEN (97) AND (100))",
+                keyQuery.filter(1, 100, 16, Arrays.asList(1L, 2L, 6L)));
+        
+        BucketChecksumComparator.BucketQuery hashQuery = new BucketChecksumComparator.BucketQuery(
+                null, Dialect.POSTGRESQL, "t", false, "hk", "h");
+        assertEquals("hk BETWEEN (0) AND (4294967295) AND FLOOR(CAST(hk - (0) AS NUMERIC) / 16777216) IN (3, 200)",
+                hashQuery.filter(0, 4294967295L, 16777216, Arrays.asList(3L, 200L)));
+    }
+    
+    @Test
+    void testDrillDown_WhenDigestsMatch_ShouldNotFetchRows() {
+        FakeBucketQuery oracle = new FakeBucketQuery();
+        FakeBucketQuery postgres = new FakeBucketQuery();
+        for (long key = 1; key <= 50; key++) {
+            oracle.put(key, key * 31);
+            postgres.put(key, key * 31);
+        }
+        CollectingComparisonListener listener = new CollectingComparisonListener();
+        
+        ScanCounts counts = new BucketChecksumComparator(null, null, 4, 2).drillDown("t", "id",
+                new long[]{1, 50}, oracle, postgres, (key, o, p) -> fail("摘要一致的桶不应逐行对比"), listener);
+        
+        assertEquals(50, counts.getOracleRows());
+        assertTrue(listener.isEmpty());
+        assertEquals(1, oracle.digests);
+        assertTrue(oracle.leaves.isEmpty());
+    }
+    
+    @Test
+    void testLongDomain_WhenRangeNotRepresentable_ShouldReturnNull() {
+        assertArrayEquals(new long[]{-5, 5},
+                BucketChecksumComparator.longDomain(BigDecimal.valueOf(-5), BigDecimal.valueOf(5)));
+        assertArrayEquals(new long[]{0, Long.MAX_VALUE - 1},
+                BucketChecksumComparator.longDomain(BigDecimal.ZERO, BigDecimal.valueOf(Long.MAX_VALUE - 1)));
+        // NUMBER(38,0) 主键超出 long 范围
+        assertNull(BucketChecksumComparator.longDomain(BigDecimal.ONE, new BigDecimal("99999999999999999999")));
+        // 端点在 long 范围内，但区间宽度溢出
+        assertNull(BucketChecksumComparator.longDomain(BigDecimal.valueOf(-1), BigDecimal.valueOf(Long.MAX_VALUE)));
+        assertNull(BucketChecksumComparator.longDomain(
+                BigDecimal.valueOf(Long.MIN_VALUE), BigDecimal.valueOf(Long.MAX_VALUE)));
+    }
+    
+    /**
+     * 按主键取值分桶聚合内存中的行哈希，不访问数据库
+     */
+    private static class FakeBucketQuery extends BucketChecksumComparator.BucketQuery {
+        
+        private final TreeMap<Long, Long> rows = new TreeMap<>();
+        
+        private final List<long[]> leaves = new ArrayList<>();
+        
+        private int digests;
+        
+        private int rowQueries;
+        
+        private FakeBucketQuery() {
+            super(null, Dialect.POSTGRESQL, "t", true, "id", "v");
+        }
+        
+        private void put(long key, long hash) {
+            rows.put(key, hash);
+        }
+        
+        /**
+         * 落在 buckets 各桶内的行，buckets 为 null 时为整个区间
+         */
+        private Map<Long, Long> select(long lo, long hi, long width, List<Long> buckets) {
+            if (buckets == null) {
+                return rows.subMap(lo, true, hi, true);
+            }
+            Map<Long, Long> selected = new TreeMap<>();
+            for (Long bucket : buckets) {
+                long[] range = BucketChecksumComparator.bucketRange(lo, hi, width, bucket);
+                selected.putAll(rows.subMap(range[0], true, range[1], true));
+            }
+            return selected;
+        }
+        
+        @Override
+        Map<Long, BucketChecksumComparator.BucketDigest> digest(long lo, long hi, long width,
+                                                               long parentWidth, List<Long> parents) {
+            digests++;
+            Map<Long, long[]> sums = new HashMap<>();
+            for (Map.Entry<Long, Long> row : select(lo, hi, parentWidth, parents).entrySet()) {
+                long[] sum = sums.computeIfAbsent((row.getKey() - lo) / width, bucket -> new long[2]);
+                sum[0]++;
+                sum[1] += row.getValue();
+            }
+            Map<Long, BucketChecksumComparator.BucketDigest> result = new HashMap<>();
+            sums.forEach((bucket, sum) -> result.put(bucket,
+                    new BucketChecksumComparator.BucketDigest(sum[0], BigDecimal.valueOf(sum[1]))));
+            return result;
+        }
+        
+        @Override
+        Map<Object, Map<String, Object>> rows(long lo, long hi, long width, List<Long> buckets,
+                                              String primaryKey, RowDiffer rowDiffer) {
+            rowQueries++;
+            for (Long bucket : buckets) {
+                leaves.add(BucketChecksumComparator.bucketRange(lo, hi, width, bucket));
+            }
+            Map<Object, Map<String, Object>> result = new LinkedHashMap<>();
+            for (Map.Entry<Long, Long> row : select(lo, hi, width, buckets).entrySet()) {
+                Map<String, Object> values = new HashMap<>();
+                values.put("id", row.getKey());
+                values.put("v", row.getValue());
+                result.put(KeyOrder.canonicalize(row.getKey()), values);
+            }
+            return result;
+        }
+    }
+}
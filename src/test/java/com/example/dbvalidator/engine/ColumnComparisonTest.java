@@ -0,0 +1,42 @@
+package com.example.dbvalidator.engine;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 列值比较规则测试
+ */
+class ColumnComparisonTest {
+    
+    @Test
+    void testNumeric_WhenNumber38DiffersBeyondDoublePrecision_ShouldDetectDifference() {
+        BigDecimal oracleValue = new BigDecimal("12345678901234567890123456789012345678");
+        BigDecimal postgresValue = new BigDecimal("12345678901234567890123456789012345679");
+        
+        assertFalse(ColumnComparison.NUMERIC.equal(oracleValue, postgresValue));
+        assertTrue(ColumnComparison.NUMERIC.equal(new BigDecimal("10.50"), new BigDecimal("10.5")));
+        assertTrue(ColumnComparison.NUMERIC.equal(new BigDecimal("42"), 42L));
+    }
+    
+    @Test
+    void testTemporal_ShouldCompareEpochNanos() {
+        Timestamp oracleValue = Timestamp.valueOf("2024-01-01 10:00:00.123456789");
+        Timestamp postgresValue = Timestamp.valueOf("2024-01-01 10:00:00.123456");
+        
+        assertFalse(ColumnComparison.TEMPORAL.equal(oracleValue, postgresValue));
+        assertTrue(ColumnComparison.TEMPORAL.equal(Timestamp.valueOf("2024-01-01 10:00:00"),
+                Timestamp.valueOf(LocalDateTime.of(2024, 1, 1, 10, 0))));
+    }
+    
+    @Test
+    void testCharacter_ShouldIgnorePadding() {
+        assertTrue(ColumnComparison.CHARACTER.equal("ABC   ", "ABC"));
+        assertFalse(ColumnComparison.CHARACTER.equal("ABC", "ABD"));
+        assertFalse(ColumnComparison.CHARACTER.equal("", null));
+    }
+}
@@ -0,0 +1,120 @@
+package com.example.dbvalidator.engine;
+
+import com.example.dbvalidator.model.FieldDifference;
+import com.example.dbvalidator.model.PipelineStats;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 多阶段对比流水线测试（两端回查以内存数据代替）
+ */
+class ComparisonPipelineTest {
+    
+    @Test
+    void testRun_ShouldCompareEveryBatchAndCollectAllDifferences() {
+        List<List<Object>> batches = new ArrayList<>();
+        for (long start = 0; start < 1000; start += 50) {
+            batches.add(LongStream.range(start, start + 50).boxed().collect(Collectors.toList()));
+        }
+        ComparisonPipeline pipeline = new ComparisonPipeline("t", new FakeFetcher(-1), 2, 3, 2);
+        Set<Object> compared = ConcurrentHashMap.newKeySet();
+        List<FieldDifference> differences = new ArrayList<>();
+        
+        pipeline.run(batches.iterator(), FakeFetcher::query, (batch, oracleRows, postgresRows) -> {
+            List<FieldDifference> found = new ArrayList<>();
+            for (int row = 0; row < oracleRows.getRowCount(); row++) {
+                long key = oracleRows.getLong(row, 0);
+                assertEquals(key, postgresRows.getLong(row, 0));
+                compared.add(key);
+                if (key % 7 == 0) {
+                    found.add(FieldDifference.builder().primaryKey(key).build());
+                }
+            }
+            return found;
+        }, differences::add);
+        
+        assertEquals(1000, compared.size());
+        assertEquals(143, differences.size());
+        PipelineStats stats = pipeline.snapshot();
+        assertFalse(stats.isRunning());
+        assertEquals(5, stats.getStages().size());
+        for (PipelineStats.Stage stage : stats.getStages().subList(0, 4)) {
+            assertEquals(20, stage.getItems(), stage.getName());
+            assertEquals(1000, stage.getRows(), stage.getName());
+        }
+        assertEquals(143, stats.getStages().get(4).getRows());
+        for (PipelineStats.Queue queue : stats.getQueues()) {
+            assertEquals(0, queue.getDepth(), queue.getName());
+            assertTrue(queue.getMaxDepth() <= 2, queue.getName());
+        }
+    }
+    
+    @Test
+    void testRun_ShouldRethrowFetchFailureAndStopOtherStages() {
+        List<List<Object>> batches = new ArrayList<>();
+        for (long i = 0; i < 100; i++) {
+            batches.add(Collections.singletonList(i));
+        }
+        ComparisonPipeline pipeline = new ComparisonPipeline("t", new FakeFetcher(30), 1, 1, 1);
+        
+        IllegalStateException e = assertThrows(IllegalStateException.class, () -> pipeline.run(
+                batches.iterator(), FakeFetcher::query, (batch, o, p) -> Collections.emptyList(), d -> { }));
+        assertEquals("fetch failed", e.getMessage());
+        assertFalse(pipeline.snapshot().isRunning());
+    }
+    
+    /**
+     * 按批次中的主键构造单列结果，不访问数据库
+     */
+    private static class FakeFetcher extends BatchPrefetcher {
+        
+        private final long failAt;
+        
+        private FakeFetcher(long failAt) {
+            super(null, null, 1);
+            this.failAt = failAt;
+        }
+        
+        private static BatchQuery query(List<Object> keys) {
+            Object[] parameters = keys.toArray();
+            return new BatchQuery("oracle", parameters, "postgres", parameters);
+        }
+        
+        @Override
+        public ColumnarBatch queryOracle(BatchQuery query) {
+            return rows(query.getOracleParameters());
+        }
+        
+        @Override
+        public ColumnarBatch queryPostgres(BatchQuery query) {
+            return rows(query.getPostgresParameters());
+        }
+        
+        @Override
+        public void release(ColumnarBatch oracleRows, ColumnarBatch postgresRows) {
+        }
+        
+        private ColumnarBatch rows(Object[] keys) {
+            ColumnarBatch batch = new ColumnarBatch();
+            batch.begin(new ColumnarBatch.Columns(new String[]{"id"},
+                    new int[]{Types.BIGINT}, new int[]{19}, new int[]{0}));
+            for (Object key : keys) {
+                if ((Long) key == failAt) {
+                    throw new IllegalStateException("fetch failed");
+                }
+                batch.setLong(batch.appendRow(), 0, (Long) key);
+            }
+            return batch;
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package com.example.dbvalidator.engine;
+
+import com.example.dbvalidator.model.CompactDifference;
+import com.example.dbvalidator.model.FieldDifference;
+import com.example.dbvalidator.model.FieldValuePair;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 差异溢出收集器测试
+ */
+class DiffSinkTest {
+    
+    @Test
+    void testAdd_ShouldSpillBeyondMemoryLimitAndPageInOrder(@TempDir Path dir) {
+        Path file = dir.resolve("diffs").resolve("user_info.jsonl");
+        DiffSink sink = new DiffSink("user_info", 10, file);
+        for (long key = 0; key < 1000; key++) {
+            sink.add(difference(key));
+        }
+        
+        assertEquals(1000, sink.size());
+        assertEquals(990, sink.getSpilled());
+        assertEquals(10, sink.getHead().size());
+        assertTrue(Files.isRegularFile(file));
+        
+        // 跨越内存与溢出文件边界、跨越稀疏索引点
+        List<CompactDifference> page = sink.page(5, 600);
+        assertEquals(600, page.size());
+        assertEquals(5L, page.get(0).getPrimaryKey());
+        assertEquals(10, ((Number) page.get(5).getPrimaryKey()).longValue());
+        assertEquals(604, ((Number) page.get(599).getPrimaryKey()).longValue());
+        assertEquals("o604", page.get(599).getOracleValues()[0]);
+        assertEquals("p604", page.get(599).toFieldDifference(sink.getColumns())
+                .getDifferentFields().get("name").getPostgresValue());
+        assertEquals(1, sink.page(999, 100).size());
+        assertTrue(sink.page(1000, 100).isEmpty());
+        
+        List<Object> keys = new ArrayList<>();
+        sink.forEach(diff -> keys.add(diff.getPrimaryKey()));
+        assertEquals(1000, keys.size());
+        
+        sink.close();
+        assertFalse(Files.exists(file));
+    }
+    
+    @Test
+    void testAdd_ShouldKeepOnlyDifferingColumnsByDictionaryIndex() {
+        DiffSink sink = DiffSink.inMemory();
+        Map<String, FieldValuePair> fields = new LinkedHashMap<>();
+        fields.put("status", new FieldValuePair("status", 1, 2));
+        fields.put("name", new FieldValuePair("name", "a", "b"));
+        sink.add(FieldDifference.builder().primaryKey(1L).differentFields(fields)
+                .oracleData(Collections.singletonMap("name", "a")).build());
+        sink.add(difference(2L));
+        
+        assertEquals(Arrays.asList("status", "name"), sink.getColumns());
+        CompactDifference first = sink.getHead().get(0);
+        assertArrayEquals(new int[]{0, 1}, first.getColumns());
+        assertArrayEquals(new Object[]{1, "a"}, first.getOracleValues());
+        assertArrayEquals(new int[]{1}, sink.getHead().get(1).getColumns());
+        assertNull(first.toFieldDifference(sink.getColumns()).getOracleData());
+    }
+    
+    @Test
+    void testInMemory_ShouldNeverSpill() {
+        DiffSink sink = DiffSink.inMemory();
+        for (long key = 0; key < 100; key++) {
+            sink.add(difference(key));
+        }
+        
+        assertEquals(100, sink.size());
+        assertEquals(0, sink.getSpilled());
+        assertEquals(100, sink.getHead().size());
+    }
+    
+    private static FieldDifference difference(long key) {
+        return FieldDifference.builder()
+                .primaryKey(key)
+                .differentFields(Collections.singletonMap("name",
+                        new FieldValuePair("name", "o" + key, "p" + key)))
+                .build();
+    }
+}
@@ -0,0 +1,57 @@
+package com.example.dbvalidator.engine;
+
+import com.example.dbvalidator.model.CompactDifference;
+import com.example.dbvalidator.model.DifferenceSummary;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 差异汇总测试
+ */
+class DiffSummarizerTest {
+    
+    @Test
+    void testSummarize_ShouldCountExactlyAndKeepFixedSizeSample() {
+        DiffSummarizer summarizer = new DiffSummarizer(10, new SplittableRandom(42));
+        for (long key = 0; key < 100_000; key++) {
+            int[] columns = key % 3 == 0 ? new int[]{0, 1} : new int[]{1};
+            summarizer.changed(new CompactDifference(key, columns, new Object[columns.length], new Object[columns.length]));
+        }
+        for (long key = 0; key < 500; key++) {
+            summarizer.missing(key);
+        }
+        summarizer.extra(-1L);
+        
+        DifferenceSummary summary = summarizer.summarize(Arrays.asList("name", "status"));
+        
+        assertEquals(500, summary.getMissingCount());
+        assertEquals(1, summary.getExtraCount());
+        assertEquals(100_000, summary.getChangedCount());
+        assertEquals(100_501, summarizer.getTotal());
+        // 按计数降序
+        assertEquals(Arrays.asList("status", "name"), Arrays.asList(summary.getColumnMismatches().keySet().toArray()));
+        assertEquals(100_000L, summary.getColumnMismatches().get("status"));
+        assertEquals(33_334L, summary.getColumnMismatches().get("name"));
+        assertEquals(10, summary.getExamples().size());
+        // 样例不应全部来自最先出现的差异
+        assertTrue(summary.getExamples().stream().anyMatch(e -> ((Long) e.getPrimaryKey()) >= 10));
+    }
+    
+    @Test
+    void testSummarize_WhenFewerDifferencesThanSampleSize_ShouldKeepAll() {
+        DiffSummarizer summarizer = new DiffSummarizer(10);
+        summarizer.missing(1L);
+        summarizer.extra(2L);
+        
+        DifferenceSummary summary = summarizer.summarize(Arrays.asList());
+        
+        assertEquals(2, summary.getExamples().size());
+        assertEquals(DifferenceSummary.KIND_MISSING, summary.getExamples().get(0).getKind());
+        assertEquals(DifferenceSummary.KIND_EXTRA, summary.getExamples().get(1).getKind());
+        assertTrue(summary.getColumnMismatches().isEmpty());
+    }
+}
@@ -0,0 +1,62 @@
+package com.example.dbvalidator.engine;
+
+import org.junit.jupiter.api.Test;
+
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 主键查找条件测试
+ */
+class KeyLookupTest {
+    
+    @Test
+    void testOraclePadded_ShouldPadToFixedSizeAndSplitAt1000() {
+        KeyLookup keyLookup = new KeyLookup(KeyLookup.ORACLE_PADDED);
+        
+        KeyLookup.KeyPredicate small = keyLookup.predicate(Dialect.ORACLE, "id", null, Arrays.asList(1L, 2L, 3L));
+        assertEquals(8, small.getParameters().size());
+        assertEquals(3L, small.getParameters().get(7));
+        
+        List<Object> keys = new ArrayList<>();
+        for (long i = 0; i < 1001; i++) {
+            keys.add(i);
+        }
+        KeyLookup.KeyPredicate large = keyLookup.predicate(Dialect.ORACLE, "id", null, keys);
+        assertEquals(1001, large.getParameters().size());
+        assertTrue(large.getSql().startsWith("(id IN ("));
+        assertTrue(large.getSql().contains(") OR id IN (?)"));
+    }
+    
+    @Test
+    void testPostgres_ShouldBindSingleArrayWithCastToKeyType() {
+        KeyLookup keyLookup = new KeyLookup(KeyLookup.ORACLE_PADDED);
+        ColumnInfo uuidKey = new ColumnInfo("id", Types.OTHER, "uuid", 0, 0);
+        
+        KeyLookup.KeyPredicate predicate = keyLookup.predicate(Dialect.POSTGRESQL, "id", uuidKey,
+                Arrays.asList("a0eebc99-9c0b-4ef8-bb6d-6bb9bd380a11", "b0eebc99-9c0b-4ef8-bb6d-6bb9bd380a12"));
+        
+        assertEquals("id = ANY(CAST(? AS uuid[]))", predicate.getSql());
+        assertEquals(1, predicate.getParameters().size());
+    }
+    
+    @Test
+    void testPostgres_WhenSerialKey_ShouldCastToBaseType() {
+        KeyLookup keyLookup = new KeyLookup(KeyLookup.ORACLE_PADDED);
+        
+        // bigserial 与数组元素类型 int8 相同，无需转换
+        KeyLookup.KeyPredicate bigserial = keyLookup.predicate(Dialect.POSTGRESQL, "id",
+                new ColumnInfo("id", Types.BIGINT, "bigserial", 19, 0), Arrays.asList(1L, 2L));
+        assertEquals("id = ANY(?)", bigserial.getSql());
+        
+        KeyLookup.KeyPredicate serial = keyLookup.predicate(Dialect.POSTGRESQL, "id",
+                new ColumnInfo("id", Types.INTEGER, "serial", 10, 0), Arrays.asList(1L, 2L));
+        assertEquals("id = ANY(CAST(? AS int4[]))", serial.getSql());
+        assertEquals("int2", ColumnInfo.baseType("smallserial"));
+        assertEquals("uuid", ColumnInfo.baseType("uuid"));
+    }
+}
@@ -0,0 +1,35 @@
+package com.example.dbvalidator.engine;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 主键哈希抽样测试
+ */
+class KeySamplerTest {
+    
+    @Test
+    void testSamplePercent_ShouldRoundToBucketsAndHonourTargetRows() {
+        assertEquals(1.0, new KeySampler(1).getSamplePercent(), 1e-9);
+        assertEquals(0.01, new KeySampler(0.0001).getSamplePercent(), 1e-9);
+        assertEquals(0.5, KeySampler.forTargetRows(5_000, 1_000_000).getSamplePercent(), 1e-9);
+        assertEquals(100.0, KeySampler.forTargetRows(5_000, 0).getSamplePercent(), 1e-9);
+        assertThrows(IllegalArgumentException.class, () -> new KeySampler(0));
+        assertThrows(IllegalArgumentException.class, () -> new KeySampler(120));
+    }
+    
+    @Test
+    void testWilsonInterval_ShouldBoundRateIncludingZeroFindings() {
+        double[] none = KeySampler.wilsonInterval(100, 0, KeySampler.Z_95);
+        assertEquals(0.0, none[0], 1e-9);
+        assertEquals(0.0370, none[1], 1e-3);
+        
+        double[] some = KeySampler.wilsonInterval(1000, 50, KeySampler.Z_95);
+        assertTrue(some[0] < 0.05 && some[1] > 0.05);
+        assertEquals(0.0382, some[0], 1e-3);
+        assertEquals(0.0653, some[1], 1e-3);
+        
+        assertArrayEquals(new double[]{0, 1}, KeySampler.wilsonInterval(0, 0, KeySampler.Z_95));
+    }
+}
@@ -0,0 +1,90 @@
+package com.example.dbvalidator.engine;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 主键集合测试
+ */
+class KeySetTest {
+    
+    @Test
+    void testDifference_WhenOracleNumberAndPostgresLong_ShouldMatchCanonicalKeys() {
+        KeySet oracleKeys = new KeySet.Builder()
+                .add(new BigDecimal("1"))
+                .add(new BigDecimal("2.00"))
+                .add(new BigDecimal("3"))
+                .build();
+        KeySet postgresKeys = new KeySet.Builder()
+                .add(1L)
+                .add(2)
+                .add(4L)
+                .build();
+        
+        assertEquals(Collections.singletonList(3L), oracleKeys.difference(postgresKeys));
+        assertEquals(Collections.singletonList(4L), postgresKeys.difference(oracleKeys));
+    }
+    
+    @Test
+    void testDifference_WhenStringKeys_ShouldCompareBytes() {
+        KeySet.Builder oracleBuilder = new KeySet.Builder();
+        KeySet.Builder postgresBuilder = new KeySet.Builder();
+        for (int i = 0; i < 5000; i++) {
+            oracleBuilder.add("订单-" + i);
+            if (i != 42) {
+                postgresBuilder.add("订单-" + i);
+            }
+        }
+        postgresBuilder.add("订单-x");
+        
+        KeySet oracleKeys = oracleBuilder.build();
+        KeySet postgresKeys = postgresBuilder.build();
+        
+        assertEquals(5000, oracleKeys.size());
+        assertEquals(Collections.singletonList("订单-42"), oracleKeys.difference(postgresKeys));
+        assertEquals(Collections.singletonList("订单-x"), postgresKeys.difference(oracleKeys));
+        assertTrue(oracleKeys.contains("订单-4999"));
+    }
+    
+    @Test
+    void testIntersectionBatches_ShouldSplitCommonKeysByBatchSize() {
+        KeySet.Builder oracleBuilder = new KeySet.Builder();
+        KeySet.Builder postgresBuilder = new KeySet.Builder();
+        for (long i = 0; i < 2500; i++) {
+            oracleBuilder.addLong(i);
+            oracleBuilder.addLong(i);
+            postgresBuilder.addLong(i * 2);
+        }
+        
+        Iterator<List<Object>> batches = oracleBuilder.build()
+                .intersectionBatches(postgresBuilder.build(), 1000);
+        List<Integer> sizes = new ArrayList<>();
+        while (batches.hasNext()) {
+            sizes.add(batches.next().size());
+        }
+        
+        assertEquals(Arrays.asList(1000, 250), sizes);
+    }
+    
+    @Test
+    void testBuilder_WhenMixedKeyTypes_ShouldFallBackToGenericSet() {
+        KeySet keys = new KeySet.Builder()
+                .add(1L)
+                .add(new BigDecimal("1.5"))
+                .add("A")
+                .build();
+        
+        assertEquals(3, keys.size());
+        assertTrue(keys.contains(1L));
+        assertTrue(keys.contains(new BigDecimal("1.5")));
+        assertTrue(keys.contains("A"));
+    }
+}
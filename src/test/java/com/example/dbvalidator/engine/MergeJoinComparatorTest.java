@@ -0,0 +1,90 @@
+package com.example.dbvalidator.engine;
+
+import org.junit.jupiter.api.Test;
+
+import javax.sql.rowset.CachedRowSet;
+import javax.sql.rowset.RowSetMetaDataImpl;
+import javax.sql.rowset.RowSetProvider;
+import java.math.BigDecimal;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 排序归并遍历测试（两端游标以内存结果集代替）
+ */
+class MergeJoinComparatorTest {
+    
+    @Test
+    void testMerge_ShouldRouteKeysByOrderAcrossNumberTypes() throws SQLException {
+        // Oracle NUMBER 主键读为 BigDecimal，PostgreSQL bigint 主键读为 Long，按数值归并
+        SortedRowCursor oracle = cursor(Types.NUMERIC,
+                new Object[]{new BigDecimal("1"), "a"},
+                new Object[]{new BigDecimal("2"), "b"},
+                new Object[]{new BigDecimal("4"), "d"},
+                new Object[]{new BigDecimal("10"), "j"});
+        SortedRowCursor postgres = cursor(Types.BIGINT,
+                new Object[]{2L, "b"},
+                new Object[]{3L, "c"},
+                new Object[]{4L, "x"},
+                new Object[]{11L, "k"},
+                new Object[]{12L, "l"});
+        CollectingComparisonListener listener = new CollectingComparisonListener();
+        List<Object> matched = new ArrayList<>();
+        List<String> postgresNames = new ArrayList<>();
+        
+        new MergeJoinComparator(null, null, 100).merge(oracle, postgres, (key, oracleRow, postgresRow) -> {
+            matched.add(key);
+            assertEquals(KeyOrder.canonicalize(key), KeyOrder.canonicalize(postgresRow.get("id")));
+            postgresNames.add((String) postgresRow.get("name"));
+        }, listener);
+        
+        assertEquals(Arrays.asList(new BigDecimal("2"), new BigDecimal("4")), matched);
+        assertEquals(Arrays.asList("b", "x"), postgresNames);
+        assertEquals(Arrays.asList(new BigDecimal("1"), new BigDecimal("10")), listener.getOnlyInOracle());
+        assertEquals(Arrays.asList(3L, 11L, 12L), listener.getOnlyInPostgres());
+        assertEquals(4, oracle.getRowCount());
+        assertEquals(5, postgres.getRowCount());
+    }
+    
+    @Test
+    void testMerge_WhenOneSideEmpty_ShouldReportEveryKeyOnOtherSide() throws SQLException {
+        SortedRowCursor oracle = cursor(Types.BIGINT);
+        SortedRowCursor postgres = cursor(Types.BIGINT, new Object[]{1L, "a"}, new Object[]{2L, "b"});
+        CollectingComparisonListener listener = new CollectingComparisonListener();
+        
+        new MergeJoinComparator(null, null, 100).merge(oracle, postgres,
+                (key, oracleRow, postgresRow) -> fail("不应有匹配的主键"), listener);
+        
+        assertEquals(Collections.emptyList(), listener.getOnlyInOracle());
+        assertEquals(Arrays.asList(1L, 2L), listener.getOnlyInPostgres());
+    }
+    
+    private static SortedRowCursor cursor(int keyType, Object[]... rows) throws SQLException {
+        RowSetMetaDataImpl meta = new RowSetMetaDataImpl();
+        meta.setColumnCount(2);
+        meta.setColumnName(1, "id");
+        meta.setColumnLabel(1, "id");
+        meta.setColumnType(1, keyType);
+        meta.setColumnName(2, "name");
+        meta.setColumnLabel(2, "name");
+        meta.setColumnType(2, Types.VARCHAR);
+        
+        CachedRowSet rowSet = RowSetProvider.newFactory().createCachedRowSet();
+        rowSet.setMetaData(meta);
+        for (Object[] row : rows) {
+            rowSet.moveToInsertRow();
+            rowSet.updateObject(1, row[0]);
+            rowSet.updateString(2, (String) row[1]);
+            rowSet.insertRow();
+        }
+        rowSet.moveToCurrentRow();
+        rowSet.beforeFirst();
+        return SortedRowCursor.of(rowSet, "id");
+    }
+}
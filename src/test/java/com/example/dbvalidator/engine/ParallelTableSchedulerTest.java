@@ -0,0 +1,52 @@
+package com.example.dbvalidator.engine;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 并行调度器测试
+ */
+class ParallelTableSchedulerTest {
+    
+    @Test
+    void testRun_ShouldStartLargestFirstAndReturnInInputOrder() {
+        Map<String, Long> sizes = new HashMap<>();
+        sizes.put("small", 10L);
+        sizes.put("large", 1000L);
+        sizes.put("medium", 100L);
+        sizes.put("tiny", 1L);
+        List<String> started = Collections.synchronizedList(new ArrayList<>());
+        
+        // 单线程时执行顺序即提交顺序
+        List<String> results = new ParallelTableScheduler(1, "test").run(
+                Arrays.asList("small", "large", "medium", "tiny"), sizes::get, table -> {
+                    started.add(table);
+                    return table.toUpperCase();
+                });
+        
+        assertEquals(Arrays.asList("large", "medium", "small", "tiny"), started);
+        assertEquals(Arrays.asList("SMALL", "LARGE", "MEDIUM", "TINY"), results);
+    }
+    
+    @Test
+    void testRun_ShouldRethrowTaskFailure() {
+        ParallelTableScheduler scheduler = new ParallelTableScheduler(2, "test");
+        
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class, () -> scheduler.run(
+                Arrays.asList(1, 2, 3), item -> (long) item, item -> {
+                    if (item == 2) {
+                        throw new IllegalArgumentException("table 2 failed");
+                    }
+                    return item;
+                }));
+        assertEquals("table 2 failed", e.getMessage());
+    }
+}
@@ -0,0 +1,83 @@
+package com.example.dbvalidator.engine;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 物理分块扫描结果对账测试（两端扫描以内存数据代替）
+ */
+class PhysicalChunkComparatorTest {
+    
+    @Test
+    void testReconcile_ShouldMatchKeysInAnyOrderAndKeepOnlyUnmatchedRows() {
+        Map<Object, PhysicalChunkComparator.PendingRow> pending = new ConcurrentHashMap<>();
+        Queue<PhysicalChunkComparator.MismatchedRow> mismatched = new ConcurrentLinkedQueue<>();
+        
+        PhysicalChunkComparator.reconcile(pending, mismatched, 1L, true, 0x11L);
+        PhysicalChunkComparator.reconcile(pending, mismatched, 2L, false, 0x22L);
+        PhysicalChunkComparator.reconcile(pending, mismatched, 3L, false, 0x99L);
+        PhysicalChunkComparator.reconcile(pending, mismatched, 2L, true, 0x22L);
+        PhysicalChunkComparator.reconcile(pending, mismatched, 3L, true, 0x33L);
+        PhysicalChunkComparator.reconcile(pending, mismatched, 4L, false, 0x44L);
+        
+        // 匹配上的主键移出待匹配表，只剩仅一端存在的行
+        assertEquals(2, pending.size());
+        assertTrue(pending.get(1L).isOracle());
+        assertFalse(pending.get(4L).isOracle());
+        assertEquals(1, mismatched.size());
+        PhysicalChunkComparator.MismatchedRow row = mismatched.peek();
+        assertEquals(3L, row.getKey());
+        assertEquals("33", row.oracleHash());
+        assertEquals("99", row.postgresHash());
+    }
+    
+    @Test
+    void testReconcile_WhenBothSidesScanConcurrently_ShouldLeaveNothingPending() throws InterruptedException {
+        Map<Object, PhysicalChunkComparator.PendingRow> pending = new ConcurrentHashMap<>();
+        Queue<PhysicalChunkComparator.MismatchedRow> mismatched = new ConcurrentLinkedQueue<>();
+        List<Thread> threads = new ArrayList<>();
+        for (boolean oracle : new boolean[]{true, false}) {
+            threads.add(new Thread(() -> {
+                for (long key = 0; key < 20000; key++) {
+                    long hash = key % 1000 == 0 && oracle ? -key : key;
+                    PhysicalChunkComparator.reconcile(pending, mismatched, key, oracle, hash);
+                }
+            }));
+        }
+        for (Thread thread : threads) {
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        
+        assertTrue(pending.isEmpty());
+        // 主键 0 两端哈希相同，其余 19 个千位整数主键哈希不一致
+        assertEquals(19, mismatched.size());
+    }
+    
+    @Test
+    void testInterleave_ShouldAlternateDialectsLargestFirst() {
+        List<PhysicalChunk> oracle = Arrays.asList(chunk(Dialect.ORACLE, 50), chunk(Dialect.ORACLE, 900),
+                chunk(Dialect.ORACLE, 400));
+        List<PhysicalChunk> postgres = Arrays.asList(chunk(Dialect.POSTGRESQL, 10), chunk(Dialect.POSTGRESQL, 20));
+        
+        // Oracle 的单元都比 PostgreSQL 的大，仍交替提交，不会先扫完整个 Oracle 端
+        assertEquals("[ORACLE[900 blocks], POSTGRESQL[20 blocks], ORACLE[400 blocks], POSTGRESQL[10 blocks], "
+                        + "ORACLE[50 blocks]]",
+                PhysicalChunkComparator.interleave(oracle, postgres).toString());
+    }
+    
+    private static PhysicalChunk chunk(Dialect dialect, long blocks) {
+        return new PhysicalChunk(dialect, null, new Object[0], blocks);
+    }
+}
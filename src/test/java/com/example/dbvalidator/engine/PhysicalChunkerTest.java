@@ -0,0 +1,55 @@
+package com.example.dbvalidator.engine;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 物理地址拆分测试（区信息以内存数据代替）
+ */
+class PhysicalChunkerTest {
+    
+    @Test
+    void testRowid_ShouldEncodeExtendedRowid() {
+        assertEquals("AAAR3sAAEAAAACXAAA", PhysicalChunker.rowid(73196, 4, 151, 0));
+    }
+    
+    @Test
+    void testCoalesce_ShouldMergeAdjacentExtentsInSameFile() {
+        List<PhysicalChunker.BlockRange> ranges = PhysicalChunker.coalesce(Arrays.asList(
+                new PhysicalChunker.BlockRange(100, 4, 128, 8),
+                new PhysicalChunker.BlockRange(100, 4, 136, 8),
+                new PhysicalChunker.BlockRange(100, 4, 144, 128),
+                new PhysicalChunker.BlockRange(100, 4, 400, 128),
+                new PhysicalChunker.BlockRange(100, 5, 528, 128)));
+        
+        assertEquals(3, ranges.size());
+        assertEquals(128, ranges.get(0).getStartBlock());
+        assertEquals(144, ranges.get(0).getBlocks());
+        assertEquals(400, ranges.get(1).getStartBlock());
+        assertEquals(528, ranges.get(2).getStartBlock());
+    }
+    
+    @Test
+    void testSplit_ShouldCoverEveryBlockWithFewRangesPerChunk() {
+        List<PhysicalChunker.BlockRange> ranges = Arrays.asList(
+                new PhysicalChunker.BlockRange(100, 4, 0, 1000),
+                new PhysicalChunker.BlockRange(100, 5, 0, 30));
+        
+        List<PhysicalChunk> chunks = PhysicalChunker.split(ranges, 1030, 4);
+        
+        assertEquals(4, chunks.size());
+        assertEquals(1030, chunks.stream().mapToLong(PhysicalChunk::getBlocks).sum());
+        assertArrayEquals(new Object[]{PhysicalChunker.rowid(100, 4, 0, 0), PhysicalChunker.rowid(100, 4, 256, 32767)},
+                chunks.get(0).getParameters());
+        assertEquals("ROWID BETWEEN CHARTOROWID(?) AND CHARTOROWID(?)", chunks.get(0).getPredicate());
+        // 最后一组跨两个数据文件，包含第一个区间的剩余部分和整个第二个区间
+        PhysicalChunk last = chunks.get(3);
+        assertEquals(4, last.getParameters().length);
+        assertEquals(PhysicalChunker.rowid(100, 4, 771, 0), last.getParameters()[0]);
+        assertEquals(PhysicalChunker.rowid(100, 5, 29, 32767), last.getParameters()[3]);
+    }
+}
@@ -0,0 +1,90 @@
+package com.example.dbvalidator.engine;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.sql.Types;
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * PostgreSQL COPY 二进制读取测试
+ */
+class PostgresCopyReaderTest {
+    
+    @Test
+    void testDecode_ShouldFillColumnarBatchFromBinaryTuples() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.write(new byte[]{'P', 'G', 'C', 'O', 'P', 'Y', '\n', (byte) 0xFF, '\r', '\n', 0});
+        out.writeInt(0);
+        out.writeInt(0);
+        byte[] name = "张三".getBytes(StandardCharsets.UTF_8);
+        out.writeShort(2);
+        out.writeInt(8);
+        out.writeLong(42L);
+        out.writeInt(name.length);
+        out.write(name);
+        out.writeShort(2);
+        out.writeInt(8);
+        out.writeLong(43L);
+        out.writeInt(-1);
+        out.writeShort(-1);
+        
+        ColumnarBatch batch = new ColumnarBatch();
+        batch.begin(new ColumnarBatch.Columns(new String[]{"id", "name"},
+                new int[]{Types.BIGINT, Types.VARCHAR}, new int[]{19, 50}, new int[]{0, 0}));
+        PostgresCopyReader.decode(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())),
+                new PostgresCopyReader.Decoder[]{PostgresCopyReader.Decoder.INT8, PostgresCopyReader.Decoder.TEXT},
+                batch);
+        
+        assertEquals(2, batch.getRowCount());
+        assertEquals(42L, batch.getLong(0, 0));
+        assertEquals("张三", batch.getString(0, 1));
+        assertEquals(43L, batch.getObject(1, 0));
+        assertTrue(batch.isNull(1, 1));
+    }
+    
+    @Test
+    void testDecodeNumeric_ShouldRestoreScaleAndSign() {
+        // -12345.678 = -(1 * 10000 + 2345 + 6780 / 10000)，dscale 3
+        ByteBuffer value = ByteBuffer.allocate(14);
+        value.putShort((short) 3).putShort((short) 1).putShort((short) 0x4000).putShort((short) 3)
+                .putShort((short) 1).putShort((short) 2345).putShort((short) 6780);
+        value.flip();
+        
+        assertEquals(new BigDecimal("-12345.678"), PostgresCopyReader.decodeNumeric(value));
+    }
+    
+    @Test
+    void testInline_ShouldRenderParametersAsLiteralsOutsideQuotes() {
+        KeyLookup.KeyPredicate predicate = new KeyLookup(KeyLookup.ORACLE_PADDED)
+                .predicate(Dialect.POSTGRESQL, "code", null, Arrays.asList("a\"b", "it's"));
+        String sql = "SELECT code, '?' AS mark FROM t WHERE " + predicate.getSql() + " AND created_at >= ?";
+        Object[] parameters = predicate.getParameters().toArray(new Object[0]);
+        parameters = Arrays.copyOf(parameters, parameters.length + 1);
+        parameters[parameters.length - 1] = "2024-01-01";
+        
+        assertEquals("SELECT code, '?' AS mark FROM t WHERE code = ANY(CAST('{\"a\\\"b\",\"it''s\"}' AS text[]))"
+                + " AND created_at >= '2024-01-01'", PostgresCopyReader.inline(sql, parameters));
+        assertEquals("SELECT 1", PostgresCopyReader.inline("SELECT 1", Collections.emptyList().toArray()));
+    }
+    
+    @Test
+    void testDecoder_WhenSerialKeyColumn_ShouldDecodeAsBaseIntegerType() {
+        assertEquals(PostgresCopyReader.Decoder.INT8, PostgresCopyReader.decoder("bigserial"));
+        assertEquals(PostgresCopyReader.Decoder.INT4, PostgresCopyReader.decoder("serial"));
+        assertEquals(PostgresCopyReader.Decoder.INT2, PostgresCopyReader.decoder("smallserial"));
+        assertEquals(PostgresCopyReader.Decoder.INT8, PostgresCopyReader.decoder("int8"));
+        assertNull(PostgresCopyReader.decoder("jsonb"));
+    }
+}
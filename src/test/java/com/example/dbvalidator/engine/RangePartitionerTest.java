@@ -0,0 +1,64 @@
+package com.example.dbvalidator.engine;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 主键区间拆分测试
+ */
+class RangePartitionerTest {
+    
+    @Test
+    void testEvenBoundaries_ShouldSplitIntegerDomainIntoEqualWidths() {
+        assertEquals(Arrays.asList(26L, 51L, 76L), RangePartitioner.evenBoundaries(1, 100, 4));
+        assertEquals(Arrays.asList(-5L, 0L), RangePartitioner.evenBoundaries(-10, 3, 3));
+        // 取值范围窄于分区数时只拆出能拆的部分
+        assertEquals(Collections.singletonList(2L), RangePartitioner.evenBoundaries(1, 2, 4));
+        // 区间宽度超出 long 范围时不溢出
+        assertEquals(Arrays.asList(Long.MIN_VALUE / 2, 0L, Long.MAX_VALUE / 2 + 1),
+                RangePartitioner.evenBoundaries(Long.MIN_VALUE, Long.MAX_VALUE, 4));
+    }
+    
+    @Test
+    void testQuantileBoundaries_ShouldPickQuantilesAndDropDuplicates() {
+        List<Object> samples = Arrays.asList("a", "b", "c", "d", "e", "f", "g", "h", "i", "j");
+        assertEquals(Arrays.asList("c", "f", "h"), RangePartitioner.quantileBoundaries(samples, 4));
+        
+        List<Object> skewed = Arrays.asList("a", "a", "a", "a", "a", "b");
+        assertEquals(Collections.singletonList("a"), RangePartitioner.quantileBoundaries(skewed, 3));
+    }
+    
+    @Test
+    void testRanges_ShouldLeaveFirstAndLastRangeUnbounded() {
+        List<KeyRange> ranges = RangePartitioner.ranges(Arrays.asList(26L, 51L));
+        
+        assertEquals(3, ranges.size());
+        assertNull(ranges.get(0).getLower());
+        assertEquals(26L, ranges.get(0).getUpper());
+        assertEquals(26L, ranges.get(1).getLower());
+        assertEquals(51L, ranges.get(1).getUpper());
+        assertEquals(51L, ranges.get(2).getLower());
+        assertNull(ranges.get(2).getUpper());
+        assertTrue(RangePartitioner.ranges(Collections.emptyList()).get(0).isUnbounded());
+    }
+    
+    @Test
+    void testKeyRange_ShouldBuildPredicateAndParametersPerDialect() {
+        assertNull(KeyRange.ALL.predicate("id", Dialect.ORACLE, false));
+        assertEquals("id < ?", new KeyRange(null, 10L).predicate("id", Dialect.ORACLE, false));
+        assertEquals("code COLLATE \"C\" >= ? AND code COLLATE \"C\" < ?",
+                new KeyRange("a", "m").predicate("code", Dialect.POSTGRESQL, true));
+        assertEquals("code >= ? AND code < ?", new KeyRange("a", "m").predicate("code", Dialect.ORACLE, true));
+        
+        UUID lower = UUID.fromString("00000000-0000-0000-0000-000000000001");
+        KeyRange range = new KeyRange(lower, null);
+        assertArrayEquals(new Object[]{lower}, range.parameters(Dialect.POSTGRESQL));
+        assertArrayEquals(new Object[]{lower.toString()}, range.parameters(Dialect.ORACLE));
+    }
+}
@@ -0,0 +1,111 @@
+package com.example.dbvalidator.engine;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.SQLStateSQLExceptionTranslator;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+/**
+ * 一致性读快照测试：借出的连接导入快照，归还前回滚并恢复连接状态
+ */
+class ReadSnapshotTest {
+    
+    private final DataSource dataSource = mock(DataSource.class);
+    private final Connection exporter = mock(Connection.class);
+    private final Connection pooled = mock(Connection.class);
+    private final Statement importStatement = mock(Statement.class);
+    private ReadSnapshot snapshot;
+    
+    @BeforeEach
+    void setUp() throws SQLException {
+        JdbcTemplate oracle = mock(JdbcTemplate.class);
+        when(oracle.queryForObject(anyString(), eq(Long.class))).thenReturn(4711L);
+        
+        Statement exportStatement = mock(Statement.class);
+        ResultSet exported = mock(ResultSet.class);
+        when(exporter.createStatement()).thenReturn(exportStatement);
+        when(exportStatement.executeQuery(anyString())).thenReturn(exported);
+        when(exported.next()).thenReturn(true);
+        when(exported.getString(1)).thenReturn("00000003-0000001B-1");
+        when(exported.getString(2)).thenReturn("100:105:");
+        when(pooled.createStatement()).thenReturn(importStatement);
+        when(dataSource.getConnection()).thenReturn(exporter, pooled);
+        
+        JdbcTemplate postgres = new JdbcTemplate(dataSource);
+        postgres.setExceptionTranslator(new SQLStateSQLExceptionTranslator());
+        snapshot = ReadSnapshot.open(oracle, postgres);
+    }
+    
+    @Test
+    void testOpen_ShouldExportSnapshotInRepeatableReadTransaction() throws SQLException {
+        assertEquals(4711L, snapshot.getOracleScn());
+        assertEquals("100:105:", snapshot.getPostgresSnapshot());
+        assertEquals("orders AS OF SCN 4711", snapshot.oracleTable("orders"));
+        InOrder order = inOrder(exporter);
+        order.verify(exporter).setTransactionIsolation(Connection.TRANSACTION_REPEATABLE_READ);
+        order.verify(exporter).setAutoCommit(false);
+        order.verify(exporter).createStatement();
+        
+        snapshot.close();
+        order.verify(exporter).rollback();
+        order.verify(exporter).setAutoCommit(true);
+        order.verify(exporter).setTransactionIsolation(Connection.TRANSACTION_READ_COMMITTED);
+        order.verify(exporter).close();
+    }
+    
+    @Test
+    void testGetConnection_ShouldImportSnapshotAndRestoreOnClose() throws SQLException {
+        Connection connection = snapshot.getPostgresJdbcTemplate().getDataSource().getConnection();
+        
+        // 先设置隔离级别再关闭自动提交，SET TRANSACTION SNAPSHOT 是事务中的第一条语句
+        InOrder order = inOrder(pooled, importStatement);
+        order.verify(pooled).setTransactionIsolation(Connection.TRANSACTION_REPEATABLE_READ);
+        order.verify(pooled).setAutoCommit(false);
+        order.verify(importStatement).execute("SET TRANSACTION SNAPSHOT '00000003-0000001B-1'");
+        order.verify(importStatement).close();
+        
+        connection.createStatement();
+        connection.close();
+        order.verify(pooled).createStatement();
+        order.verify(pooled).rollback();
+        order.verify(pooled).setAutoCommit(true);
+        order.verify(pooled).setTransactionIsolation(Connection.TRANSACTION_READ_COMMITTED);
+        order.verify(pooled).close();
+    }
+    
+    @Test
+    void testGetConnection_WhenImportFails_ShouldRestoreAndReleaseConnection() throws SQLException {
+        SQLException failure = new SQLException("invalid snapshot identifier", "22023");
+        when(importStatement.execute(anyString())).thenThrow(failure);
+        
+        DataSource snapshotDataSource = snapshot.getPostgresJdbcTemplate().getDataSource();
+        assertSame(failure, assertThrows(SQLException.class, snapshotDataSource::getConnection));
+        
+        InOrder order = inOrder(pooled);
+        order.verify(pooled).rollback();
+        order.verify(pooled).setAutoCommit(true);
+        order.verify(pooled).setTransactionIsolation(Connection.TRANSACTION_READ_COMMITTED);
+        order.verify(pooled).close();
+    }
+    
+    @Test
+    void testClose_WhenRollbackFails_ShouldStillReleaseConnection() throws SQLException {
+        doThrow(new SQLException("connection reset", "08006")).when(pooled).rollback();
+        Connection connection = snapshot.getPostgresJdbcTemplate().getDataSource().getConnection();
+        
+        assertThrows(SQLException.class, connection::close);
+        verify(pooled).close();
+    }
+}
@@ -0,0 +1,70 @@
+package com.example.dbvalidator.engine;
+
+import com.example.dbvalidator.model.DifferenceSummary;
+import com.example.dbvalidator.model.FieldDifference;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 差异复查队列测试
+ */
+class RecheckQueueTest {
+    
+    @Test
+    void testRun_ShouldDropHealedKeysAndKeepPersistentOnes() {
+        RecheckQueue queue = new RecheckQueue(5, 3, 2.0, 4, 100);
+        long start = System.nanoTime();
+        for (long key = 1; key <= 10; key++) {
+            queue.offer(key);
+        }
+        queue.offer(3L);
+        List<Long> probeTimes = new ArrayList<>();
+        int[] calls = new int[11];
+        
+        Map<Object, RecheckQueue.Outcome> persistent = queue.run(keys -> {
+            probeTimes.add(System.nanoTime() - start);
+            Map<Object, RecheckQueue.Outcome> outcomes = new HashMap<>();
+            for (Object key : keys) {
+                long k = (Long) key;
+                calls[(int) k]++;
+                // 偶数主键首轮即一致，主键 3 第二轮恢复一致
+                if (k % 2 == 0 || (k == 3 && calls[3] >= 2)) {
+                    continue;
+                }
+                outcomes.put(key, k == 9 ? RecheckQueue.Outcome.missing()
+                        : RecheckQueue.Outcome.changed(FieldDifference.builder().primaryKey(key).build()));
+            }
+            return outcomes;
+        });
+        
+        assertEquals(Arrays.asList(1L, 5L, 7L, 9L), new ArrayList<>(persistent.keySet()));
+        assertEquals(DifferenceSummary.KIND_MISSING, persistent.get(9L).getKind());
+        assertEquals(DifferenceSummary.KIND_CHANGED, persistent.get(1L).getKind());
+        assertArrayEquals(new long[]{5, 1, 0}, queue.getHealed());
+        assertEquals(10, queue.size());
+        assertEquals(3, calls[1]);
+        assertEquals(1, calls[2]);
+        // 首次回查不早于延迟，三轮累计延迟不少于 5 + 10 + 20 毫秒
+        assertTrue(probeTimes.get(0) >= 5_000_000L);
+        assertTrue(probeTimes.get(probeTimes.size() - 1) >= 35_000_000L);
+    }
+    
+    @Test
+    void testOffer_ShouldRejectKeysBeyondLimit() {
+        RecheckQueue queue = new RecheckQueue(0, 1, 1.0, 10, 2);
+        assertTrue(queue.offer(1));
+        assertTrue(queue.offer(2));
+        assertTrue(queue.offer(1));
+        assertFalse(queue.isOverflowed());
+        assertFalse(queue.offer(3));
+        assertTrue(queue.isOverflowed());
+        assertEquals(2, queue.size());
+    }
+}
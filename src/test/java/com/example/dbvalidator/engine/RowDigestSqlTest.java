@@ -0,0 +1,120 @@
+package com.example.dbvalidator.engine;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ResultSetExtractor;
+
+import java.sql.Types;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * 行摘要规范编码测试：同一类型在两个库生成的表达式须输出相同的规范串
+ */
+class RowDigestSqlTest {
+    
+    @Test
+    void testCanonicalColumn_Integral() {
+        assertEquals("COALESCE(TO_CHAR(id), '\\N')",
+                oracle(new ColumnInfo("id", Types.NUMERIC, "NUMBER", 19, 0)));
+        assertEquals("COALESCE(CAST(id AS TEXT), '\\N')",
+                postgres(new ColumnInfo("id", Types.BIGINT, "int8", 19, 0)));
+    }
+    
+    @Test
+    void testCanonicalColumn_Decimal_ShouldStripTrailingAndLeadingZeros() {
+        assertEquals("COALESCE(TO_CHAR(amount), '\\N')",
+                oracle(new ColumnInfo("amount", Types.NUMERIC, "NUMBER", 12, 2)));
+        assertEquals("COALESCE(REGEXP_REPLACE(REGEXP_REPLACE(CAST(CAST(amount AS NUMERIC) AS TEXT), "
+                        + "'(\\.[0-9]*[1-9])0+$|\\.0+$', '\\1'), '^(-?)0\\.', '\\1.'), '\\N')",
+                postgres(new ColumnInfo("amount", Types.NUMERIC, "numeric", 12, 2)));
+    }
+    
+    @Test
+    void testCanonicalColumn_Floating_ShouldGoThroughDecimal() {
+        assertEquals("COALESCE(TO_CHAR(CAST(ratio AS NUMBER)), '\\N')",
+                oracle(new ColumnInfo("ratio", Types.DOUBLE, "BINARY_DOUBLE", 0, 0)));
+        assertTrue(postgres(new ColumnInfo("ratio", Types.DOUBLE, "float8", 17, 17))
+                .startsWith("COALESCE(REGEXP_REPLACE(REGEXP_REPLACE(CAST(CAST(ratio AS NUMERIC) AS TEXT)"));
+    }
+    
+    @Test
+    void testCanonicalColumn_Temporal_ShouldPadToNanoseconds() {
+        assertEquals("COALESCE(TO_CHAR(created_at, 'YYYY-MM-DD HH24:MI:SS') || '.000000000', '\\N')",
+                oracle(new ColumnInfo("created_at", Types.TIMESTAMP, "DATE", 7, 0)));
+        assertEquals("COALESCE(TO_CHAR(created_at, 'YYYY-MM-DD HH24:MI:SS.FF9'), '\\N')",
+                oracle(new ColumnInfo("created_at", Types.TIMESTAMP, "TIMESTAMP", 11, 6)));
+        assertEquals("COALESCE(TO_CHAR(created_at, 'YYYY-MM-DD HH24:MI:SS.US') || '000', '\\N')",
+                postgres(new ColumnInfo("created_at", Types.TIMESTAMP, "timestamp", 29, 6)));
+        assertEquals("COALESCE(TO_CHAR(birthday, 'YYYY-MM-DD HH24:MI:SS.US') || '000', '\\N')",
+                postgres(new ColumnInfo("birthday", Types.DATE, "date", 13, 0)));
+    }
+    
+    @Test
+    void testCanonicalColumn_Character_ShouldPrefixAndTrim() {
+        String expected = "COALESCE(CASE WHEN name IS NOT NULL THEN 's' || TRIM(name) END, '\\N')";
+        assertEquals(expected, oracle(new ColumnInfo("name", Types.CHAR, "CHAR", 10, 0)));
+        assertEquals(expected, postgres(new ColumnInfo("name", Types.VARCHAR, "varchar", 64, 0)));
+    }
+    
+    @Test
+    void testCanonicalColumn_Boolean() {
+        assertEquals("COALESCE(CASE WHEN active THEN '1' WHEN NOT active THEN '0' END, '\\N')",
+                postgres(new ColumnInfo("active", Types.BIT, "bool", 1, 0)));
+    }
+    
+    @Test
+    void testCanonicalColumn_MissingColumn_ShouldEncodeAsNull() {
+        assertEquals("'\\N'", RowDigestSql.canonicalColumn(Dialect.ORACLE, null));
+        assertEquals("'\\N'", RowDigestSql.canonicalColumn(Dialect.POSTGRESQL, null));
+    }
+    
+    @Test
+    void testCanonicalRow_ShouldEncodeOneSidedColumnsAsNullInColumnOrder() {
+        Map<String, ColumnInfo> oracleColumns = new LinkedHashMap<>();
+        oracleColumns.put("id", new ColumnInfo("id", Types.NUMERIC, "NUMBER", 19, 0));
+        oracleColumns.put("legacy", new ColumnInfo("legacy", Types.VARCHAR, "VARCHAR2", 10, 0));
+        Map<String, ColumnInfo> postgresColumns = new LinkedHashMap<>();
+        postgresColumns.put("id", new ColumnInfo("id", Types.BIGINT, "int8", 19, 0));
+        postgresColumns.put("extra", new ColumnInfo("extra", Types.INTEGER, "int4", 10, 0));
+        TableMetadata metadata = TableMetadata.load(template(oracleColumns), template(postgresColumns), "t");
+        
+        assertEquals(Arrays.asList("extra", "id", "legacy"), metadata.comparableColumns(null));
+        assertEquals("'\\N' || '|' || COALESCE(TO_CHAR(id), '\\N') || '|' || "
+                        + "COALESCE(CASE WHEN legacy IS NOT NULL THEN 's' || TRIM(legacy) END, '\\N')",
+                RowDigestSql.canonicalRow(Dialect.ORACLE, metadata, metadata.comparableColumns(null)));
+        assertEquals("COALESCE(CAST(extra AS TEXT), '\\N') || '|' || COALESCE(CAST(id AS TEXT), '\\N') || '|' || '\\N'",
+                RowDigestSql.canonicalRow(Dialect.POSTGRESQL, metadata, metadata.comparableColumns(null)));
+    }
+    
+    @Test
+    void testHash32() {
+        assertEquals("TO_NUMBER(SUBSTR(RAWTOHEX(STANDARD_HASH(x, 'MD5')), 1, 8), 'XXXXXXXX')",
+                RowDigestSql.hash32(Dialect.ORACLE, "x"));
+        assertEquals("CAST(CAST('x' || SUBSTR(MD5(x), 1, 8) AS BIT(32)) AS BIGINT)",
+                RowDigestSql.hash32(Dialect.POSTGRESQL, "x"));
+    }
+    
+    private static String oracle(ColumnInfo column) {
+        return RowDigestSql.canonicalColumn(Dialect.ORACLE, column);
+    }
+    
+    private static String postgres(ColumnInfo column) {
+        return RowDigestSql.canonicalColumn(Dialect.POSTGRESQL, column);
+    }
+    
+    @SuppressWarnings("unchecked")
+    private static JdbcTemplate template(Map<String, ColumnInfo> columns) {
+        JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+        when(jdbcTemplate.query(eq("SELECT * FROM t WHERE 1 = 0"), any(ResultSetExtractor.class)))
+                .thenReturn(columns);
+        return jdbcTemplate;
+    }
+}
@@ -0,0 +1,60 @@
+package com.example.dbvalidator.engine;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 行哈希缓存测试
+ */
+class RowHashCacheTest {
+    
+    @Test
+    void testSaveAndReopen_ShouldMatchOnlyUnchangedHashPairs(@TempDir Path dir) {
+        Path file = dir.resolve("row-hash").resolve("user_info.bin");
+        
+        RowHashCache first = RowHashCache.open(file);
+        assertFalse(first.isVerified(1L, "A", "B"));
+        for (long key = 5000; key > 0; key--) {
+            first.verified(key, "O" + key, "P" + key);
+        }
+        first.verified("k-1", "O", "P");
+        first.save();
+        
+        RowHashCache second = RowHashCache.open(file);
+        assertEquals(5001, second.getPreviousCount());
+        assertTrue(second.isVerified(42L, "O42", "P42"));
+        assertTrue(second.isVerified(42, "O42", "P42"));
+        assertTrue(second.isVerified("k-1", "O", "P"));
+        assertFalse(second.isVerified(42L, "O42", "P-changed"));
+        assertFalse(second.isVerified(5001L, "O5001", "P5001"));
+        
+        // 本次运行未再确认的行不保留
+        second.verified(42L, "O42", "P42");
+        second.save();
+        RowHashCache third = RowHashCache.open(file);
+        assertEquals(1, third.getPreviousCount());
+        assertFalse(third.isVerified(43L, "O43", "P43"));
+        
+        // 每次保存写入新一代数据文件，旧代在保存后删除，映射中的文件不会被替换
+        assertTrue(Files.isRegularFile(file.resolveSibling("user_info.bin.2")));
+        assertFalse(Files.exists(file.resolveSibling("user_info.bin.1")));
+    }
+    
+    @Test
+    void testOpen_LegacyDataFile_ShouldStartEmpty(@TempDir Path dir) throws IOException {
+        Path file = dir.resolve("user_info.bin");
+        Files.write(file, new byte[]{0x44, 0x42, 0x56, 0x48, 0, 0, 0, 1, 0, 0, 0, 0, 0, 0, 0, 0});
+        
+        RowHashCache cache = RowHashCache.open(file);
+        assertEquals(0, cache.getPreviousCount());
+        cache.verified(1L, "O", "P");
+        cache.save();
+        assertTrue(RowHashCache.open(file).isVerified(1L, "O", "P"));
+    }
+}
@@ -0,0 +1,97 @@
+package com.example.dbvalidator.engine;
+
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.SQLStateSQLExceptionTranslator;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * 只进流式查询测试
+ */
+class StreamingQueryTest {
+    
+    @Test
+    void testQuery_ShouldStreamWithoutAutoCommitAndRestoreIt() throws SQLException {
+        Connection connection = mock(Connection.class);
+        PreparedStatement statement = mock(PreparedStatement.class);
+        ResultSet resultSet = mock(ResultSet.class);
+        when(connection.getAutoCommit()).thenReturn(true);
+        when(connection.prepareStatement(anyString(), anyInt(), anyInt())).thenReturn(statement);
+        when(statement.executeQuery()).thenReturn(resultSet);
+        when(resultSet.next()).thenReturn(true, true, false);
+        when(resultSet.getLong(1)).thenReturn(1L, 2L);
+        
+        List<Long> keys = new ArrayList<>();
+        StreamingQuery.query(template(connection), "SELECT id FROM t WHERE v > ?", new Object[]{5L}, 500,
+                rs -> keys.add(rs.getLong(1)));
+        
+        assertEquals(2, keys.size());
+        InOrder order = inOrder(connection, statement);
+        order.verify(connection).setAutoCommit(false);
+        order.verify(connection).prepareStatement("SELECT id FROM t WHERE v > ?",
+                ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+        order.verify(statement).setFetchSize(500);
+        order.verify(statement).executeQuery();
+        order.verify(connection).rollback();
+        order.verify(connection).setAutoCommit(true);
+        verify(statement).setObject(1, 5L);
+        verify(resultSet).close();
+        verify(statement).close();
+    }
+    
+    @Test
+    void testQuery_WhenHandlerFails_ShouldStillRestoreAutoCommit() throws SQLException {
+        Connection connection = mock(Connection.class);
+        PreparedStatement statement = mock(PreparedStatement.class);
+        ResultSet resultSet = mock(ResultSet.class);
+        when(connection.getAutoCommit()).thenReturn(true);
+        when(connection.prepareStatement(anyString(), anyInt(), anyInt())).thenReturn(statement);
+        when(statement.executeQuery()).thenReturn(resultSet);
+        when(resultSet.next()).thenReturn(true);
+        
+        assertThrows(DataAccessException.class, () -> StreamingQuery.query(template(connection),
+                "SELECT id FROM t", new Object[0], 500, rs -> {
+                    throw new SQLException("boom");
+                }));
+        
+        verify(connection).rollback();
+        verify(connection).setAutoCommit(true);
+    }
+    
+    @Test
+    void testQuery_WhenAlreadyInTransaction_ShouldLeaveConnectionState() throws SQLException {
+        Connection connection = mock(Connection.class);
+        PreparedStatement statement = mock(PreparedStatement.class);
+        ResultSet resultSet = mock(ResultSet.class);
+        when(connection.getAutoCommit()).thenReturn(false);
+        when(connection.prepareStatement(anyString(), anyInt(), anyInt())).thenReturn(statement);
+        when(statement.executeQuery()).thenReturn(resultSet);
+        
+        StreamingQuery.query(template(connection), "SELECT id FROM t", new Object[0], 500, rs -> {
+        });
+        
+        verify(connection, never()).setAutoCommit(anyBoolean());
+        verify(connection, never()).rollback();
+    }
+    
+    private static JdbcTemplate template(Connection connection) throws SQLException {
+        DataSource dataSource = mock(DataSource.class);
+        when(dataSource.getConnection()).thenReturn(connection);
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.setExceptionTranslator(new SQLStateSQLExceptionTranslator());
+        return jdbcTemplate;
+    }
+}
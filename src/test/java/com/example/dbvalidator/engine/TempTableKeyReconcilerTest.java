@@ -0,0 +1,76 @@
+package com.example.dbvalidator.engine;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ResultSetExtractor;
+
+import java.sql.Types;
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+/**
+ * 库内主键对账测试
+ */
+class TempTableKeyReconcilerTest {
+    
+    @Test
+    void testEscapeCopyText_ShouldEscapeCopyControlCharacters() {
+        assertEquals("ORD-1", TempTableKeyReconciler.escapeCopyText("ORD-1"));
+        assertEquals("a\\\\b", TempTableKeyReconciler.escapeCopyText("a\\b"));
+        assertEquals("a\\tb\\nc\\rd", TempTableKeyReconciler.escapeCopyText("a\tb\nc\rd"));
+        assertEquals("订单\\t1", TempTableKeyReconciler.escapeCopyText("订单\t1"));
+    }
+    
+    @Test
+    void testSupportsKey_ShouldRequireCompatibleGlobalTemporaryTableColumn() {
+        JdbcTemplate oracle = mock(JdbcTemplate.class);
+        TempTableKeyReconciler reconciler = new TempTableKeyReconciler(oracle, mock(JdbcTemplate.class),
+                Dialect.ORACLE, "DBV_KEYS", 1000, 1000);
+        column(oracle, "SELECT k FROM DBV_KEYS WHERE 1 = 0", new ColumnInfo("k", Types.NUMERIC, "NUMBER", 38, 0));
+        column(oracle, "SELECT id FROM orders WHERE 1 = 0", new ColumnInfo("id", Types.NUMERIC, "NUMBER", 19, 0));
+        column(oracle, "SELECT code FROM orders WHERE 1 = 0", new ColumnInfo("code", Types.VARCHAR, "VARCHAR2", 32, 0));
+        
+        assertTrue(reconciler.supportsKey("orders", "id"));
+        // 字符主键不能写入数值列
+        assertFalse(reconciler.supportsKey("orders", "code"));
+        // 无法读取列定义时改为在内存中求差集
+        assertFalse(reconciler.supportsKey("orders", "missing"));
+    }
+    
+    @Test
+    void testSupportsKey_WhenPostgresTarget_ShouldAlwaysSupport() {
+        JdbcTemplate postgres = mock(JdbcTemplate.class);
+        TempTableKeyReconciler reconciler = new TempTableKeyReconciler(mock(JdbcTemplate.class), postgres,
+                Dialect.POSTGRESQL, "DBV_KEYS", 1000, 1000);
+        
+        assertTrue(reconciler.supportsKey("orders", "code"));
+        verifyNoInteractions(postgres);
+    }
+    
+    @Test
+    void testSql_ShouldJoinTemporaryTableAgainstFilteredTargetKeys() {
+        String keySql = TempTableKeyReconciler.keySql("orders", "id", "updated_at >= ?");
+        assertEquals("SELECT id AS dbv_key FROM orders WHERE updated_at >= ?", keySql);
+        assertEquals("SELECT id AS dbv_key FROM orders", TempTableKeyReconciler.keySql("orders", "id", null));
+        
+        assertEquals("SELECT t.k FROM dbv_source_keys t WHERE NOT EXISTS "
+                        + "(SELECT 1 FROM (" + keySql + ") x WHERE x.dbv_key = t.k)",
+                TempTableKeyReconciler.onlyInSourceSql("dbv_source_keys", keySql));
+        assertEquals("SELECT x.dbv_key FROM (" + keySql + ") x WHERE NOT EXISTS "
+                        + "(SELECT 1 FROM dbv_source_keys t WHERE t.k = x.dbv_key)",
+                TempTableKeyReconciler.onlyInTargetSql("dbv_source_keys", keySql));
+        assertEquals("SELECT t.k FROM dbv_source_keys t WHERE EXISTS "
+                        + "(SELECT 1 FROM (" + keySql + ") x WHERE x.dbv_key = t.k)",
+                TempTableKeyReconciler.commonKeySql("dbv_source_keys", keySql));
+    }
+    
+    @SuppressWarnings("unchecked")
+    private static void column(JdbcTemplate jdbcTemplate, String sql, ColumnInfo column) {
+        when(jdbcTemplate.query(eq(sql), any(ResultSetExtractor.class)))
+                .thenReturn(Collections.singletonMap(column.getName(), column));
+    }
+}
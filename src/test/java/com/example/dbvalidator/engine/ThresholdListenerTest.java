@@ -0,0 +1,46 @@
+package com.example.dbvalidator.engine;
+
+import com.example.dbvalidator.model.FieldDifference;
+import com.example.dbvalidator.model.FieldValuePair;
+import org.junit.jupiter.api.Test;
+
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * 差异阈值终止测试
+ */
+class ThresholdListenerTest {
+    
+    @Test
+    void testThreshold_ShouldCancelInFlightStatementsAndStop() throws SQLException {
+        StatementCanceller canceller = new StatementCanceller();
+        Statement running = mock(Statement.class);
+        canceller.register(running);
+        CollectingComparisonListener collected = new CollectingComparisonListener();
+        ThresholdListener listener = new ThresholdListener(collected, 3, canceller);
+        
+        listener.onlyInOracle(1L);
+        listener.onlyInPostgres(2L);
+        assertFalse(canceller.isCancelled());
+        assertThrows(StatementCanceller.CancelledException.class, () -> listener.fieldDifference(
+                FieldDifference.builder().primaryKey(3L).differentFields(Collections.singletonMap("name",
+                        new FieldValuePair("name", "a", "b"))).build()));
+        
+        assertTrue(canceller.isCancelled());
+        verify(running).cancel();
+        assertEquals(1, collected.getDiffSink().size());
+        // 其他线程随后上报的差异不再收集
+        assertThrows(StatementCanceller.CancelledException.class, () -> listener.onlyInOracle(4L));
+        assertEquals(1, collected.getOnlyInOracle().size());
+        
+        // 取消之后登记的语句立即取消
+        Statement late = mock(Statement.class);
+        canceller.register(late);
+        verify(late).cancel();
+    }
+}
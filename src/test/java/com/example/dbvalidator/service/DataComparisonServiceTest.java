@@ -45,6 +45,7 @@ class DataComparisonServiceTest {
         when(validatorProperties.getBatchSize()).thenReturn(1000);
         when(validatorProperties.getIgnoreFields()).thenReturn(Arrays.asList("updated_at"));
         when(validatorProperties.getTables()).thenReturn(Arrays.asList("user_info"));
+        when(validatorProperties.optionsFor(anyString())).thenReturn(new ValidatorProperties.TableOptions());
     }
     
     @Test
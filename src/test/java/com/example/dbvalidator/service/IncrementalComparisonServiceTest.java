@@ -0,0 +1,139 @@
+package com.example.dbvalidator.service;
+
+import com.example.dbvalidator.config.ValidatorProperties;
+import com.example.dbvalidator.model.TableDataComparison;
+import com.example.dbvalidator.model.TableWatermark;
+import com.example.dbvalidator.repository.WatermarkRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * 增量对比水位测试
+ */
+class IncrementalComparisonServiceTest {
+    
+    private static final String TABLE = "user_info";
+    
+    private final JdbcTemplate oracleJdbcTemplate = mock(JdbcTemplate.class);
+    private final DataComparisonService comparisonService = mock(DataComparisonService.class);
+    private final InMemoryWatermarkRepository watermarkRepository = new InMemoryWatermarkRepository();
+    private IncrementalComparisonService service;
+    
+    @BeforeEach
+    void setUp() {
+        ValidatorProperties.TableOptions options = new ValidatorProperties.TableOptions();
+        options.setIncrementalField("updated_at");
+        options.setIncrementalOverlapSeconds(300);
+        ValidatorProperties properties = new ValidatorProperties();
+        properties.setTables(Collections.singletonList(TABLE));
+        properties.getTableOptions().put(TABLE, options);
+        service = new IncrementalComparisonService(oracleJdbcTemplate, comparisonService,
+                watermarkRepository, properties);
+    }
+    
+    @Test
+    void testIncremental_ShouldPersistWatermarkAndReloadWithOverlap() {
+        LocalDateTime firstRun = LocalDateTime.of(2024, 3, 1, 10, 0, 0);
+        LocalDateTime secondRun = LocalDateTime.of(2024, 3, 1, 11, 0, 0);
+        when(oracleJdbcTemplate.queryForObject(anyString(), eq(Timestamp.class)))
+                .thenReturn(Timestamp.valueOf(firstRun), Timestamp.valueOf(secondRun));
+        when(comparisonService.compareSingleTableWithDataFilter(eq(TABLE), any(), nullable(LocalDateTime.class),
+                isNull(), eq("updated_at"))).thenReturn(consistent());
+        
+        // 没有水位时全量对比，一致后水位推进到本次开始时的源库时间
+        service.compareTableIncremental(TABLE, null);
+        verify(comparisonService).compareSingleTableWithDataFilter(TABLE, null, (LocalDateTime) null, null, "updated_at");
+        assertEquals(firstRun, watermarkRepository.findByTableName(TABLE).getWatermark());
+        
+        // 下一次从水位减去重叠时间开始，以 LocalDateTime 传入，由对比服务按 Timestamp 绑定
+        service.compareTableIncremental(TABLE, null);
+        verify(comparisonService).compareSingleTableWithDataFilter(TABLE, null,
+                firstRun.minusSeconds(300), null, "updated_at");
+        assertEquals(secondRun, watermarkRepository.findByTableName(TABLE).getWatermark());
+    }
+    
+    @Test
+    void testIncremental_WhenDifferencesRemain_ShouldHoldWatermark() {
+        LocalDateTime watermark = LocalDateTime.of(2024, 3, 1, 10, 0, 0);
+        watermarkRepository.save(TableWatermark.builder()
+                .tableName(TABLE).timeField("updated_at").watermark(watermark).build());
+        when(oracleJdbcTemplate.queryForObject(anyString(), eq(Timestamp.class)))
+                .thenReturn(Timestamp.valueOf(watermark.plusHours(1)));
+        when(comparisonService.compareSingleTableWithDataFilter(eq(TABLE), any(), nullable(LocalDateTime.class),
+                isNull(), eq("updated_at"))).thenReturn(TableDataComparison.builder()
+                .onlyInOracle(Collections.singletonList(42L))
+                .onlyInPostgres(Collections.emptyList())
+                .fieldDifferenceCount(0L)
+                .build());
+        
+        service.compareTableIncremental(TABLE, null);
+        service.compareTableIncremental(TABLE, null);
+        
+        // 两次都从原水位开始，未解决的差异行仍在窗口内
+        verify(comparisonService, times(2)).compareSingleTableWithDataFilter(TABLE, null,
+                watermark.minusSeconds(300), null, "updated_at");
+        assertEquals(watermark, watermarkRepository.findByTableName(TABLE).getWatermark());
+    }
+    
+    @Test
+    void testWindowStart_WhenTimeFieldChanged_ShouldFallBackToFullComparison() {
+        TableWatermark previous = TableWatermark.builder()
+                .tableName(TABLE).timeField("created_at").watermark(LocalDateTime.of(2024, 3, 1, 10, 0, 0)).build();
+        
+        assertNull(IncrementalComparisonService.windowStart(null, "updated_at", 300));
+        assertNull(IncrementalComparisonService.windowStart(previous, "updated_at", 300));
+        assertEquals(LocalDateTime.of(2024, 3, 1, 9, 55, 0),
+                IncrementalComparisonService.windowStart(previous, "CREATED_AT", 300));
+    }
+    
+    private static TableDataComparison consistent() {
+        return TableDataComparison.builder()
+                .onlyInOracle(Collections.emptyList())
+                .onlyInPostgres(Collections.emptyList())
+                .fieldDifferenceCount(0L)
+                .build();
+    }
+    
+    /**
+     * 以内存代替 validation_watermark 表，保存后重新读取
+     */
+    private static class InMemoryWatermarkRepository extends WatermarkRepository {
+        
+        private final Map<String, TableWatermark> rows = new HashMap<>();
+        
+        InMemoryWatermarkRepository() {
+            super(null);
+        }
+        
+        @Override
+        public TableWatermark findByTableName(String tableName) {
+            TableWatermark row = rows.get(tableName);
+            return row == null ? null : TableWatermark.builder()
+                    .tableName(row.getTableName())
+                    .timeField(row.getTimeField())
+                    .watermark(row.getWatermark())
+                    .build();
+        }
+        
+        @Override
+        public void save(TableWatermark watermark) {
+            rows.put(watermark.getTableName(), watermark);
+        }
+        
+        @Override
+        public void delete(String tableName) {
+            rows.remove(tableName);
+        }
+    }
+}